@@ -0,0 +1,350 @@
+package com.example.viti_be.benchmark;
+
+import com.example.viti_be.dto.request.ApplyPromotionCodeRequest;
+import com.example.viti_be.dto.request.CartItemRequest;
+import com.example.viti_be.mapper.PromotionMapperImpl;
+import com.example.viti_be.model.*;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import com.example.viti_be.model.model_enum.PromotionStatus;
+import com.example.viti_be.model.model_enum.PromotionType;
+import com.example.viti_be.repository.*;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
+import com.example.viti_be.repository.projection.PromotionUsageCountProjection;
+import com.example.viti_be.repository.projection.QuotaAvailabilityProjection;
+import com.example.viti_be.repository.projection.VariantCatalogProjection;
+import com.example.viti_be.service.impl.CartServiceImpl;
+import com.example.viti_be.service.impl.PromotionQuotaServiceImpl;
+import com.example.viti_be.service.impl.PromotionServiceImpl;
+import com.example.viti_be.service.promotion.CustomerPromotionUsageCache;
+import com.example.viti_be.service.promotion.PromotionCombinationOptimizer;
+import com.example.viti_be.service.promotion.PromotionRuleIndex;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog sinh ngẫu nhiên (seed cố định) + services được wire với InMemoryRepository fakes.
+ *
+ * - catalogSize products (mỗi product 1 variant + inventory), ~50 products / category
+ * - promotionCount ACTIVE promotions: 80% PRODUCT (gắn vào products / categories), 20% ORDER
+ * - 1 customer có tier + 1 giỏ hàng cartSize items
+ */
+@Getter
+public final class BenchmarkCatalog {
+
+    private static final int PRODUCTS_PER_CATEGORY = 50;
+    private static final int PRODUCTS_PER_PROMOTION = 5;
+    private static final double CONFLICT_RATE = 0.02;
+
+    private final List<Category> categories = new ArrayList<>();
+    private final List<ProductVariant> variants = new ArrayList<>();
+    private final Map<UUID, ProductVariant> variantsById = new HashMap<>();
+    private final Map<UUID, Inventory> inventoryByVariantId = new HashMap<>();
+    private final List<Promotion> promotions = new ArrayList<>();
+    private final List<PromotionLinkProjection> productLinks = new ArrayList<>();
+    private final List<PromotionLinkProjection> categoryLinks = new ArrayList<>();
+    private final List<PromotionLinkProjection> tierLinks = new ArrayList<>();
+    private final List<PromotionLinkProjection> conflictLinks = new ArrayList<>();
+    private final Set<UUID> usedPromotionIds = new HashSet<>();
+
+    private final UUID userId = UUID.randomUUID();
+    private final CustomerTier tier;
+    private final Customer customer;
+    private final Cart cart;
+    private final List<String> appliedCodes = new ArrayList<>();
+
+    private BenchmarkCatalog(int catalogSize, int promotionCount, int cartSize, long seed) {
+        Random random = new Random(seed);
+
+        tier = new CustomerTier();
+        tier.setId(UUID.randomUUID());
+        tier.setName("GOLD");
+        tier.setDiscountRate(new BigDecimal("2.00"));
+
+        User user = new User();
+        user.setId(userId);
+        customer = new Customer();
+        customer.setId(UUID.randomUUID());
+        customer.setUser(user);
+        customer.setFullName("Benchmark Customer");
+        customer.setTier(tier);
+
+        generateProducts(catalogSize, random);
+        generatePromotions(promotionCount, random);
+        cart = generateCart(cartSize, random);
+    }
+
+    public static BenchmarkCatalog generate(int catalogSize, int promotionCount, int cartSize) {
+        return new BenchmarkCatalog(catalogSize, promotionCount, cartSize, 42L);
+    }
+
+    // ========================================
+    // SERVICES
+    // ========================================
+
+    /**
+     * PromotionServiceImpl chỉ với các dependency của path tính discount giỏ hàng
+     * (các repository khác = null, path ghi DB không được benchmark)
+     */
+    public PromotionServiceImpl promotionService() {
+        PromotionRepository promotionRepository = InMemoryRepository.of(PromotionRepository.class)
+                .on("findByStatusAndIsDeletedFalse", args -> promotions.stream()
+                        .filter(p -> p.getStatus() == args[0])
+                        .collect(Collectors.toList()))
+                .on("findActiveCustomerTierLinks", args -> tierLinks)
+                .build();
+        PromotionProductRepository promotionProductRepository = InMemoryRepository.of(PromotionProductRepository.class)
+                .on("findActivePromotionProductLinks", args -> productLinks)
+                .build();
+        PromotionCategoryRepository promotionCategoryRepository = InMemoryRepository.of(PromotionCategoryRepository.class)
+                .on("findActivePromotionCategoryLinks", args -> categoryLinks)
+                .build();
+        PromotionConflictRepository promotionConflictRepository = InMemoryRepository.of(PromotionConflictRepository.class)
+                .on("findActiveConflictLinks", args -> conflictLinks)
+                .build();
+        PromotionQuotaShardRepository quotaShardRepository = InMemoryRepository.of(PromotionQuotaShardRepository.class)
+                .on("findQuotaAvailability", args -> Collections.<QuotaAvailabilityProjection>emptyList())
+                .build();
+        PromotionUsageHistoryRepository usageHistoryRepository = InMemoryRepository.of(PromotionUsageHistoryRepository.class)
+                .on("countByCustomerIdGroupByPromotion", args -> usageCounts(args[1]))
+                .build();
+        ProductVariantRepository productVariantRepository = InMemoryRepository.of(ProductVariantRepository.class)
+                .on("findCatalogByVariantIds", args -> variantCatalog(args[0]))
+                .build();
+        CustomerRepository customerRepository = InMemoryRepository.of(CustomerRepository.class)
+                .on("findById", args -> Optional.of(customer).filter(c -> c.getId().equals(args[0])))
+                .build();
+
+        PromotionRuleIndex ruleIndex = new PromotionRuleIndex(promotionRepository, promotionProductRepository,
+                promotionCategoryRepository, promotionConflictRepository);
+
+        return new PromotionServiceImpl(
+                promotionRepository,
+                promotionCategoryRepository,
+                promotionProductRepository,
+                promotionConflictRepository,
+                usageHistoryRepository,
+                null, null, null, null,
+                productVariantRepository,
+                customerRepository,
+                null, null,
+                new PromotionMapperImpl(),
+                ruleIndex,
+                new CustomerPromotionUsageCache(usageHistoryRepository),
+                null,
+                new PromotionQuotaServiceImpl(quotaShardRepository),
+                new PromotionCombinationOptimizer(50),
+                event -> { });
+    }
+
+    /**
+     * CartServiceImpl cho path đọc giỏ hàng (getCart + inventory lookup theo từng item)
+     */
+    public CartServiceImpl cartService() {
+        CustomerRepository customerRepository = InMemoryRepository.of(CustomerRepository.class)
+                .on("findByUserIdAndIsDeletedFalse", args -> Optional.of(customer).filter(c -> userId.equals(args[0])))
+                .build();
+        CartRepository cartRepository = InMemoryRepository.of(CartRepository.class)
+                .on("findByCustomerIdAndIsDeletedFalse", args -> Optional.of(cart).filter(c -> customer.getId().equals(args[0])))
+                .build();
+        InventoryRepository inventoryRepository = InMemoryRepository.of(InventoryRepository.class)
+                .on("findByProductVariantId", args -> Optional.ofNullable(inventoryByVariantId.get((UUID) args[0])))
+                .build();
+
+        return new CartServiceImpl(cartRepository, null, customerRepository, null, inventoryRepository, null);
+    }
+
+    /**
+     * Request tính discount tương ứng với giỏ hàng của customer (kèm các code đã nhập)
+     */
+    public ApplyPromotionCodeRequest cartRequest() {
+        List<CartItemRequest> items = cart.getItems().stream()
+                .map(item -> CartItemRequest.builder()
+                        .productId(item.getProductVariant().getProduct().getId())
+                        .productVariantId(item.getProductVariant().getId())
+                        .quantity(item.getQuantity())
+                        .unitPrice(item.getUnitPrice())
+                        .build())
+                .collect(Collectors.toList());
+
+        return ApplyPromotionCodeRequest.builder()
+                .customerId(customer.getId())
+                .items(items)
+                .appliedCodes(new ArrayList<>(appliedCodes))
+                .build();
+    }
+
+    // ========================================
+    // GENERATORS
+    // ========================================
+
+    private void generateProducts(int catalogSize, Random random) {
+        int categoryCount = Math.max(1, catalogSize / PRODUCTS_PER_CATEGORY);
+        for (int i = 0; i < categoryCount; i++) {
+            Category category = new Category();
+            category.setId(UUID.randomUUID());
+            category.setName("Category " + i);
+            categories.add(category);
+        }
+
+        for (int i = 0; i < catalogSize; i++) {
+            Product product = new Product();
+            product.setId(UUID.randomUUID());
+            product.setName("Product " + i);
+            product.setStatus("ACTIVE");
+            product.setCategory(categories.get(random.nextInt(categoryCount)));
+
+            ProductVariant variant = new ProductVariant();
+            variant.setId(UUID.randomUUID());
+            variant.setProduct(product);
+            variant.setSku("SKU-" + i);
+            variant.setVariantName("Variant " + i);
+            variant.setSellingPrice(BigDecimal.valueOf(100_000L + random.nextInt(20_000) * 1_000L));
+            variants.add(variant);
+            variantsById.put(variant.getId(), variant);
+
+            Inventory inventory = Inventory.builder()
+                    .productVariant(variant)
+                    .quantityPhysical(50)
+                    .quantityReserved(0)
+                    .quantityAvailable(random.nextInt(50))
+                    .build();
+            inventory.setId(UUID.randomUUID());
+            inventoryByVariantId.put(variant.getId(), inventory);
+        }
+    }
+
+    private void generatePromotions(int promotionCount, Random random) {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < promotionCount; i++) {
+            PromotionScope scope = i % 5 == 0 ? PromotionScope.ORDER : PromotionScope.PRODUCT;
+            boolean percentage = random.nextBoolean();
+            boolean requiresCode = random.nextInt(10) == 0;
+
+            Promotion promotion = Promotion.builder()
+                    .code("BENCH" + i)
+                    .name("Promotion " + i)
+                    .type(percentage ? PromotionType.PERCENTAGE : PromotionType.FIXED_AMOUNT)
+                    .scope(scope)
+                    .value(percentage
+                            ? BigDecimal.valueOf(5 + random.nextInt(30))
+                            : BigDecimal.valueOf(10_000L + random.nextInt(200) * 1_000L))
+                    .minOrderValue(scope == PromotionScope.ORDER && random.nextBoolean()
+                            ? BigDecimal.valueOf(500_000L + random.nextInt(5_000) * 1_000L)
+                            : null)
+                    .maxDiscountAmount(percentage && random.nextBoolean() ? BigDecimal.valueOf(500_000) : null)
+                    .startDate(now.minusDays(1))
+                    .endDate(now.plusDays(30))
+                    .status(PromotionStatus.ACTIVE)
+                    .usageCount(0)
+                    .usagePerCustomer(random.nextInt(4) == 0 ? 3 : null)
+                    .priority(random.nextInt(10))
+                    .requiresCode(requiresCode)
+                    .build();
+            promotion.setId(UUID.randomUUID());
+            promotion.setIsDeleted(false);
+            promotions.add(promotion);
+
+            if (requiresCode && appliedCodes.size() < 3) {
+                appliedCodes.add(promotion.getCode());
+            }
+            if (promotion.getUsagePerCustomer() != null && random.nextBoolean()) {
+                usedPromotionIds.add(promotion.getId());
+            }
+            if (random.nextInt(5) == 0) {
+                tierLinks.add(new Link(promotion.getId(), random.nextBoolean() ? tier.getId() : UUID.randomUUID()));
+            }
+
+            if (scope == PromotionScope.PRODUCT) {
+                if (random.nextInt(3) == 0) {
+                    categoryLinks.add(new Link(promotion.getId(),
+                            categories.get(random.nextInt(categories.size())).getId()));
+                } else {
+                    for (int j = 0; j < PRODUCTS_PER_PROMOTION; j++) {
+                        productLinks.add(new Link(promotion.getId(),
+                                variants.get(random.nextInt(variants.size())).getProduct().getId()));
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < promotions.size(); i++) {
+            for (int j = i + 1; j < promotions.size(); j++) {
+                if (random.nextDouble() < CONFLICT_RATE) {
+                    conflictLinks.add(new Link(promotions.get(i).getId(), promotions.get(j).getId()));
+                }
+            }
+        }
+    }
+
+    private Cart generateCart(int cartSize, Random random) {
+        Cart generated = Cart.builder()
+                .customer(customer)
+                .items(new ArrayList<>())
+                .build();
+        generated.setId(UUID.randomUUID());
+        generated.setIsDeleted(false);
+
+        // Ưu tiên các variants khác nhau (unique constraint cart_id + product_variant_id)
+        List<ProductVariant> shuffled = new ArrayList<>(variants);
+        Collections.shuffle(shuffled, random);
+        for (int i = 0; i < cartSize && i < shuffled.size(); i++) {
+            ProductVariant variant = shuffled.get(i);
+            CartItem item = CartItem.builder()
+                    .cart(generated)
+                    .productVariant(variant)
+                    .quantity(1 + random.nextInt(3))
+                    .unitPrice(variant.getSellingPrice())
+                    .build();
+            item.setId(UUID.randomUUID());
+            item.setIsDeleted(false);
+            generated.getItems().add(item);
+        }
+        return generated;
+    }
+
+    // ========================================
+    // FAKE QUERIES
+    // ========================================
+
+    @SuppressWarnings("unchecked")
+    private List<VariantCatalogProjection> variantCatalog(Object variantIds) {
+        List<VariantCatalogProjection> rows = new ArrayList<>();
+        for (UUID variantId : (Collection<UUID>) variantIds) {
+            ProductVariant variant = variantsById.get(variantId);
+            if (variant != null) {
+                Product product = variant.getProduct();
+                rows.add(new CatalogRow(variantId, product.getId(),
+                        product.getCategory() != null ? product.getCategory().getId() : null));
+            }
+        }
+        return rows;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<PromotionUsageCountProjection> usageCounts(Object promotionIds) {
+        return ((Collection<UUID>) promotionIds).stream()
+                .filter(usedPromotionIds::contains)
+                .map(id -> (PromotionUsageCountProjection) new UsageRow(id, 1L))
+                .collect(Collectors.toList());
+    }
+
+    private record Link(UUID promotionId, UUID targetId) implements PromotionLinkProjection {
+        @Override public UUID getPromotionId() { return promotionId; }
+        @Override public UUID getTargetId() { return targetId; }
+    }
+
+    private record CatalogRow(UUID variantId, UUID productId, UUID categoryId) implements VariantCatalogProjection {
+        @Override public UUID getVariantId() { return variantId; }
+        @Override public UUID getProductId() { return productId; }
+        @Override public UUID getCategoryId() { return categoryId; }
+    }
+
+    private record UsageRow(UUID promotionId, Long usageCount) implements PromotionUsageCountProjection {
+        @Override public UUID getPromotionId() { return promotionId; }
+        @Override public Long getUsageCount() { return usageCount; }
+    }
+}
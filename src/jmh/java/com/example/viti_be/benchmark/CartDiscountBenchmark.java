@@ -0,0 +1,47 @@
+package com.example.viti_be.benchmark;
+
+import com.example.viti_be.dto.request.ApplyPromotionCodeRequest;
+import com.example.viti_be.dto.response.CartDiscountCalculationResponse;
+import com.example.viti_be.service.impl.PromotionServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark cho PromotionServiceImpl.calculateCartDiscount với in-memory repositories.
+ *
+ * Promotion index và usage cache đã warm sau lần gọi đầu (giống steady state trên production),
+ * nên kết quả đo phần CPU + allocation của pricing path, không bao gồm DB round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartDiscountBenchmark {
+
+    @Param({"1000", "10000"})
+    private int catalogSize;
+
+    @Param({"50", "500"})
+    private int promotionCount;
+
+    @Param({"5", "50"})
+    private int cartSize;
+
+    private PromotionServiceImpl promotionService;
+    private ApplyPromotionCodeRequest request;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCatalog catalog = BenchmarkCatalog.generate(catalogSize, promotionCount, cartSize);
+        promotionService = catalog.promotionService();
+        request = catalog.cartRequest();
+    }
+
+    @Benchmark
+    public CartDiscountCalculationResponse calculateCartDiscount() {
+        return promotionService.calculateCartDiscount(request);
+    }
+}
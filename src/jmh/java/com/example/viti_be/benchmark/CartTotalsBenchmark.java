@@ -0,0 +1,41 @@
+package com.example.viti_be.benchmark;
+
+import com.example.viti_be.dto.response.CartResponse;
+import com.example.viti_be.service.impl.CartServiceImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark cho CartServiceImpl.getCart: map items + inventory lookup + tính tổng tiền giỏ hàng
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartTotalsBenchmark {
+
+    @Param({"1000", "10000"})
+    private int catalogSize;
+
+    @Param({"5", "50", "200"})
+    private int cartSize;
+
+    private CartServiceImpl cartService;
+    private UUID userId;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCatalog catalog = BenchmarkCatalog.generate(catalogSize, 0, cartSize);
+        cartService = catalog.cartService();
+        userId = catalog.getUserId();
+    }
+
+    @Benchmark
+    public CartResponse getCart() {
+        return cartService.getCart(userId);
+    }
+}
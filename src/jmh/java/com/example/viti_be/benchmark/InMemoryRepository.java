@@ -0,0 +1,52 @@
+package com.example.viti_be.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Fake in-memory cho Spring Data repository interfaces (dùng trong JMH benchmarks).
+ *
+ * Chỉ các method được khai báo qua on(...) mới có implementation,
+ * method khác ném UnsupportedOperationException để benchmark không âm thầm đo sai path.
+ */
+public final class InMemoryRepository<T> {
+
+    private final Class<T> type;
+    private final Map<String, Function<Object[], Object>> handlers = new HashMap<>();
+
+    private InMemoryRepository(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> InMemoryRepository<T> of(Class<T> type) {
+        return new InMemoryRepository<>(type);
+    }
+
+    public InMemoryRepository<T> on(String methodName, Function<Object[], Object> handler) {
+        handlers.put(methodName, handler);
+        return this;
+    }
+
+    public T build() {
+        Object proxy = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return self == args[0];
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "toString":
+                    return "InMemory" + type.getSimpleName();
+                default:
+                    Function<Object[], Object> handler = handlers.get(method.getName());
+                    if (handler == null) {
+                        throw new UnsupportedOperationException(
+                                type.getSimpleName() + "." + method.getName() + " is not faked");
+                    }
+                    return handler.apply(args != null ? args : new Object[0]);
+            }
+        });
+        return type.cast(proxy);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.viti_be.benchmark;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark cho Promotion.calculateDiscount (gọi cho mỗi line x mỗi candidate khi tính giỏ hàng)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionDiscountBenchmark {
+
+    @Param({"PERCENTAGE", "FIXED_AMOUNT"})
+    private PromotionType type;
+
+    private Promotion promotion;
+    private BigDecimal baseAmount;
+
+    @Setup
+    public void setUp() {
+        promotion = Promotion.builder()
+                .type(type)
+                .value(type == PromotionType.PERCENTAGE ? new BigDecimal("15") : new BigDecimal("50000"))
+                .maxDiscountAmount(new BigDecimal("500000"))
+                .build();
+        baseAmount = new BigDecimal("1299000");
+    }
+
+    @Benchmark
+    public BigDecimal calculateDiscount() {
+        return promotion.calculateDiscount(baseAmount);
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.viti_be.benchmark;
+
+import com.example.viti_be.repository.DailySalesRollupRepository;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark cho tile doanh thu của ReportServiceImpl.getRevenueReport trên Postgres 16 (Testcontainers, cần Docker).
+ *
+ * - rawOrders: luồng trước khi có rollup (baseline), getRevenueByDay + getRevenueByOrderType + calculateComparison
+ *   (getRevenueByDay kỳ trước), cả 3 query quét thẳng orders
+ * - separateQueries: luồng cũ, breakdown + theo loại đơn + kỳ trước, mỗi phần 1 query rollup + 1 query orders
+ * - singleStatement: DailySalesRollupRepository.REVENUE_SUMMARY
+ *
+ * Dataset: orderCount đơn rải đều 365 ngày gần nhất, rollup các ngày trước hôm nay dựng bằng BUILD_DAYS.
+ * Report 30 ngày gần nhất (gồm hôm nay), so với 30 ngày trước đó.
+ *
+ * mvn -Pbenchmark test -Djmh.args="RevenueReportQueryBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RevenueReportQueryBenchmark {
+
+    private static final String NIL = "CAST('00000000-0000-0000-0000-000000000000' AS uuid)";
+
+    private static final String GENERATE_ORDERS = """
+        INSERT INTO orders (id, order_number, created_at, status, order_type, payment_method, final_amount, is_deleted)
+        SELECT gen_random_uuid(), 'BENCH-' || g,
+               CURRENT_DATE - (g % 365) + (g % 86400) * INTERVAL '1 second',
+               (ARRAY['PENDING', 'CONFIRMED', 'COMPLETED', 'CANCELLED'])[1 + g % 4],
+               (ARRAY['OFFLINE', 'ONLINE_COD', 'ONLINE_TRANSFER'])[1 + g % 3],
+               (ARRAY['CASH', 'TRANSFER', 'COD'])[1 + (g / 7) % 3],
+               100000 + (g % 50) * 10000,
+               false
+        FROM generate_series(1, :orderCount) g
+        """;
+
+    // SQL Hibernate sinh cho OrderRepository.getRevenueByDay / getRevenueByOrderType trước khi có rollup
+    private static final String RAW_ORDERS_BY_DAY = """
+        SELECT CAST(o.created_at AS date), SUM(o.final_amount), COUNT(o.id)
+        FROM orders o
+        WHERE o.created_at BETWEEN :startDate AND :endDate
+            AND (:status IS NULL OR o.status = :status)
+            AND (:orderType IS NULL OR o.order_type = :orderType)
+            AND (:paymentMethod IS NULL OR o.payment_method = :paymentMethod)
+            AND (:employeeId IS NULL OR o.employee_id = CAST(:employeeId AS uuid))
+            AND (:customerTier IS NULL OR o.customer_tier_id = CAST(:customerTier AS uuid))
+        GROUP BY CAST(o.created_at AS date)
+        ORDER BY 1
+        """;
+
+    private static final String RAW_ORDERS_BY_TYPE = """
+        SELECT o.order_type, SUM(o.final_amount), COUNT(o.id)
+        FROM orders o
+        WHERE o.created_at BETWEEN :startDate AND :endDate
+            AND (:status IS NULL OR o.status = :status)
+            AND (:customerTier IS NULL OR o.customer_tier_id = CAST(:customerTier AS uuid))
+        GROUP BY o.order_type
+        ORDER BY 2 DESC
+        """;
+
+    private static final String ROLLUP_BY_DAY = """
+        SELECT r.sales_date, SUM(r.order_revenue), SUM(r.order_count)
+        FROM daily_sales_rollup r
+        WHERE r.product_variant_id = %s AND r.sales_date BETWEEN :startDate AND :endDate
+        GROUP BY r.sales_date
+        HAVING SUM(r.order_count) <> 0
+        ORDER BY r.sales_date
+        """.formatted(NIL);
+
+    private static final String ORDERS_BY_DAY = """
+        SELECT CAST(o.created_at AS date), SUM(o.final_amount), COUNT(o.id)
+        FROM orders o
+        WHERE o.created_at BETWEEN :liveStart AND :liveEnd
+        GROUP BY CAST(o.created_at AS date)
+        ORDER BY 1
+        """;
+
+    private static final String ROLLUP_BY_TYPE = """
+        SELECT r.order_type, SUM(r.order_revenue), SUM(r.order_count)
+        FROM daily_sales_rollup r
+        WHERE r.product_variant_id = %s AND r.sales_date BETWEEN :startDate AND :endDate
+        GROUP BY r.order_type
+        HAVING SUM(r.order_count) <> 0
+        """.formatted(NIL);
+
+    private static final String ORDERS_BY_TYPE = """
+        SELECT o.order_type, SUM(o.final_amount), COUNT(o.id)
+        FROM orders o
+        WHERE o.created_at BETWEEN :liveStart AND :liveEnd
+        GROUP BY o.order_type
+        """;
+
+    @Param({"5000000"})
+    private int orderCount;
+
+    private PostgreSQLContainer<?> postgres;
+    private SingleConnectionDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbc;
+
+    private MapSqlParameterSource current;
+    private MapSqlParameterSource previous;
+    private MapSqlParameterSource summary;
+    private MapSqlParameterSource rawCurrent;
+    private MapSqlParameterSource rawPrevious;
+
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+        postgres.start();
+        dataSource = new SingleConnectionDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword(), true);
+        Flyway.configure().dataSource(dataSource).load().migrate();
+
+        jdbc = new NamedParameterJdbcTemplate(dataSource);
+        jdbc.update(GENERATE_ORDERS, Map.of("orderCount", orderCount));
+        LocalDate today = LocalDate.now();
+        jdbc.update(DailySalesRollupRepository.BUILD_DAYS, Map.of(
+                "fromDate", today.minusDays(365), "toDate", today.minusDays(1)));
+        jdbc.getJdbcTemplate().execute("ANALYZE");
+
+        LocalDate startDate = today.minusDays(29);
+        LocalDate previousStart = startDate.minusDays(30);
+
+        current = range(startDate, today.minusDays(1), today, today);
+        // Kỳ trước đã chốt hết, phần live rỗng
+        previous = range(previousStart, startDate.minusDays(1), today.plusDays(1), today);
+        summary = new MapSqlParameterSource()
+                .addValue("startDate", startDate)
+                .addValue("unit", "day")
+                .addValue("closedStart", previousStart)
+                .addValue("closedEnd", today.minusDays(1))
+                .addValue("liveStart", today.atStartOfDay())
+                .addValue("liveEnd", today.atTime(LocalTime.MAX))
+                .addValue("status", null, Types.VARCHAR)
+                .addValue("orderType", null, Types.VARCHAR)
+                .addValue("paymentMethod", null, Types.VARCHAR)
+                .addValue("employeeId", null, Types.VARCHAR)
+                .addValue("customerTier", null, Types.VARCHAR);
+        rawCurrent = rawRange(startDate, today);
+        rawPrevious = rawRange(previousStart, startDate.minusDays(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+        postgres.stop();
+    }
+
+    @Benchmark
+    public void rawOrders(Blackhole blackhole) {
+        blackhole.consume(jdbc.queryForList(RAW_ORDERS_BY_DAY, rawCurrent));
+        blackhole.consume(jdbc.queryForList(RAW_ORDERS_BY_TYPE, rawCurrent));
+        blackhole.consume(jdbc.queryForList(RAW_ORDERS_BY_DAY, rawPrevious));
+    }
+
+    @Benchmark
+    public void separateQueries(Blackhole blackhole) {
+        blackhole.consume(jdbc.queryForList(ROLLUP_BY_DAY, current));
+        blackhole.consume(jdbc.queryForList(ORDERS_BY_DAY, current));
+        blackhole.consume(jdbc.queryForList(ROLLUP_BY_TYPE, current));
+        blackhole.consume(jdbc.queryForList(ORDERS_BY_TYPE, current));
+        blackhole.consume(jdbc.queryForList(ROLLUP_BY_DAY, previous));
+        blackhole.consume(jdbc.queryForList(ORDERS_BY_DAY, previous));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> singleStatement() {
+        return jdbc.queryForList(DailySalesRollupRepository.REVENUE_SUMMARY, summary);
+    }
+
+    /**
+     * Ngày đã chốt [startDate, endDate] đọc rollup, [liveFrom, liveTo] đọc orders
+     */
+    private static MapSqlParameterSource range(LocalDate startDate, LocalDate endDate,
+                                               LocalDate liveFrom, LocalDate liveTo) {
+        return new MapSqlParameterSource()
+                .addValue("startDate", startDate)
+                .addValue("endDate", endDate)
+                .addValue("liveStart", liveFrom.atStartOfDay())
+                .addValue("liveEnd", liveTo.atTime(LocalTime.MAX));
+    }
+
+    /**
+     * [startDate, endDate] đọc thẳng orders, không filter
+     */
+    private static MapSqlParameterSource rawRange(LocalDate startDate, LocalDate endDate) {
+        return new MapSqlParameterSource()
+                .addValue("startDate", startDate.atStartOfDay())
+                .addValue("endDate", endDate.atTime(LocalTime.MAX))
+                .addValue("status", null, Types.VARCHAR)
+                .addValue("orderType", null, Types.VARCHAR)
+                .addValue("paymentMethod", null, Types.VARCHAR)
+                .addValue("employeeId", null, Types.VARCHAR)
+                .addValue("customerTier", null, Types.VARCHAR);
+    }
+}
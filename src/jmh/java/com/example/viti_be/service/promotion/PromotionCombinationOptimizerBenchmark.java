@@ -0,0 +1,115 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import com.example.viti_be.model.model_enum.PromotionStatus;
+import com.example.viti_be.model.model_enum.PromotionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark cho PromotionCombinationOptimizer: giỏ 1-200 lines, 10-500 ACTIVE promotions
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromotionCombinationOptimizerBenchmark {
+
+    @Param({"1", "20", "200"})
+    private int lineCount;
+
+    @Param({"10", "100", "500"})
+    private int promotionCount;
+
+    /** Số PRODUCT promotions match mỗi line */
+    @Param({"4"})
+    private int candidatesPerLine;
+
+    /** Xác suất 2 promotions xung đột */
+    @Param({"0.01", "0.05"})
+    private double conflictRate;
+
+    private PromotionCombinationOptimizer optimizer;
+    private List<PromotionCombinationOptimizer.CartLine> lines;
+    private List<CompiledPromotion> orderCandidates;
+    private BigDecimal orderBase;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        optimizer = new PromotionCombinationOptimizer(50);
+
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < promotionCount; i++) {
+            promotions.add(promotion(i, random, i % 5 == 0 ? PromotionScope.ORDER : PromotionScope.PRODUCT));
+        }
+
+        Map<UUID, Set<UUID>> conflicts = new HashMap<>();
+        for (int i = 0; i < promotionCount; i++) {
+            for (int j = i + 1; j < promotionCount; j++) {
+                if (random.nextDouble() < conflictRate) {
+                    UUID a = promotions.get(i).getId();
+                    UUID b = promotions.get(j).getId();
+                    conflicts.computeIfAbsent(a, k -> new HashSet<>()).add(b);
+                    conflicts.computeIfAbsent(b, k -> new HashSet<>()).add(a);
+                }
+            }
+        }
+
+        List<CompiledPromotion> productPromotions = new ArrayList<>();
+        orderCandidates = new ArrayList<>();
+        for (Promotion p : promotions) {
+            CompiledPromotion compiled = new CompiledPromotion(p, Collections.emptySet(),
+                    conflicts.getOrDefault(p.getId(), Collections.emptySet()));
+            (p.getScope() == PromotionScope.ORDER ? orderCandidates : productPromotions).add(compiled);
+        }
+
+        lines = new ArrayList<>();
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (int i = 0; i < lineCount; i++) {
+            BigDecimal base = BigDecimal.valueOf(50_000L + random.nextInt(5_000_000));
+            List<CompiledPromotion> candidates = new ArrayList<>();
+            for (int k = 0; k < candidatesPerLine && !productPromotions.isEmpty(); k++) {
+                CompiledPromotion candidate = productPromotions.get(random.nextInt(productPromotions.size()));
+                if (!candidates.contains(candidate)) {
+                    candidates.add(candidate);
+                }
+            }
+            lines.add(new PromotionCombinationOptimizer.CartLine(UUID.randomUUID(), base, candidates));
+            subtotal = subtotal.add(base);
+        }
+        orderBase = subtotal;
+    }
+
+    @Benchmark
+    public PromotionCombinationOptimizer.Result optimize() {
+        return optimizer.optimize(lines, orderCandidates, orderBase);
+    }
+
+    private static Promotion promotion(int i, Random random, PromotionScope scope) {
+        boolean percentage = random.nextBoolean();
+        Promotion promotion = Promotion.builder()
+                .code("BENCH" + i)
+                .name("Benchmark " + i)
+                .type(percentage ? PromotionType.PERCENTAGE : PromotionType.FIXED_AMOUNT)
+                .scope(scope)
+                .value(percentage ? BigDecimal.valueOf(5 + random.nextInt(30)) : BigDecimal.valueOf(10_000L * (1 + random.nextInt(20))))
+                .maxDiscountAmount(percentage && random.nextBoolean() ? BigDecimal.valueOf(200_000) : null)
+                .minOrderValue(scope == PromotionScope.ORDER ? BigDecimal.valueOf(100_000L * random.nextInt(10)) : null)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(30))
+                .status(PromotionStatus.ACTIVE)
+                .priority(random.nextInt(10))
+                .requiresCode(false)
+                .build();
+        promotion.setId(UUID.randomUUID());
+        return promotion;
+    }
+}
@@ -27,6 +27,13 @@ public class CacheConfig {
                 .recordStats() // Enable statistics
         );
 
+        // Inventory overview: TTL ngắn vì tồn kho thay đổi liên tục
+        cacheManager.registerCustomCache("inventoryOverview", Caffeine.newBuilder()
+                .expireAfterWrite(30, TimeUnit.SECONDS)
+                .maximumSize(50)
+                .recordStats()
+                .build());
+
         return cacheManager;
     }
 }
\ No newline at end of file
@@ -234,6 +234,13 @@ public class DataInitializer implements CommandLineRunner {
                 "Giá trị đơn hàng tối thiểu (VND)"
         );
 
+        createConfigIfNotExists(
+                "ORDER_RESERVATION_TTL_MINUTES",
+                "1440",
+                "INTEGER",
+                "Số phút giữ hàng cho đơn ONLINE còn PENDING, quá hạn sẽ tự động huỷ và trả hàng về kho"
+        );
+
         log.info("Created system configs");
     }
 
@@ -1,7 +1,9 @@
 package com.example.viti_be.controller;
 
+import com.example.viti_be.dto.request.BulkOrderStatusRequest;
 import com.example.viti_be.dto.request.CreateOrderRequest;
 import com.example.viti_be.dto.response.ApiResponse;
+import com.example.viti_be.dto.response.BulkOrderStatusResponse;
 import com.example.viti_be.dto.response.OrderResponse;
 import com.example.viti_be.dto.response.pagnitation.PageResponse;
 import com.example.viti_be.model.model_enum.OrderStatus;
@@ -103,6 +105,30 @@ public class OrderController {
         return ResponseEntity.ok(ApiResponse.success(updatedOrder, "Cập nhật trạng thái đơn hàng thành công: " + status));
     }
 
+    /**
+     * Đổi trạng thái nhiều đơn cùng lúc (CANCELLED, COMPLETED), trả kết quả từng đơn
+     * PUT /api/orders/bulk-status
+     */
+    @PutMapping("/bulk-status")
+    @Operation(summary = "Bulk update order status (ADMIN)", description = """
+            Only CANCELLED and COMPLETED are supported.
+            Orders that are missing or already in a terminal state are reported as failed without aborting the batch.
+            """
+    )
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BulkOrderStatusResponse>> bulkUpdateOrderStatus(
+            @Valid @RequestBody BulkOrderStatusRequest request,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        UserDetailsImpl userImpl = (UserDetailsImpl) userDetails;
+        UUID actorId = userImpl.getId();
+        BulkOrderStatusResponse result = orderService.bulkUpdateOrderStatus(request, actorId);
+
+        return ResponseEntity.ok(ApiResponse.success(result, String.format(
+                "Cập nhật trạng thái %d/%d đơn hàng thành công", result.getSucceeded(),
+                result.getSucceeded() + result.getFailed())));
+    }
+
     /**
      * API chuyên biệt để hủy đơn (Shortcut cho Update Status)
      * PUT /api/orders/{id}/cancel
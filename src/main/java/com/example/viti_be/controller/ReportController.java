@@ -4,7 +4,10 @@ import com.example.viti_be.dto.request.InventoryReportRequest;
 import com.example.viti_be.dto.request.ReportFilterRequest;
 import com.example.viti_be.dto.response.*;
 import com.example.viti_be.model.model_enum.ExportFormat;
+import com.example.viti_be.service.ExportService;
+import com.example.viti_be.service.ReportExportJobService;
 import com.example.viti_be.service.ReportService;
+import com.example.viti_be.util.SecurityUtils;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Schema;
@@ -15,11 +18,16 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/reports")
@@ -28,6 +36,8 @@ import java.util.Set;
 public class ReportController {
 
     private final ReportService reportService;
+    private final ExportService exportService;
+    private final ReportExportJobService exportJobService;
 
     private static final Set<String> VALID_INVENTORY_SORT_FIELDS = Set.of(
             "quantityPhysical",
@@ -118,20 +128,24 @@ public class ReportController {
 
     @PostMapping("/export")
     @PreAuthorize("hasAnyRole('ADMIN', 'ACCOUNTANT')")
-    @Operation(summary = "Export report to CSV or PDF (Revenue, Profit, Top Products)")
-    public ResponseEntity<ExportReportResponse> exportReport(
+    @Operation(
+            summary = "Export report to CSV or PDF (Revenue, Profit, Top Products)",
+            description = "Runs in the background. Progress is pushed as SSE event REPORT_EXPORT "
+                    + "on /api/admin/notifications/stream and can be polled at /export/jobs/{jobId}"
+    )
+    public ResponseEntity<ExportJobResponse> exportReport(
             @Valid @RequestBody ReportFilterRequest filter,
             @RequestParam String type, // REVENUE, PROFIT, TOP_PRODUCTS
             @RequestParam(defaultValue = "CSV") ExportFormat format) {
 
-        ExportReportResponse response = reportService.exportReport(filter, type, format);
-        return ResponseEntity.ok(response);
+        ExportJobResponse response = exportJobService.submitExport(filter, type, format, SecurityUtils.getCurrentUserId());
+        return ResponseEntity.accepted().body(response);
     }
 
     @PostMapping("/export/inventory")
     @PreAuthorize("hasAnyRole('ADMIN', 'ACCOUNTANT', 'WAREHOUSE')")
-    @Operation(summary = "Export inventory report to CSV or PDF")
-    public ResponseEntity<ExportReportResponse> exportInventoryReport(
+    @Operation(summary = "Export inventory report to CSV or PDF (runs in the background, see /export)")
+    public ResponseEntity<ExportJobResponse> exportInventoryReport(
             @Valid @RequestBody InventoryReportRequest filter,
             @RequestParam(defaultValue = "CSV") ExportFormat format,
             @RequestParam(defaultValue = "0") int page,
@@ -147,7 +161,59 @@ public class ReportController {
         Sort.Direction sortDirection = Sort.Direction.fromString(direction);
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
 
-        ExportReportResponse response = reportService.exportInventoryReport(filter, format, pageable);
-        return ResponseEntity.ok(response);
+        ExportJobResponse response = exportJobService.submitInventoryExport(
+                filter, format, pageable, SecurityUtils.getCurrentUserId());
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/export/jobs/{jobId}")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ACCOUNTANT', 'WAREHOUSE')")
+    @Operation(summary = "Get export job status (file URL once completed)")
+    public ResponseEntity<ExportJobResponse> getExportJob(@PathVariable UUID jobId) {
+        return ResponseEntity.ok(exportJobService.getJob(jobId));
+    }
+
+    // ============================================
+    // STREAMING DOWNLOAD
+    // ============================================
+
+    @GetMapping("/export/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ACCOUNTANT')")
+    @Operation(summary = "Download report as CSV or PDF, streamed directly in the response (Revenue, Profit, Top Products)")
+    public ResponseEntity<StreamingResponseBody> streamReport(
+            @Valid @ModelAttribute ReportFilterRequest filter,
+            @RequestParam String type, // REVENUE, PROFIT, TOP_PRODUCTS
+            @RequestParam(defaultValue = "CSV") ExportFormat format) {
+
+        return attachment(type, format, out -> reportService.streamReport(filter, type, format, out));
+    }
+
+    @GetMapping("/export/inventory/stream")
+    @PreAuthorize("hasAnyRole('ADMIN', 'ACCOUNTANT', 'WAREHOUSE')")
+    @Operation(summary = "Download full inventory report as CSV or PDF, streamed directly in the response")
+    public ResponseEntity<StreamingResponseBody> streamInventoryReport(
+            @Valid @ModelAttribute InventoryReportRequest filter,
+            @RequestParam(defaultValue = "CSV") ExportFormat format,
+            @RequestParam(defaultValue = "quantityAvailable") String sortBy,
+            @RequestParam(defaultValue = "ASC") String direction) {
+
+        // Validate sortBy
+        if (!VALID_INVENTORY_SORT_FIELDS.contains(sortBy)) {
+            throw new IllegalArgumentException("Invalid sortBy field: " + sortBy);
+        }
+
+        Sort sort = Sort.by(Sort.Direction.fromString(direction), sortBy);
+
+        return attachment("INVENTORY", format, out -> reportService.streamInventoryReport(filter, format, sort, out));
+    }
+
+    private ResponseEntity<StreamingResponseBody> attachment(String reportType, ExportFormat format,
+                                                             StreamingResponseBody body) {
+        String fileName = exportService.fileName(reportType, format);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(fileName).build().toString())
+                .contentType(MediaType.parseMediaType(exportService.contentType(format)))
+                .body(body);
     }
-}
\ No newline at end of file
+}
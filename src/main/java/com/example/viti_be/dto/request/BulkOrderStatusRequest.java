@@ -0,0 +1,30 @@
+package com.example.viti_be.dto.request;
+
+import com.example.viti_be.model.model_enum.OrderStatus;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Request đổi trạng thái nhiều đơn cùng lúc (chỉ hỗ trợ CANCELLED, COMPLETED)
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusRequest {
+
+    @NotEmpty(message = "At least one order id must be provided")
+    private List<UUID> orderIds;
+
+    @NotNull(message = "Status is required")
+    private OrderStatus status;
+
+    private String reason;
+}
@@ -4,6 +4,7 @@ import com.example.viti_be.model.model_enum.PromotionType;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.util.List;
 import java.util.UUID;
 
 @Data
@@ -17,4 +18,5 @@ public class AppliedPromotionResponse {
     private PromotionType type;
     private BigDecimal discountAmount;
     private String message; // "Giảm 10% (tối đa 1 triệu)"
+    private List<UUID> productVariantIds; // PRODUCT promotion: các line (variant) được chọn áp dụng
 }
@@ -0,0 +1,34 @@
+package com.example.viti_be.dto.response;
+
+import com.example.viti_be.model.model_enum.OrderStatus;
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BulkOrderStatusResponse {
+
+    private OrderStatus status;
+    private Integer succeeded;
+    private Integer failed;
+    private List<OrderOutcome> results;
+
+    /**
+     * Kết quả của từng đơn (theo thứ tự orderIds trong request)
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class OrderOutcome {
+        private UUID orderId;
+        private String orderNumber;
+        private OrderStatus previousStatus;
+        private Boolean success;
+        private String message;     // Lý do thất bại, null nếu thành công
+    }
+}
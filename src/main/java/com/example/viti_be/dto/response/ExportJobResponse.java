@@ -0,0 +1,30 @@
+package com.example.viti_be.dto.response;
+
+import com.example.viti_be.model.model_enum.ExportFormat;
+import com.example.viti_be.model.model_enum.ExportJobStatus;
+import com.example.viti_be.model.model_enum.ReportType;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Trạng thái 1 export job, cũng là payload của SSE event REPORT_EXPORT
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder(toBuilder = true)
+public class ExportJobResponse {
+    private UUID jobId;
+    private ReportType reportType;
+    private ExportFormat format;
+    private ExportJobStatus status;
+    private Integer progress;       // 0 - 100
+    private String message;
+    private String fileUrl;         // Supabase Storage URL, có khi COMPLETED
+    private String fileName;
+    private Boolean reused;         // true nếu dùng lại file của export giống hệt trước đó
+    private LocalDateTime submittedAt;
+    private LocalDateTime finishedAt;
+}
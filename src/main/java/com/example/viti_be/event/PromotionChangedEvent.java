@@ -0,0 +1,21 @@
+package com.example.viti_be.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.UUID;
+
+/**
+ * Event được publish khi promotion thay đổi (create/update/delete/toggle/status, relationships).
+ * Các cache/index liên quan đến promotion lắng nghe event này để invalidate SAU KHI commit.
+ */
+@Getter
+public class PromotionChangedEvent extends ApplicationEvent {
+
+    private final UUID promotionId; // null = nhiều promotions thay đổi cùng lúc
+
+    public PromotionChangedEvent(Object source, UUID promotionId) {
+        super(source);
+        this.promotionId = promotionId;
+    }
+}
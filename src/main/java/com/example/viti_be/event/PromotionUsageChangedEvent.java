@@ -0,0 +1,24 @@
+package com.example.viti_be.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Event được publish khi PromotionUsageHistory của 1 customer thay đổi
+ * (confirm order hoặc restore khi cancel order).
+ */
+@Getter
+public class PromotionUsageChangedEvent extends ApplicationEvent {
+
+    private final UUID customerId;
+    private final Set<UUID> promotionIds;
+
+    public PromotionUsageChangedEvent(Object source, UUID customerId, Set<UUID> promotionIds) {
+        super(source);
+        this.customerId = customerId;
+        this.promotionIds = promotionIds;
+    }
+}
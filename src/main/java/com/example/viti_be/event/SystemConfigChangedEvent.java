@@ -0,0 +1,19 @@
+package com.example.viti_be.event;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Event được publish khi system config thay đổi (create/update/delete, loyalty config, next reset date).
+ * SystemConfigCache lắng nghe event này để reload SAU KHI commit.
+ */
+@Getter
+public class SystemConfigChangedEvent extends ApplicationEvent {
+
+    private final String configKey; // null = nhiều keys thay đổi cùng lúc
+
+    public SystemConfigChangedEvent(Object source, String configKey) {
+        super(source);
+        this.configKey = configKey;
+    }
+}
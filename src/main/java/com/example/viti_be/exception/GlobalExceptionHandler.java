@@ -1,6 +1,7 @@
 package com.example.viti_be.exception;
 
 import com.example.viti_be.dto.response.ApiResponse;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -39,6 +40,12 @@ public class GlobalExceptionHandler {
             .body(ApiResponse.error(HttpStatus.BAD_REQUEST.value(), errorMessage));
   }
 
+  @ExceptionHandler(TaskRejectedException.class)
+  public ResponseEntity<ApiResponse<Object>> handleTaskRejectedException(TaskRejectedException ex) {
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(ApiResponse.error(HttpStatus.SERVICE_UNAVAILABLE.value(), "Server is busy, please try again later"));
+  }
+
   @ExceptionHandler(RuntimeException.class)
   public ResponseEntity<ApiResponse<Object>> handleRuntimeException(RuntimeException ex) {
     return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -53,10 +53,16 @@ public abstract class PromotionMapper {
     // ========== CUSTOM MAPPING METHODS ==========
 
     /**
-     * Parse JSON string thành List<String> cho customer tiers
+     * Tên các customer tiers (fallback: parse legacy JSON nếu chưa migrate)
      */
     @Named("parseCustomerTiers")
     protected List<String> parseCustomerTiers(Promotion promotion) {
+        if (promotion.getCustomerTiers() != null && !promotion.getCustomerTiers().isEmpty()) {
+            return promotion.getCustomerTiers().stream()
+                    .map(CustomerTier::getName)
+                    .collect(Collectors.toList());
+        }
+
         if (promotion.getApplicableCustomerTiers() == null) {
             return Collections.emptyList();
         }
@@ -19,7 +19,7 @@ public class ReportMapper {
     // REVENUE MAPPING
     // ============================================
 
-    public RevenueReportResponse.RevenueByPeriod toRevenueByPeriod(RevenueProjection projection) {
+    public RevenueReportResponse.RevenueByPeriod toRevenueByPeriod(RevenueSummaryProjection projection) {
         return RevenueReportResponse.RevenueByPeriod.builder()
                 .period(projection.getPeriod())
                 .revenue(projection.getTotalRevenue())
@@ -27,15 +27,7 @@ public class ReportMapper {
                 .build();
     }
 
-    public RevenueReportResponse.RevenueByPeriod toRevenueByPeriodFromNative(Object[] row) {
-        return RevenueReportResponse.RevenueByPeriod.builder()
-                .period(((java.sql.Date) row[0]).toLocalDate())
-                .revenue((BigDecimal) row[1])
-                .orderCount(((Number) row[2]).longValue())
-                .build();
-    }
-
-    public RevenueReportResponse.RevenueByType toRevenueByType(RevenueByTypeProjection projection) {
+    public RevenueReportResponse.RevenueByType toRevenueByType(RevenueSummaryProjection projection) {
         return RevenueReportResponse.RevenueByType.builder()
                 .orderType(projection.getOrderType())
                 .revenue(projection.getTotalRevenue())
@@ -0,0 +1,96 @@
+package com.example.viti_be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Doanh số gom theo ngày (ngày tạo đơn) + các chiều mà report lọc/gom.
+ *
+ * - productVariantId = ORDER_LEVEL: dòng cấp đơn (orderCount, orderRevenue = final_amount)
+ * - productVariantId khác: dòng cấp sản phẩm (quantity, itemRevenue, itemCost, itemProfit)
+ * - employeeId / customerTierId = NONE khi đơn không có, orderType / paymentMethod / status = "" khi null
+ *   (các cột đều thuộc khoá chính nên không được null)
+ *
+ * Mỗi ngày được dựng 1 lần khi ngày đã chốt (DailySalesRollupScheduler); sau đó đơn của ngày đã chốt
+ * đổi trạng thái / bị xoá thì cập nhật cùng transaction (DailySalesRollupRecorder):
+ * trừ đóng góp của đơn ở trạng thái cũ, cộng lại ở trạng thái mới.
+ * Các cột trạng thái để String (không @Enumerated) để Hibernate không sinh CHECK constraint chặn giá trị "".
+ */
+@Entity
+@Table(name = "daily_sales_rollup")
+@IdClass(DailySalesRollup.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailySalesRollup {
+
+    public static final UUID ORDER_LEVEL = new UUID(0L, 0L);
+    public static final UUID NONE = new UUID(0L, 0L);
+
+    @Id
+    @Column(name = "sales_date")
+    private LocalDate salesDate;
+
+    @Id
+    @Column(name = "product_variant_id")
+    private UUID productVariantId;
+
+    @Id
+    @Column(name = "order_type", length = 20)
+    private String orderType;
+
+    @Id
+    @Column(name = "payment_method", length = 20)
+    private String paymentMethod;
+
+    @Id
+    @Column(name = "employee_id")
+    private UUID employeeId;
+
+    @Id
+    @Column(name = "customer_tier_id")
+    private UUID customerTierId;
+
+    @Id
+    @Column(name = "status", length = 20)
+    private String status;
+
+    @Column(name = "order_count", nullable = false)
+    private Long orderCount;
+
+    @Column(name = "order_revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal orderRevenue;
+
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+
+    @Column(name = "item_revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal itemRevenue;
+
+    @Column(name = "item_cost", nullable = false, precision = 19, scale = 2)
+    private BigDecimal itemCost;
+
+    @Column(name = "item_profit", nullable = false, precision = 19, scale = 2)
+    private BigDecimal itemProfit;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate salesDate;
+        private UUID productVariantId;
+        private String orderType;
+        private String paymentMethod;
+        private UUID employeeId;
+        private UUID customerTierId;
+        private String status;
+    }
+}
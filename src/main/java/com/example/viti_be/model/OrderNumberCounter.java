@@ -0,0 +1,28 @@
+package com.example.viti_be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Counter số thứ tự đơn hàng theo ngày (ORD-yyyyMMdd-NNNNNN).
+ *
+ * Mỗi node lấy 1 block số (last_value += blockSize) rồi cấp phát trong memory,
+ * nên không cần round trip DB cho từng đơn.
+ */
+@Entity
+@Table(name = "order_number_counters")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderNumberCounter {
+
+    @Id
+    @Column(name = "counter_date")
+    private LocalDate counterDate;
+
+    @Column(name = "last_value", nullable = false)
+    private Long lastValue;
+}
@@ -43,8 +43,13 @@ public class Promotion extends BaseEntity {
     @Column(name = "max_discount_amount", precision = 15, scale = 2)
     private BigDecimal maxDiscountAmount; // Giảm tối đa (cho PERCENTAGE)
 
+    /**
+     * @deprecated Legacy JSON (["GOLD", "PLATINUM"]), đã chuyển sang {@link #customerTiers}.
+     * Chỉ còn giá trị với promotions cũ mà migration V7 không khớp được tier nào (kể cả "[]").
+     */
+    @Deprecated
     @Column(name = "applicable_customer_tiers", columnDefinition = "TEXT")
-    private String applicableCustomerTiers; // JSON: ["GOLD", "PLATINUM"]
+    private String applicableCustomerTiers;
 
     @Column(name = "start_date", nullable = false)
     private LocalDateTime startDate;
@@ -93,6 +98,15 @@ public class Promotion extends BaseEntity {
     @Builder.Default
     private Set<PromotionConflict> conflictedBy = new HashSet<>();
 
+    @ManyToMany(fetch = FetchType.LAZY)
+    @JoinTable(
+            name = "promotion_customer_tiers",
+            joinColumns = @JoinColumn(name = "promotion_id"),
+            inverseJoinColumns = @JoinColumn(name = "customer_tier_id")
+    )
+    @Builder.Default
+    private Set<CustomerTier> customerTiers = new HashSet<>(); // Rỗng = áp dụng cho mọi tier
+
     // === HELPER METHODS ===
 
     /**
@@ -120,6 +134,14 @@ public class Promotion extends BaseEntity {
         return usageCount < usageLimit;
     }
 
+    /**
+     * Promotion có giới hạn customer tier không
+     * (legacy JSON chưa migrate được vẫn tính là có giới hạn)
+     */
+    public boolean isTierRestricted() {
+        return !customerTiers.isEmpty() || applicableCustomerTiers != null;
+    }
+
     /**
      * Tăng usage count khi sử dụng
      */
@@ -0,0 +1,42 @@
+package com.example.viti_be.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Counter shard cho quota của promotion.
+ *
+ * Quota (usageLimit) được chia đều cho N shard rows để các checkout đồng thời
+ * trên cùng 1 promotion cập nhật các rows khác nhau thay vì cùng lock row promotions.
+ * - remaining: số lượt còn lại của shard (null = promotion không giới hạn)
+ * - used: số lượt đã dùng (SUM(used) = usage count thực tế)
+ */
+@Entity
+@Table(name = "promotion_quota_shards",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"promotion_id", "shard_no"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PromotionQuotaShard {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "promotion_id", nullable = false)
+    private UUID promotionId;
+
+    @Column(name = "shard_no", nullable = false)
+    private Integer shardNo;
+
+    @Column(name = "remaining")
+    private Integer remaining;
+
+    @Column(name = "used", nullable = false)
+    @Builder.Default
+    private Integer used = 0;
+}
@@ -6,7 +6,9 @@ import lombok.*;
 import java.util.UUID;
 
 @Entity
-@Table(name = "promotion_usage_history")
+@Table(name = "promotion_usage_history", indexes = {
+    @Index(name = "idx_promotion_usage_promotion_used_at", columnList = "promotion_id, used_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -48,4 +48,8 @@ public class Report extends BaseEntity {
 
     @Column(name = "file_url")
     private String fileUrl; // Supabase Storage URL
+
+    // SHA-256 của report type + format + filters, để dùng lại file của export giống hệt
+    @Column(name = "filter_hash", length = 64)
+    private String filterHash;
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.example.viti_be.model;
+
+import com.example.viti_be.model.model_enum.StockItemType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Snapshot biến động tồn kho theo ngày (1 dòng / ngày / loại hàng).
+ *
+ * Được cộng dồn mỗi khi ghi StockTransaction làm thay đổi tồn kho,
+ * nên chart lịch sử chỉ cần đọc 1 range snapshots thay vì quét stock_transactions:
+ * tồn cuối ngày D = tồn hiện tại - tổng biến động các ngày sau D.
+ */
+@Entity
+@Table(name = "stock_daily_snapshots")
+@IdClass(StockDailySnapshot.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockDailySnapshot {
+
+    @Id
+    @Column(name = "snapshot_date")
+    private LocalDate snapshotDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "item_type", length = 20)
+    private StockItemType itemType;
+
+    @Column(name = "quantity_change", nullable = false)
+    private Long quantityChange;
+
+    // Giá trị biến động theo giá bán tại thời điểm ghi nhận
+    @Column(name = "value_change", nullable = false, precision = 19, scale = 2)
+    private BigDecimal valueChange;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private LocalDate snapshotDate;
+        private StockItemType itemType;
+    }
+}
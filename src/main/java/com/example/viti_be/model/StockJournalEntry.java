@@ -0,0 +1,52 @@
+package com.example.viti_be.model;
+
+import com.example.viti_be.model.model_enum.StockMovementType;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Nhật ký biến động tồn kho (append-only), gồm cả reserve/unreserve không có StockTransaction.
+ *
+ * Được ghi bởi StockJournal theo batch (multi-row INSERT) lúc commit transaction nghiệp vụ,
+ * nên không có FK tới inventory/variant để không phụ thuộc thứ tự flush của Hibernate.
+ */
+@Entity
+@Table(name = "stock_journal", indexes = {
+        @Index(name = "idx_stock_journal_variant_created", columnList = "product_variant_id, created_at"),
+        @Index(name = "idx_stock_journal_created", columnList = "created_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockJournalEntry {
+
+    @Id
+    private UUID id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "movement_type", length = 20, nullable = false)
+    private StockMovementType movementType;
+
+    @Column(name = "product_variant_id")
+    private UUID productVariantId;
+
+    @Column(name = "part_component_id")
+    private UUID partComponentId;
+
+    @Column(name = "quantity", nullable = false)
+    private Integer quantity;
+
+    @Column(name = "reference")
+    private String reference; // Order Number, PO Number, ...
+
+    @Column(name = "actor_id")
+    private UUID actorId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,8 @@
+package com.example.viti_be.model.model_enum;
+
+public enum ExportJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
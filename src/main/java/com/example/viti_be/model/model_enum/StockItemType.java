@@ -0,0 +1,6 @@
+package com.example.viti_be.model.model_enum;
+
+public enum StockItemType {
+    PRODUCT,    // Tồn kho product variant
+    COMPONENT   // Tồn kho linh kiện (part component)
+}
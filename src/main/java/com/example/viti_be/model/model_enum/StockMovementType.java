@@ -0,0 +1,8 @@
+package com.example.viti_be.model.model_enum;
+
+public enum StockMovementType {
+    RESERVE,        // Available -> Reserved (giữ hàng cho đơn)
+    UNRESERVE,      // Reserved -> Available (huỷ đơn / hết hạn giữ hàng)
+    CONFIRM_OUT,    // Reserved -> xuất kho (Physical giảm)
+    ADJUST          // Nhập/xuất trực tiếp (quantity có dấu)
+}
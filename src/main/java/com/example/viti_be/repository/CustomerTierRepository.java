@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,6 +22,12 @@ public interface CustomerTierRepository extends JpaRepository<CustomerTier, UUID
      */
     Optional<CustomerTier> findByNameAndIsDeletedFalse(String name);
 
+    /**
+     * Tìm tiers theo danh sách tên (không phân biệt hoa thường, names truyền vào phải UPPERCASE)
+     */
+    @Query("SELECT t FROM CustomerTier t WHERE UPPER(t.name) IN :upperNames AND t.isDeleted = false")
+    List<CustomerTier> findByUpperNames(@Param("upperNames") Collection<String> upperNames);
+
     /**
      * Tìm tier phù hợp dựa trên số điểm
      * Lấy tier có min_point lớn nhất mà <= điểm hiện tại
@@ -0,0 +1,337 @@
+package com.example.viti_be.repository;
+
+import com.example.viti_be.model.DailySalesRollup;
+import com.example.viti_be.repository.projection.ProfitProjection;
+import com.example.viti_be.repository.projection.RevenueSummaryProjection;
+import com.example.viti_be.repository.projection.TopProductProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+@Repository
+public interface DailySalesRollupRepository extends JpaRepository<DailySalesRollup, DailySalesRollup.Key> {
+
+    /**
+     * Gom đóng góp của các đơn trong CTE src (cột sign, rollup_status) theo khoá rollup rồi cộng dồn.
+     * 1 dòng cấp đơn (variant = nil uuid) + 1 dòng / variant; null -> nil uuid / "".
+     * Upsert theo thứ tự khoá để các transaction cùng ghi nhiều khoá không deadlock lẫn nhau
+     */
+    String UPSERT_CONTRIBUTIONS = """
+        , contributions AS (
+            SELECT CAST(s.created_at AS date) AS sales_date,
+                   CAST('00000000-0000-0000-0000-000000000000' AS uuid) AS product_variant_id,
+                   s.order_type, s.payment_method, s.employee_id, s.customer_tier_id, s.rollup_status,
+                   s.sign AS order_count, s.sign * COALESCE(s.final_amount, 0) AS order_revenue,
+                   0 AS quantity, CAST(0 AS numeric) AS item_revenue,
+                   CAST(0 AS numeric) AS item_cost, CAST(0 AS numeric) AS item_profit
+            FROM src s
+            UNION ALL
+            SELECT CAST(s.created_at AS date), oi.product_variant_id,
+                   s.order_type, s.payment_method, s.employee_id, s.customer_tier_id, s.rollup_status,
+                   0, 0,
+                   s.sign * oi.quantity, s.sign * (oi.subtotal - COALESCE(oi.discount, 0)),
+                   s.sign * oi.quantity * oi.cost_price,
+                   s.sign * (oi.subtotal - COALESCE(oi.discount, 0) - oi.quantity * oi.cost_price)
+            FROM src s JOIN order_items oi ON oi.order_id = s.id
+        )
+        INSERT INTO daily_sales_rollup AS r (sales_date, product_variant_id, order_type, payment_method,
+                                             employee_id, customer_tier_id, status, order_count, order_revenue,
+                                             quantity, item_revenue, item_cost, item_profit)
+        SELECT c.sales_date, c.product_variant_id,
+               COALESCE(c.order_type, ''), COALESCE(c.payment_method, ''),
+               COALESCE(c.employee_id, CAST('00000000-0000-0000-0000-000000000000' AS uuid)),
+               COALESCE(c.customer_tier_id, CAST('00000000-0000-0000-0000-000000000000' AS uuid)),
+               COALESCE(c.rollup_status, ''),
+               SUM(c.order_count), COALESCE(SUM(c.order_revenue), 0), SUM(c.quantity),
+               COALESCE(SUM(c.item_revenue), 0), COALESCE(SUM(c.item_cost), 0), COALESCE(SUM(c.item_profit), 0)
+        FROM contributions c
+        GROUP BY 1, 2, 3, 4, 5, 6, 7
+        ORDER BY 1, 2, 3, 4, 5, 6, 7
+        ON CONFLICT (sales_date, product_variant_id, order_type, payment_method,
+                     employee_id, customer_tier_id, status)
+        DO UPDATE SET order_count = r.order_count + EXCLUDED.order_count,
+                      order_revenue = r.order_revenue + EXCLUDED.order_revenue,
+                      quantity = r.quantity + EXCLUDED.quantity,
+                      item_revenue = r.item_revenue + EXCLUDED.item_revenue,
+                      item_cost = r.item_cost + EXCLUDED.item_cost,
+                      item_profit = r.item_profit + EXCLUDED.item_profit
+        """;
+
+    /**
+     * Cộng (sign = 1) hoặc trừ (sign = -1) đóng góp (theo status hiện tại) của các đơn tạo trước closedBefore
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        WITH src AS (
+            SELECT o.id, o.created_at, o.order_type, o.payment_method, o.employee_id, o.customer_tier_id,
+                   o.final_amount, :sign AS sign, o.status AS rollup_status
+            FROM orders o
+            WHERE o.id IN (:orderIds)
+              AND o.created_at < :closedBefore
+        )
+        """ + UPSERT_CONTRIBUTIONS, nativeQuery = true)
+    int applyOrders(@Param("orderIds") Collection<UUID> orderIds,
+                    @Param("sign") int sign,
+                    @Param("closedBefore") LocalDateTime closedBefore);
+
+    /**
+     * Các đơn tạo trước closedBefore vừa chuyển từ previousStatus sang status hiện tại:
+     * trừ đóng góp ở trạng thái cũ + cộng ở trạng thái mới trong cùng 1 upsert
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        WITH src AS (
+            SELECT o.id, o.created_at, o.order_type, o.payment_method, o.employee_id, o.customer_tier_id,
+                   o.final_amount, d.sign,
+                   CASE WHEN d.sign < 0 THEN CAST(:previousStatus AS varchar) ELSE o.status END AS rollup_status
+            FROM orders o
+            CROSS JOIN (VALUES (-1), (1)) AS d(sign)
+            WHERE o.id IN (:orderIds)
+              AND o.created_at < :closedBefore
+        )
+        """ + UPSERT_CONTRIBUTIONS, nativeQuery = true)
+    int applyStatusChange(@Param("orderIds") Collection<UUID> orderIds,
+                          @Param("previousStatus") String previousStatus,
+                          @Param("closedBefore") LocalDateTime closedBefore);
+
+    /**
+     * Dựng rollup của các ngày [fromDate, toDate] từ orders (chạy khi chốt ngày)
+     */
+    String BUILD_DAYS = """
+        WITH src AS (
+            SELECT o.id, o.created_at, o.order_type, o.payment_method, o.employee_id, o.customer_tier_id,
+                   o.final_amount, 1 AS sign, o.status AS rollup_status
+            FROM orders o
+            WHERE o.created_at >= CAST(:fromDate AS date)
+              AND o.created_at < CAST(:toDate AS date) + 1
+        )
+        """ + UPSERT_CONTRIBUTIONS;
+
+    @Modifying
+    @Query(value = BUILD_DAYS, nativeQuery = true)
+    int buildDays(@Param("fromDate") LocalDate fromDate, @Param("toDate") LocalDate toDate);
+
+    // ============================================
+    // CLOSED DAYS (daily_sales_rollup_watermark, 1 dòng)
+    // ============================================
+
+    /**
+     * Ngày cuối cùng đã có rollup; report đọc rollup tới ngày này, các ngày sau đọc orders
+     */
+    @Query(value = "SELECT w.closed_through FROM daily_sales_rollup_watermark w", nativeQuery = true)
+    LocalDate findClosedThrough();
+
+    /**
+     * Như findClosedThrough nhưng giữ FOR SHARE tới hết transaction:
+     * việc chốt ngày tiếp theo phải chờ transaction này commit, nên không bỏ sót thay đổi của đơn
+     */
+    @Query(value = "SELECT w.closed_through FROM daily_sales_rollup_watermark w FOR SHARE", nativeQuery = true)
+    LocalDate lockClosedThrough();
+
+    /**
+     * Đánh dấu day đã chốt nếu ngày trước đó đã chốt; 0 = node khác đã chốt day
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE daily_sales_rollup_watermark
+        SET closed_through = :day
+        WHERE closed_through = CAST(:day AS date) - 1
+        """, nativeQuery = true)
+    int advanceClosedThrough(@Param("day") LocalDate day);
+
+    /**
+     * Có đơn nào trong orderIds được tạo trước before không
+     */
+    @Query(value = """
+        SELECT EXISTS (SELECT 1 FROM orders o WHERE o.id IN (:orderIds) AND o.created_at < :before)
+        """, nativeQuery = true)
+    boolean existsOrderCreatedBefore(@Param("orderIds") Collection<UUID> orderIds,
+                                     @Param("before") LocalDateTime before);
+
+    // ============================================
+    // REPORT QUERIES (range theo ngày, chỉ các ngày đã chốt)
+    // ============================================
+
+    /**
+     * Toàn bộ tile doanh thu trong 1 statement: các ngày đã chốt đọc từ rollup (dòng cấp đơn),
+     * phần còn lại đọc trực tiếp từ orders; range nguồn bao cả kỳ trước, is_current = ngày >= :startDate.
+     *
+     * - PERIOD: doanh thu kỳ hiện tại theo bucket DATE_TRUNC(:unit) (day/week/month), đủ filter
+     * - ORDER_TYPE: doanh thu kỳ hiện tại theo loại đơn, chỉ filter status + customer tier
+     * - TOTAL: luôn có đúng 1 dòng (grouping set ()), tổng kỳ hiện tại + tổng kỳ trước (window trên các dòng PERIOD)
+     *
+     * Phần rỗng (không có ngày đã chốt / không có ngày chưa chốt) truyền start > end.
+     */
+    String REVENUE_SUMMARY = """
+        WITH days AS (
+            SELECT r.sales_date, NULLIF(r.order_type, '') AS order_type,
+                   r.order_revenue AS revenue, r.order_count,
+                   (CAST(:orderType AS varchar) IS NULL OR r.order_type = CAST(:orderType AS varchar))
+                       AND (CAST(:paymentMethod AS varchar) IS NULL OR r.payment_method = CAST(:paymentMethod AS varchar))
+                       AND (CAST(:employeeId AS uuid) IS NULL OR r.employee_id = CAST(:employeeId AS uuid))
+                       AS matches_filter
+            FROM daily_sales_rollup r
+            WHERE r.product_variant_id = CAST('00000000-0000-0000-0000-000000000000' AS uuid)
+              AND r.sales_date BETWEEN :closedStart AND :closedEnd
+              AND (CAST(:status AS varchar) IS NULL OR r.status = CAST(:status AS varchar))
+              AND (CAST(:customerTier AS uuid) IS NULL OR r.customer_tier_id = CAST(:customerTier AS uuid))
+            UNION ALL
+            SELECT CAST(o.created_at AS date), o.order_type,
+                   o.final_amount, 1,
+                   (CAST(:orderType AS varchar) IS NULL OR o.order_type = CAST(:orderType AS varchar))
+                       AND (CAST(:paymentMethod AS varchar) IS NULL OR o.payment_method = CAST(:paymentMethod AS varchar))
+                       AND (CAST(:employeeId AS uuid) IS NULL OR o.employee_id = CAST(:employeeId AS uuid))
+            FROM orders o
+            WHERE o.created_at BETWEEN :liveStart AND :liveEnd
+              AND (CAST(:status AS varchar) IS NULL OR o.status = CAST(:status AS varchar))
+              AND (CAST(:customerTier AS uuid) IS NULL OR o.customer_tier_id = CAST(:customerTier AS uuid))
+        ),
+        bucketed AS (
+            SELECT d.*, d.sales_date >= :startDate AS is_current,
+                   CAST(DATE_TRUNC(:unit, CAST(d.sales_date AS timestamp)) AS date) AS period
+            FROM days d
+        ),
+        grouped AS (
+            SELECT b.is_current, b.period, b.order_type,
+                   GROUPING(b.is_current, b.period, b.order_type) AS grouping_id,
+                   COALESCE(SUM(b.revenue) FILTER (WHERE b.matches_filter), 0) AS revenue,
+                   COALESCE(SUM(b.order_count) FILTER (WHERE b.matches_filter), 0) AS order_count,
+                   COALESCE(SUM(b.revenue), 0) AS type_revenue,
+                   COALESCE(SUM(b.order_count), 0) AS type_order_count
+            FROM bucketed b
+            GROUP BY GROUPING SETS ((b.is_current, b.period), (b.is_current, b.order_type), ())
+        ),
+        compared AS (
+            SELECT g.*,
+                   SUM(g.revenue) FILTER (WHERE g.grouping_id = 1 AND g.is_current) OVER () AS current_revenue,
+                   SUM(g.order_count) FILTER (WHERE g.grouping_id = 1 AND g.is_current) OVER () AS current_order_count,
+                   SUM(g.revenue) FILTER (WHERE g.grouping_id = 1 AND NOT g.is_current) OVER () AS previous_revenue
+            FROM grouped g
+        )
+        SELECT CASE c.grouping_id WHEN 1 THEN 'PERIOD' WHEN 2 THEN 'ORDER_TYPE' ELSE 'TOTAL' END AS rowType,
+               c.period AS period,
+               c.order_type AS orderType,
+               CASE c.grouping_id WHEN 1 THEN c.revenue WHEN 2 THEN c.type_revenue
+                    ELSE COALESCE(c.current_revenue, 0) END AS totalRevenue,
+               CASE c.grouping_id WHEN 1 THEN c.order_count WHEN 2 THEN c.type_order_count
+                    ELSE COALESCE(c.current_order_count, 0) END AS orderCount,
+               COALESCE(c.previous_revenue, 0) AS previousRevenue
+        FROM compared c
+        WHERE c.grouping_id = 7
+           OR (c.is_current AND c.grouping_id = 1 AND c.order_count <> 0)
+           OR (c.is_current AND c.grouping_id = 2 AND c.type_order_count <> 0)
+        ORDER BY c.grouping_id, c.period, totalRevenue DESC
+        """;
+
+    /**
+     * Breakdown + theo loại đơn + so sánh kỳ trước của báo cáo doanh thu (xem REVENUE_SUMMARY).
+     * UUID filters truyền dạng String để bind được null trong native query
+     */
+    @Query(value = REVENUE_SUMMARY, nativeQuery = true)
+    List<RevenueSummaryProjection> getRevenueSummary(
+            @Param("startDate") LocalDate startDate,
+            @Param("unit") String unit,
+            @Param("closedStart") LocalDate closedStart,
+            @Param("closedEnd") LocalDate closedEnd,
+            @Param("liveStart") LocalDateTime liveStart,
+            @Param("liveEnd") LocalDateTime liveEnd,
+            @Param("status") String status,
+            @Param("orderType") String orderType,
+            @Param("paymentMethod") String paymentMethod,
+            @Param("employeeId") String employeeId,
+            @Param("customerTier") String customerTier
+    );
+
+    /**
+     * Lợi nhuận theo variant: ngày đã chốt từ rollup (dòng variant), phần còn lại từ order_items,
+     * sắp xếp theo grossProfit giảm dần. reportRevenue / reportCost là tổng toàn báo cáo (window),
+     * giống nhau trên mọi dòng -> đọc được tổng ngay từ dòng đầu khi stream
+     */
+    String PROFIT_BY_PRODUCT = """
+        WITH items AS (
+            SELECT r.product_variant_id, r.quantity, r.item_revenue AS revenue,
+                   r.item_cost AS cost, r.item_profit AS profit
+            FROM daily_sales_rollup r
+            WHERE r.product_variant_id <> CAST('00000000-0000-0000-0000-000000000000' AS uuid)
+              AND r.sales_date BETWEEN :closedStart AND :closedEnd
+              AND (CAST(:status AS varchar) IS NULL OR r.status = CAST(:status AS varchar))
+            UNION ALL
+            SELECT oi.product_variant_id, oi.quantity, oi.subtotal - COALESCE(oi.discount, 0),
+                   oi.quantity * oi.cost_price,
+                   oi.subtotal - COALESCE(oi.discount, 0) - oi.quantity * oi.cost_price
+            FROM order_items oi
+            JOIN orders o ON o.id = oi.order_id
+            WHERE o.created_at BETWEEN :liveStart AND :liveEnd
+              AND (CAST(:status AS varchar) IS NULL OR o.status = CAST(:status AS varchar))
+        ),
+        by_variant AS (
+            SELECT v.id, p.name, v.variant_name, v.sku,
+                   SUM(i.quantity) AS quantity_sold, SUM(i.revenue) AS revenue,
+                   SUM(i.cost) AS cost, SUM(i.profit) AS profit
+            FROM items i
+            JOIN product_variants v ON v.id = i.product_variant_id
+            JOIN products p ON p.id = v.product_id
+            WHERE (CAST(:categoryId AS uuid) IS NULL OR p.category_id = CAST(:categoryId AS uuid))
+              AND (CAST(:supplierId AS uuid) IS NULL OR p.supplier_id = CAST(:supplierId AS uuid))
+            GROUP BY v.id, p.name, v.variant_name, v.sku
+            HAVING SUM(i.quantity) <> 0
+        )
+        SELECT b.id AS productVariantId, b.name AS productName, b.variant_name AS variantName, b.sku AS sku,
+               b.quantity_sold AS quantitySold, b.revenue AS totalRevenue,
+               b.cost AS totalCost, b.profit AS grossProfit,
+               COALESCE(SUM(b.revenue) OVER (), 0) AS reportRevenue,
+               COALESCE(SUM(b.cost) OVER (), 0) AS reportCost
+        FROM by_variant b
+        ORDER BY b.profit DESC NULLS LAST
+        """;
+
+    /**
+     * Stream (cursor, fetch size 500) của PROFIT_BY_PRODUCT, cần transaction đang mở khi đọc.
+     * UUID filters truyền dạng String để bind được null trong native query
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(value = PROFIT_BY_PRODUCT, nativeQuery = true)
+    Stream<ProfitProjection> streamProfitByProduct(
+            @Param("closedStart") LocalDate closedStart,
+            @Param("closedEnd") LocalDate closedEnd,
+            @Param("liveStart") LocalDateTime liveStart,
+            @Param("liveEnd") LocalDateTime liveEnd,
+            @Param("status") String status,
+            @Param("categoryId") String categoryId,
+            @Param("supplierId") String supplierId
+    );
+
+    /**
+     * Số lượng + doanh thu theo variant, cùng filter với OrderRepository.getTopProductsByQuantity/Revenue
+     */
+    @Query("""
+        SELECT v.id as productVariantId, p.name as productName, v.variantName as variantName, v.sku as sku,
+            SUM(r.quantity) as quantitySold, SUM(r.itemRevenue) as totalRevenue
+        FROM DailySalesRollup r, ProductVariant v
+        JOIN v.product p
+        WHERE v.id = r.productVariantId
+            AND r.salesDate BETWEEN :startDate AND :endDate
+            AND (:status IS NULL OR r.status = :status)
+            AND (:categoryId IS NULL OR p.category.id = :categoryId)
+        GROUP BY v.id, p.name, v.variantName, v.sku
+        HAVING SUM(r.quantity) <> 0
+    """)
+    List<TopProductProjection> getTopProducts(
+            @Param("startDate") LocalDate startDate,
+            @Param("endDate") LocalDate endDate,
+            @Param("status") String status,
+            @Param("categoryId") UUID categoryId
+    );
+}
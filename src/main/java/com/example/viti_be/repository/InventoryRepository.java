@@ -2,18 +2,28 @@ package com.example.viti_be.repository;
 
 import com.example.viti_be.model.Inventory;
 import com.example.viti_be.repository.projection.InventoryProjection;
+import com.example.viti_be.repository.projection.InventorySummaryProjection;
+import com.example.viti_be.repository.projection.LowStockComponentProjection;
+import com.example.viti_be.repository.projection.ReleasedStockProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
@@ -43,7 +53,7 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
     /**
      * Get inventory status with low stock flag
      */
-    @Query("""
+    String INVENTORY_REPORT = """
         SELECT 
             i.productVariant.id as productVariantId,
             i.productVariant.product.name as productName,
@@ -57,13 +67,34 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
         FROM Inventory i
         WHERE (:categoryId IS NULL OR i.productVariant.product.category.id = :categoryId)
             AND (:lowStockOnly = false OR i.quantityAvailable < i.minThreshold)
-    """)
+        """;
+
+    @Query(INVENTORY_REPORT)
     Page<InventoryProjection> getInventoryReport(
             @Param("categoryId") UUID categoryId,
             @Param("lowStockOnly") Boolean lowStockOnly,
             Pageable pageable
     );
 
+    /**
+     * Toàn bộ dòng của INVENTORY_REPORT cho export (cursor, fetch size 500), cần transaction đang mở khi đọc
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(INVENTORY_REPORT)
+    Stream<InventoryProjection> streamInventoryReport(
+            @Param("categoryId") UUID categoryId,
+            @Param("lowStockOnly") Boolean lowStockOnly,
+            Sort sort
+    );
+
+    @Query("""
+        SELECT COUNT(i)
+        FROM Inventory i
+        WHERE (:categoryId IS NULL OR i.productVariant.product.category.id = :categoryId)
+            AND (:lowStockOnly = false OR i.quantityAvailable < i.minThreshold)
+    """)
+    long countInventoryReport(@Param("categoryId") UUID categoryId, @Param("lowStockOnly") Boolean lowStockOnly);
+
     /**
      * Get fast-moving products (high sales velocity)
      */
@@ -136,6 +167,24 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
     """, nativeQuery = true)
     BigDecimal calculateTotalComponentStockValue();
 
+    /**
+     * Số liệu tổng hợp cho inventory overview trong 1 lần quét bảng inventory
+     * (cùng điều kiện với calculateTotal*StockValue và countLowStock*)
+     */
+    @Query(value = """
+        SELECT COALESCE(SUM(i.quantity_available * pv.selling_price) FILTER (WHERE pv.id IS NOT NULL), 0) AS productStockValue,
+               COALESCE(SUM(i.quantity_available * pc.selling_price) FILTER (WHERE pc.id IS NOT NULL), 0) AS componentStockValue,
+               COUNT(*) FILTER (WHERE i.product_variant_id IS NOT NULL AND i.quantity_available < i.min_threshold) AS lowStockProductCount,
+               COUNT(*) FILTER (WHERE i.part_component_id IS NOT NULL AND i.quantity_available < i.min_threshold) AS lowStockComponentCount,
+               COALESCE(SUM(i.quantity_available) FILTER (WHERE i.product_variant_id IS NOT NULL), 0) AS productQuantity,
+               COALESCE(SUM(i.quantity_available) FILTER (WHERE i.part_component_id IS NOT NULL), 0) AS componentQuantity
+        FROM inventory i
+        LEFT JOIN product_variants pv ON pv.id = i.product_variant_id AND pv.is_deleted = false
+        LEFT JOIN part_components pc ON pc.id = i.part_component_id AND pc.is_deleted = false
+        WHERE i.is_deleted = false
+    """, nativeQuery = true)
+    InventorySummaryProjection summarizeInventory();
+
     /**
      * Get low stock products (product variants with quantity below threshold)
      */
@@ -144,12 +193,33 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
            "ORDER BY (i.quantityAvailable * 1.0 / NULLIF(i.minThreshold, 0)) ASC")
     List<Inventory> findLowStockProducts();
 
+    // Top low stock products (dòng đầu = thiếu hàng nặng nhất)
+    @Query("SELECT i FROM Inventory i JOIN FETCH i.productVariant pv JOIN FETCH pv.product p " +
+           "WHERE i.productVariant IS NOT NULL AND i.quantityAvailable < i.minThreshold AND i.isDeleted = false " +
+           "ORDER BY (i.quantityAvailable * 1.0 / NULLIF(i.minThreshold, 0)) ASC")
+    List<Inventory> findLowStockProducts(Pageable pageable);
+
     /**
      * Get low stock components
      */
     @Query("SELECT i FROM Inventory i WHERE i.partComponentId IS NOT NULL AND i.quantityAvailable < i.minThreshold AND i.isDeleted = false")
     List<Inventory> findLowStockComponents();
 
+    /**
+     * Top low stock components kèm thông tin part (join, không lookup từng part)
+     */
+    @Query(value = """
+        SELECT i.part_component_id AS partComponentId, pc.name AS name, pc.part_type AS partType,
+               pc.unit AS unit, i.quantity_available AS currentStock, i.min_threshold AS minStock,
+               pc.purchase_price_avg AS purchasePriceAvg
+        FROM inventory i
+        LEFT JOIN part_components pc ON pc.id = i.part_component_id
+        WHERE i.part_component_id IS NOT NULL AND i.quantity_available < i.min_threshold AND i.is_deleted = false
+        ORDER BY (i.quantity_available * 1.0 / NULLIF(i.min_threshold, 0)) ASC
+        LIMIT :limit
+    """, nativeQuery = true)
+    List<LowStockComponentProjection> findLowStockComponentDetails(@Param("limit") int limit);
+
     /**
      * Get all product inventories
      */
@@ -161,4 +231,155 @@ public interface InventoryRepository extends JpaRepository<Inventory, UUID> {
      */
     @Query("SELECT i FROM Inventory i WHERE i.partComponentId IS NOT NULL AND i.isDeleted = false")
     List<Inventory> findAllComponentInventories();
+
+    // ==================== ATOMIC STOCK MOVEMENTS ====================
+    // Conditional UPDATE: điều kiện tồn kho được DB check trên row đang bị lock,
+    // không đọc-sửa-ghi trong Java -> không oversell, không cần lock ứng dụng
+
+    /**
+     * Giữ hàng: Available -> Reserved nếu còn đủ Available
+     * @return 1 nếu giữ được, 0 nếu không đủ hàng (hoặc chưa có inventory)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE inventory
+        SET quantity_available = quantity_available - :quantity,
+            quantity_reserved = quantity_reserved + :quantity,
+            updated_by = :actorId, updated_at = now()
+        WHERE product_variant_id = :productVariantId AND is_deleted = false
+          AND quantity_available >= :quantity
+    """, nativeQuery = true)
+    int reserveAvailable(@Param("productVariantId") UUID productVariantId,
+                         @Param("quantity") int quantity,
+                         @Param("actorId") UUID actorId);
+
+    /**
+     * Giữ hàng cho nhiều variants trong 1 statement (variantIds / quantities: CSV cùng thứ tự).
+     * Rows được lock theo thứ tự product_variant_id để các đơn hàng chạy song song không deadlock.
+     * Trả về rows nên không dùng được @Modifying: caller flush trước và detach các Inventory đã sửa
+     * (InventoryServiceImpl.updateInventoryRows)
+     * @return các dòng giữ được (thiếu variant nào = variant đó không đủ hàng)
+     */
+    @Query(value = """
+        WITH requested AS (
+            SELECT r.variant_id, r.quantity
+            FROM unnest(CAST(string_to_array(:variantIds, ',') AS uuid[]),
+                        CAST(string_to_array(:quantities, ',') AS int[])) AS r(variant_id, quantity)
+        ), locked AS MATERIALIZED (
+            SELECT i.id, r.quantity
+            FROM inventory i JOIN requested r ON r.variant_id = i.product_variant_id
+            WHERE i.is_deleted = false
+            ORDER BY i.product_variant_id
+            FOR UPDATE OF i
+        )
+        UPDATE inventory i
+        SET quantity_available = i.quantity_available - l.quantity,
+            quantity_reserved = i.quantity_reserved + l.quantity,
+            updated_by = :actorId, updated_at = now()
+        FROM locked l
+        WHERE i.id = l.id AND i.quantity_available >= l.quantity
+        RETURNING i.id AS inventoryId, i.product_variant_id AS productVariantId, CAST(l.quantity AS int) AS quantity
+    """, nativeQuery = true)
+    List<ReleasedStockProjection> reserveAvailableBatch(@Param("variantIds") String variantIds,
+                                     @Param("quantities") String quantities,
+                                     @Param("actorId") UUID actorId);
+
+    /**
+     * Huỷ giữ hàng: Reserved -> Available (Reserved không xuống dưới 0)
+     * @return 0 nếu variant chưa có inventory
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE inventory
+        SET quantity_available = quantity_available + :quantity,
+            quantity_reserved = GREATEST(quantity_reserved - :quantity, 0),
+            updated_by = :actorId, updated_at = now()
+        WHERE product_variant_id = :productVariantId AND is_deleted = false
+    """, nativeQuery = true)
+    int releaseReserved(@Param("productVariantId") UUID productVariantId,
+                        @Param("quantity") int quantity,
+                        @Param("actorId") UUID actorId);
+
+    /**
+     * Huỷ giữ hàng cho nhiều đơn trong 1 statement (số lượng gom theo variant từ order_items).
+     * Chỉ đơn còn PENDING mới đang giữ Reserved; đơn đã CONFIRMED đã xuất kho nên bị bỏ qua.
+     * Rows được lock theo thứ tự variant id giống reserveAvailableBatch để không deadlock với checkout
+     * @return (variant, số lượng) đã trả về Available
+     */
+    @Query(value = """
+        WITH released AS (
+            SELECT oi.product_variant_id, SUM(oi.quantity) AS quantity
+            FROM order_items oi
+            JOIN orders o ON o.id = oi.order_id
+            WHERE oi.order_id IN (:orderIds) AND o.status = 'PENDING'
+            GROUP BY oi.product_variant_id
+        ), locked AS MATERIALIZED (
+            SELECT i.id, r.quantity
+            FROM inventory i
+            JOIN released r ON r.product_variant_id = i.product_variant_id
+            WHERE i.is_deleted = false
+            ORDER BY i.product_variant_id
+            FOR UPDATE OF i
+        )
+        UPDATE inventory i
+        SET quantity_available = i.quantity_available + l.quantity,
+            quantity_reserved = GREATEST(i.quantity_reserved - l.quantity, 0),
+            updated_by = :actorId, updated_at = now()
+        FROM locked l
+        WHERE i.id = l.id
+        RETURNING i.id AS inventoryId, i.product_variant_id AS productVariantId, CAST(l.quantity AS int) AS quantity
+    """, nativeQuery = true)
+    List<ReleasedStockProjection> releaseReservedForOrders(@Param("orderIds") Collection<UUID> orderIds,
+                                                           @Param("actorId") UUID actorId);
+
+    /**
+     * Xuất kho: giảm Reserved + Physical nếu Reserved còn đủ
+     * @return 1 nếu xuất được, 0 nếu Reserved không đủ
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE inventory
+        SET quantity_reserved = quantity_reserved - :quantity,
+            quantity_physical = quantity_physical - :quantity,
+            updated_by = :actorId, updated_at = now()
+        WHERE product_variant_id = :productVariantId AND is_deleted = false
+          AND quantity_reserved >= :quantity
+    """, nativeQuery = true)
+    int confirmReservedOut(@Param("productVariantId") UUID productVariantId,
+                           @Param("quantity") int quantity,
+                           @Param("actorId") UUID actorId);
+
+    /**
+     * Xuất kho cho nhiều đơn trong 1 statement (số lượng gom theo variant từ order_items),
+     * chỉ variant còn đủ Reserved mới bị trừ. Lock theo thứ tự variant id như reserveAvailableBatch
+     * @return (variant, số lượng) đã xuất
+     */
+    @Query(value = """
+        WITH shipped AS (
+            SELECT oi.product_variant_id, SUM(oi.quantity) AS quantity
+            FROM order_items oi
+            WHERE oi.order_id IN (:orderIds)
+            GROUP BY oi.product_variant_id
+        ), locked AS MATERIALIZED (
+            SELECT i.id, s.quantity
+            FROM inventory i
+            JOIN shipped s ON s.product_variant_id = i.product_variant_id
+            WHERE i.is_deleted = false
+            ORDER BY i.product_variant_id
+            FOR UPDATE OF i
+        )
+        UPDATE inventory i
+        SET quantity_reserved = i.quantity_reserved - l.quantity,
+            quantity_physical = i.quantity_physical - l.quantity,
+            updated_by = :actorId, updated_at = now()
+        FROM locked l
+        WHERE i.id = l.id AND i.quantity_reserved >= l.quantity
+        RETURNING i.id AS inventoryId, i.product_variant_id AS productVariantId, CAST(l.quantity AS int) AS quantity
+    """, nativeQuery = true)
+    List<ReleasedStockProjection> confirmReservedOutForOrders(@Param("orderIds") Collection<UUID> orderIds,
+                                                              @Param("actorId") UUID actorId);
+
+    @Query(value = "SELECT count(DISTINCT product_variant_id) FROM order_items WHERE order_id IN (:orderIds)",
+            nativeQuery = true)
+    long countVariantsOfOrders(@Param("orderIds") Collection<UUID> orderIds);
 }
@@ -0,0 +1,30 @@
+package com.example.viti_be.repository;
+
+import com.example.viti_be.model.OrderNumberCounter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+@Repository
+public interface OrderNumberCounterRepository extends JpaRepository<OrderNumberCounter, LocalDate> {
+
+    /**
+     * Lấy 1 block số cho ngày counterDate: (last_value - blockSize, last_value].
+     * REQUIRES_NEW: block được commit ngay, đơn hàng rollback không làm cấp lại số đã phát.
+     * @return last_value sau khi cộng block
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = """
+        INSERT INTO order_number_counters (counter_date, last_value)
+        VALUES (:counterDate, :blockSize)
+        ON CONFLICT (counter_date)
+        DO UPDATE SET last_value = order_number_counters.last_value + :blockSize
+        RETURNING last_value
+    """, nativeQuery = true)
+    long reserveBlock(@Param("counterDate") LocalDate counterDate, @Param("blockSize") int blockSize);
+}
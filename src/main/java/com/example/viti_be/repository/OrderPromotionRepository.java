@@ -1,9 +1,13 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.OrderPromotion;
+import com.example.viti_be.repository.projection.OrderPromotionUsageProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,4 +15,20 @@ import java.util.UUID;
 public interface OrderPromotionRepository extends JpaRepository<OrderPromotion, UUID> {
     List<OrderPromotion> findByOrderId(UUID orderId);
     void deleteByOrderId(UUID orderId);
+
+    /**
+     * Các cặp (đơn, promotion) khác nhau của nhiều đơn, gộp promotion cấp đơn + cấp sản phẩm (1 query)
+     */
+    @Query(value = """
+        SELECT u.order_id AS orderId, o.customer_id AS customerId, u.promotion_id AS promotionId
+        FROM (
+            SELECT op.order_id, op.promotion_id FROM order_promotions op WHERE op.order_id IN (:orderIds)
+            UNION
+            SELECT oi.order_id, oip.promotion_id FROM order_item_promotions oip
+            JOIN order_items oi ON oi.id = oip.order_item_id
+            WHERE oi.order_id IN (:orderIds)
+        ) u
+        JOIN orders o ON o.id = u.order_id
+    """, nativeQuery = true)
+    List<OrderPromotionUsageProjection> findPromotionUsagesOfOrders(@Param("orderIds") Collection<UUID> orderIds);
 }
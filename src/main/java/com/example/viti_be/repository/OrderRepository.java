@@ -2,25 +2,35 @@ package com.example.viti_be.repository;
 
 import com.example.viti_be.model.Order;
 import com.example.viti_be.model.model_enum.OrderStatus;
-import com.example.viti_be.model.model_enum.OrderType;
-import com.example.viti_be.model.model_enum.PaymentMethod;
-import com.example.viti_be.repository.projection.ProfitProjection;
-import com.example.viti_be.repository.projection.RevenueByTypeProjection;
-import com.example.viti_be.repository.projection.RevenueProjection;
 import com.example.viti_be.repository.projection.TopProductProjection;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface OrderRepository extends JpaRepository<Order, UUID> {
     Optional<Order> findByOrderNumber(String orderNumber);
+
+    // Lock đơn khi đổi trạng thái (sweeper huỷ đơn quá hạn bỏ qua đơn đang bị lock)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id = :id")
+    Optional<Order> findByIdForUpdate(@Param("id") UUID id);
+
+    // Lock nhiều đơn theo thứ tự id (2 bulk request chồng nhau không deadlock)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.id IN :ids ORDER BY o.id")
+    List<Order> findAllByIdForUpdate(@Param("ids") Collection<UUID> ids);
+
     Page<Order> findByCustomer_Id(UUID customerId, Pageable pageable);
     Page<Order> findByEmployee_Id(UUID employeeId, Pageable pageable);
     @Query("SELECT o FROM Order o WHERE o.status = :status " +
@@ -31,154 +41,50 @@ public interface OrderRepository extends JpaRepository<Order, UUID> {
             @Param("endDate") LocalDateTime endDate
     );
 
-    // Count orders by customer for tier calculation
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.customer.id = :customerId " +
-            "AND o.status = 'COMPLETED'")
-    Long countCompletedOrdersByCustomer(@Param("customerId") UUID customerId);
-
-    // ============================================
-    // REVENUE QUERIES
-    // ============================================
-
     /**
-     * Get revenue breakdown by DAY
-     */
-    @Query("""
-        SELECT 
-            CAST(o.createdAt AS LocalDate) as period,
-            SUM(o.finalAmount) as totalRevenue,
-            COUNT(o.id) as orderCount
-        FROM Order o
-        WHERE o.createdAt BETWEEN :startDate AND :endDate
-            AND (:status IS NULL OR o.status = :status)
-            AND (:orderType IS NULL OR o.orderType = :orderType)
-            AND (:paymentMethod IS NULL OR o.paymentMethod = :paymentMethod)
-            AND (:employeeId IS NULL OR o.employee.id = :employeeId)
-            AND (:customerTier IS NULL OR o.customerTier.id = :customerTier)
-        GROUP BY CAST(o.createdAt AS LocalDate)
-        ORDER BY period
-    """)
-    List<RevenueProjection> getRevenueByDay(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("status") OrderStatus status,
-            @Param("orderType") OrderType orderType,
-            @Param("paymentMethod") PaymentMethod paymentMethod,
-            @Param("employeeId") UUID employeeId,
-            @Param("customerTier") UUID customerTier
-    );
-
-    /**
-     * Get revenue breakdown by WEEK
+     * Lock 1 batch đơn ONLINE còn PENDING tạo trước cutoff (giữ hàng đã hết hạn), cũ nhất trước.
+     * SKIP LOCKED: không chặn các đơn đang được xử lý, nhiều node chạy song song không trùng đơn
+     * @return id các đơn đã lock
      */
     @Query(value = """
-        SELECT 
-            DATE_TRUNC('week', o.created_at) as period,
-            SUM(o.final_amount) as totalRevenue,
-            COUNT(o.id) as orderCount
-        FROM orders o
-        WHERE o.created_at BETWEEN :startDate AND :endDate
-            AND (:status IS NULL OR o.status = CAST(:status AS VARCHAR))
-            AND (:orderType IS NULL OR o.order_type = CAST(:orderType AS VARCHAR))
-            AND (:paymentMethod IS NULL OR o.payment_method = CAST(:paymentMethod AS VARCHAR))
-            AND (:employeeId IS NULL OR o.employee_id = CAST(:employeeId AS UUID))
-            AND (:customerTier IS NULL OR o.customer_tier_id = CAST(:customerTier AS UUID))
-        GROUP BY DATE_TRUNC('week', o.created_at)
-        ORDER BY period
+        SELECT id FROM orders
+        WHERE status = 'PENDING' AND order_type IN ('ONLINE_COD', 'ONLINE_TRANSFER')
+          AND created_at < :cutoff AND is_deleted = false
+        ORDER BY created_at ASC
+        LIMIT :batchSize
+        FOR UPDATE SKIP LOCKED
     """, nativeQuery = true)
-    List<Object[]> getRevenueByWeekNative(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("status") String status,
-            @Param("orderType") String orderType,
-            @Param("paymentMethod") String paymentMethod,
-            @Param("employeeId") String employeeId,
-            @Param("customerTier") String customerTier
-    );
+    List<UUID> lockStalePendingOnlineOrders(@Param("cutoff") LocalDateTime cutoff,
+                                            @Param("batchSize") int batchSize);
 
     /**
-     * Get revenue breakdown by MONTH
+     * Huỷ các đơn còn PENDING (đã lock bởi lockStalePendingOnlineOrders)
      */
+    @Modifying(flushAutomatically = true)
     @Query(value = """
-        SELECT 
-            DATE_TRUNC('month', o.created_at) as period,
-            SUM(o.final_amount) as totalRevenue,
-            COUNT(o.id) as orderCount
-        FROM orders o
-        WHERE o.created_at BETWEEN :startDate AND :endDate
-            AND (:status IS NULL OR o.status = CAST(:status AS VARCHAR))
-            AND (:orderType IS NULL OR o.order_type = CAST(:orderType AS VARCHAR))
-            AND (:paymentMethod IS NULL OR o.payment_method = CAST(:paymentMethod AS VARCHAR))
-            AND (:employeeId IS NULL OR o.employee_id = CAST(:employeeId AS UUID))
-            AND (:customerTier IS NULL OR o.customer_tier_id = CAST(:customerTier AS UUID))
-        GROUP BY DATE_TRUNC('month', o.created_at)
-        ORDER BY period
+        UPDATE orders
+        SET status = 'CANCELLED', updated_at = now()
+        WHERE id IN (:orderIds) AND status = 'PENDING'
     """, nativeQuery = true)
-    List<Object[]> getRevenueByMonthNative(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("status") String status,
-            @Param("orderType") String orderType,
-            @Param("paymentMethod") String paymentMethod,
-            @Param("employeeId") String employeeId,
-            @Param("customerTier") String customerTier
-    );
+    int cancelPendingOrders(@Param("orderIds") Collection<UUID> orderIds);
 
     /**
-     * Get revenue breakdown by Order Type
+     * Set hạn bảo hành cho các items của nhiều đơn vừa hoàn tất (completedAt + warranty_period tháng của product)
      */
-    @Query("""
-        SELECT 
-            o.orderType as orderType,
-            SUM(o.finalAmount) as totalRevenue,
-            COUNT(o.id) as orderCount
-        FROM Order o
-        WHERE o.createdAt BETWEEN :startDate AND :endDate
-            AND (:status IS NULL OR o.status = :status)
-            AND (:customerTier IS NULL OR o.customerTier.id = :customerTier)
-        GROUP BY o.orderType
-        ORDER BY totalRevenue DESC
-    """)
-    List<RevenueByTypeProjection> getRevenueByOrderType(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("status") OrderStatus status,
-            @Param("customerTier") UUID customerTier
-    );
-
-    // ============================================
-    // PROFIT QUERIES
-    // ============================================
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE order_items oi
+        SET warranty_expire_date = :completedAt + make_interval(months => p.warranty_period)
+        FROM products p
+        WHERE oi.order_id IN (:orderIds) AND p.id = oi.product_id AND p.warranty_period > 0
+    """, nativeQuery = true)
+    int setWarrantyExpiryForOrders(@Param("orderIds") Collection<UUID> orderIds,
+                                   @Param("completedAt") LocalDateTime completedAt);
 
-    /**
-     * Get profit by product variant
-     */
-    @Query("""
-        SELECT 
-            oi.productVariant.id as productVariantId,
-            oi.product.name as productName,
-            oi.productVariant.variantName as variantName,
-            oi.productVariant.sku as sku,
-            SUM(oi.quantity) as quantitySold,
-            SUM(oi.subtotal - COALESCE(oi.discount, 0)) as totalRevenue,
-            SUM(oi.quantity * oi.costPrice) as totalCost,
-            SUM(oi.subtotal - COALESCE(oi.discount, 0) - (oi.quantity * oi.costPrice)) as grossProfit
-        FROM OrderItem oi
-        JOIN oi.order o
-        WHERE o.createdAt BETWEEN :startDate AND :endDate
-            AND (:status IS NULL OR o.status = :status)
-            AND (:categoryId IS NULL OR oi.product.category.id = :categoryId)
-            AND (:supplierId IS NULL OR oi.product.supplier.id = :supplierId)
-        GROUP BY oi.productVariant.id, oi.product.name, oi.productVariant.variantName, oi.productVariant.sku
-        ORDER BY grossProfit DESC
-    """)
-    List<ProfitProjection> getProfitByProduct(
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("status") OrderStatus status,
-            @Param("categoryId") UUID categoryId,
-            @Param("supplierId") UUID supplierId
-    );
+    // Count orders by customer for tier calculation
+    @Query("SELECT COUNT(o) FROM Order o WHERE o.customer.id = :customerId " +
+            "AND o.status = 'COMPLETED'")
+    Long countCompletedOrdersByCustomer(@Param("customerId") UUID customerId);
 
     // ============================================
     // TOP PRODUCTS QUERIES
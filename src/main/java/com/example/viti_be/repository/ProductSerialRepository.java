@@ -6,10 +6,13 @@ import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,5 +41,81 @@ public interface ProductSerialRepository extends JpaRepository<ProductSerial, UU
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT ps FROM ProductSerial ps WHERE ps.serialNumber = :serialNumber")
     Optional<ProductSerial> findBySerialNumberWithLock(@Param("serialNumber") String serialNumber);
-}
 
+    /**
+     * Claim FIFO serials cho cả đơn hàng trong 1 statement (variantIds / quantities: CSV cùng thứ tự):
+     * mỗi variant lock + chuyển SOLD quantity serials cũ nhất.
+     * SKIP LOCKED: các đơn song song nhận các serials khác nhau, không chờ nhau
+     * @return các serials đã claim (thiếu nếu không đủ serial khả dụng)
+     */
+    @Query(value = """
+        WITH requested AS (
+            SELECT r.variant_id, r.quantity
+            FROM unnest(CAST(string_to_array(:variantIds, ',') AS uuid[]),
+                        CAST(string_to_array(:quantities, ',') AS int[])) AS r(variant_id, quantity)
+        ), claimable AS MATERIALIZED (
+            SELECT c.id
+            FROM requested r
+            CROSS JOIN LATERAL (
+                SELECT s.id FROM product_serials s
+                WHERE s.product_variant_id = r.variant_id AND s.status = 'AVAILABLE'
+                ORDER BY s.created_at ASC
+                LIMIT r.quantity
+                FOR UPDATE SKIP LOCKED
+            ) c
+        )
+        UPDATE product_serials ps
+        SET status = 'SOLD', sold_date = now(), warranty_expire_date = :warrantyExpireDate
+        FROM claimable c
+        WHERE ps.id = c.id AND ps.status = 'AVAILABLE'
+        RETURNING ps.*
+    """, nativeQuery = true)
+    List<ProductSerial> claimAvailableSerials(@Param("variantIds") String variantIds,
+                                              @Param("quantities") String quantities,
+                                              @Param("warrantyExpireDate") LocalDateTime warrantyExpireDate);
+
+    /**
+     * Claim các serials chỉ định (chờ lock nếu đơn khác đang giữ, sau đó check lại status).
+     * Lock theo thứ tự id để 2 đơn chọn cùng các serials không deadlock
+     */
+    @Query(value = """
+        WITH locked AS MATERIALIZED (
+            SELECT id FROM product_serials
+            WHERE id IN (:serialIds) AND status = 'AVAILABLE'
+            ORDER BY id
+            FOR UPDATE
+        )
+        UPDATE product_serials ps
+        SET status = 'SOLD', sold_date = now(), warranty_expire_date = :warrantyExpireDate
+        FROM locked l
+        WHERE ps.id = l.id AND ps.status = 'AVAILABLE'
+        RETURNING ps.*
+    """, nativeQuery = true)
+    List<ProductSerial> claimSerials(@Param("serialIds") Collection<UUID> serialIds,
+                                     @Param("warrantyExpireDate") LocalDateTime warrantyExpireDate);
+
+    /**
+     * Gắn serials vào đơn hàng (AVAILABLE hoặc đã được claim, chưa thuộc đơn nào) -> SOLD
+     * @return số serials được cập nhật
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE product_serials
+        SET status = 'SOLD', order_id = :orderId, sold_date = COALESCE(sold_date, now())
+        WHERE serial_number IN (:serialNumbers)
+          AND (status = 'AVAILABLE' OR (status = 'SOLD' AND order_id IS NULL))
+    """, nativeQuery = true)
+    int markSoldForOrder(@Param("serialNumbers") Collection<String> serialNumbers,
+                         @Param("orderId") UUID orderId);
+
+    /**
+     * Trả serials của các đơn bị huỷ về AVAILABLE (1 statement cho nhiều đơn)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = """
+        UPDATE product_serials
+        SET status = 'AVAILABLE', order_id = NULL, sold_date = NULL, warranty_expire_date = NULL
+        WHERE order_id IN (:orderIds) AND status = 'SOLD'
+    """, nativeQuery = true)
+    int releaseForOrders(@Param("orderIds") Collection<UUID> orderIds);
+}
@@ -1,12 +1,14 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.ProductVariant;
+import com.example.viti_be.repository.projection.VariantCatalogProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -32,4 +34,15 @@ public interface ProductVariantRepository extends JpaRepository<ProductVariant,
 
     // Lấy tất cả variants (không phân trang) - để aggregate filter options toàn hệ thống
     List<ProductVariant> findAllByIsDeletedFalse();
-}
\ No newline at end of file
+
+    // Batch lookup variant -> product -> category (1 query cho cả giỏ hàng)
+    @Query("SELECT v.id AS variantId, p.id AS productId, c.id AS categoryId " +
+            "FROM ProductVariant v JOIN v.product p LEFT JOIN p.category c " +
+            "WHERE v.id IN :variantIds")
+    List<VariantCatalogProjection> findCatalogByVariantIds(@Param("variantIds") Collection<UUID> variantIds);
+
+    // Batch load variants kèm product cho tạo đơn hàng (1 query cho cả đơn)
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product " +
+            "WHERE v.id IN :variantIds AND v.isDeleted = false")
+    List<ProductVariant> findAllWithProductByIdIn(@Param("variantIds") Collection<UUID> variantIds);
+}
@@ -1,7 +1,9 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.PromotionCategory;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,11 @@ import java.util.UUID;
 public interface PromotionCategoryRepository extends JpaRepository<PromotionCategory, UUID> {
     List<PromotionCategory> findByPromotionId(UUID promotionId);
     void deleteByPromotionId(UUID promotionId);
+
+    /**
+     * Category links của tất cả ACTIVE promotions (dùng cho PromotionRuleIndex)
+     */
+    @Query("SELECT pc.promotion.id AS promotionId, pc.category.id AS targetId FROM PromotionCategory pc " +
+            "WHERE pc.promotion.status = 'ACTIVE' AND pc.promotion.isDeleted = false")
+    List<PromotionLinkProjection> findActivePromotionCategoryLinks();
 }
@@ -1,6 +1,7 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.PromotionConflict;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,9 +13,20 @@ import java.util.UUID;
 @Repository
 public interface PromotionConflictRepository extends JpaRepository<PromotionConflict, UUID> {
 
+    List<PromotionConflict> findByPromotionId(UUID promotionId);
+
     @Query("SELECT pc.conflictingPromotion.id FROM PromotionConflict pc " +
             "WHERE pc.promotion.id = :promotionId")
     List<UUID> findConflictingPromotionIds(@Param("promotionId") UUID promotionId);
 
+    /**
+     * Toàn bộ conflict graph giữa các ACTIVE promotions (dùng cho PromotionRuleIndex)
+     */
+    @Query("SELECT pc.promotion.id AS promotionId, pc.conflictingPromotion.id AS targetId " +
+            "FROM PromotionConflict pc " +
+            "WHERE pc.promotion.status = 'ACTIVE' AND pc.promotion.isDeleted = false " +
+            "AND pc.conflictingPromotion.status = 'ACTIVE' AND pc.conflictingPromotion.isDeleted = false")
+    List<PromotionLinkProjection> findActiveConflictLinks();
+
     void deleteByPromotionId(UUID promotionId);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.PromotionProduct;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,4 +13,11 @@ import java.util.UUID;
 public interface PromotionProductRepository extends JpaRepository<PromotionProduct, UUID> {
     List<PromotionProduct> findByPromotionId(UUID promotionId);
     void deleteByPromotionId(UUID promotionId);
+
+    /**
+     * Product links của tất cả ACTIVE promotions (dùng cho PromotionRuleIndex)
+     */
+    @Query("SELECT pp.promotion.id AS promotionId, pp.product.id AS targetId FROM PromotionProduct pp " +
+            "WHERE pp.promotion.status = 'ACTIVE' AND pp.promotion.isDeleted = false")
+    List<PromotionLinkProjection> findActivePromotionProductLinks();
 }
@@ -0,0 +1,137 @@
+package com.example.viti_be.repository;
+
+import com.example.viti_be.model.PromotionQuotaShard;
+import com.example.viti_be.repository.projection.QuotaAvailabilityProjection;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PromotionQuotaShardRepository extends JpaRepository<PromotionQuotaShard, UUID> {
+
+    /**
+     * Giữ 1 lượt trên 1 shard ngẫu nhiên còn quota, bỏ qua các shard đang bị lock
+     * @return 1 nếu giữ được, 0 nếu hết quota hoặc mọi shard còn quota đang bị lock
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE promotion_quota_shards
+        SET remaining = remaining - 1, used = used + 1
+        WHERE id = (
+            SELECT id FROM promotion_quota_shards
+            WHERE promotion_id = :promotionId AND (remaining IS NULL OR remaining > 0)
+            ORDER BY random() LIMIT 1
+            FOR UPDATE SKIP LOCKED
+        )
+        AND (remaining IS NULL OR remaining > 0)
+    """, nativeQuery = true)
+    int reserveSkipLocked(@Param("promotionId") UUID promotionId);
+
+    /**
+     * Như reserveSkipLocked nhưng chờ lock (dùng khi mọi shard còn quota đang bị giữ)
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE promotion_quota_shards
+        SET remaining = remaining - 1, used = used + 1
+        WHERE id = (
+            SELECT id FROM promotion_quota_shards
+            WHERE promotion_id = :promotionId AND (remaining IS NULL OR remaining > 0)
+            ORDER BY random() LIMIT 1
+            FOR UPDATE
+        )
+        AND (remaining IS NULL OR remaining > 0)
+    """, nativeQuery = true)
+    int reserveBlocking(@Param("promotionId") UUID promotionId);
+
+    /**
+     * Trả lại 1 lượt vào 1 shard đã được dùng, bỏ qua các shard đang bị lock
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE promotion_quota_shards
+        SET remaining = remaining + 1, used = used - 1
+        WHERE id = (
+            SELECT id FROM promotion_quota_shards
+            WHERE promotion_id = :promotionId AND used > 0
+            ORDER BY random() LIMIT 1
+            FOR UPDATE SKIP LOCKED
+        )
+        AND used > 0
+    """, nativeQuery = true)
+    int releaseSkipLocked(@Param("promotionId") UUID promotionId);
+
+    @Modifying
+    @Query(value = """
+        UPDATE promotion_quota_shards
+        SET remaining = remaining + 1, used = used - 1
+        WHERE id = (
+            SELECT id FROM promotion_quota_shards
+            WHERE promotion_id = :promotionId AND used > 0
+            ORDER BY random() LIMIT 1
+            FOR UPDATE
+        )
+        AND used > 0
+    """, nativeQuery = true)
+    int releaseBlocking(@Param("promotionId") UUID promotionId);
+
+    /**
+     * Tạo shard (idempotent khi nhiều request cùng khởi tạo quota cho 1 promotion)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO promotion_quota_shards (id, promotion_id, shard_no, remaining, used)
+        VALUES (gen_random_uuid(), :promotionId, :shardNo, :remaining, :used)
+        ON CONFLICT (promotion_id, shard_no) DO NOTHING
+    """, nativeQuery = true)
+    int insertShardIfAbsent(@Param("promotionId") UUID promotionId,
+                            @Param("shardNo") int shardNo,
+                            @Param("remaining") Integer remaining,
+                            @Param("used") int used);
+
+    @Modifying
+    @Query("DELETE FROM PromotionQuotaShard s WHERE s.promotionId = :promotionId")
+    int deleteByPromotionId(@Param("promotionId") UUID promotionId);
+
+    long countByPromotionId(UUID promotionId);
+
+    /**
+     * Số shard còn quota (remaining NULL = không giới hạn)
+     */
+    @Query("SELECT COUNT(s) FROM PromotionQuotaShard s " +
+            "WHERE s.promotionId = :promotionId AND (s.remaining IS NULL OR s.remaining > 0)")
+    long countAvailableShards(@Param("promotionId") UUID promotionId);
+
+    /**
+     * Số shard còn quota của các promotions đã có shards (lúc tính giỏ hàng)
+     */
+    @Query("SELECT s.promotionId AS promotionId, " +
+            "SUM(CASE WHEN s.remaining IS NULL OR s.remaining > 0 THEN 1 ELSE 0 END) AS availableShards " +
+            "FROM PromotionQuotaShard s WHERE s.promotionId IN :promotionIds GROUP BY s.promotionId")
+    List<QuotaAvailabilityProjection> findQuotaAvailability(@Param("promotionIds") Collection<UUID> promotionIds);
+
+    @Query("SELECT COALESCE(SUM(s.used), 0) FROM PromotionQuotaShard s WHERE s.promotionId = :promotionId")
+    long sumUsed(@Param("promotionId") UUID promotionId);
+
+    /**
+     * Đồng bộ promotions.usage_count = SUM(used) (chỉ cập nhật rows có thay đổi)
+     */
+    @Modifying
+    @Query(value = """
+        UPDATE promotions p
+        SET usage_count = s.used
+        FROM (
+            SELECT promotion_id, SUM(used) AS used
+            FROM promotion_quota_shards
+            GROUP BY promotion_id
+        ) s
+        WHERE p.id = s.promotion_id AND p.usage_count IS DISTINCT FROM s.used
+    """, nativeQuery = true)
+    int syncPromotionUsageCounts();
+}
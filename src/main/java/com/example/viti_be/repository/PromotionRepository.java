@@ -3,6 +3,7 @@ package com.example.viti_be.repository;
 import com.example.viti_be.model.*;
 import com.example.viti_be.model.model_enum.PromotionScope;
 import com.example.viti_be.model.model_enum.PromotionStatus;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -11,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -25,6 +27,35 @@ public interface PromotionRepository extends JpaRepository<Promotion, UUID> {
 
     List<Promotion> findByStatusAndIsDeletedFalse(PromotionStatus status);
 
+    /**
+     * Customer tier links của tất cả ACTIVE promotions (dùng cho PromotionRuleIndex)
+     */
+    @Query("SELECT p.id AS promotionId, t.id AS targetId FROM Promotion p JOIN p.customerTiers t " +
+            "WHERE p.status = 'ACTIVE' AND p.isDeleted = false")
+    List<PromotionLinkProjection> findActiveCustomerTierLinks();
+
+    /**
+     * ACTIVE public promotions (không cần code) kèm product links, không lọc thời gian
+     * (dùng cho PublicPromotionCache, thời gian hiệu lực được check lúc lookup)
+     */
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.promotionProducts " +
+            "WHERE p.status = 'ACTIVE' " +
+            "AND (p.requiresCode = false OR p.requiresCode IS NULL) " +
+            "AND p.isDeleted = false")
+    List<Promotion> findActivePublicPromotionsWithProducts();
+
+    /**
+     * Fetch category links cho các promotions đã load (mỗi collection 1 query, tránh cartesian product)
+     */
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.promotionCategories WHERE p.id IN :promotionIds")
+    List<Promotion> fetchCategories(@Param("promotionIds") Collection<UUID> promotionIds);
+
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.conflicts WHERE p.id IN :promotionIds")
+    List<Promotion> fetchConflicts(@Param("promotionIds") Collection<UUID> promotionIds);
+
+    @Query("SELECT DISTINCT p FROM Promotion p LEFT JOIN FETCH p.customerTiers WHERE p.id IN :promotionIds")
+    List<Promotion> fetchCustomerTiers(@Param("promotionIds") Collection<UUID> promotionIds);
+
     /**
      * Tìm active promotions (ACTIVE + trong thời gian hiệu lực)
      */
@@ -41,19 +72,47 @@ public interface PromotionRepository extends JpaRepository<Promotion, UUID> {
     List<Promotion> findActivePublicPromotions(@Param("now") LocalDateTime now);
 
     /**
-     * Tìm promotions cần auto-expire (end_date qua + status vẫn ACTIVE)
+     * Promotions dùng nhiều nhất (giới hạn bằng Pageable, usage_count NULL tính là 0)
      */
-    @Query("SELECT p FROM Promotion p WHERE p.status = 'ACTIVE' " +
-            "AND p.endDate < :now AND p.isDeleted = false")
-    List<Promotion> findPromotionsToExpire(@Param("now") LocalDateTime now);
+    @Query("SELECT p FROM Promotion p WHERE p.isDeleted = false " +
+            "ORDER BY COALESCE(p.usageCount, 0) DESC")
+    List<Promotion> findTopByUsageCount(Pageable pageable);
 
     /**
-     * Tìm promotions cần auto-activate (start_date đến + status SCHEDULED)
+     * Auto-expire (end_date qua + status vẫn ACTIVE) bằng 1 câu UPDATE
+     * @return id các promotions vừa chuyển sang EXPIRED
      */
-    @Query("SELECT p FROM Promotion p WHERE p.status = 'SCHEDULED' " +
-            "AND p.startDate <= :now AND p.endDate > :now " +
-            "AND p.isDeleted = false")
-    List<Promotion> findPromotionsToActivate(@Param("now") LocalDateTime now);
+    @Query(value = """
+        UPDATE promotions SET status = 'EXPIRED', updated_at = :now
+        WHERE status = 'ACTIVE' AND end_date < :now AND is_deleted = false
+        RETURNING id
+    """, nativeQuery = true)
+    List<UUID> expireDuePromotions(@Param("now") LocalDateTime now);
+
+    /**
+     * Auto-activate (start_date đến + status SCHEDULED) bằng 1 câu UPDATE
+     * @return id các promotions vừa chuyển sang ACTIVE
+     */
+    @Query(value = """
+        UPDATE promotions SET status = 'ACTIVE', updated_at = :now
+        WHERE status = 'SCHEDULED' AND start_date <= :now AND end_date > :now AND is_deleted = false
+        RETURNING id
+    """, nativeQuery = true)
+    List<UUID> activateDuePromotions(@Param("now") LocalDateTime now);
+
+    /**
+     * Mốc chuyển trạng thái gần nhất sau :now (start_date của SCHEDULED hoặc end_date của ACTIVE)
+     */
+    @Query(value = """
+        SELECT MIN(boundary) FROM (
+            SELECT MIN(start_date) AS boundary FROM promotions
+            WHERE status = 'SCHEDULED' AND start_date > :now AND is_deleted = false
+            UNION ALL
+            SELECT MIN(end_date) FROM promotions
+            WHERE status = 'ACTIVE' AND end_date >= :now AND is_deleted = false
+        ) b
+    """, nativeQuery = true)
+    LocalDateTime findNextStatusBoundary(@Param("now") LocalDateTime now);
 
     /**
      * Tìm applicable promotions cho product
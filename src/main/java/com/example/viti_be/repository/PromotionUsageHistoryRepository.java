@@ -1,11 +1,17 @@
 package com.example.viti_be.repository;
 
 import com.example.viti_be.model.PromotionUsageHistory;
+import com.example.viti_be.repository.projection.PromotionUsageCountProjection;
+import com.example.viti_be.repository.projection.PromotionUsageDetailProjection;
+import com.example.viti_be.repository.projection.PromotionUsageStatsProjection;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,12 +29,56 @@ public interface PromotionUsageHistoryRepository extends JpaRepository<Promotion
             @Param("customerId") UUID customerId);
 
     /**
-     * Lấy usage history của promotion
+     * Đếm số lần customer đã dùng từng promotion trong danh sách (1 query GROUP BY)
+     * Promotions chưa dùng lần nào sẽ không có trong kết quả
      */
-    List<PromotionUsageHistory> findByPromotionIdOrderByUsedAtDesc(UUID promotionId);
+    @Query("SELECT puh.promotion.id AS promotionId, COUNT(puh) AS usageCount " +
+            "FROM PromotionUsageHistory puh " +
+            "WHERE puh.customer.id = :customerId " +
+            "AND puh.promotion.id IN :promotionIds " +
+            "GROUP BY puh.promotion.id")
+    List<PromotionUsageCountProjection> countByCustomerIdGroupByPromotion(
+            @Param("customerId") UUID customerId,
+            @Param("promotionIds") Collection<UUID> promotionIds);
+
+    /**
+     * Thống kê usage của từng promotion trong danh sách (1 query GROUP BY)
+     * Promotions chưa dùng lần nào sẽ không có trong kết quả
+     */
+    @Query("SELECT puh.promotion.id AS promotionId, " +
+            "COUNT(puh) AS usageCount, " +
+            "COUNT(DISTINCT puh.customer.id) AS uniqueCustomerCount, " +
+            "COALESCE(SUM(puh.discountAmount), 0) AS totalDiscountAmount, " +
+            "MAX(puh.usedAt) AS lastUsedAt " +
+            "FROM PromotionUsageHistory puh " +
+            "WHERE puh.promotion.id IN :promotionIds " +
+            "GROUP BY puh.promotion.id")
+    List<PromotionUsageStatsProjection> getUsageStatsByPromotionIds(
+            @Param("promotionIds") Collection<UUID> promotionIds);
+
+    /**
+     * Các lần dùng gần nhất của promotion (giới hạn bằng Pageable)
+     */
+    @Query("SELECT o.id AS orderId, o.orderNumber AS orderNumber, " +
+            "c.id AS customerId, c.fullName AS customerName, " +
+            "puh.discountAmount AS discountAmount, puh.usedAt AS usedAt " +
+            "FROM PromotionUsageHistory puh " +
+            "JOIN puh.order o " +
+            "LEFT JOIN puh.customer c " +
+            "WHERE puh.promotion.id = :promotionId " +
+            "ORDER BY puh.usedAt DESC")
+    List<PromotionUsageDetailProjection> findRecentUsages(
+            @Param("promotionId") UUID promotionId, Pageable pageable);
 
     /**
      * Xóa usage history khi cancel order
      */
     void deleteByOrderId(UUID orderId);
+
+    /**
+     * Xóa usage history của nhiều đơn bị cancel (1 statement)
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM PromotionUsageHistory puh WHERE puh.order.id IN :orderIds")
+    int deleteByOrderIdIn(@Param("orderIds") Collection<UUID> orderIds);
 }
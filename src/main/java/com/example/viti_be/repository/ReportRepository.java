@@ -6,7 +6,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
@@ -17,4 +19,12 @@ public interface ReportRepository extends JpaRepository<Report, UUID> {
             LocalDate startDate,
             LocalDate endDate
     );
-}
\ No newline at end of file
+
+    /**
+     * File export gần nhất có cùng filter hash, tạo sau thời điểm after
+     */
+    Optional<Report> findFirstByFilterHashAndIsDeletedFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+            String filterHash,
+            LocalDateTime after
+    );
+}
@@ -0,0 +1,38 @@
+package com.example.viti_be.repository;
+
+import com.example.viti_be.model.StockDailySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface StockDailySnapshotRepository extends JpaRepository<StockDailySnapshot, StockDailySnapshot.Key> {
+
+    /**
+     * Cộng dồn 1 biến động tồn kho vào snapshot của ngày (tạo dòng nếu chưa có)
+     */
+    @Modifying
+    @Query(value = """
+        INSERT INTO stock_daily_snapshots (snapshot_date, item_type, quantity_change, value_change)
+        VALUES (:snapshotDate, :itemType, :quantityChange, :valueChange)
+        ON CONFLICT (snapshot_date, item_type)
+        DO UPDATE SET quantity_change = stock_daily_snapshots.quantity_change + EXCLUDED.quantity_change,
+                      value_change = stock_daily_snapshots.value_change + EXCLUDED.value_change
+    """, nativeQuery = true)
+    int addMovement(@Param("snapshotDate") LocalDate snapshotDate,
+                    @Param("itemType") String itemType,
+                    @Param("quantityChange") long quantityChange,
+                    @Param("valueChange") BigDecimal valueChange);
+
+    /**
+     * Snapshots sau ngày fromDate (dùng cho chart lịch sử, 1 query cho cả range)
+     */
+    @Query("SELECT s FROM StockDailySnapshot s WHERE s.snapshotDate > :fromDate ORDER BY s.snapshotDate ASC")
+    List<StockDailySnapshot> findAfter(@Param("fromDate") LocalDate fromDate);
+}
@@ -2,6 +2,7 @@ package com.example.viti_be.repository;
 
 import com.example.viti_be.model.SystemConfig;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -14,4 +15,12 @@ public interface SystemConfigRepository extends JpaRepository<SystemConfig, UUID
     List<SystemConfig> findByIsDeletedFalse();
     Optional<SystemConfig> findByIdAndIsDeletedFalse(UUID id);
     boolean existsByConfigKey(String configKey);
+
+    /**
+     * Version của toàn bộ bảng (số rows + updated_at mới nhất), đổi khi có create/update/soft delete
+     */
+    @Query(value = "SELECT CAST(count(*) AS text) || ':' || COALESCE(CAST(max(updated_at) AS text), '') " +
+            "FROM system_config", nativeQuery = true)
+    String findVersion();
 }
+
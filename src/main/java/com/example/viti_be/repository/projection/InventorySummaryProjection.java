@@ -0,0 +1,12 @@
+package com.example.viti_be.repository.projection;
+
+import java.math.BigDecimal;
+
+public interface InventorySummaryProjection {
+    BigDecimal getProductStockValue();   // quantity_available * selling_price
+    BigDecimal getComponentStockValue();
+    Long getLowStockProductCount();      // quantity_available < min_threshold
+    Long getLowStockComponentCount();
+    Long getProductQuantity();           // tổng quantity_available
+    Long getComponentQuantity();
+}
@@ -0,0 +1,14 @@
+package com.example.viti_be.repository.projection;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface LowStockComponentProjection {
+    UUID getPartComponentId();
+    String getName();       // null nếu part không còn tồn tại
+    String getPartType();
+    String getUnit();
+    Integer getCurrentStock();
+    Integer getMinStock();
+    BigDecimal getPurchasePriceAvg();
+}
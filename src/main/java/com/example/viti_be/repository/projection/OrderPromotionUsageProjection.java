@@ -0,0 +1,12 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * 1 promotion được áp dụng trên 1 đơn (cấp đơn hoặc cấp sản phẩm), customerId null nếu đơn không có customer
+ */
+public interface OrderPromotionUsageProjection {
+    UUID getOrderId();
+    UUID getCustomerId();
+    UUID getPromotionId();
+}
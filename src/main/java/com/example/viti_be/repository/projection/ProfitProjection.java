@@ -12,4 +12,8 @@ public interface ProfitProjection {
     BigDecimal getTotalRevenue();
     BigDecimal getTotalCost();
     BigDecimal getGrossProfit();
+
+    // Tổng toàn báo cáo (giống nhau trên mọi dòng)
+    BigDecimal getReportRevenue();
+    BigDecimal getReportCost();
 }
\ No newline at end of file
@@ -0,0 +1,12 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Cặp (promotionId, targetId) dùng để build promotion index.
+ * targetId là productId / categoryId / conflictingPromotionId tùy query.
+ */
+public interface PromotionLinkProjection {
+    UUID getPromotionId();
+    UUID getTargetId();
+}
@@ -0,0 +1,8 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+public interface PromotionUsageCountProjection {
+    UUID getPromotionId();
+    Long getUsageCount();
+}
@@ -0,0 +1,14 @@
+package com.example.viti_be.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface PromotionUsageDetailProjection {
+    UUID getOrderId();
+    String getOrderNumber();
+    UUID getCustomerId();
+    String getCustomerName();
+    BigDecimal getDiscountAmount();
+    LocalDateTime getUsedAt();
+}
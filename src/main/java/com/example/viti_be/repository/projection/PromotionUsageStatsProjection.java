@@ -0,0 +1,13 @@
+package com.example.viti_be.repository.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface PromotionUsageStatsProjection {
+    UUID getPromotionId();
+    Long getUsageCount();
+    Long getUniqueCustomerCount();
+    BigDecimal getTotalDiscountAmount();
+    LocalDateTime getLastUsedAt();
+}
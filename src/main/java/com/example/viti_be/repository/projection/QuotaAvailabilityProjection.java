@@ -0,0 +1,8 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+public interface QuotaAvailabilityProjection {
+    UUID getPromotionId();
+    Long getAvailableShards(); // 0 = promotion đã hết quota
+}
@@ -0,0 +1,12 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+/**
+ * Dòng inventory bị sửa bởi các UPDATE ... RETURNING theo lô (reserve / release / confirm out)
+ */
+public interface ReleasedStockProjection {
+    UUID getInventoryId();
+    UUID getProductVariantId();
+    Integer getQuantity();
+}
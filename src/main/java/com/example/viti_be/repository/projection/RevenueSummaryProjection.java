@@ -0,0 +1,22 @@
+package com.example.viti_be.repository.projection;
+
+import com.example.viti_be.model.model_enum.OrderType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 1 dòng của DailySalesRollupRepository.getRevenueSummary
+ * - rowType PERIOD: period + doanh thu của bucket
+ * - rowType ORDER_TYPE: orderType + doanh thu của loại đơn
+ * - rowType TOTAL: tổng kỳ hiện tại
+ * previousRevenue (tổng kỳ trước) giống nhau trên mọi dòng
+ */
+public interface RevenueSummaryProjection {
+    String getRowType();
+    LocalDate getPeriod();
+    OrderType getOrderType();
+    BigDecimal getTotalRevenue();
+    Long getOrderCount();
+    BigDecimal getPreviousRevenue();
+}
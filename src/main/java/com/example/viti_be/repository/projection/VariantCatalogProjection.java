@@ -0,0 +1,9 @@
+package com.example.viti_be.repository.projection;
+
+import java.util.UUID;
+
+public interface VariantCatalogProjection {
+    UUID getVariantId();
+    UUID getProductId();
+    UUID getCategoryId(); // null nếu product không có category
+}
@@ -0,0 +1,52 @@
+package com.example.viti_be.scheduler;
+
+import com.example.viti_be.service.order.DailySalesRollupRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Scheduled task chốt doanh số theo ngày vào daily_sales_rollup
+ *
+ * - Ngày D được chốt khi đã qua nửa đêm cuối ngày D thêm closeGraceMinutes (cho các transaction tạo đơn cuối ngày commit xong)
+ * - Mỗi ngày 1 transaction, chốt lần lượt tới hết các ngày đủ điều kiện (bù các ngày bị lỡ khi app không chạy)
+ * - Nhiều node chạy cùng lúc thì chỉ 1 node chốt được mỗi ngày (conditional UPDATE trên closed_through)
+ */
+@Component
+@Slf4j
+public class DailySalesRollupScheduler {
+
+    private static final int MAX_DAYS_PER_RUN = 31;
+
+    private final DailySalesRollupRecorder dailySalesRollupRecorder;
+    private final long closeGraceMinutes;
+
+    public DailySalesRollupScheduler(DailySalesRollupRecorder dailySalesRollupRecorder,
+                                     @Value("${viti.report.rollup.closeGraceMinutes:10}") long closeGraceMinutes) {
+        this.dailySalesRollupRecorder = dailySalesRollupRecorder;
+        this.closeGraceMinutes = closeGraceMinutes;
+    }
+
+    /**
+     * Chạy mỗi 5 phút
+     */
+    @Scheduled(cron = "0 */5 * * * *")
+    public void closeDays() {
+        try {
+            LocalDate closableThrough = LocalDateTime.now().minusMinutes(closeGraceMinutes).toLocalDate().minusDays(1);
+            for (int i = 0; i < MAX_DAYS_PER_RUN; i++) {
+                LocalDate day = dailySalesRollupRecorder.closeNextDay(closableThrough);
+                if (day == null) {
+                    break;
+                }
+                log.info("Closed daily sales rollup for {}", day);
+            }
+        } catch (Exception e) {
+            log.error("Error in daily sales rollup close task", e);
+        }
+    }
+}
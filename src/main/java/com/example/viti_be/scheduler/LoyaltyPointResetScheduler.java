@@ -1,10 +1,13 @@
 package com.example.viti_be.scheduler;
 
 import com.example.viti_be.dto.response.ResetResultResponse;
+import com.example.viti_be.event.SystemConfigChangedEvent;
 import com.example.viti_be.repository.SystemConfigRepository;
 import com.example.viti_be.service.LoyaltyPointService;
+import com.example.viti_be.service.SystemConfigService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
@@ -22,6 +25,8 @@ public class LoyaltyPointResetScheduler {
 
     private final LoyaltyPointService loyaltyPointService;
     private final SystemConfigRepository systemConfigRepository;
+    private final SystemConfigService systemConfigService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Chạy lúc 00:00 hàng ngày
@@ -63,9 +68,7 @@ public class LoyaltyPointResetScheduler {
         LocalDate today = LocalDate.now();
 
         // Lấy next reset date từ config
-        String nextResetStr = systemConfigRepository.findByConfigKey("loyalty.reset.next_date")
-                .map(config -> config.getConfigValue())
-                .orElse(null);
+        String nextResetStr = systemConfigService.getStringValue("loyalty.reset.next_date", null);
 
         if (nextResetStr != null) {
             LocalDate nextResetDate = LocalDate.parse(nextResetStr);
@@ -99,20 +102,17 @@ public class LoyaltyPointResetScheduler {
                             systemConfigRepository.save(newConfig);
                         }
                 );
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(this, "loyalty.reset.next_date"));
 
         log.info("Next reset date updated to: {}", nextReset.toLocalDate());
     }
 
-    // Helper methods
+    // Helper methods (đọc qua SystemConfigCache)
     private Boolean getConfigBoolean(String key, Boolean defaultValue) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(config -> Boolean.parseBoolean(config.getConfigValue()))
-                .orElse(defaultValue);
+        return systemConfigService.getBooleanValue(key, defaultValue);
     }
 
     private Integer getConfigInt(String key, Integer defaultValue) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(config -> Integer.parseInt(config.getConfigValue()))
-                .orElse(defaultValue);
+        return systemConfigService.getIntegerValue(key, defaultValue);
     }
 }
\ No newline at end of file
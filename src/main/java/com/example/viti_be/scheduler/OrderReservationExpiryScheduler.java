@@ -0,0 +1,66 @@
+package com.example.viti_be.scheduler;
+
+import com.example.viti_be.service.OrderService;
+import com.example.viti_be.service.SystemConfigService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Scheduled task trả hàng giữ cho đơn ONLINE bị bỏ dở
+ *
+ * - Đơn ONLINE còn PENDING quá ORDER_RESERVATION_TTL_MINUTES (SystemConfig) sẽ bị huỷ
+ * - Mỗi batch 1 transaction: huỷ đơn, trả Reserved -> Available, serials -> AVAILABLE (set-based)
+ * - Lặp tới khi hết đơn quá hạn hoặc chạm MAX_BATCHES_PER_RUN (phần còn lại để lần chạy sau)
+ */
+@Component
+@Slf4j
+public class OrderReservationExpiryScheduler {
+
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    private final OrderService orderService;
+    private final SystemConfigService systemConfigService;
+    private final int batchSize;
+
+    public OrderReservationExpiryScheduler(OrderService orderService,
+                                           SystemConfigService systemConfigService,
+                                           @Value("${viti.order.reservationExpiry.batchSize:200}") int batchSize) {
+        this.orderService = orderService;
+        this.systemConfigService = systemConfigService;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Chạy mỗi phút
+     */
+    @Scheduled(cron = "0 * * * * *")
+    public void expireStaleReservations() {
+        try {
+            Integer ttlMinutes = systemConfigService.getOrderReservationTtlMinutes();
+            if (ttlMinutes == null || ttlMinutes <= 0) {
+                log.debug("Order reservation expiry is disabled, skipping");
+                return;
+            }
+
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(ttlMinutes);
+            int total = 0;
+            for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+                int expired = orderService.expireStaleReservations(cutoff, batchSize);
+                total += expired;
+                if (expired < batchSize) {
+                    break;
+                }
+            }
+
+            if (total > 0) {
+                log.info("Released reservations of {} stale pending online orders", total);
+            }
+        } catch (Exception e) {
+            log.error("Error in order reservation expiry task", e);
+        }
+    }
+}
@@ -1,10 +1,23 @@
 package com.example.viti_be.scheduler;
 
+import com.example.viti_be.event.PromotionChangedEvent;
+import com.example.viti_be.service.PromotionQuotaService;
 import com.example.viti_be.service.PromotionService;
+import com.example.viti_be.service.promotion.PromotionRuleIndex;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.ScheduledFuture;
 
 /**
  * Scheduled tasks cho Promotion module
@@ -12,6 +25,9 @@ import org.springframework.stereotype.Component;
  * Tasks:
  * - Auto-activate promotions khi start_date đến
  * - Auto-expire promotions khi end_date qua
+ * - Timer 1 lần tại mốc start_date/end_date gần nhất (chính xác tới giây, cron chỉ là fallback)
+ * - Rebuild PromotionRuleIndex sau mỗi tick (đồng bộ cả thay đổi từ node khác)
+ * - Đồng bộ promotions.usage_count từ quota shards
  */
 @Component
 @RequiredArgsConstructor
@@ -19,6 +35,13 @@ import org.springframework.stereotype.Component;
 public class PromotionScheduler {
 
     private final PromotionService promotionService;
+    private final PromotionRuleIndex promotionRuleIndex;
+    private final PromotionQuotaService promotionQuotaService;
+    private final TaskScheduler taskScheduler;
+
+    private static final Duration CRON_INTERVAL = Duration.ofMinutes(5);
+
+    private ScheduledFuture<?> boundaryTimer;
 
     /**
      * Auto-activate promotions every 5 minutes
@@ -29,6 +52,7 @@ public class PromotionScheduler {
         try {
             log.debug("Running scheduled task: Auto-activate promotions");
             promotionService.autoActivatePromotions();
+            promotionRuleIndex.reload();
         } catch (Exception e) {
             log.error("Error in auto-activate promotions task", e);
         }
@@ -43,11 +67,79 @@ public class PromotionScheduler {
         try {
             log.debug("Running scheduled task: Auto-expire promotions");
             promotionService.autoExpirePromotions();
+            promotionRuleIndex.reload();
         } catch (Exception e) {
             log.error("Error in auto-expire promotions task", e);
         }
     }
 
+    /**
+     * Chạy activate + expire đúng tại mốc start_date/end_date gần nhất
+     */
+    public void runAtBoundary() {
+        try {
+            log.debug("Running promotion status transition at boundary");
+            promotionService.autoActivatePromotions();
+            promotionService.autoExpirePromotions();
+            promotionRuleIndex.reload();
+        } catch (Exception e) {
+            log.error("Error in promotion boundary task", e);
+        } finally {
+            scheduleNextBoundary();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        scheduleNextBoundary();
+    }
+
+    /**
+     * Promotion thay đổi (tạo/sửa/chuyển trạng thái) -> mốc gần nhất có thể thay đổi
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        scheduleNextBoundary();
+    }
+
+    /**
+     * Đặt lại timer cho mốc gần nhất. Mốc xa hơn 1 chu kỳ cron sẽ do cron xử lý
+     */
+    private synchronized void scheduleNextBoundary() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime next = promotionService.findNextStatusBoundary(now);
+
+            if (boundaryTimer != null) {
+                boundaryTimer.cancel(false);
+                boundaryTimer = null;
+            }
+            if (next == null || next.isAfter(now.plus(CRON_INTERVAL))) {
+                return;
+            }
+
+            // +1ms: expire dùng end_date < now
+            boundaryTimer = taskScheduler.schedule(this::runAtBoundary,
+                    next.plusNanos(1_000_000).atZone(ZoneId.systemDefault()).toInstant());
+            log.debug("Next promotion status boundary scheduled at {}", next);
+        } catch (Exception e) {
+            log.error("Error scheduling next promotion boundary", e);
+        }
+    }
+
+    /**
+     * Sync usage_count every minute
+     * usage_count chỉ dùng cho hiển thị/report, quota thật nằm ở promotion_quota_shards
+     */
+    @Scheduled(cron = "0 * * * * *") // Mỗi phút
+    public void syncPromotionUsageCounts() {
+        try {
+            promotionQuotaService.syncUsageCounts();
+        } catch (Exception e) {
+            log.error("Error in sync promotion usage counts task", e);
+        }
+    }
+
     /**
      * Daily promotion health check at 2 AM
      * Kiểm tra và báo cáo tình trạng promotions mỗi ngày
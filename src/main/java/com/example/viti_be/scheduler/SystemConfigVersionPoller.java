@@ -0,0 +1,28 @@
+package com.example.viti_be.scheduler;
+
+import com.example.viti_be.service.config.SystemConfigCache;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Kiểm tra version của system_config định kỳ để node này nhận thay đổi config được ghi từ node khác
+ * (1 aggregate query nhỏ, chỉ reload toàn bộ khi version khác)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SystemConfigVersionPoller {
+
+    private final SystemConfigCache systemConfigCache;
+
+    @Scheduled(fixedDelayString = "${viti.systemConfig.versionPollMs:15000}")
+    public void pollVersion() {
+        try {
+            systemConfigCache.refreshIfChanged();
+        } catch (Exception e) {
+            log.error("Error polling system config version", e);
+        }
+    }
+}
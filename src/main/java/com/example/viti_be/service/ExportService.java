@@ -1,22 +1,52 @@
 package com.example.viti_be.service;
 
 import com.example.viti_be.dto.response.ExportReportResponse;
+import com.example.viti_be.dto.response.InventoryReportResponse;
+import com.example.viti_be.dto.response.ProfitReportResponse;
 import com.example.viti_be.model.model_enum.ExportFormat;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
 public interface ExportService {
 
+    /**
+     * Ghi nội dung file report ra stream (response / temp file)
+     */
+    @FunctionalInterface
+    interface ReportWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
     /**
      * Export report data to file and upload to Supabase Storage
      */
     ExportReportResponse exportReport(Object reportData, String reportType, ExportFormat format);
 
     /**
-     * Generate CSV from report data
+     * Ghi report ra temp file bằng writer rồi upload file lên Supabase Storage (stream, không giữ cả file trong heap)
+     */
+    ExportReportResponse exportReport(String reportType, ExportFormat format, ReportWriter writer);
+
+    /**
+     * Ghi report data (CSV/PDF) ra stream
+     */
+    void writeReport(Object reportData, String reportType, ExportFormat format, OutputStream out) throws IOException;
+
+    /**
+     * CSV lợi nhuận: tổng từ summary (details bỏ qua), chi tiết ghi dần theo từng dòng của details
      */
-    byte[] generateCSV(Object reportData, String reportType);
+    void writeProfitCSV(ProfitReportResponse summary, Iterator<ProfitReportResponse.ProfitByProduct> details,
+                        OutputStream out) throws IOException;
 
     /**
-     * Generate PDF from report data
+     * CSV tồn kho: thống kê từ summary (items bỏ qua), các dòng ghi dần theo items
      */
-    byte[] generatePDF(Object reportData, String reportType);
-}
\ No newline at end of file
+    void writeInventoryCSV(InventoryReportResponse summary, Iterator<InventoryReportResponse.InventoryItem> items,
+                           OutputStream out) throws IOException;
+
+    String fileName(String reportType, ExportFormat format);
+
+    String contentType(ExportFormat format);
+}
@@ -10,7 +10,10 @@ import com.example.viti_be.model.model_enum.ProductSerialStatus;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 public interface InventoryService {
@@ -132,7 +135,8 @@ public interface InventoryService {
     ProductSerial releaseSerial(String serialNumber, UUID updatedBy);
     
     /**
-     * Mark multiple serials as SOLD in batch (for orders with multiple items)
+     * Mark multiple serials as SOLD in batch (for orders with multiple items), 1 statement per order.
+     * Accepts AVAILABLE serials and serials claimed by allocateSerials that have no order yet
      * @param serialNumbers List of serial numbers
      * @param orderId Order ID
      * @param updatedBy User completing the order
@@ -145,6 +149,13 @@ public interface InventoryService {
      * @param updatedBy User cancelling the order
      */
     void releaseSerials(List<String> serialNumbers, UUID updatedBy);
+
+    /**
+     * Huỷ giữ hàng cho nhiều đơn sắp huỷ: Reserved -> Available (gom theo variant, chỉ đơn còn PENDING,
+     * gọi trước khi đổi trạng thái) và serials của các đơn trở lại AVAILABLE, mỗi phần 1 statement
+     * @param reference ghi vào stock journal (vd. RESERVATION_EXPIRED, BULK_CANCEL, order number)
+     */
+    void releaseReservationsForOrders(Collection<UUID> orderIds, String reference, UUID actorId);
     
     /**
      * Mark serial as WARRANTY
@@ -168,6 +179,11 @@ public interface InventoryService {
      */
     void reserveStock(UUID productVariantId, int quantity, String orderRef, UUID actorId);
 
+    /**
+     * Giữ hàng cho tất cả variants của 1 đơn trong 1 statement (all-or-nothing)
+     */
+    void reserveStock(Map<UUID, Integer> quantitiesByVariant, String orderRef, UUID actorId);
+
     void reservePartStock(UUID partId, int quantity, String ref, UUID actorId);
 
     /**
@@ -185,13 +201,31 @@ public interface InventoryService {
      */
     void confirmStockOut(UUID productVariantId, int quantity, String orderRef, UUID actorId);
 
+    /**
+     * Xác nhận xuất kho cho nhiều đơn (gom theo variant, 1 statement).
+     * Thiếu Reserved ở bất kỳ variant nào -> BadRequestException, rollback cả batch
+     */
+    void confirmStockOutForOrders(Collection<UUID> orderIds, String reference, UUID actorId);
+
     @Transactional(rollbackFor = Exception.class)
     void confirmPartStockOut(UUID partId, int quantity, String ref, UUID actorId);
 
     /**
-     * Cấp phát Serial cho đơn hàng
+     * Cấp phát Serial cho đơn hàng (serials được claim: chuyển SOLD, chưa gắn orderId)
      * - Nếu requestSerialId != null: Lấy đúng serial đó (Bán chỉ định)
-     * - Nếu requestSerialId == null: Lấy tự động theo FIFO
+     * - Nếu requestSerialId == null: Lấy tự động theo FIFO, bỏ qua serials đơn khác đang giữ (SKIP LOCKED)
+     * Gọi markSerialsAsSold sau khi lưu đơn để gắn orderId
+     */
+    List<ProductSerial> allocateSerials(UUID productVariantId, UUID requestSerialId, int quantity,
+                                        LocalDateTime warrantyExpireDate);
+
+    /**
+     * Cấp phát Serial cho cả đơn hàng (tối đa 2 statements: serials chỉ định + FIFO cho mọi variant)
+     * @param requestedSerials serialId -> variantId (Bán chỉ định)
+     * @param fifoQuantitiesByVariant variantId -> số lượng lấy tự động theo FIFO
+     * @return tất cả serials đã claim (chưa gắn orderId)
      */
-    List<ProductSerial> allocateSerials(UUID productVariantId, UUID requestSerialId, int quantity);
+    List<ProductSerial> allocateSerials(Map<UUID, UUID> requestedSerials,
+                                        Map<UUID, Integer> fifoQuantitiesByVariant,
+                                        LocalDateTime warrantyExpireDate);
 }
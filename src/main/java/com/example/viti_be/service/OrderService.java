@@ -1,6 +1,8 @@
 package com.example.viti_be.service;
 
+import com.example.viti_be.dto.request.BulkOrderStatusRequest;
 import com.example.viti_be.dto.request.CreateOrderRequest;
+import com.example.viti_be.dto.response.BulkOrderStatusResponse;
 import com.example.viti_be.dto.response.OrderResponse;
 import com.example.viti_be.dto.response.pagnitation.PageResponse;
 import com.example.viti_be.model.Order;
@@ -9,6 +11,7 @@ import jakarta.transaction.Transactional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +22,18 @@ public interface OrderService {
     @Transactional
     OrderResponse updateOrderStatus(UUID orderId, OrderStatus newStatus, String reason, UUID userId);
 
+    /**
+     * Huỷ 1 batch đơn ONLINE còn PENDING tạo trước cutoff, trả hàng giữ + serials về kho
+     * @return số đơn đã huỷ (< batchSize nghĩa là không còn đơn quá hạn)
+     */
+    int expireStaleReservations(LocalDateTime cutoff, int batchSize);
+
+    /**
+     * Đổi trạng thái nhiều đơn (CANCELLED / COMPLETED) trong 1 transaction: kho, serials và promotion quota
+     * được xử lý set-based cho cả batch. Đơn không tồn tại / không đổi được trạng thái được báo lỗi riêng
+     */
+    BulkOrderStatusResponse bulkUpdateOrderStatus(BulkOrderStatusRequest request, UUID actorId);
+
     void deleteOrder(UUID id);
     PageResponse<OrderResponse> getOrdersByUserId(UUID userId, Pageable pageable);
 }
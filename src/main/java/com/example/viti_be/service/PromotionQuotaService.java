@@ -0,0 +1,52 @@
+package com.example.viti_be.service;
+
+import com.example.viti_be.model.Promotion;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Quota (usageLimit) của promotion dựa trên counter shards,
+ * thay cho promo.incrementUsage() + save trên row promotions.
+ */
+public interface PromotionQuotaService {
+
+    /**
+     * Giữ 1 lượt quota cho promotion (trong transaction hiện tại, rollback thì trả lại)
+     * @return false nếu promotion đã hết quota
+     */
+    boolean tryReserve(Promotion promotion);
+
+    /**
+     * Trả lại 1 lượt quota (khi cancel order)
+     */
+    void release(UUID promotionId);
+
+    /**
+     * Promotion còn quota không (đọc trực tiếp từ shards)
+     */
+    boolean hasRemaining(Promotion promotion);
+
+    /**
+     * Promotion nào còn quota, theo shards (1 query cho cả danh sách).
+     * Promotion chưa có shards không có trong map -> caller dùng usageCount (promotion.hasQuota())
+     */
+    Map<UUID, Boolean> findShardAvailability(Collection<UUID> promotionIds);
+
+    /**
+     * Số lượt đã dùng thực tế = SUM(used) của các shards
+     */
+    long getUsedCount(UUID promotionId);
+
+    /**
+     * Chia lại shards khi usageLimit thay đổi (giữ nguyên số lượt đã dùng)
+     */
+    void resetQuota(Promotion promotion);
+
+    /**
+     * Ghi SUM(used) về promotions.usage_count cho report/listing
+     * @return số promotions được cập nhật
+     */
+    int syncUsageCounts();
+}
@@ -8,6 +8,8 @@ import com.example.viti_be.model.Order;
 import org.springframework.data.domain.Pageable;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -92,17 +94,30 @@ public interface PromotionService {
      */
     void restorePromotionUsage(Order order, UUID actorId);
 
+    /**
+     * Restore promotion usage cho nhiều đơn bị cancel cùng lúc (bulk cancel, đơn giữ hàng quá hạn):
+     * 1 query lấy promotions của các đơn, xoá usage history 1 statement
+     */
+    void restorePromotionUsage(Collection<UUID> orderIds, UUID actorId);
+
     // ========== SCHEDULED JOBS ==========
 
     /**
      * Auto-activate promotions khi start_date đến
+     * @return id các promotions vừa được activate
      */
-    void autoActivatePromotions();
+    List<UUID> autoActivatePromotions();
 
     /**
      * Auto-expire promotions khi end_date qua
+     * @return id các promotions vừa bị expire
+     */
+    List<UUID> autoExpirePromotions();
+
+    /**
+     * Mốc start_date/end_date gần nhất sau now (null nếu không có)
      */
-    void autoExpirePromotions();
+    LocalDateTime findNextStatusBoundary(LocalDateTime now);
 
     // ========== REPORTS ==========
 
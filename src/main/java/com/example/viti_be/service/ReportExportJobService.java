@@ -0,0 +1,32 @@
+package com.example.viti_be.service;
+
+import com.example.viti_be.dto.request.InventoryReportRequest;
+import com.example.viti_be.dto.request.ReportFilterRequest;
+import com.example.viti_be.dto.response.ExportJobResponse;
+import com.example.viti_be.model.model_enum.ExportFormat;
+import org.springframework.data.domain.Pageable;
+
+import java.util.UUID;
+
+/**
+ * Export report chạy nền: submit trả về job ngay, tiến độ push qua SSE event REPORT_EXPORT
+ */
+public interface ReportExportJobService {
+
+    /**
+     * Submit export Revenue/Profit/TopProducts.
+     * Export giống hệt đang chạy -> trả về job đó; đã có file gần đây -> job COMPLETED dùng lại file
+     */
+    ExportJobResponse submitExport(ReportFilterRequest filter, String reportType, ExportFormat format, UUID userId);
+
+    /**
+     * Submit export inventory report (theo trang như exportInventoryReport)
+     */
+    ExportJobResponse submitInventoryExport(InventoryReportRequest filter, ExportFormat format, Pageable pageable,
+                                            UUID userId);
+
+    /**
+     * Trạng thái hiện tại của job
+     */
+    ExportJobResponse getJob(UUID jobId);
+}
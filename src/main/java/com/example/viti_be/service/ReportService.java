@@ -5,6 +5,10 @@ import com.example.viti_be.dto.request.ReportFilterRequest;
 import com.example.viti_be.dto.response.*;
 import com.example.viti_be.model.model_enum.ExportFormat;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.io.IOException;
+import java.io.OutputStream;
 
 public interface ReportService {
 
@@ -45,4 +49,24 @@ public interface ReportService {
             ExportFormat format,
             Pageable pageable
     );
-}
\ No newline at end of file
+
+    /**
+     * Ghi report Revenue/Profit/TopProducts (CSV/PDF) thẳng ra stream, chi tiết lợi nhuận đọc theo cursor
+     */
+    void streamReport(
+            ReportFilterRequest filter,
+            String reportType,
+            ExportFormat format,
+            OutputStream out
+    ) throws IOException;
+
+    /**
+     * Ghi toàn bộ inventory report (không phân trang) ra stream, đọc theo cursor
+     */
+    void streamInventoryReport(
+            InventoryReportRequest filter,
+            ExportFormat format,
+            Sort sort,
+            OutputStream out
+    ) throws IOException;
+}
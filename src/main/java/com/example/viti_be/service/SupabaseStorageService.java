@@ -1,5 +1,7 @@
 package com.example.viti_be.service;
 
+import java.nio.file.Path;
+
 public interface SupabaseStorageService {
 
     /**
@@ -8,6 +10,12 @@ public interface SupabaseStorageService {
      */
     String uploadFile(String bucketName, String fileName, byte[] fileBytes, String contentType);
 
+    /**
+     * Upload file trên đĩa, body được stream từ file (không load cả file vào heap)
+     * @return Public URL of uploaded file
+     */
+    String uploadFile(String bucketName, String fileName, Path file, String contentType);
+
     /**
      * Delete file from Supabase Storage
      */
@@ -40,5 +40,7 @@ public interface SystemConfigService {
     Integer getLoyaltyPointsPerVnd();
 
     BigDecimal getMinOrderValue();
+
+    Integer getOrderReservationTtlMinutes();
 }
 
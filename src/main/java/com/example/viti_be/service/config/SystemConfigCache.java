@@ -0,0 +1,73 @@
+package com.example.viti_be.service.config;
+
+import com.example.viti_be.event.SystemConfigChangedEvent;
+import com.example.viti_be.model.SystemConfig;
+import com.example.viti_be.repository.SystemConfigRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshot in-memory của toàn bộ system_config (chỉ keys chưa bị xoá), load 1 query.
+ *
+ * - Đọc config trên hot path (warranty period, VAT, loyalty rates, ...) không tốn DB round trip
+ * - Node ghi config reload SAU KHI commit SystemConfigChangedEvent
+ * - Các node khác reload khi version (count + max(updated_at)) thay đổi, xem SystemConfigVersionPoller
+ */
+@Component
+@Slf4j
+public class SystemConfigCache {
+
+    private final SystemConfigRepository systemConfigRepository;
+    private volatile Snapshot snapshot;
+
+    public SystemConfigCache(SystemConfigRepository systemConfigRepository) {
+        this.systemConfigRepository = systemConfigRepository;
+    }
+
+    /**
+     * Giá trị của key, null nếu key không tồn tại hoặc đã bị xoá
+     */
+    public String get(String key) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            current = reload();
+        }
+        return current.values().get(key);
+    }
+
+    /**
+     * Reload nếu version trong DB khác version của snapshot hiện tại
+     */
+    public void refreshIfChanged() {
+        Snapshot current = snapshot;
+        if (current == null || !Objects.equals(current.version(), systemConfigRepository.findVersion())) {
+            reload();
+        }
+    }
+
+    public synchronized Snapshot reload() {
+        // Đọc version trước values: có ghi xen giữa thì lần poll sau sẽ reload lại
+        String version = systemConfigRepository.findVersion();
+        Map<String, String> values = systemConfigRepository.findByIsDeletedFalse().stream()
+                .collect(Collectors.toUnmodifiableMap(SystemConfig::getConfigKey, SystemConfig::getConfigValue));
+        Snapshot loaded = new Snapshot(values, version);
+        snapshot = loaded;
+        log.debug("Loaded {} system configs into cache (version {})", values.size(), version);
+        return loaded;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onSystemConfigChanged(SystemConfigChangedEvent event) {
+        log.debug("System config {} changed, reloading cache", event.getConfigKey());
+        reload();
+    }
+
+    public record Snapshot(Map<String, String> values, String version) {
+    }
+}
@@ -8,18 +8,22 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.font.PDType1Font;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
+import java.io.*;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
 
 @Service
 @RequiredArgsConstructor
@@ -33,31 +37,24 @@ public class ExportServiceImpl implements ExportService {
 
     @Override
     public ExportReportResponse exportReport(Object reportData, String reportType, ExportFormat format) {
+        return exportReport(reportType, format, out -> writeReport(reportData, reportType, format, out));
+    }
+
+    @Override
+    public ExportReportResponse exportReport(String reportType, ExportFormat format, ReportWriter writer) {
+        Path tempFile = null;
         try {
-            byte[] fileBytes;
-            String fileExtension;
-            String contentType;
-
-            if (format == ExportFormat.CSV) {
-                fileBytes = generateCSV(reportData, reportType);
-                fileExtension = "csv";
-                contentType = "text/csv";
-            } else if (format == ExportFormat.PDF) {
-                fileBytes = generatePDF(reportData, reportType);
-                fileExtension = "pdf";
-                contentType = "application/pdf";
-            } else {
-                throw new IllegalArgumentException("Unsupported export format: " + format);
-            }
+            String fileName = fileName(reportType, format);
 
-            // Generate file name
-            String timestamp = LocalDateTime.now().format(DATETIME_FORMATTER);
-            String fileName = String.format("%s_report_%s.%s",
-                    reportType.toLowerCase(), timestamp, fileExtension);
+            // Ghi ra temp file rồi upload từ file, heap không giữ toàn bộ nội dung report
+            tempFile = Files.createTempFile("report-", "-" + fileName);
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+                writer.write(out);
+            }
 
             // Upload to Supabase Storage
             String bucketName = "reports";
-            String fileUrl = storageService.uploadFile(bucketName, fileName, fileBytes, contentType);
+            String fileUrl = storageService.uploadFile(bucketName, fileName, tempFile, contentType(format));
 
             return ExportReportResponse.builder()
                     .fileUrl(fileUrl)
@@ -68,31 +65,86 @@ public class ExportServiceImpl implements ExportService {
         } catch (Exception e) {
             log.error("Error exporting report: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to export report", e);
+        } finally {
+            deleteQuietly(tempFile);
         }
     }
 
     @Override
-    public byte[] generateCSV(Object reportData, String reportType) {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             OutputStreamWriter osw = new OutputStreamWriter(baos, java.nio.charset.StandardCharsets.UTF_8)) {
-            osw.write('\ufeff');
-
-            try (CSVPrinter csvPrinter = new CSVPrinter(osw, CSVFormat.DEFAULT)) {
-                switch (reportType.toUpperCase()) {
-                    case "REVENUE" -> writeRevenueCSV(csvPrinter, (RevenueReportResponse) reportData);
-                    case "PROFIT" -> writeProfitCSV(csvPrinter, (ProfitReportResponse) reportData);
-                    case "TOP_PRODUCTS" -> writeTopProductsCSV(csvPrinter, (TopProductsReportResponse) reportData);
-                    case "INVENTORY" -> writeInventoryCSV(csvPrinter, (InventoryReportResponse) reportData);
-                    default -> throw new IllegalArgumentException("Invalid report type: " + reportType);
+    public void writeReport(Object reportData, String reportType, ExportFormat format, OutputStream out)
+            throws IOException {
+        if (format == ExportFormat.CSV) {
+            CSVPrinter csv = csvPrinter(out);
+            switch (reportType.toUpperCase()) {
+                case "REVENUE" -> writeRevenueCSV(csv, (RevenueReportResponse) reportData);
+                case "PROFIT" -> {
+                    ProfitReportResponse data = (ProfitReportResponse) reportData;
+                    writeProfitCSV(csv, data, data.getDetails().iterator());
                 }
-                csvPrinter.flush();
+                case "TOP_PRODUCTS" -> writeTopProductsCSV(csv, (TopProductsReportResponse) reportData);
+                case "INVENTORY" -> {
+                    InventoryReportResponse data = (InventoryReportResponse) reportData;
+                    writeInventoryCSV(csv, data, data.getItems().iterator());
+                }
+                default -> throw new IllegalArgumentException("Invalid report type: " + reportType);
             }
+            csv.flush();
+        } else if (format == ExportFormat.PDF) {
+            writePDF(reportData, reportType, out);
+        } else {
+            throw new IllegalArgumentException("Unsupported export format: " + format);
+        }
+    }
+
+    @Override
+    public void writeProfitCSV(ProfitReportResponse summary, Iterator<ProfitReportResponse.ProfitByProduct> details,
+                               OutputStream out) throws IOException {
+        CSVPrinter csv = csvPrinter(out);
+        writeProfitCSV(csv, summary, details);
+        csv.flush();
+    }
+
+    @Override
+    public void writeInventoryCSV(InventoryReportResponse summary, Iterator<InventoryReportResponse.InventoryItem> items,
+                                  OutputStream out) throws IOException {
+        CSVPrinter csv = csvPrinter(out);
+        writeInventoryCSV(csv, summary, items);
+        csv.flush();
+    }
+
+    @Override
+    public String fileName(String reportType, ExportFormat format) {
+        String timestamp = LocalDateTime.now().format(DATETIME_FORMATTER);
+        return String.format("%s_report_%s.%s",
+                reportType.toLowerCase(), timestamp, format.name().toLowerCase());
+    }
+
+    @Override
+    public String contentType(ExportFormat format) {
+        return switch (format) {
+            case CSV -> "text/csv";
+            case PDF -> "application/pdf";
+            default -> throw new IllegalArgumentException("Unsupported export format: " + format);
+        };
+    }
 
-            return baos.toByteArray();
+    /**
+     * CSVPrinter (UTF-8 + BOM cho Excel) ghi thẳng ra out; caller flush, không close out
+     */
+    private CSVPrinter csvPrinter(OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(StreamUtils.nonClosing(out), StandardCharsets.UTF_8));
+        writer.write('\ufeff');
+        return new CSVPrinter(writer, CSVFormat.DEFAULT);
+    }
 
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
         } catch (IOException e) {
-            log.error("Error generating CSV: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate CSV", e);
+            log.warn("Cannot delete temp export file {}: {}", file, e.getMessage());
         }
     }
 
@@ -125,7 +177,8 @@ public class ExportServiceImpl implements ExportService {
         }
     }
 
-    private void writeProfitCSV(CSVPrinter csv, ProfitReportResponse data) throws IOException {
+    private void writeProfitCSV(CSVPrinter csv, ProfitReportResponse data,
+                                Iterator<ProfitReportResponse.ProfitByProduct> details) throws IOException {
         csv.printRecord("PROFIT REPORT");
         csv.printRecord("Total Revenue", data.getTotalRevenue());
         csv.printRecord("Total Cost", data.getTotalCost());
@@ -134,7 +187,8 @@ public class ExportServiceImpl implements ExportService {
         csv.println();
 
         csv.printRecord("Product", "Variant", "SKU", "Quantity Sold", "Revenue", "Cost", "Gross Profit", "Margin (%)");
-        for (var item : data.getDetails()) {
+        while (details.hasNext()) {
+            var item = details.next();
             csv.printRecord(
                     item.getProductName(),
                     item.getVariantName(),
@@ -165,7 +219,8 @@ public class ExportServiceImpl implements ExportService {
         }
     }
 
-    private void writeInventoryCSV(CSVPrinter csv, InventoryReportResponse data) throws IOException {
+    private void writeInventoryCSV(CSVPrinter csv, InventoryReportResponse data,
+                                   Iterator<InventoryReportResponse.InventoryItem> items) throws IOException {
         csv.printRecord("INVENTORY REPORT");
         csv.printRecord("Total Products", data.getTotalProducts());
         csv.printRecord("Low Stock Products", data.getLowStockProducts());
@@ -173,7 +228,8 @@ public class ExportServiceImpl implements ExportService {
         csv.println();
 
         csv.printRecord("Product", "Variant", "SKU", "Physical", "Reserved", "Available", "Min Threshold", "Low Stock?");
-        for (var item : data.getItems()) {
+        while (items.hasNext()) {
+            var item = items.next();
             csv.printRecord(
                     item.getProductName(),
                     item.getVariantName(),
@@ -187,10 +243,11 @@ public class ExportServiceImpl implements ExportService {
         }
     }
 
-    @Override
-    public byte[] generatePDF(Object reportData, String reportType) {
-        try (PDDocument document = new PDDocument();
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+    /**
+     * PDF chỉ có phần tổng quan; buffer của PDFBox dùng temp file thay vì heap
+     */
+    private void writePDF(Object reportData, String reportType, OutputStream out) throws IOException {
+        try (PDDocument document = new PDDocument(MemoryUsageSetting.setupTempFileOnly())) {
 
             PDPage page = new PDPage();
             document.addPage(page);
@@ -213,12 +270,8 @@ public class ExportServiceImpl implements ExportService {
                 }
             }
 
-            document.save(baos);
-            return baos.toByteArray();
-
-        } catch (IOException e) {
-            log.error("Error generating PDF: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to generate PDF", e);
+            // PDDocument.save đóng stream đích
+            document.save(StreamUtils.nonClosing(out));
         }
     }
 
@@ -8,11 +8,21 @@ import com.example.viti_be.exception.BadRequestException;
 import com.example.viti_be.exception.ResourceNotFoundException;
 import com.example.viti_be.model.*;
 import com.example.viti_be.model.model_enum.ProductSerialStatus;
+import com.example.viti_be.model.model_enum.StockItemType;
+import com.example.viti_be.model.model_enum.StockMovementType;
 import com.example.viti_be.model.model_enum.StockTransactionType;
 import com.example.viti_be.repository.*;
+import com.example.viti_be.repository.projection.InventorySummaryProjection;
+import com.example.viti_be.repository.projection.ReleasedStockProjection;
 import com.example.viti_be.service.InventoryService;
+import com.example.viti_be.service.inventory.StockJournal;
+import com.example.viti_be.service.inventory.StockSnapshotRecorder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -21,6 +31,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.TemporalAdjusters;
@@ -50,25 +61,49 @@ public class InventoryServiceImpl implements InventoryService {
     @Autowired
     private com.example.viti_be.service.SystemConfigService systemConfigService;
 
+    @Autowired
+    private StockDailySnapshotRepository stockDailySnapshotRepository;
+
+    @Autowired
+    private StockSnapshotRecorder stockSnapshotRecorder;
+
+    @Autowired
+    private StockJournal stockJournal;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Số dòng tối đa của mỗi danh sách low stock trong overview (tổng số vẫn có ở lowStock*Count)
+    @Value("${viti.inventory.overview.lowStockLimit:50}")
+    private int lowStockListLimit;
+
     // ==================== INVENTORY OVERVIEW ====================
 
     @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = "inventoryOverview", key = "#stockValueTimeRange + ':' + #onHandQuantityTimeRange")
     public InventoryOverviewResponse getInventoryOverview(String stockValueTimeRange, String onHandQuantityTimeRange) {
         log.info("Getting inventory overview with stockValueTimeRange: {}, onHandQuantityTimeRange: {}", 
                 stockValueTimeRange, onHandQuantityTimeRange);
         
-        // Calculate summary statistics
-        BigDecimal productStockValue = inventoryRepository.calculateTotalProductStockValue();
-        BigDecimal componentStockValue = inventoryRepository.calculateTotalComponentStockValue();
-        BigDecimal totalStockValue = (productStockValue != null ? productStockValue : BigDecimal.ZERO)
-                .add(componentStockValue != null ? componentStockValue : BigDecimal.ZERO);
+        // Calculate summary statistics (1 query cho value, low stock counts, quantities)
+        InventorySummaryProjection summary = inventoryRepository.summarizeInventory();
+        BigDecimal totalStockValue = summary.getProductStockValue().add(summary.getComponentStockValue());
         
-        Long lowStockProductCount = inventoryRepository.countLowStockProducts();
-        Long lowStockComponentCount = inventoryRepository.countLowStockComponents();
-        
-        // Get chart data based on time range
-        List<InventoryOverviewResponse.StockValueChartData> stockValueChartData = generateStockValueChartData(stockValueTimeRange);
-        List<InventoryOverviewResponse.OnHandQuantityChartData> onHandQuantityChartData = generateOnHandQuantityChartData(onHandQuantityTimeRange);
+        // Get chart data based on time range (tồn kho lịch sử dựng lại từ stock_daily_snapshots)
+        LocalDateTime now = LocalDateTime.now();
+        List<ChartBucket> stockValueBuckets = chartBuckets(stockValueTimeRange, now);
+        List<ChartBucket> onHandQuantityBuckets = chartBuckets(onHandQuantityTimeRange, now);
+        LocalDate fromDate = stockValueBuckets.get(0).date().isBefore(onHandQuantityBuckets.get(0).date())
+                ? stockValueBuckets.get(0).date()
+                : onHandQuantityBuckets.get(0).date();
+        List<StockDailySnapshot> snapshots = stockDailySnapshotRepository.findAfter(fromDate);
+
+        List<InventoryOverviewResponse.StockValueChartData> stockValueChartData =
+                generateStockValueChartData(stockValueBuckets, snapshots, totalStockValue);
+        List<InventoryOverviewResponse.OnHandQuantityChartData> onHandQuantityChartData =
+                generateOnHandQuantityChartData(onHandQuantityBuckets, snapshots,
+                        summary.getProductQuantity(), summary.getComponentQuantity());
         
         // Get low stock lists
         List<InventoryOverviewResponse.LowStockProductItem> lowStockProducts = getLowStockProductsList();
@@ -76,8 +111,8 @@ public class InventoryServiceImpl implements InventoryService {
         
         return InventoryOverviewResponse.builder()
                 .totalStockValue(totalStockValue)
-                .lowStockProductCount(lowStockProductCount != null ? lowStockProductCount : 0L)
-                .lowStockComponentCount(lowStockComponentCount != null ? lowStockComponentCount : 0L)
+                .lowStockProductCount(summary.getLowStockProductCount())
+                .lowStockComponentCount(summary.getLowStockComponentCount())
                 .stockValueChartData(stockValueChartData)
                 .onHandQuantityChartData(onHandQuantityChartData)
                 .lowStockProducts(lowStockProducts)
@@ -85,208 +120,89 @@ public class InventoryServiceImpl implements InventoryService {
                 .build();
     }
 
-    private List<InventoryOverviewResponse.StockValueChartData> generateStockValueChartData(String timeRange) {
+    private List<InventoryOverviewResponse.StockValueChartData> generateStockValueChartData(
+            List<ChartBucket> buckets, List<StockDailySnapshot> snapshots, BigDecimal currentValue) {
         List<InventoryOverviewResponse.StockValueChartData> chartData = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Get all inventories for calculation
-        List<Inventory> productInventories = inventoryRepository.findAllProductInventories();
-        List<Inventory> componentInventories = inventoryRepository.findAllComponentInventories();
-        
-        // Calculate current total stock value
-        BigDecimal currentProductValue = calculateProductStockValue(productInventories);
-        BigDecimal currentComponentValue = calculateComponentStockValue(componentInventories);
-        
-        switch (timeRange != null ? timeRange.toUpperCase() : "MONTH") {
-            case "WEEK":
-                // Last 7 days
-                for (int i = 6; i >= 0; i--) {
-                    LocalDateTime date = now.minusDays(i);
-                    String label = date.format(DateTimeFormatter.ofPattern("EEE"));
-                    
-                    // Calculate stock value for that day (simplified - using current value with variations)
-                    BigDecimal dayValue = calculateHistoricalStockValue(date, currentProductValue.add(currentComponentValue));
-                    
-                    chartData.add(InventoryOverviewResponse.StockValueChartData.builder()
-                            .label(label)
-                            .stockValue(dayValue)
-                            .build());
-                }
-                break;
-                
-            case "YEAR":
-                // Last 12 months
-                for (int i = 11; i >= 0; i--) {
-                    LocalDateTime monthDate = now.minusMonths(i);
-                    String label = monthDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
-                    
-                    BigDecimal monthValue = calculateHistoricalStockValue(monthDate, currentProductValue.add(currentComponentValue));
-                    
-                    chartData.add(InventoryOverviewResponse.StockValueChartData.builder()
-                            .label(label)
-                            .stockValue(monthValue)
-                            .build());
+        for (ChartBucket bucket : buckets) {
+            // Giá trị cuối ngày = giá trị hiện tại - biến động các ngày sau đó
+            BigDecimal netChange = snapshots.stream()
+                    .filter(s -> s.getSnapshotDate().isAfter(bucket.date()))
+                    .map(StockDailySnapshot::getValueChange)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal historicalValue = currentValue.subtract(netChange);
+
+            chartData.add(InventoryOverviewResponse.StockValueChartData.builder()
+                    .label(bucket.label())
+                    .stockValue(historicalValue.max(BigDecimal.ZERO))
+                    .build());
+        }
+        return chartData;
+    }
+
+    private List<InventoryOverviewResponse.OnHandQuantityChartData> generateOnHandQuantityChartData(
+            List<ChartBucket> buckets, List<StockDailySnapshot> snapshots,
+            long currentProductQty, long currentComponentQty) {
+        List<InventoryOverviewResponse.OnHandQuantityChartData> chartData = new ArrayList<>();
+        for (ChartBucket bucket : buckets) {
+            long productChange = 0;
+            long componentChange = 0;
+            for (StockDailySnapshot snapshot : snapshots) {
+                if (!snapshot.getSnapshotDate().isAfter(bucket.date())) {
+                    continue;
                 }
-                break;
-                
-            case "MONTH":
-            default:
-                // Last 4 weeks
-                for (int i = 3; i >= 0; i--) {
-                    LocalDateTime weekDate = now.minusWeeks(i);
-                    String label = "Week " + (4 - i);
-                    
-                    BigDecimal weekValue = calculateHistoricalStockValue(weekDate, currentProductValue.add(currentComponentValue));
-                    
-                    chartData.add(InventoryOverviewResponse.StockValueChartData.builder()
-                            .label(label)
-                            .stockValue(weekValue)
-                            .build());
+                if (snapshot.getItemType() == StockItemType.PRODUCT) {
+                    productChange += snapshot.getQuantityChange();
+                } else {
+                    componentChange += snapshot.getQuantityChange();
                 }
-                break;
+            }
+
+            chartData.add(InventoryOverviewResponse.OnHandQuantityChartData.builder()
+                    .label(bucket.label())
+                    .productQuantity(Math.max(0, currentProductQty - productChange))
+                    .componentQuantity(Math.max(0, currentComponentQty - componentChange))
+                    .build());
         }
-        
         return chartData;
     }
 
-    private List<InventoryOverviewResponse.OnHandQuantityChartData> generateOnHandQuantityChartData(String timeRange) {
-        List<InventoryOverviewResponse.OnHandQuantityChartData> chartData = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        
-        // Get current quantities
-        List<Inventory> productInventories = inventoryRepository.findAllProductInventories();
-        List<Inventory> componentInventories = inventoryRepository.findAllComponentInventories();
-        
-        long currentProductQty = productInventories.stream()
-                .mapToLong(i -> i.getQuantityAvailable() != null ? i.getQuantityAvailable() : 0)
-                .sum();
-        long currentComponentQty = componentInventories.stream()
-                .mapToLong(i -> i.getQuantityAvailable() != null ? i.getQuantityAvailable() : 0)
-                .sum();
-        
+    /**
+     * Các mốc của chart theo time range, cũ nhất trước:
+     * WEEK = 7 ngày gần nhất, YEAR = 12 tháng gần nhất, MONTH (default) = 4 tuần gần nhất
+     */
+    private List<ChartBucket> chartBuckets(String timeRange, LocalDateTime now) {
+        List<ChartBucket> buckets = new ArrayList<>();
         switch (timeRange != null ? timeRange.toUpperCase() : "MONTH") {
             case "WEEK":
-                // Last 7 days
                 for (int i = 6; i >= 0; i--) {
                     LocalDateTime date = now.minusDays(i);
-                    String label = date.format(DateTimeFormatter.ofPattern("EEE"));
-                    
-                    long productQty = calculateHistoricalQuantity(date, currentProductQty);
-                    long componentQty = calculateHistoricalQuantity(date, currentComponentQty);
-                    
-                    chartData.add(InventoryOverviewResponse.OnHandQuantityChartData.builder()
-                            .label(label)
-                            .productQuantity(productQty)
-                            .componentQuantity(componentQty)
-                            .build());
+                    buckets.add(new ChartBucket(date.format(DateTimeFormatter.ofPattern("EEE")), date.toLocalDate()));
                 }
                 break;
-                
+
             case "YEAR":
-                // Last 12 months
                 for (int i = 11; i >= 0; i--) {
                     LocalDateTime monthDate = now.minusMonths(i);
-                    String label = monthDate.format(DateTimeFormatter.ofPattern("MMM yyyy"));
-                    
-                    long productQty = calculateHistoricalQuantity(monthDate, currentProductQty);
-                    long componentQty = calculateHistoricalQuantity(monthDate, currentComponentQty);
-                    
-                    chartData.add(InventoryOverviewResponse.OnHandQuantityChartData.builder()
-                            .label(label)
-                            .productQuantity(productQty)
-                            .componentQuantity(componentQty)
-                            .build());
+                    buckets.add(new ChartBucket(monthDate.format(DateTimeFormatter.ofPattern("MMM yyyy")), monthDate.toLocalDate()));
                 }
                 break;
-                
+
             case "MONTH":
             default:
-                // Last 4 weeks
                 for (int i = 3; i >= 0; i--) {
-                    LocalDateTime weekDate = now.minusWeeks(i);
-                    String label = "Week " + (4 - i);
-                    
-                    long productQty = calculateHistoricalQuantity(weekDate, currentProductQty);
-                    long componentQty = calculateHistoricalQuantity(weekDate, currentComponentQty);
-                    
-                    chartData.add(InventoryOverviewResponse.OnHandQuantityChartData.builder()
-                            .label(label)
-                            .productQuantity(productQty)
-                            .componentQuantity(componentQty)
-                            .build());
+                    buckets.add(new ChartBucket("Week " + (4 - i), now.minusWeeks(i).toLocalDate()));
                 }
                 break;
         }
-        
-        return chartData;
-    }
-
-    private BigDecimal calculateProductStockValue(List<Inventory> inventories) {
-        return inventories.stream()
-                .filter(i -> i.getProductVariant() != null && i.getProductVariant().getSellingPrice() != null)
-                .map(i -> {
-                    BigDecimal price = i.getProductVariant().getSellingPrice();
-                    int qty = i.getQuantityAvailable() != null ? i.getQuantityAvailable() : 0;
-                    return price.multiply(BigDecimal.valueOf(qty));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calculateComponentStockValue(List<Inventory> inventories) {
-        return inventories.stream()
-                .filter(i -> i.getPartComponentId() != null)
-                .map(i -> {
-                    PartComponent part = partComponentRepository.findById(i.getPartComponentId()).orElse(null);
-                    if (part != null && part.getSellingPrice() != null) {
-                        int qty = i.getQuantityAvailable() != null ? i.getQuantityAvailable() : 0;
-                        return part.getSellingPrice().multiply(BigDecimal.valueOf(qty));
-                    }
-                    return BigDecimal.ZERO;
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return buckets;
     }
 
-    private BigDecimal calculateHistoricalStockValue(LocalDateTime date, BigDecimal currentValue) {
-        // Calculate historical value based on stock transactions
-        LocalDateTime now = LocalDateTime.now();
-        List<StockTransaction> transactions = stockTransactionRepository.findByDateRange(date, now);
-        
-        // Sum up changes since that date
-        BigDecimal netChange = transactions.stream()
-                .map(t -> {
-                    // Get unit price from inventory
-                    BigDecimal unitPrice = BigDecimal.ZERO;
-                    if (t.getInventory() != null && t.getInventory().getProductVariant() != null 
-                            && t.getInventory().getProductVariant().getSellingPrice() != null) {
-                        unitPrice = t.getInventory().getProductVariant().getSellingPrice();
-                    }
-                    int qty = t.getQuantity() != null ? t.getQuantity() : 0;
-                    return unitPrice.multiply(BigDecimal.valueOf(qty));
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        
-        // Historical value = current value - net change since that date
-        BigDecimal historicalValue = currentValue.subtract(netChange);
-        return historicalValue.compareTo(BigDecimal.ZERO) < 0 ? BigDecimal.ZERO : historicalValue;
-    }
-
-    private long calculateHistoricalQuantity(LocalDateTime date, long currentQuantity) {
-        // Calculate historical quantity based on stock transactions
-        LocalDateTime now = LocalDateTime.now();
-        List<StockTransaction> transactions = stockTransactionRepository.findByDateRange(date, now);
-        
-        // Sum up quantity changes since that date
-        long netChange = transactions.stream()
-                .mapToLong(t -> t.getQuantity() != null ? t.getQuantity() : 0)
-                .sum();
-        
-        // Historical quantity = current quantity - net change
-        long historicalQty = currentQuantity - netChange;
-        return Math.max(0, historicalQty);
+    private record ChartBucket(String label, LocalDate date) {
     }
 
     private List<InventoryOverviewResponse.LowStockProductItem> getLowStockProductsList() {
-        List<Inventory> lowStockInventories = inventoryRepository.findLowStockProducts();
+        List<Inventory> lowStockInventories = inventoryRepository.findLowStockProducts(
+                PageRequest.of(0, lowStockListLimit));
         
         return lowStockInventories.stream()
                 .map(inv -> {
@@ -308,20 +224,19 @@ public class InventoryServiceImpl implements InventoryService {
     }
 
     private List<InventoryOverviewResponse.LowStockComponentItem> getLowStockComponentsList() {
-        List<Inventory> lowStockInventories = inventoryRepository.findLowStockComponents();
-        
-        return lowStockInventories.stream()
-                .map(inv -> {
-                    PartComponent part = partComponentRepository.findById(inv.getPartComponentId()).orElse(null);
-                    
+        return inventoryRepository.findLowStockComponentDetails(lowStockListLimit).stream()
+                .map(row -> {
+                    // name null = part không còn tồn tại (LEFT JOIN)
+                    boolean hasPart = row.getName() != null;
+
                     return InventoryOverviewResponse.LowStockComponentItem.builder()
-                            .partComponentId(inv.getPartComponentId())
-                            .name(part != null ? part.getName() : "Unknown")
-                            .partType(part != null ? part.getPartType() : "")
-                            .unit(part != null ? part.getUnit() : "")
-                            .currentStock(inv.getQuantityAvailable())
-                            .minStock(inv.getMinThreshold())
-                            .purchasePriceAvg(part != null ? part.getPurchasePriceAvg() : BigDecimal.ZERO)
+                            .partComponentId(row.getPartComponentId())
+                            .name(hasPart ? row.getName() : "Unknown")
+                            .partType(hasPart ? row.getPartType() : "")
+                            .unit(hasPart ? row.getUnit() : "")
+                            .currentStock(row.getCurrentStock())
+                            .minStock(row.getMinStock())
+                            .purchasePriceAvg(hasPart ? row.getPurchasePriceAvg() : BigDecimal.ZERO)
                             .build();
                 })
                 .collect(Collectors.toList());
@@ -384,9 +299,17 @@ public class InventoryServiceImpl implements InventoryService {
         Inventory inventory = getOrCreateInventory(productVariantId, createdBy);
         inventory.addStock(quantity);
         inventory.setUpdatedBy(createdBy);
+        stockSnapshotRecorder.record(StockItemType.PRODUCT, quantity, sellingPriceOf(inventory));
+        stockJournal.append(StockMovementType.ADJUST, productVariantId, null, quantity, null, createdBy);
         return inventoryRepository.save(inventory);
     }
 
+    // Giá bán hiện tại để ghi giá trị biến động vào stock_daily_snapshots
+    private BigDecimal sellingPriceOf(Inventory inventory) {
+        ProductVariant variant = inventory.getProductVariant();
+        return variant != null ? variant.getSellingPrice() : null;
+    }
+
     @Override
     @Transactional
     public Inventory reduceStock(UUID productVariantId, int quantity, String reason, UUID createdBy) {
@@ -423,6 +346,8 @@ public class InventoryServiceImpl implements InventoryService {
                 .build();
 
         stockTransactionRepository.save(transaction);
+        stockSnapshotRecorder.record(StockItemType.PRODUCT, -quantity, sellingPriceOf(inventory));
+        stockJournal.append(StockMovementType.ADJUST, productVariantId, null, -quantity, reason, createdBy);
 
         return inventoryRepository.save(inventory);
     }
@@ -546,8 +471,16 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional
     public void markSerialsAsSold(List<String> serialNumbers, UUID orderId, UUID updatedBy) {
-        for (String serialNumber : serialNumbers) {
-            markSerialAsSold(serialNumber, orderId, updatedBy);
+        if (serialNumbers.isEmpty()) {
+            return;
+        }
+
+        // 1 statement cho cả đơn
+        int updated = productSerialRepository.markSoldForOrder(serialNumbers, orderId);
+        if (updated != new HashSet<>(serialNumbers).size()) {
+            throw new BadRequestException(String.format(
+                    "Some serials cannot be sold for order %s. Requested: %d, Updated: %d",
+                    orderId, serialNumbers.size(), updated));
         }
     }
 
@@ -559,6 +492,21 @@ public class InventoryServiceImpl implements InventoryService {
         }
     }
 
+    @Override
+    @Transactional
+    public void releaseReservationsForOrders(Collection<UUID> orderIds, String reference, UUID actorId) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<ReleasedStockProjection> released = updateInventoryRows(
+                () -> inventoryRepository.releaseReservedForOrders(orderIds, actorId));
+        int serials = productSerialRepository.releaseForOrders(orderIds);
+        released.forEach(r -> stockJournal.append(StockMovementType.UNRESERVE,
+                r.getProductVariantId(), null, r.getQuantity(), reference, actorId));
+        log.debug("Released reservations of {} orders: {} inventory rows, {} serials",
+                orderIds.size(), released.size(), serials);
+    }
+
     @Override
     @Transactional
     public ProductSerial markSerialAsWarranty(String serialNumber, java.time.LocalDateTime warrantyExpireDate, UUID updatedBy) {
@@ -585,21 +533,67 @@ public class InventoryServiceImpl implements InventoryService {
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void reserveStock(UUID productVariantId, int quantity, String orderRef, UUID actorId) {
-        // Lock row trong DB (nếu cần) hoặc dùng logic check thông thường
-        Inventory inventory = getOrCreateInventory(productVariantId, actorId);
+        if (quantity <= 0) {
+            throw new BadRequestException("Quantity must be > 0");
+        }
 
-        if (inventory.getQuantityAvailable() < quantity) {
+        // 1 conditional UPDATE: DB check Available >= quantity trên row đang lock
+        if (inventoryRepository.reserveAvailable(productVariantId, quantity, actorId) == 0) {
             throw new BadRequestException("No stock available for the required product");
         }
 
-        // Logic chuyển dịch trạng thái kho
-        inventory.setQuantityAvailable(inventory.getQuantityAvailable() - quantity);
-        inventory.setQuantityReserved(inventory.getQuantityReserved() + quantity);
-        inventory.setUpdatedBy(actorId);
+        stockJournal.append(StockMovementType.RESERVE, productVariantId, null, quantity, orderRef, actorId);
+    }
 
-        inventoryRepository.save(inventory);
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void reserveStock(Map<UUID, Integer> quantitiesByVariant, String orderRef, UUID actorId) {
+        if (quantitiesByVariant.isEmpty()) {
+            return;
+        }
+        if (quantitiesByVariant.values().stream().anyMatch(q -> q == null || q <= 0)) {
+            throw new BadRequestException("Quantity must be > 0");
+        }
+
+        List<UUID> variantIds = new ArrayList<>(quantitiesByVariant.keySet());
+        String variantCsv = variantIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+        String quantityCsv = variantIds.stream()
+                .map(id -> String.valueOf(quantitiesByVariant.get(id)))
+                .collect(Collectors.joining(","));
+
+        // 1 statement cho cả đơn, rows được lock theo thứ tự variant id
+        List<ReleasedStockProjection> reserved = updateInventoryRows(
+                () -> inventoryRepository.reserveAvailableBatch(variantCsv, quantityCsv, actorId));
+
+        if (reserved.size() != variantIds.size()) {
+            // Rollback cả transaction -> các dòng đã giữ được cũng được trả lại
+            Set<UUID> reservedSet = reserved.stream()
+                    .map(ReleasedStockProjection::getProductVariantId)
+                    .collect(Collectors.toSet());
+            List<UUID> outOfStock = variantIds.stream()
+                    .filter(id -> !reservedSet.contains(id))
+                    .collect(Collectors.toList());
+            log.warn("Stock reservation failed for order {}: out of stock variants {}", orderRef, outOfStock);
+            throw new BadRequestException("No stock available for the required product: " + outOfStock);
+        }
+
+        quantitiesByVariant.forEach((variantId, quantity) ->
+                stockJournal.append(StockMovementType.RESERVE, variantId, null, quantity, orderRef, actorId));
+    }
 
-        // TODO: Log inventory history transaction (StockTransaction)
+    /**
+     * Chạy 1 UPDATE ... RETURNING theo lô trên inventory. Các statement này trả về rows nên không dùng được
+     * @Modifying(flushAutomatically = true) như reserveAvailable / releaseReserved:
+     * flush thay đổi đang chờ trước khi chạy, sau đó detach các Inventory đang managed của những dòng bị sửa
+     * để lần đọc sau trong cùng transaction lấy số lượng mới từ DB
+     */
+    private List<ReleasedStockProjection> updateInventoryRows(
+            java.util.function.Supplier<List<ReleasedStockProjection>> statement) {
+        entityManager.flush();
+        List<ReleasedStockProjection> rows = statement.get();
+        // getReference trả về instance đang managed nếu có, nếu không chỉ là proxy chưa load
+        rows.forEach(row -> entityManager.detach(entityManager.getReference(Inventory.class, row.getInventoryId())));
+        return rows;
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -632,28 +626,18 @@ public class InventoryServiceImpl implements InventoryService {
 
         inventoryRepository.save(inventory);
 
-        // TODO: Ghi log StockTransaction (Type: RESERVE) nếu cần
+        stockJournal.append(StockMovementType.RESERVE, null, partId, quantity, ref, actorId);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void unreserveStock(UUID productVariantId, int quantity, String orderRef, UUID actorId) {
-        Inventory inventory = getOrCreateInventory(productVariantId, actorId);
-
-        // Trả lại hàng vào Available
-        inventory.setQuantityAvailable(inventory.getQuantityAvailable() + quantity);
-
-        // Giảm Reserved
-        int newReserved = inventory.getQuantityReserved() - quantity;
-        if (newReserved < 0) {
-            // Trường hợp này hiếm khi xảy ra nếu logic đúng, nhưng cần handle safety
-            // Có thể log warning
-            newReserved = 0;
+        // Trả lại hàng vào Available, giảm Reserved (không xuống dưới 0) trong 1 statement
+        if (inventoryRepository.releaseReserved(productVariantId, quantity, actorId) == 0) {
+            log.warn("Unreserve skipped: no inventory for variant {} (ref {})", productVariantId, orderRef);
+            return;
         }
-        inventory.setQuantityReserved(newReserved);
-        inventory.setUpdatedBy(actorId);
-
-        inventoryRepository.save(inventory);
+        stockJournal.append(StockMovementType.UNRESERVE, productVariantId, null, quantity, orderRef, actorId);
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -688,24 +672,55 @@ public class InventoryServiceImpl implements InventoryService {
 
         inventoryRepository.save(inventory);
 
-        // TODO: Ghi log StockTransaction (Type: UNRESERVE / CANCEL)
+        stockJournal.append(StockMovementType.UNRESERVE, null, partId, quantity, ref, actorId);
     }
 
     @Override
     @Transactional(rollbackFor = Exception.class)
     public void confirmStockOut(UUID productVariantId, int quantity, String orderRef, UUID actorId) {
-        Inventory inventory = getOrCreateInventory(productVariantId, actorId);
+        // Khi confirm, hàng đã nằm trong Reserved rồi (DB check Reserved >= quantity)
+        if (inventoryRepository.confirmReservedOut(productVariantId, quantity, actorId) == 0) {
+            throw new BadRequestException("Lỗi dữ liệu kho: Số lượng Reserved ít hơn số lượng cần xuất.");
+        }
+        BigDecimal sellingPrice = productVariantRepository.findById(productVariantId)
+                .map(ProductVariant::getSellingPrice)
+                .orElse(null);
+        stockSnapshotRecorder.record(StockItemType.PRODUCT, -quantity, sellingPrice);
+        stockJournal.append(StockMovementType.CONFIRM_OUT, productVariantId, null, quantity, orderRef, actorId);
+    }
 
-        // Khi confirm, hàng đã nằm trong Reserved rồi.
-        if (inventory.getQuantityReserved() < quantity) {
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public void confirmStockOutForOrders(Collection<UUID> orderIds, String reference, UUID actorId) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        List<ReleasedStockProjection> shipped = updateInventoryRows(
+                () -> inventoryRepository.confirmReservedOutForOrders(orderIds, actorId));
+        if (shipped.size() != inventoryRepository.countVariantsOfOrders(orderIds)) {
+            // Rollback cả transaction -> các variant đã trừ cũng được trả lại
             throw new BadRequestException("Lỗi dữ liệu kho: Số lượng Reserved ít hơn số lượng cần xuất.");
         }
 
-        inventory.setQuantityReserved(inventory.getQuantityReserved() - quantity);
-        inventory.setQuantityPhysical(inventory.getQuantityPhysical() - quantity); // Giảm tổng kho thực tế
-        inventory.setUpdatedBy(actorId);
+        // Snapshot: gộp cả batch thành 1 lần ghi (giá bán hiện tại của từng variant)
+        Map<UUID, BigDecimal> sellingPrices = productVariantRepository.findAllById(
+                        shipped.stream().map(ReleasedStockProjection::getProductVariantId).toList())
+                .stream()
+                .filter(v -> v.getSellingPrice() != null)
+                .collect(Collectors.toMap(ProductVariant::getId, ProductVariant::getSellingPrice));
+        int shippedQuantity = 0;
+        BigDecimal shippedValue = BigDecimal.ZERO;
+        for (ReleasedStockProjection r : shipped) {
+            shippedQuantity += r.getQuantity();
+            BigDecimal price = sellingPrices.get(r.getProductVariantId());
+            if (price != null) {
+                shippedValue = shippedValue.add(price.multiply(BigDecimal.valueOf(r.getQuantity())));
+            }
+        }
+        stockSnapshotRecorder.recordTotal(StockItemType.PRODUCT, -shippedQuantity, shippedValue.negate());
 
-        inventoryRepository.save(inventory);
+        shipped.forEach(r -> stockJournal.append(StockMovementType.CONFIRM_OUT,
+                r.getProductVariantId(), null, r.getQuantity(), reference, actorId));
     }
 
     @Transactional(rollbackFor = Exception.class)
@@ -729,6 +744,8 @@ public class InventoryServiceImpl implements InventoryService {
                 inventory.setQuantityPhysical(inventory.getQuantityPhysical() - quantity);
                 inventory.setUpdatedBy(actorId);
                 inventoryRepository.save(inventory);
+                stockSnapshotRecorder.record(StockItemType.COMPONENT, -quantity, partSellingPriceOf(partId));
+                stockJournal.append(StockMovementType.ADJUST, null, partId, -quantity, ref, actorId);
                 return;
             } else {
                 throw new BadRequestException("Lỗi kho linh kiện: Số lượng cần xuất vượt quá số lượng đã giữ (Reserved) và khả dụng (Available).");
@@ -742,45 +759,86 @@ public class InventoryServiceImpl implements InventoryService {
 
         inventoryRepository.save(inventory);
 
-        // TODO: Ghi log StockTransaction (Type: OUT) nếu cần
+        stockSnapshotRecorder.record(StockItemType.COMPONENT, -quantity, partSellingPriceOf(partId));
+        stockJournal.append(StockMovementType.CONFIRM_OUT, null, partId, quantity, ref, actorId);
     }
 
-    @Override
-    public List<ProductSerial> allocateSerials(UUID productVariantId, UUID requestSerialId, int quantity) {
-        List<ProductSerial> result = new ArrayList<>();
+    // Giá bán hiện tại của linh kiện để ghi giá trị biến động vào stock_daily_snapshots
+    private BigDecimal partSellingPriceOf(UUID partId) {
+        return partComponentRepository.findById(partId)
+                .map(PartComponent::getSellingPrice)
+                .orElse(null);
+    }
 
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<ProductSerial> allocateSerials(UUID productVariantId, UUID requestSerialId, int quantity,
+                                               LocalDateTime warrantyExpireDate) {
         if (requestSerialId != null) {
             // CASE 1: Mua chỉ định (Offline scan mã vạch hoặc chọn đích danh trên web)
-            ProductSerial serial = productSerialRepository.findById(requestSerialId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Serial ID not found: " + requestSerialId));
-
-            // Validate logic
-            if (!serial.getProductVariant().getId().equals(productVariantId)) {
-                throw new BadRequestException("Serial không khớp với sản phẩm trong đơn hàng.");
-            }
-            if (serial.getStatus() != ProductSerialStatus.AVAILABLE) {
-                throw new BadRequestException("Serial " + serial.getSerialNumber() + " không khả dụng (Trạng thái: " + serial.getStatus() + ")");
-            }
-
             // Với case chỉ định, số lượng thường là 1 (đã được tách dòng ở OrderService)
-            result.add(serial);
-
-        } else {
-            // CASE 2: Mua tự động (Online hoặc không cần chọn serial) -> Lấy theo FIFO
-            List<ProductSerial> serials = productSerialRepository.findAvailableByVariantId(
-                    productVariantId,
-                    PageRequest.of(0, quantity) // Lấy đúng số lượng cần thiết
-            );
+            return allocateSerials(Map.of(requestSerialId, productVariantId), Map.of(), warrantyExpireDate);
+        }
+        // CASE 2: Mua tự động (Online hoặc không cần chọn serial) -> Lấy theo FIFO
+        return allocateSerials(Map.of(), Map.of(productVariantId, quantity), warrantyExpireDate);
+    }
 
-            if (serials.size() < quantity) {
-                throw new BadRequestException(String.format(
-                        "Không đủ Serial khả dụng trong kho. Cần: %d, Tìm thấy: %d", quantity, serials.size()
-                ));
+    @Override
+    @Transactional(rollbackFor = Exception.class)
+    public List<ProductSerial> allocateSerials(Map<UUID, UUID> requestedSerials,
+                                               Map<UUID, Integer> fifoQuantitiesByVariant,
+                                               LocalDateTime warrantyExpireDate) {
+        List<ProductSerial> allocated = new ArrayList<>();
+
+        // CASE 1: Serials chỉ định, claim trước để FIFO không lấy mất
+        if (!requestedSerials.isEmpty()) {
+            List<ProductSerial> claimed = productSerialRepository.claimSerials(
+                    requestedSerials.keySet(), warrantyExpireDate);
+            Map<UUID, ProductSerial> claimedById = claimed.stream()
+                    .collect(Collectors.toMap(ProductSerial::getId, serial -> serial));
+
+            for (Map.Entry<UUID, UUID> requested : requestedSerials.entrySet()) {
+                ProductSerial serial = claimedById.get(requested.getKey());
+                if (serial == null) {
+                    // Không claim được -> load lại để báo lỗi rõ ràng
+                    serial = productSerialRepository.findById(requested.getKey())
+                            .orElseThrow(() -> new ResourceNotFoundException("Serial ID not found: " + requested.getKey()));
+                    throw new BadRequestException("Serial " + serial.getSerialNumber() + " không khả dụng (Trạng thái: " + serial.getStatus() + ")");
+                }
+                if (!serial.getProductVariant().getId().equals(requested.getValue())) {
+                    // Exception -> rollback transaction, serial vừa claim trở lại AVAILABLE
+                    throw new BadRequestException("Serial không khớp với sản phẩm trong đơn hàng.");
+                }
             }
-            result.addAll(serials);
+            allocated.addAll(claimed);
         }
 
-        return result;
+        // CASE 2: FIFO cho tất cả variants trong 1 statement, bỏ qua serials đơn khác đang giữ (SKIP LOCKED)
+        if (!fifoQuantitiesByVariant.isEmpty()) {
+            List<UUID> variantIds = new ArrayList<>(fifoQuantitiesByVariant.keySet());
+            String variantCsv = variantIds.stream().map(UUID::toString).collect(Collectors.joining(","));
+            String quantityCsv = variantIds.stream()
+                    .map(id -> String.valueOf(fifoQuantitiesByVariant.get(id)))
+                    .collect(Collectors.joining(","));
+
+            List<ProductSerial> serials = productSerialRepository.claimAvailableSerials(
+                    variantCsv, quantityCsv, warrantyExpireDate);
+
+            Map<UUID, Long> claimedByVariant = serials.stream()
+                    .collect(Collectors.groupingBy(serial -> serial.getProductVariant().getId(), Collectors.counting()));
+            for (UUID variantId : variantIds) {
+                int quantity = fifoQuantitiesByVariant.get(variantId);
+                long found = claimedByVariant.getOrDefault(variantId, 0L);
+                if (found < quantity) {
+                    // Exception -> rollback transaction, các serials vừa claim trở lại AVAILABLE
+                    throw new BadRequestException(String.format(
+                            "Không đủ Serial khả dụng trong kho. Cần: %d, Tìm thấy: %d", quantity, found
+                    ));
+                }
+            }
+            allocated.addAll(serials);
+        }
+        return allocated;
     }
 
     private InventoryResponse mapToResponse(Inventory inventory) {
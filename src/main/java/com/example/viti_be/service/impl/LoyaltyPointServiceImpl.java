@@ -4,6 +4,7 @@ import com.example.viti_be.dto.request.AdjustPointsRequest;
 import com.example.viti_be.dto.request.ResetPointsRequest;
 import com.example.viti_be.dto.request.UpdateLoyaltyConfigRequest;
 import com.example.viti_be.dto.response.*;
+import com.example.viti_be.event.SystemConfigChangedEvent;
 import com.example.viti_be.mapper.LoyaltyPointMapper;
 import com.example.viti_be.model.*;
 import com.example.viti_be.model.model_enum.AuditAction;
@@ -14,6 +15,7 @@ import com.example.viti_be.service.AuditLogService;
 import com.example.viti_be.service.LoyaltyPointService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -39,6 +41,7 @@ public class LoyaltyPointServiceImpl implements LoyaltyPointService {
     private final AuditLogService auditLogService;
     private final LoyaltyPointMapper mapper;
     private final com.example.viti_be.service.SystemConfigService systemConfigService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========== CONFIG KEYS ==========
     private static final String EARN_ENABLED = "loyalty.earn.enabled";
@@ -540,22 +543,17 @@ public class LoyaltyPointServiceImpl implements LoyaltyPointService {
         }
     }
 
+    // Đọc qua SystemConfigService (SystemConfigCache), không query DB mỗi lần
     private Boolean getConfigBoolean(String key, Boolean defaultValue) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(config -> Boolean.parseBoolean(config.getConfigValue()))
-                .orElse(defaultValue);
+        return systemConfigService.getBooleanValue(key, defaultValue);
     }
 
     private Integer getConfigInt(String key, Integer defaultValue) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(config -> Integer.parseInt(config.getConfigValue()))
-                .orElse(defaultValue);
+        return systemConfigService.getIntegerValue(key, defaultValue);
     }
 
     private BigDecimal getConfigBigDecimal(String key, BigDecimal defaultValue) {
-        return systemConfigRepository.findByConfigKey(key)
-                .map(config -> new BigDecimal(config.getConfigValue()))
-                .orElse(defaultValue);
+        return systemConfigService.getDecimalValue(key, defaultValue);
     }
 
     private void updateConfig(String key, String value) {
@@ -568,6 +566,7 @@ public class LoyaltyPointServiceImpl implements LoyaltyPointService {
                 });
         config.setConfigValue(value);
         systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(this, key));
     }
 
     private LocalDateTime calculateNextResetDate() {
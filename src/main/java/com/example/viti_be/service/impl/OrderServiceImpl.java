@@ -7,6 +7,8 @@ import com.example.viti_be.dto.response.pagnitation.PageResponse;
 import com.example.viti_be.mapper.OrderMapper;
 import com.example.viti_be.dto.request.CreateOrderRequest;
 import com.example.viti_be.dto.request.OrderItemRequest;
+import com.example.viti_be.dto.request.BulkOrderStatusRequest;
+import com.example.viti_be.dto.response.BulkOrderStatusResponse;
 import com.example.viti_be.dto.response.OrderResponse;
 import com.example.viti_be.exception.BadRequestException;
 import com.example.viti_be.exception.ResourceNotFoundException;
@@ -14,6 +16,8 @@ import com.example.viti_be.model.*;
 import com.example.viti_be.model.model_enum.*;
 import com.example.viti_be.repository.*;
 import com.example.viti_be.service.*;
+import com.example.viti_be.service.order.DailySalesRollupRecorder;
+import com.example.viti_be.service.order.OrderNumberAllocator;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,7 +28,6 @@ import org.springframework.stereotype.Service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -39,7 +42,6 @@ public class OrderServiceImpl implements OrderService {
     @Autowired private PromotionRepository promotionRepository;
     @Autowired private ProductRepository productRepository;
     @Autowired private ProductVariantRepository productVariantRepository;
-    @Autowired private ProductSerialRepository productSerialRepository;
 
     @Autowired private LoyaltyPointTransactionRepository loyaltyPointTransactionRepository;
     @Autowired private AddressRepository addressRepository;
@@ -50,6 +52,10 @@ public class OrderServiceImpl implements OrderService {
     @Autowired private CustomerService customerService;
     @Autowired private NotificationService notificationService;
     @Autowired private SystemConfigService systemConfigService;
+    @Autowired private PromotionService promotionService;
+    @Autowired private PromotionQuotaService promotionQuotaService;
+    @Autowired private OrderNumberAllocator orderNumberAllocator;
+    @Autowired private DailySalesRollupRecorder dailySalesRollupRecorder;
 
     @Override
     public OrderResponse getOrderById(UUID id) {
@@ -136,15 +142,13 @@ public class OrderServiceImpl implements OrderService {
         order = repo.save(order);
 
         // ========== BƯỚC 6.5: Update Serial with OrderId ==========
-        for (OrderItem item : order.getItems()) {
-            if (item.getProductSerial() != null) {
-                inventoryService.markSerialAsSold(
-                        item.getProductSerial().getSerialNumber(),
-                        order.getId(), // ← Bây giờ có ID rồi
-                        processingActorId
-                );
-            }
-        }
+        // 1 statement cho cả đơn (serials đã được claim ở processOrderItems)
+        List<String> serialNumbers = order.getItems().stream()
+                .filter(item -> item.getProductSerial() != null)
+                .map(item -> item.getProductSerial().getSerialNumber())
+                .collect(Collectors.toList());
+        inventoryService.markSerialsAsSold(serialNumbers, order.getId(), processingActorId); // ← Bây giờ có ID rồi
+        dailySalesRollupRecorder.recordCreated(List.of(order.getId()));
 
         // ========== BƯỚC 7: Send Notification (nếu ONLINE) ==========
         if (order.getOrderType() == OrderType.ONLINE_COD ||
@@ -324,7 +328,7 @@ public class OrderServiceImpl implements OrderService {
     @Override
     @Transactional
     public OrderResponse updateOrderStatus(UUID orderId, OrderStatus newStatus, String reason, UUID actorId) {
-        Order order = repo.findById(orderId).
+        Order order = repo.findByIdForUpdate(orderId).
                 orElseThrow(() -> new RuntimeException("Can not find order with id: " + orderId));
         OrderStatus oldStatus = order.getStatus();
 
@@ -366,10 +370,8 @@ public class OrderServiceImpl implements OrderService {
                 break;
 
             case CANCELLED:
-                cancelOrderInventory(order, actorId);
-                if (order.getLoyaltyPointsUsed() != null && order.getLoyaltyPointsUsed() > 0) {
-                    restoreLoyaltyPoints(order, actorId);
-                }
+                // Cùng logic với cancelOrdersInBulk
+                cancelOrdersInBulk(List.of(order), Map.of(orderId, oldStatus), order.getOrderNumber(), actorId);
                 break;
             default:
                 break;
@@ -377,6 +379,7 @@ public class OrderServiceImpl implements OrderService {
 
         order.setStatus(newStatus);
         Order savedOrder = repo.save(order);
+        dailySalesRollupRecorder.recordStatusChange(List.of(orderId), oldStatus);
 
         if (auditLogService != null) {
             auditLogService.log(actorId, AuditModule.ORDER, AuditAction.UPDATE,
@@ -387,7 +390,109 @@ public class OrderServiceImpl implements OrderService {
     }
 
     @Override
+    @Transactional
+    public int expireStaleReservations(LocalDateTime cutoff, int batchSize) {
+        // 1. Lock batch đơn quá hạn (bỏ qua đơn đang bị lock)
+        List<UUID> orderIds = repo.lockStalePendingOnlineOrders(cutoff, batchSize);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+
+        // 2. Trả Reserved -> Available và serials -> AVAILABLE cho cả batch (set-based), khi đơn còn PENDING
+        inventoryService.releaseReservationsForOrders(orderIds, "RESERVATION_EXPIRED", null);
+        repo.cancelPendingOrders(orderIds);
+        dailySalesRollupRecorder.recordStatusChange(orderIds, OrderStatus.PENDING);
+
+        // 3. Trả quota promotions của cả batch
+        // Loyalty points chỉ bị trừ khi CONFIRMED nên đơn PENDING không cần hoàn điểm
+        promotionService.restorePromotionUsage(orderIds, null);
+
+        if (auditLogService != null) {
+            for (UUID orderId : orderIds) {
+                auditLogService.log(null, AuditModule.ORDER, AuditAction.UPDATE,
+                        orderId.toString(), "order", OrderStatus.PENDING.toString(), OrderStatus.CANCELLED.toString(),
+                        "Reservation expired");
+            }
+        }
+
+        log.info("Expired {} stale pending online orders created before {}", orderIds.size(), cutoff);
+        return orderIds.size();
+    }
+
+    @Override
+    @Transactional
+    public BulkOrderStatusResponse bulkUpdateOrderStatus(BulkOrderStatusRequest request, UUID actorId) {
+        OrderStatus newStatus = request.getStatus();
+        if (newStatus != OrderStatus.CANCELLED && newStatus != OrderStatus.COMPLETED) {
+            throw new BadRequestException("Bulk status change only supports CANCELLED and COMPLETED");
+        }
+        List<UUID> orderIds = request.getOrderIds().stream().distinct().collect(Collectors.toList());
+
+        // 1. Lock tất cả đơn (theo thứ tự id), đơn không hợp lệ chỉ bị bỏ qua, không chặn cả batch
+        Map<UUID, Order> ordersById = repo.findAllByIdForUpdate(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, o -> o));
+        Map<UUID, BulkOrderStatusResponse.OrderOutcome> outcomes = new LinkedHashMap<>();
+        Map<UUID, OrderStatus> previousStatuses = new HashMap<>();
+        List<Order> orders = new ArrayList<>();
+        for (UUID orderId : orderIds) {
+            Order order = ordersById.get(orderId);
+            if (order == null) {
+                outcomes.put(orderId, failedOutcome(orderId, null, "Can not find order with id: " + orderId));
+                continue;
+            }
+            try {
+                validateStatusTransition(order.getStatus(), newStatus);
+            } catch (BadRequestException e) {
+                outcomes.put(orderId, failedOutcome(orderId, order, e.getMessage()));
+                continue;
+            }
+            outcomes.put(orderId, null);
+            previousStatuses.put(orderId, order.getStatus());
+            orders.add(order);
+        }
+
+        // 2. Kho + promotions + điểm cho cả batch
+        if (newStatus == OrderStatus.CANCELLED) {
+            cancelOrdersInBulk(orders, previousStatuses, "BULK_CANCEL", actorId);
+        } else {
+            completeOrdersInBulk(orders, previousStatuses, outcomes, actorId);
+        }
+
+        // 3. Đổi trạng thái (JDBC batch) + audit log từng đơn
+        orders.forEach(order -> order.setStatus(newStatus));
+        repo.saveAll(orders);
+        orders.stream()
+                .collect(Collectors.groupingBy(order -> previousStatuses.get(order.getId()),
+                        Collectors.mapping(Order::getId, Collectors.toList())))
+                .forEach((oldStatus, ids) -> dailySalesRollupRecorder.recordStatusChange(ids, oldStatus));
+        for (Order order : orders) {
+            OrderStatus oldStatus = previousStatuses.get(order.getId());
+            outcomes.put(order.getId(), BulkOrderStatusResponse.OrderOutcome.builder()
+                    .orderId(order.getId())
+                    .orderNumber(order.getOrderNumber())
+                    .previousStatus(oldStatus)
+                    .success(true)
+                    .build());
+            if (auditLogService != null) {
+                auditLogService.log(actorId, AuditModule.ORDER, AuditAction.UPDATE,
+                        order.getId().toString(), "order", oldStatus.toString(), newStatus.toString(),
+                        request.getReason());
+            }
+        }
+
+        log.info("Bulk status change to {}: {} of {} orders updated", newStatus, orders.size(), orderIds.size());
+        return BulkOrderStatusResponse.builder()
+                .status(newStatus)
+                .succeeded(orders.size())
+                .failed(orderIds.size() - orders.size())
+                .results(new ArrayList<>(outcomes.values()))
+                .build();
+    }
+
+    @Override
+    @Transactional
     public void deleteOrder(UUID id) {
+        dailySalesRollupRecorder.recordDeleted(List.of(id));
         repo.deleteById(id);
     }
 
@@ -415,25 +520,83 @@ public class OrderServiceImpl implements OrderService {
     private List<OrderItem> processOrderItems(List<OrderItemRequest> itemRequests, Order order, UUID actorId) {
         List<OrderItem> finalOrderItems = new ArrayList<>();
 
+        // 1. Validate Product + gom số lượng theo variant (1 variant có thể xuất hiện nhiều dòng)
+        // Serial chỉ định được validate trước khi giữ hàng
+        Map<UUID, Integer> quantitiesByVariant = new HashMap<>();
+        Map<UUID, UUID> requestedSerials = new HashMap<>();
         for (OrderItemRequest itemReq : itemRequests) {
-            // 1. Validate Product
-            ProductVariant variant = productVariantRepository.findByIdAndIsDeletedFalse(itemReq.getProductVariantId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Variant not found: " + itemReq.getProductVariantId()));
-
             int quantity = itemReq.getQuantity();
             if (quantity <= 0) throw new BadRequestException("Quantity must be > 0");
 
-            // 2. Gọi Inventory Service để giữ hàng (Reserve Stock)
-            // Logic này sẽ trừ available, tăng reserved trong kho
-            inventoryService.reserveStock(variant.getId(), quantity, order.getOrderNumber(), actorId);
+            UUID serialId = itemReq.getProductSerialId();
+            if (serialId != null) {
+                // Bán chỉ định: mỗi dòng đúng 1 serial
+                if (quantity != 1) {
+                    throw new BadRequestException("Quantity must be 1 when a specific serial is requested: " + serialId);
+                }
+                if (requestedSerials.put(serialId, itemReq.getProductVariantId()) != null) {
+                    throw new BadRequestException("Serial requested more than once: " + serialId);
+                }
+            }
 
-            // 3. Cấp phát Serial (Quan trọng: Trả về List<ProductSerial> Object)
-            // Hàm allocateSerials cần được implement trong InventoryService
-            List<ProductSerial> allocatedSerials = inventoryService.allocateSerials(
-                    variant.getId(),
-                    itemReq.getProductSerialId(), // UUID (có thể null)
-                    quantity
-            );
+            quantitiesByVariant.merge(itemReq.getProductVariantId(), quantity, Integer::sum);
+        }
+
+        // Load tất cả variants (kèm product) trong 1 query
+        Map<UUID, ProductVariant> variants = productVariantRepository
+                .findAllWithProductByIdIn(quantitiesByVariant.keySet()).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, variant -> variant));
+        for (UUID variantId : quantitiesByVariant.keySet()) {
+            if (!variants.containsKey(variantId)) {
+                throw new ResourceNotFoundException("Variant not found: " + variantId);
+            }
+        }
+
+        // 2. Gọi Inventory Service để giữ hàng (Reserve Stock) cho cả đơn trong 1 statement
+        // Logic này sẽ trừ available, tăng reserved trong kho (thiếu hàng 1 dòng -> rollback cả đơn)
+        inventoryService.reserveStock(quantitiesByVariant, order.getOrderNumber(), actorId);
+
+        // Get warranty period from system config (1 lần cho cả đơn)
+        Integer warrantyMonths = systemConfigService.getWarrantyPeriodMonths();
+        LocalDateTime warrantyExpireDate = LocalDateTime.now().plusMonths(warrantyMonths);
+
+        // 3. Cấp phát Serial cho cả đơn: serials chỉ định + FIFO cho mọi variant (tối đa 2 statements)
+        // Serials được lock + chuyển SOLD (kèm warranty expire date), sau đó chia lại cho từng dòng
+        Map<UUID, Integer> fifoQuantitiesByVariant = new HashMap<>();
+        for (OrderItemRequest itemReq : itemRequests) {
+            if (itemReq.getProductSerialId() == null) {
+                fifoQuantitiesByVariant.merge(itemReq.getProductVariantId(), itemReq.getQuantity(), Integer::sum);
+            }
+        }
+
+        Map<UUID, ProductSerial> requestedById = new HashMap<>();
+        Map<UUID, Deque<ProductSerial>> fifoByVariant = new HashMap<>();
+        for (ProductSerial serial : inventoryService.allocateSerials(
+                requestedSerials, fifoQuantitiesByVariant, warrantyExpireDate)) {
+            if (requestedSerials.containsKey(serial.getId())) {
+                requestedById.put(serial.getId(), serial);
+            } else {
+                fifoByVariant.computeIfAbsent(serial.getProductVariant().getId(), id -> new ArrayDeque<>())
+                        .add(serial);
+            }
+        }
+
+        for (OrderItemRequest itemReq : itemRequests) {
+            ProductVariant variant = variants.get(itemReq.getProductVariantId());
+            int quantity = itemReq.getQuantity();
+
+            List<ProductSerial> allocatedSerials = new ArrayList<>(quantity);
+            if (itemReq.getProductSerialId() != null) {
+                ProductSerial serial = requestedById.get(itemReq.getProductSerialId());
+                if (serial != null) {
+                    allocatedSerials.add(serial);
+                }
+            } else {
+                Deque<ProductSerial> pool = fifoByVariant.getOrDefault(variant.getId(), new ArrayDeque<>());
+                while (allocatedSerials.size() < quantity && !pool.isEmpty()) {
+                    allocatedSerials.add(pool.poll());
+                }
+            }
 
             // Validate lại độ dài (đề phòng lỗi logic kho)
             if (allocatedSerials.size() != quantity) {
@@ -455,14 +618,6 @@ public class OrderServiceImpl implements OrderService {
                 // Ở đây tạm lấy giá trung bình từ Variant
                 BigDecimal costPrice = variant.getPurchasePriceAvg() != null ? variant.getPurchasePriceAvg() : BigDecimal.ZERO;
 
-                // Get warranty period from system config
-                Integer warrantyMonths = systemConfigService.getWarrantyPeriodMonths();
-                LocalDateTime warrantyExpireDate = LocalDateTime.now().plusMonths(warrantyMonths);
-                
-                // Update serial warranty expire date when sold
-                serial.setWarrantyExpireDate(warrantyExpireDate);
-                productSerialRepository.save(serial);
-
                 OrderItem item = OrderItem.builder()
                         .order(order)
                         .productVariant(variant)
@@ -505,24 +660,77 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
-    // Hoàn kho khi hủy đơn
-    private void cancelOrderInventory(Order order, UUID actorId) {
-        for (OrderItem item : order.getItems()) {
-            // 1. Trả lại Reserved Stock
-            inventoryService.unreserveStock(
-                    item.getProductVariant().getId(),
-                    item.getQuantity(),
-                    order.getOrderNumber(),
-                    actorId
-            );
+    /**
+     * Huỷ 1 hoặc nhiều đơn: Reserved -> Available (đơn còn PENDING) + serials -> AVAILABLE gom theo variant (set-based),
+     * trả quota promotions 1 lần cho cả batch. Chỉ đơn đã CONFIRMED mới bị trừ điểm nên mới cần hoàn điểm
+     */
+    private void cancelOrdersInBulk(List<Order> orders, Map<UUID, OrderStatus> previousStatuses,
+                                    String reference, UUID actorId) {
+        List<UUID> orderIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+        inventoryService.releaseReservationsForOrders(orderIds, reference, actorId);
+        promotionService.restorePromotionUsage(orderIds, actorId);
+
+        for (Order order : orders) {
+            if (previousStatuses.get(order.getId()) == OrderStatus.CONFIRMED
+                    && order.getLoyaltyPointsUsed() != null && order.getLoyaltyPointsUsed() > 0) {
+                restoreLoyaltyPoints(order, actorId);
+            }
+        }
+    }
+
+    /**
+     * Hoàn tất nhiều đơn, cùng logic với updateOrderStatus(COMPLETED):
+     * đơn OFFLINE còn PENDING được trừ điểm + xuất kho (gom theo variant, 1 statement),
+     * hạn bảo hành của items set 1 statement. Đơn không đủ điểm bị loại khỏi batch (outcome thất bại)
+     */
+    private void completeOrdersInBulk(List<Order> orders, Map<UUID, OrderStatus> previousStatuses,
+                                      Map<UUID, BulkOrderStatusResponse.OrderOutcome> outcomes, UUID actorId) {
+        List<UUID> stockOutIds = new ArrayList<>();
+        Iterator<Order> iterator = orders.iterator();
+        while (iterator.hasNext()) {
+            Order order = iterator.next();
+            if (previousStatuses.get(order.getId()) != OrderStatus.PENDING || order.getOrderType() != OrderType.OFFLINE) {
+                continue;
+            }
+            if (order.getLoyaltyPointsUsed() != null && order.getLoyaltyPointsUsed() > 0) {
+                try {
+                    // Validate xong mới ghi, lỗi ở đây không để lại thay đổi nào
+                    deductLoyaltyPoints(order, actorId);
+                } catch (RuntimeException e) {
+                    outcomes.put(order.getId(), failedOutcome(order.getId(), order, e.getMessage()));
+                    iterator.remove();
+                    continue;
+                }
+            }
+            stockOutIds.add(order.getId());
+        }
+        inventoryService.confirmStockOutForOrders(stockOutIds, "BULK_COMPLETE", actorId);
+
+        if (!orders.isEmpty()) {
+            repo.setWarrantyExpiryForOrders(
+                    orders.stream().map(Order::getId).collect(Collectors.toList()), LocalDateTime.now());
+        }
 
-            // 2. Release Serial (chuyển lại thành AVAILABLE)
-            if (item.getProductSerial() != null) {
-                inventoryService.releaseSerial(item.getProductSerial().getSerialNumber(), actorId);
+        for (Order order : orders) {
+            try {
+                loyaltyPointService.earnPointsFromOrder(order, actorId);
+            } catch (Exception e) {
+                log.error("Failed to earn loyalty points for order {}", order.getId(), e);
             }
+            updateCustomerStats(order);
         }
     }
 
+    private BulkOrderStatusResponse.OrderOutcome failedOutcome(UUID orderId, Order order, String message) {
+        return BulkOrderStatusResponse.OrderOutcome.builder()
+                .orderId(orderId)
+                .orderNumber(order != null ? order.getOrderNumber() : null)
+                .previousStatus(order != null ? order.getStatus() : null)
+                .success(false)
+                .message(message)
+                .build();
+    }
+
     private void updateCustomerStats(Order order) {
         if (order.getCustomer() != null) {
             Customer c = order.getCustomer();
@@ -534,10 +742,8 @@ public class OrderServiceImpl implements OrderService {
     }
 
     private String generateOrderNumber() {
-        // Format: ORD-20250109-12345
-        String datePart = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd"));
-        int random = new Random().nextInt(90000) + 10000;
-        return "ORD-" + datePart + "-" + random;
+        // Format: ORD-20250109-000123 (counter theo ngày, block prefetch trong memory)
+        return orderNumberAllocator.nextOrderNumber();
     }
 
     /**
@@ -656,7 +862,8 @@ public class OrderServiceImpl implements OrderService {
         BigDecimal totalPromotionDiscount = BigDecimal.ZERO;
         List<OrderPromotion> appliedPromotions = new ArrayList<>();
 
-        for (UUID promotionId : promotionIds) {
+        // Mỗi promotion chỉ áp dụng + giữ quota 1 lần (restore usage trả 1 lượt cho mỗi cặp order/promotion)
+        for (UUID promotionId : new LinkedHashSet<>(promotionIds)) {
             Promotion promotion = promotionRepository.findById(promotionId)
                     .orElseThrow(() -> new ResourceNotFoundException("Promotion not found: " + promotionId));
 
@@ -670,6 +877,12 @@ public class OrderServiceImpl implements OrderService {
             BigDecimal discountAmount = calculatePromotionDiscount(order, promotion);
 
             if (discountAmount.compareTo(BigDecimal.ZERO) > 0) {
+                // Giữ 1 lượt quota (atomic trên quota shards)
+                if (!promotionQuotaService.tryReserve(promotion)) {
+                    log.warn("Promotion {} has no remaining quota, skipping", promotionId);
+                    continue;
+                }
+
                 // Create OrderPromotion record
                 OrderPromotion orderPromotion = OrderPromotion.builder()
                         .order(order)
@@ -705,13 +918,7 @@ public class OrderServiceImpl implements OrderService {
             return false;
         }
 
-        // Check usage limit
-        if (promotion.getUsageLimit() != null &&
-                promotion.getUsageCount() != null &&
-                promotion.getUsageCount() >= promotion.getUsageLimit()) {
-            return false;
-        }
-
+        // Usage limit được check khi giữ quota (PromotionQuotaService.tryReserve)
         return true;
     }
 
@@ -0,0 +1,141 @@
+package com.example.viti_be.service.impl;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.repository.PromotionQuotaShardRepository;
+import com.example.viti_be.repository.projection.QuotaAvailabilityProjection;
+import com.example.viti_be.service.PromotionQuotaService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Quota reservation bằng conditional UPDATE trên các counter shards.
+ *
+ * - Mỗi reserve/release chỉ lock 1 shard ngẫu nhiên (SKIP LOCKED trước, chờ lock sau)
+ *   nên N checkout đồng thời trên 1 promotion phân tán ra N shard rows
+ * - Không oversell: UPDATE chỉ thành công khi shard còn remaining > 0
+ * - Shards được tạo lazy cho promotions cũ từ usageLimit / usageCount hiện tại
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PromotionQuotaServiceImpl implements PromotionQuotaService {
+
+    static final int SHARD_COUNT = 8;
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final PromotionQuotaShardRepository shardRepository;
+
+    @Override
+    @Transactional
+    public boolean tryReserve(Promotion promotion) {
+        UUID promotionId = promotion.getId();
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (shardRepository.reserveSkipLocked(promotionId) == 1) {
+                return true;
+            }
+
+            if (shardRepository.countByPromotionId(promotionId) == 0) {
+                initializeShards(promotionId, promotion.getUsageLimit(),
+                        promotion.getUsageCount() != null ? promotion.getUsageCount() : 0);
+                continue;
+            }
+
+            if (shardRepository.countAvailableShards(promotionId) == 0) {
+                return false; // Hết quota
+            }
+
+            // Mọi shard còn quota đang bị giữ bởi transaction khác -> chờ 1 shard
+            if (shardRepository.reserveBlocking(promotionId) == 1) {
+                return true;
+            }
+        }
+
+        log.warn("Could not reserve quota for promotion {} after {} attempts", promotion.getCode(), MAX_ATTEMPTS);
+        return false;
+    }
+
+    @Override
+    @Transactional
+    public void release(UUID promotionId) {
+        if (shardRepository.releaseSkipLocked(promotionId) == 1) {
+            return;
+        }
+        if (shardRepository.releaseBlocking(promotionId) == 0) {
+            log.warn("No used quota to release for promotion {}", promotionId);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public boolean hasRemaining(Promotion promotion) {
+        if (shardRepository.countByPromotionId(promotion.getId()) == 0) {
+            return promotion.hasQuota(); // Chưa có shards -> dùng usageCount hiện tại
+        }
+        return shardRepository.countAvailableShards(promotion.getId()) > 0;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<UUID, Boolean> findShardAvailability(Collection<UUID> promotionIds) {
+        if (promotionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<UUID, Boolean> availability = new HashMap<>();
+        for (QuotaAvailabilityProjection row : shardRepository.findQuotaAvailability(promotionIds)) {
+            availability.put(row.getPromotionId(), row.getAvailableShards() > 0);
+        }
+        return availability;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long getUsedCount(UUID promotionId) {
+        return shardRepository.sumUsed(promotionId);
+    }
+
+    @Override
+    @Transactional
+    public void resetQuota(Promotion promotion) {
+        UUID promotionId = promotion.getId();
+        int used = shardRepository.countByPromotionId(promotionId) > 0
+                ? (int) shardRepository.sumUsed(promotionId)
+                : (promotion.getUsageCount() != null ? promotion.getUsageCount() : 0);
+
+        shardRepository.deleteByPromotionId(promotionId);
+        initializeShards(promotionId, promotion.getUsageLimit(), used);
+    }
+
+    @Override
+    @Transactional
+    public int syncUsageCounts() {
+        return shardRepository.syncPromotionUsageCounts();
+    }
+
+    /**
+     * Chia quota còn lại đều cho các shards, số lượt đã dùng ghi vào shard 0
+     */
+    private void initializeShards(UUID promotionId, Integer usageLimit, int used) {
+        if (usageLimit == null) {
+            for (int shard = 0; shard < SHARD_COUNT; shard++) {
+                shardRepository.insertShardIfAbsent(promotionId, shard, null, shard == 0 ? used : 0);
+            }
+            return;
+        }
+
+        int remaining = Math.max(0, usageLimit - used);
+        int shards = Math.max(1, Math.min(SHARD_COUNT, remaining));
+        for (int shard = 0; shard < shards; shard++) {
+            int shardRemaining = remaining / shards + (shard < remaining % shards ? 1 : 0);
+            shardRepository.insertShardIfAbsent(promotionId, shard, shardRemaining, shard == 0 ? used : 0);
+        }
+    }
+}
@@ -5,19 +5,32 @@ import com.example.viti_be.dto.request.CartItemRequest;
 import com.example.viti_be.dto.request.PromotionRequest;
 import com.example.viti_be.dto.response.*;
 import com.example.viti_be.dto.response.pagnitation.PageResponse;
+import com.example.viti_be.event.PromotionChangedEvent;
+import com.example.viti_be.event.PromotionUsageChangedEvent;
 import com.example.viti_be.exception.*;
 import com.example.viti_be.mapper.PromotionMapper;
 import com.example.viti_be.model.*;
 import com.example.viti_be.model.model_enum.*;
 import com.example.viti_be.repository.*;
+import com.example.viti_be.repository.projection.OrderPromotionUsageProjection;
+import com.example.viti_be.repository.projection.PromotionUsageStatsProjection;
+import com.example.viti_be.repository.projection.VariantCatalogProjection;
 import com.example.viti_be.service.AuditLogService;
+import com.example.viti_be.service.PromotionQuotaService;
 import com.example.viti_be.service.PromotionService;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.viti_be.service.promotion.CompiledPromotion;
+import com.example.viti_be.service.promotion.CustomerPromotionUsageCache;
+import com.example.viti_be.service.promotion.PromotionCombinationOptimizer;
+import com.example.viti_be.service.promotion.PromotionRuleIndex;
+import com.example.viti_be.service.promotion.PublicPromotion;
+import com.example.viti_be.service.promotion.PublicPromotionCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +38,7 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -32,6 +46,8 @@ import java.util.stream.Collectors;
 @Slf4j
 public class PromotionServiceImpl implements PromotionService {
 
+    private static final int RECENT_USAGE_LIMIT = 10;
+
     private final PromotionRepository promotionRepository;
     private final PromotionCategoryRepository promotionCategoryRepository;
     private final PromotionProductRepository promotionProductRepository;
@@ -46,7 +62,12 @@ public class PromotionServiceImpl implements PromotionService {
     private final CustomerTierRepository customerTierRepository;
     private final AuditLogService auditLogService;
     private final PromotionMapper mapper;
-    private final ObjectMapper objectMapper;
+    private final PromotionRuleIndex promotionRuleIndex;
+    private final CustomerPromotionUsageCache usageCache;
+    private final PublicPromotionCache publicPromotionCache;
+    private final PromotionQuotaService quotaService;
+    private final PromotionCombinationOptimizer combinationOptimizer;
+    private final ApplicationEventPublisher eventPublisher;
 
     // ========================================
     // CRUD OPERATIONS (Đã có trong code gốc)
@@ -64,6 +85,8 @@ public class PromotionServiceImpl implements PromotionService {
 
         Promotion saved = promotionRepository.save(promotion);
         updatePromotionRelationships(saved, request);
+        quotaService.resetQuota(saved);
+        eventPublisher.publishEvent(new PromotionChangedEvent(this, saved.getId()));
 
         auditLogService.logSuccess(adminId, AuditModule.PROMOTION, AuditAction.CREATE,
                 saved.getId().toString(), "promotion", null,
@@ -92,6 +115,8 @@ public class PromotionServiceImpl implements PromotionService {
 
         Promotion updated = promotionRepository.save(promotion);
         updatePromotionRelationships(updated, request);
+        quotaService.resetQuota(updated);
+        eventPublisher.publishEvent(new PromotionChangedEvent(this, updated.getId()));
 
         auditLogService.logSuccess(adminId, AuditModule.PROMOTION, AuditAction.UPDATE,
                 updated.getId().toString(), "promotion", oldValue,
@@ -110,6 +135,7 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setIsDeleted(true);
         promotion.setStatus(PromotionStatus.INACTIVE);
         promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(this, id));
 
         auditLogService.logSuccess(adminId, AuditModule.PROMOTION, AuditAction.DELETE,
                 id.toString(), "promotion", promotion.getCode(), "Deleted promotion");
@@ -145,67 +171,63 @@ public class PromotionServiceImpl implements PromotionService {
     public List<PromotionResponse> getApplicablePromotionsForCart(ApplyPromotionCodeRequest request) {
         // 1. Chuẩn bị dữ liệu
         LocalDateTime now = LocalDateTime.now();
-        List<Promotion> publicPromotions = promotionRepository.findActivePublicPromotions(now);
-        List<Promotion> applicablePromotions = new ArrayList<>();
 
         // Lấy thông tin Customer (nếu có)
         Customer customer = null;
         if (request.getCustomerId() != null) {
             customer = customerRepository.findById(request.getCustomerId()).orElse(null);
         }
+        UUID customerTierId = customer != null && customer.getTier() != null ? customer.getTier().getId() : null;
 
         // Tính tổng tiền giỏ hàng (để check Min Order Value)
         BigDecimal cartSubtotal = calculateSubtotal(request.getItems());
 
-        // Cache Product -> Category để tránh query DB trong vòng lặp
-        // Map<ProductId, CategoryId>
-        Map<UUID, UUID> productCategoryMap = preloadProductCategories(request.getItems());
-
-        // 2. Duyệt qua từng promotion để lọc
-        for (Promotion p : publicPromotions) {
+        Set<UUID> cartProductIds = request.getItems() != null
+                ? request.getItems().stream().map(CartItemRequest::getProductId).collect(Collectors.toSet())
+                : Collections.emptySet();
+
+        // Check Customer Tier + Scope (Product vs Order) đã được cache theo (tier, products của giỏ)
+        List<PublicPromotion> candidates = publicPromotionCache.candidatesForCart(
+                customerTierId, cartProductIds, now, this::preloadProductCategories);
+
+        // Quota của các promotions có usageLimit, đọc trực tiếp từ quota shards (1 query)
+        Map<UUID, Boolean> quotaAvailability = quotaService.findShardAvailability(candidates.stream()
+                .map(PublicPromotion::getId)
+                .collect(Collectors.toSet()));
+
+        // Usage per customer của tất cả promotions có giới hạn (1 query GROUP BY hoặc cache)
+        Map<UUID, Long> customerUsage = customer != null
+                ? usageCache.getUsageCounts(customer.getId(), candidates.stream()
+                        .filter(p -> p.getUsagePerCustomer() != null)
+                        .map(PublicPromotion::getId)
+                        .collect(Collectors.toSet()))
+                : Collections.emptyMap();
+
+        // 2. Lọc theo các điều kiện phụ thuộc request
+        List<PromotionResponse> applicablePromotions = new ArrayList<>();
+        for (PublicPromotion p : candidates) {
             // Check 1: Min Order Value
             if (p.getMinOrderValue() != null && cartSubtotal.compareTo(p.getMinOrderValue()) < 0) {
                 continue;
             }
 
-            // Check 2: Customer Tier
-            if (!isCustomerTierEligible(p, customer)) {
-                continue;
-            }
-
-            // Check 3: Global Usage Limit
-            if (!p.hasQuota()) {
+            // Check 2: Global Usage Limit (theo quota shards)
+            if (!quotaAvailability.getOrDefault(p.getId(), p.hasQuota())) {
                 continue;
             }
 
-            // Check 4: Usage Per Customer Limit
+            // Check 3: Usage Per Customer Limit
             if (customer != null && p.getUsagePerCustomer() != null) {
-                long usage = usageHistoryRepository.countByPromotionIdAndCustomerId(p.getId(), customer.getId());
+                long usage = customerUsage.getOrDefault(p.getId(), 0L);
                 if (usage >= p.getUsagePerCustomer()) {
                     continue;
                 }
             }
 
-            // Check 5: Scope (Product vs Order)
-            boolean isScopeValid = false;
-            if (p.getScope() == PromotionScope.ORDER) {
-                isScopeValid = true; // Đã pass MinOrderValue ở trên là đủ
-            } else if (p.getScope() == PromotionScope.PRODUCT) {
-                // Kiểm tra xem trong giỏ có sản phẩm nào thuộc Promotion này không
-                // Chỉ cần có ít nhất 1 sản phẩm khớp là Promotion này được coi là "Applicable"
-                isScopeValid = request.getItems().stream().anyMatch(item ->
-                        isPromotionApplicableToItem(p, item.getProductId(), productCategoryMap)
-                );
-            }
-
-            if (isScopeValid) {
-                applicablePromotions.add(p);
-            }
+            applicablePromotions.add(p.getResponse());
         }
 
-        return applicablePromotions.stream()
-                .map(mapper::toResponse)
-                .collect(Collectors.toList());
+        return applicablePromotions;
     }
 
     /**
@@ -222,73 +244,33 @@ public class PromotionServiceImpl implements PromotionService {
 
     /**
      * Helper: Kiểm tra hạng thành viên
+     * allowedTierIds: tier ids của promotion (null/rỗng = không giới hạn, trừ legacy JSON chưa migrate)
      */
-    private boolean isCustomerTierEligible(Promotion promotion, Customer customer) {
+    private boolean isCustomerTierEligible(Promotion promotion, Set<UUID> allowedTierIds, UUID customerTierId) {
+        boolean restricted = (allowedTierIds != null && !allowedTierIds.isEmpty())
+                || promotion.getApplicableCustomerTiers() != null;
+
         // Nếu promotion không yêu cầu tier -> OK
-        if (promotion.getApplicableCustomerTiers() == null || promotion.getApplicableCustomerTiers().isEmpty()) {
+        if (!restricted) {
             return true;
         }
 
-        // Nếu promotion yêu cầu tier mà khách là Guest (customer == null) -> Fail
-        if (customer == null || customer.getTier() == null) {
-            return false;
-        }
-
-        try {
-            // Parse JSON list tiers từ promotion entity
-            List<String> allowedTiers = objectMapper.readValue(
-                    promotion.getApplicableCustomerTiers(),
-                    new TypeReference<List<String>>() {}
-            );
-
-            // Check xem tier của khách có nằm trong list cho phép không
-            return allowedTiers.contains(customer.getTier().getName());
-
-        } catch (Exception e) {
-            log.error("Error parsing customer tiers for promotion {}", promotion.getCode(), e);
-            return false; // Fail safe
-        }
+        // Nếu promotion yêu cầu tier mà khách là Guest hoặc chưa có tier -> Fail
+        return customerTierId != null && allowedTierIds != null && allowedTierIds.contains(customerTierId);
     }
 
     /**
-     * Helper: Preload Category ID cho các products trong giỏ để tối ưu hiệu năng
+     * Helper: Preload Category ID cho các products trong giỏ (1 query, chỉ khi cache miss)
      */
-    private Map<UUID, UUID> preloadProductCategories(List<CartItemRequest> items) {
-        if (items == null || items.isEmpty()) return Collections.emptyMap();
-
-        Set<UUID> productIds = items.stream()
-                .map(CartItemRequest::getProductId)
-                .collect(Collectors.toSet());
+    private Map<UUID, UUID> preloadProductCategories(Set<UUID> productIds) {
+        if (productIds.isEmpty()) return Collections.emptyMap();
 
         List<Product> products = productRepository.findAllById(productIds);
 
-        return products.stream()
-                .collect(Collectors.toMap(
-                        Product::getId,
-                        p -> p.getCategory() != null ? p.getCategory().getId() : null, // Handle null category
-                        (existing, replacement) -> existing // Merge function (không cần thiết vì ID unique)
-                ));
-    }
-
-    /**
-     * Helper: Kiểm tra Promotion có áp dụng cho 1 Item cụ thể không
-     */
-    private boolean isPromotionApplicableToItem(Promotion p, UUID productId, Map<UUID, UUID> productCategoryMap) {
-        // Check 1: Direct Product Match
-        boolean productMatch = p.getPromotionProducts().stream()
-                .anyMatch(pp -> pp.getProduct().getId().equals(productId));
-
-        if (productMatch) return true;
-
-        // Check 2: Category Match
-        UUID categoryId = productCategoryMap.get(productId);
-        if (categoryId != null) {
-            boolean categoryMatch = p.getPromotionCategories().stream()
-                    .anyMatch(pc -> pc.getCategory().getId().equals(categoryId));
-            if (categoryMatch) return true;
-        }
-
-        return false;
+        // Collectors.toMap không nhận value null (product không có category) -> dùng HashMap
+        Map<UUID, UUID> result = new HashMap<>();
+        products.forEach(p -> result.put(p.getId(), p.getCategory() != null ? p.getCategory().getId() : null));
+        return result;
     }
 
     @Override
@@ -317,6 +299,7 @@ public class PromotionServiceImpl implements PromotionService {
 
         promotion.setStatus(newStatus);
         Promotion saved = promotionRepository.save(promotion);
+        eventPublisher.publishEvent(new PromotionChangedEvent(this, id));
 
         auditLogService.logSuccess(adminId, AuditModule.PROMOTION, AuditAction.UPDATE,
                 id.toString(), "promotion", "status=" + oldStatus, "status=" + newStatus);
@@ -424,9 +407,11 @@ public class PromotionServiceImpl implements PromotionService {
 
         // 2. Tier discount (nếu có customer)
         BigDecimal tierDiscount = BigDecimal.ZERO;
+        UUID customerTierId = null;
         if (request.getCustomerId() != null) {
             Customer customer = customerRepository.findById(request.getCustomerId()).orElse(null);
             if (customer != null && customer.getTier() != null) {
+                customerTierId = customer.getTier().getId();
                 BigDecimal rate = customer.getTier().getDiscountRate();
                 if (rate != null && rate.compareTo(BigDecimal.ZERO) > 0) {
                     tierDiscount = subtotal.multiply(rate)
@@ -443,89 +428,70 @@ public class PromotionServiceImpl implements PromotionService {
             log.info("2. Guest Customer - No Tier Discount");
         }
 
-        // 3. Apply PRODUCT promotions
-        List<AppliedPromotionResponse> productPromotions = new ArrayList<>();
-        BigDecimal productPromotionDiscount = BigDecimal.ZERO;
+        // Promotion index (in-memory) + context dùng chung cho cả giỏ hàng
+        PromotionRuleIndex.Snapshot index = promotionRuleIndex.snapshot();
+        LocalDateTime now = LocalDateTime.now();
+        PromotionEligibilityContext context = new PromotionEligibilityContext(
+                request.getCustomerId(), customerTierId, manualCodes, now,
+                loadCustomerUsage(index, request.getCustomerId(), now),
+                loadQuotaAvailability(index, now));
 
-        log.info("3. Processing Product Promotions for {} items...", request.getItems().size());
+        // 3. Gom PRODUCT promotion candidates theo từng line
+        log.info("3. Collecting Product Promotion candidates for {} items...", request.getItems().size());
 
+        // 1 query batch cho variant -> product -> category của cả giỏ
+        Map<UUID, VariantCatalogProjection> catalog = productVariantRepository.findCatalogByVariantIds(
+                        request.getItems().stream().map(CartItemRequest::getProductVariantId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(VariantCatalogProjection::getVariantId, v -> v, (a, b) -> a));
+
+        List<PromotionCombinationOptimizer.CartLine> lines = new ArrayList<>();
         for (CartItemRequest item : request.getItems()) {
-            ProductVariant variant = productVariantRepository.findById(item.getProductVariantId()).orElse(null);
+            VariantCatalogProjection variant = catalog.get(item.getProductVariantId());
             if (variant == null) {
                 warnings.add("Product variant not found: " + item.getProductVariantId());
                 log.warn("Item skipped: Variant {} not found", item.getProductVariantId());
                 continue;
             }
 
-            Product product = variant.getProduct();
-            UUID productId = product.getId();
-            UUID categoryId = product.getCategory() != null ? product.getCategory().getId() : null;
-
-            // Tìm applicable product promotions
-            List<Promotion> applicablePromotions = findApplicableProductPromotions(
-                    productId, categoryId, request.getCustomerId(), manualCodes);
+            List<CompiledPromotion> applicablePromotions = findApplicableProductPromotions(
+                    index, variant.getProductId(), variant.getCategoryId(), context);
 
             log.info("   > Item {} (Product {}): Found {} applicable candidates",
-                    variant.getId(), productId, applicablePromotions.size());
-
-            // Resolve conflicts và apply
-            List<Promotion> selectedPromotions = resolveConflictsAndSelectPromotions(
-                    applicablePromotions, manualCodes);
+                    variant.getVariantId(), variant.getProductId(), applicablePromotions.size());
 
-            if (selectedPromotions.isEmpty() && !applicablePromotions.isEmpty()) {
-                log.warn("   > All candidates for Item {} were filtered out by Conflict Resolver!", variant.getId());
+            if (!applicablePromotions.isEmpty()) {
+                BigDecimal itemBaseAmount = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                lines.add(new PromotionCombinationOptimizer.CartLine(
+                        variant.getVariantId(), itemBaseAmount, applicablePromotions));
             }
+        }
 
-            // Tính discount cho item này
-            BigDecimal itemBaseAmount = item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-
-            for (Promotion promo : selectedPromotions) {
-                BigDecimal itemDiscount = promo.calculateDiscount(itemBaseAmount);
-                productPromotionDiscount = productPromotionDiscount.add(itemDiscount);
+        // 4. Chọn tổ hợp PRODUCT + ORDER (tối đa 1) promotions có tổng discount lớn nhất, không xung đột
+        BigDecimal orderBase = subtotal.subtract(tierDiscount);
+        List<CompiledPromotion> orderCandidates = findApplicableOrderPromotions(index, context);
+        log.info("4. Optimizing {} lines with {} Order Promo candidates. Base Amount: {}",
+                lines.size(), orderCandidates.size(), orderBase);
 
-                log.info("   > Applied Promo '{}' to Item {}. Discount: {}",
-                        promo.getCode(), variant.getId(), itemDiscount);
+        PromotionCombinationOptimizer.Result best = combinationOptimizer.optimize(lines, orderCandidates, orderBase);
 
-                // Add to response (chỉ add 1 lần cho mỗi promotion)
-                boolean alreadyAdded = productPromotions.stream()
-                        .anyMatch(p -> p.getPromotionId().equals(promo.getId()));
-                if (!alreadyAdded) {
-                    productPromotions.add(mapper.toAppliedResponse(promo, itemDiscount));
-                }
-            }
+        List<AppliedPromotionResponse> productPromotions = new ArrayList<>();
+        for (CompiledPromotion p : best.productPromotions()) {
+            AppliedPromotionResponse applied = mapper.toAppliedResponse(
+                    p.getPromotion(), best.productDiscounts().get(p.getId()));
+            applied.setProductVariantIds(best.productLines().get(p.getId()));
+            productPromotions.add(applied);
         }
-        log.info("   > Total Product Discount: {}", productPromotionDiscount);
+        BigDecimal productPromotionDiscount = best.productDiscount();
+        log.info("   > Selected {} Product Promos. Total Product Discount: {}",
+                productPromotions.size(), productPromotionDiscount);
 
-        // 4. Apply ORDER promotion (chỉ 1 cái tốt nhất)
         AppliedPromotionResponse orderPromotion = null;
-        BigDecimal orderPromotionDiscount = BigDecimal.ZERO;
-
-        BigDecimal baseForOrderPromo = subtotal.subtract(tierDiscount).subtract(productPromotionDiscount);
-        log.info("4. Processing Order Promotions. Base Amount: {}", baseForOrderPromo);
-
-        if (baseForOrderPromo.compareTo(BigDecimal.ZERO) > 0) {
-            List<Promotion> orderPromotions = findApplicableOrderPromotions(
-                    baseForOrderPromo, request.getCustomerId(), manualCodes);
-
-            log.info("   > Found {} applicable Order Promos candidates", orderPromotions.size());
-
-            if (!orderPromotions.isEmpty()) {
-                // Chọn promotion có discount lớn nhất
-                Promotion bestOrderPromo = orderPromotions.stream()
-                        .max(Comparator.comparing(p -> p.calculateDiscount(baseForOrderPromo)))
-                        .orElse(null);
-
-                if (bestOrderPromo != null) {
-                    orderPromotionDiscount = bestOrderPromo.calculateDiscount(baseForOrderPromo);
-                    orderPromotion = mapper.toAppliedResponse(bestOrderPromo, orderPromotionDiscount);
-                    log.info("   > Selected Best Promo: '{}' (Discount: {})",
-                            bestOrderPromo.getCode(), orderPromotionDiscount);
-                }
-            } else {
-                log.info("   > No applicable Order Promos found (Check MinOrderValue, Dates, Usage Limit)");
-            }
-        } else {
-            log.info("   > Base Amount <= 0, skipping Order Promotions");
+        BigDecimal orderPromotionDiscount = best.orderDiscount();
+        if (best.orderPromotion() != null) {
+            orderPromotion = mapper.toAppliedResponse(best.orderPromotion().getPromotion(), orderPromotionDiscount);
+            log.info("   > Selected Order Promo: '{}' (Discount: {})",
+                    best.orderPromotion().getCode(), orderPromotionDiscount);
         }
 
         // 5. Total discount
@@ -572,6 +538,9 @@ public class PromotionServiceImpl implements PromotionService {
         CartDiscountCalculationResponse calculation = calculateCartDiscountWithCodes(
                 cartRequest, promotionCodes != null ? promotionCodes : Collections.emptyList());
 
+        // Giữ quota cho các promotions được áp dụng (trả lại trong restorePromotionUsage)
+        reservePromotionQuota(calculation);
+
         // Apply product promotions to order items
         applyProductPromotionsToOrderItems(order, calculation.getProductPromotions());
 
@@ -611,15 +580,12 @@ public class PromotionServiceImpl implements PromotionService {
                     "Some promotions are no longer valid: " + invalidPromotionIds);
         }
 
-        // Increment usage count và tạo usage history
+        // Tạo usage history (quota đã được giữ khi tạo order)
         Set<UUID> processedPromotions = new HashSet<>();
 
         for (OrderPromotion op : orderPromotions) {
             Promotion promo = op.getPromotion();
             if (processedPromotions.add(promo.getId())) {
-                promo.incrementUsage();
-                promotionRepository.save(promo);
-
                 // Create usage history
                 createUsageHistory(promo, order, op.getDiscountAmount(), actorId);
             }
@@ -628,14 +594,13 @@ public class PromotionServiceImpl implements PromotionService {
         for (OrderItemPromotion ip : itemPromotions) {
             Promotion promo = ip.getPromotion();
             if (processedPromotions.add(promo.getId())) {
-                promo.incrementUsage();
-                promotionRepository.save(promo);
-
                 // Create usage history
                 createUsageHistory(promo, order, ip.getDiscountAmount(), actorId);
             }
         }
 
+        publishUsageChanged(order, processedPromotions);
+
         log.info("Validated and confirmed promotions for order {}", order.getOrderNumber());
     }
 
@@ -644,14 +609,14 @@ public class PromotionServiceImpl implements PromotionService {
 
         for (OrderPromotion op : orderPromotions) {
             Promotion promo = op.getPromotion();
-            if (!promo.isActive() || !promo.hasQuota()) {
+            if (!promo.isActive()) {
                 invalidPromotionIds.add(promo.getId());
             }
         }
 
         for (OrderItemPromotion ip : itemPromotions) {
             Promotion promo = ip.getPromotion();
-            if (!promo.isActive() || !promo.hasQuota()) {
+            if (!promo.isActive()) {
                 invalidPromotionIds.add(promo.getId());
             }
         }
@@ -677,45 +642,86 @@ public class PromotionServiceImpl implements PromotionService {
             itemPromotions.forEach(ip -> promotionIds.add(ip.getPromotion().getId()));
         });
 
-        // Decrement usage count
+        // Trả lại quota đã giữ khi tạo order
         for (UUID promoId : promotionIds) {
-            Promotion promo = promotionRepository.findById(promoId).orElse(null);
-            if (promo != null) {
-                promo.decrementUsage();
-                promotionRepository.save(promo);
-            }
+            quotaService.release(promoId);
         }
-
         // Delete usage history
         usageHistoryRepository.deleteByOrderId(order.getId());
+        publishUsageChanged(order, promotionIds);
 
         log.info("Restored promotion usage for cancelled order {}", order.getOrderNumber());
     }
 
+    @Override
+    @Transactional
+    public void restorePromotionUsage(Collection<UUID> orderIds, UUID actorId) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+
+        List<OrderPromotionUsageProjection> usages = orderPromotionRepository.findPromotionUsagesOfOrders(orderIds);
+        if (usages.isEmpty()) {
+            return;
+        }
+
+        // Mỗi (đơn, promotion) đã giữ 1 lượt quota khi tạo order
+        Map<UUID, Set<UUID>> promotionsByCustomer = new HashMap<>();
+        for (OrderPromotionUsageProjection usage : usages) {
+            quotaService.release(usage.getPromotionId());
+            if (usage.getCustomerId() != null) {
+                promotionsByCustomer.computeIfAbsent(usage.getCustomerId(), k -> new HashSet<>())
+                        .add(usage.getPromotionId());
+            }
+        }
+
+        usageHistoryRepository.deleteByOrderIdIn(orderIds);
+        promotionsByCustomer.forEach((customerId, promotionIds) ->
+                eventPublisher.publishEvent(new PromotionUsageChangedEvent(this, customerId, promotionIds)));
+
+        log.info("Restored {} promotion usages for {} cancelled orders", usages.size(), orderIds.size());
+    }
+
     // ========================================
     // SCHEDULED JOBS
     // ========================================
 
     @Override
     @Transactional
-    public void autoActivatePromotions() {
-        List<Promotion> toActivate = promotionRepository.findPromotionsToActivate(LocalDateTime.now());
-        for (Promotion p : toActivate) {
-            p.setStatus(PromotionStatus.ACTIVE);
-            promotionRepository.save(p);
-            log.info("Auto-activated promotion: {}", p.getCode());
-        }
+    public List<UUID> autoActivatePromotions() {
+        List<UUID> activated = promotionRepository.activateDuePromotions(LocalDateTime.now());
+        onStatusTransition(activated, PromotionStatus.SCHEDULED, PromotionStatus.ACTIVE);
+        return activated;
     }
 
     @Override
     @Transactional
-    public void autoExpirePromotions() {
-        List<Promotion> toExpire = promotionRepository.findPromotionsToExpire(LocalDateTime.now());
-        for (Promotion p : toExpire) {
-            p.setStatus(PromotionStatus.EXPIRED);
-            promotionRepository.save(p);
-            log.info("Auto-expired promotion: {}", p.getCode());
+    public List<UUID> autoExpirePromotions() {
+        List<UUID> expired = promotionRepository.expireDuePromotions(LocalDateTime.now());
+        onStatusTransition(expired, PromotionStatus.ACTIVE, PromotionStatus.EXPIRED);
+        return expired;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public LocalDateTime findNextStatusBoundary(LocalDateTime now) {
+        return promotionRepository.findNextStatusBoundary(now);
+    }
+
+    /**
+     * Audit log + invalidate index cho các promotions vừa được scheduler chuyển trạng thái
+     */
+    private void onStatusTransition(List<UUID> promotionIds, PromotionStatus from, PromotionStatus to) {
+        if (promotionIds.isEmpty()) {
+            return;
+        }
+
+        for (UUID id : promotionIds) {
+            auditLogService.logSuccess(null, AuditModule.PROMOTION, AuditAction.UPDATE,
+                    id.toString(), "promotion", from.name(), to.name());
         }
+        eventPublisher.publishEvent(new PromotionChangedEvent(this, null));
+        log.info("Auto-transitioned {} promotions {} -> {}: {}", promotionIds.size(), from, to, promotionIds);
     }
 
     // ========================================
@@ -728,81 +734,64 @@ public class PromotionServiceImpl implements PromotionService {
         Promotion promotion = promotionRepository.findById(promotionId)
                 .orElseThrow(() -> new PromotionNotFoundException("id", promotionId));
 
-        List<PromotionUsageHistory> histories = usageHistoryRepository
-                .findByPromotionIdOrderByUsedAtDesc(promotionId);
-
-        int uniqueCustomers = (int) histories.stream()
-                .filter(h -> h.getCustomer() != null)
-                .map(h -> h.getCustomer().getId())
-                .distinct()
-                .count();
+        Map<UUID, PromotionUsageStatsProjection> stats = loadUsageStats(List.of(promotionId));
 
-        BigDecimal totalDiscount = histories.stream()
-                .map(PromotionUsageHistory::getDiscountAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        LocalDateTime lastUsed = histories.isEmpty() ? null : histories.get(0).getUsedAt();
-
-        List<UsageDetailResponse> recentUsages = histories.stream()
-                .limit(10)
+        List<UsageDetailResponse> recentUsages = usageHistoryRepository
+                .findRecentUsages(promotionId, PageRequest.of(0, RECENT_USAGE_LIMIT)).stream()
                 .map(h -> UsageDetailResponse.builder()
-                        .orderId(h.getOrder().getId())
-                        .orderNumber(h.getOrder().getOrderNumber())
-                        .customerId(h.getCustomer() != null ? h.getCustomer().getId() : null)
-                        .customerName(h.getCustomer() != null ? h.getCustomer().getFullName() : "Guest")
+                        .orderId(h.getOrderId())
+                        .orderNumber(h.getOrderNumber())
+                        .customerId(h.getCustomerId())
+                        .customerName(h.getCustomerId() != null ? h.getCustomerName() : "Guest")
                         .discountAmount(h.getDiscountAmount())
                         .usedAt(h.getUsedAt())
                         .build())
                 .collect(Collectors.toList());
 
-        return PromotionUsageReportResponse.builder()
-                .promotionId(promotion.getId())
-                .code(promotion.getCode())
-                .name(promotion.getName())
-                .totalUsageCount(promotion.getUsageCount() != null ? promotion.getUsageCount() : 0)
-                .uniqueCustomerCount(uniqueCustomers)
-                .totalDiscountAmount(totalDiscount)
-                .lastUsedAt(lastUsed)
-                .recentUsages(recentUsages)
-                .build();
+        PromotionUsageReportResponse report = toUsageReport(promotion, stats.get(promotionId));
+        report.setRecentUsages(recentUsages);
+        return report;
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<PromotionUsageReportResponse> getTopPromotions(int limit) {
-        List<Promotion> allPromotions = promotionRepository.findByIsDeletedFalse();
-
-        return allPromotions.stream()
-                .sorted(Comparator.comparing(p ->
-                                p.getUsageCount() != null ? p.getUsageCount() : 0,
-                        Comparator.reverseOrder()))
-                .limit(limit)
-                .map(p -> {
-                    List<PromotionUsageHistory> histories = usageHistoryRepository
-                            .findByPromotionIdOrderByUsedAtDesc(p.getId());
-
-                    BigDecimal totalDiscount = histories.stream()
-                            .map(PromotionUsageHistory::getDiscountAmount)
-                            .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                    int uniqueCustomers = (int) histories.stream()
-                            .filter(h -> h.getCustomer() != null)
-                            .map(h -> h.getCustomer().getId())
-                            .distinct()
-                            .count();
-
-                    return PromotionUsageReportResponse.builder()
-                            .promotionId(p.getId())
-                            .code(p.getCode())
-                            .name(p.getName())
-                            .totalUsageCount(p.getUsageCount() != null ? p.getUsageCount() : 0)
-                            .uniqueCustomerCount(uniqueCustomers)
-                            .totalDiscountAmount(totalDiscount)
-                            .build();
-                })
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Promotion> topPromotions = promotionRepository
+                .findTopByUsageCount(PageRequest.of(0, limit));
+
+        // Thống kê usage của top promotions (1 query GROUP BY)
+        Map<UUID, PromotionUsageStatsProjection> stats = loadUsageStats(
+                topPromotions.stream().map(Promotion::getId).collect(Collectors.toList()));
+
+        return topPromotions.stream()
+                .map(p -> toUsageReport(p, stats.get(p.getId())))
                 .collect(Collectors.toList());
     }
 
+    private Map<UUID, PromotionUsageStatsProjection> loadUsageStats(Collection<UUID> promotionIds) {
+        if (promotionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        return usageHistoryRepository.getUsageStatsByPromotionIds(promotionIds).stream()
+                .collect(Collectors.toMap(PromotionUsageStatsProjection::getPromotionId, s -> s));
+    }
+
+    private PromotionUsageReportResponse toUsageReport(Promotion promotion, PromotionUsageStatsProjection stats) {
+        return PromotionUsageReportResponse.builder()
+                .promotionId(promotion.getId())
+                .code(promotion.getCode())
+                .name(promotion.getName())
+                .totalUsageCount(promotion.getUsageCount() != null ? promotion.getUsageCount() : 0)
+                .uniqueCustomerCount(stats != null ? stats.getUniqueCustomerCount().intValue() : 0)
+                .totalDiscountAmount(stats != null ? stats.getTotalDiscountAmount() : BigDecimal.ZERO)
+                .lastUsedAt(stats != null ? stats.getLastUsedAt() : null)
+                .build();
+    }
+
     // ========================================
     // HELPER METHODS
     // ========================================
@@ -846,34 +835,28 @@ public class PromotionServiceImpl implements PromotionService {
             throw new InvalidPromotionException("Promotion is not active: " + promotion.getCode());
         }
 
-        if (!promotion.hasQuota()) {
+        if (!quotaService.hasRemaining(promotion)) {
             throw new PromotionQuotaExceededException(promotion.getCode());
         }
 
         // Check customer tier restriction
-        if (customerId != null && promotion.getApplicableCustomerTiers() != null) {
+        if (customerId != null && promotion.isTierRestricted()) {
             Customer customer = customerRepository.findById(customerId).orElse(null);
             if (customer != null && customer.getTier() != null) {
-                try {
-                    List<String> allowedTiers = objectMapper.readValue(
-                            promotion.getApplicableCustomerTiers(),
-                            new TypeReference<List<String>>() {});
-
-                    String customerTierName = customer.getTier().getName();
-                    if (!allowedTiers.contains(customerTierName)) {
-                        throw new PromotionNotApplicableException(
-                                "Promotion not applicable for your tier: " + customerTierName);
-                    }
-                } catch (Exception e) {
-                    log.error("Error parsing customer tiers", e);
+                Set<UUID> allowedTierIds = promotion.getCustomerTiers().stream()
+                        .map(CustomerTier::getId)
+                        .collect(Collectors.toSet());
+
+                if (!isCustomerTierEligible(promotion, allowedTierIds, customer.getTier().getId())) {
+                    throw new PromotionNotApplicableException(
+                            "Promotion not applicable for your tier: " + customer.getTier().getName());
                 }
             }
         }
 
         // Check usage per customer limit
         if (customerId != null && promotion.getUsagePerCustomer() != null) {
-            long customerUsage = usageHistoryRepository.countByPromotionIdAndCustomerId(
-                    promotion.getId(), customerId);
+            long customerUsage = usageCache.getUsageCount(customerId, promotion.getId());
 
             if (customerUsage >= promotion.getUsagePerCustomer()) {
                 throw new PromotionQuotaExceededException(
@@ -908,179 +891,202 @@ public class PromotionServiceImpl implements PromotionService {
         promotion.setPriority(request.getPriority());
         promotion.setDescription(request.getDescription());
 
+        promotion.getCustomerTiers().clear();
+        promotion.setApplicableCustomerTiers(null); // Legacy JSON không còn được ghi
         if (request.getApplicableCustomerTiers() != null && !request.getApplicableCustomerTiers().isEmpty()) {
-            try {
-                promotion.setApplicableCustomerTiers(
-                        objectMapper.writeValueAsString(request.getApplicableCustomerTiers()));
-            } catch (Exception e) {
-                throw new PromotionValidationException("Failed to serialize customer tiers");
-            }
-        } else {
-            promotion.setApplicableCustomerTiers(null);
+            promotion.getCustomerTiers().addAll(resolveCustomerTiers(request.getApplicableCustomerTiers()));
         }
     }
 
+    private List<CustomerTier> resolveCustomerTiers(List<String> tierNames) {
+        Set<String> upperNames = tierNames.stream()
+                .filter(Objects::nonNull)
+                .map(name -> name.trim().toUpperCase())
+                .collect(Collectors.toSet());
+
+        List<CustomerTier> tiers = customerTierRepository.findByUpperNames(upperNames);
+
+        Set<String> found = tiers.stream()
+                .map(t -> t.getName().toUpperCase())
+                .collect(Collectors.toSet());
+        List<String> missing = upperNames.stream()
+                .filter(name -> !found.contains(name))
+                .toList();
+        if (!missing.isEmpty()) {
+            throw new PromotionValidationException("Customer tier not found: " + missing);
+        }
+        return tiers;
+    }
+
+    /**
+     * Đồng bộ category / product / conflict links theo request:
+     * chỉ xóa links bị bỏ và insert links mới (batch insert qua hibernate.jdbc.batch_size)
+     */
     private void updatePromotionRelationships(Promotion promotion, PromotionRequest request) {
-        promotionCategoryRepository.deleteByPromotionId(promotion.getId());
-        promotionProductRepository.deleteByPromotionId(promotion.getId());
-        promotionConflictRepository.deleteByPromotionId(promotion.getId());
-
-        if (request.getApplicableCategoryIds() != null) {
-            for (UUID categoryId : request.getApplicableCategoryIds()) {
-                Category category = categoryRepository.findById(categoryId)
-                        .orElseThrow(() -> new RuntimeException("Category not found: " + categoryId));
-                PromotionCategory pc = PromotionCategory.builder()
-                        .promotion(promotion)
-                        .category(category)
-                        .build();
-                promotionCategoryRepository.save(pc);
+        syncLinks(promotionCategoryRepository.findByPromotionId(promotion.getId()),
+                pc -> pc.getCategory().getId(),
+                request.getApplicableCategoryIds(),
+                categoryRepository::findAllById, Category::getId,
+                category -> PromotionCategory.builder().promotion(promotion).category(category).build(),
+                promotionCategoryRepository, "Category");
+
+        syncLinks(promotionProductRepository.findByPromotionId(promotion.getId()),
+                pp -> pp.getProduct().getId(),
+                request.getApplicableProductIds(),
+                productRepository::findAllById, Product::getId,
+                product -> PromotionProduct.builder().promotion(promotion).product(product).build(),
+                promotionProductRepository, "Product");
+
+        syncLinks(promotionConflictRepository.findByPromotionId(promotion.getId()),
+                pc -> pc.getConflictingPromotion().getId(),
+                request.getConflictingPromotionIds(),
+                promotionRepository::findAllById, Promotion::getId,
+                conflicting -> PromotionConflict.builder().promotion(promotion).conflictingPromotion(conflicting).build(),
+                promotionConflictRepository, "Conflicting promotion");
+    }
+
+    /**
+     * Diff links hiện tại với danh sách id trong request (null = bỏ hết links)
+     */
+    private <L, T> void syncLinks(List<L> existingLinks, Function<L, UUID> linkTargetId,
+                                  Collection<UUID> requestedIds,
+                                  Function<Collection<UUID>, List<T>> loadTargets, Function<T, UUID> targetId,
+                                  Function<T, L> createLink, JpaRepository<L, UUID> linkRepository,
+                                  String targetName) {
+        Set<UUID> requested = requestedIds != null ? new LinkedHashSet<>(requestedIds) : Collections.emptySet();
+
+        List<L> removed = new ArrayList<>();
+        Set<UUID> kept = new HashSet<>();
+        for (L link : existingLinks) {
+            UUID id = linkTargetId.apply(link);
+            if (requested.contains(id) && kept.add(id)) {
+                continue;
             }
+            removed.add(link); // Bị bỏ khỏi request hoặc link trùng
+        }
+        if (!removed.isEmpty()) {
+            linkRepository.deleteAllInBatch(removed);
         }
 
-        if (request.getApplicableProductIds() != null) {
-            for (UUID productId : request.getApplicableProductIds()) {
-                Product product = productRepository.findById(productId)
-                        .orElseThrow(() -> new RuntimeException("Product not found: " + productId));
-                PromotionProduct pp = PromotionProduct.builder()
-                        .promotion(promotion)
-                        .product(product)
-                        .build();
-                promotionProductRepository.save(pp);
-            }
+        Set<UUID> added = new LinkedHashSet<>(requested);
+        added.removeAll(kept);
+        if (added.isEmpty()) {
+            return;
         }
 
-        if (request.getConflictingPromotionIds() != null) {
-            for (UUID conflictId : request.getConflictingPromotionIds()) {
-                Promotion conflicting = promotionRepository.findById(conflictId)
-                        .orElseThrow(() -> new RuntimeException("Conflicting promotion not found: " + conflictId));
-                PromotionConflict pc = PromotionConflict.builder()
-                        .promotion(promotion)
-                        .conflictingPromotion(conflicting)
-                        .build();
-                promotionConflictRepository.save(pc);
+        Map<UUID, T> targets = loadTargets.apply(added).stream()
+                .collect(Collectors.toMap(targetId, t -> t));
+        List<L> newLinks = new ArrayList<>(added.size());
+        for (UUID id : added) {
+            T target = targets.get(id);
+            if (target == null) {
+                throw new RuntimeException(targetName + " not found: " + id);
             }
+            newLinks.add(createLink.apply(target));
         }
+        linkRepository.saveAll(newLinks);
     }
 
-    private List<Promotion> findApplicableProductPromotions(
-            UUID productId, UUID categoryId, UUID customerId, List<String> manualCodes) {
-
-        LocalDateTime now = LocalDateTime.now();
-        List<Promotion> promotions = promotionRepository.findApplicableProductPromotions(
-                productId, categoryId, now);
-
-        Set<String> manualCodesUpper = manualCodes.stream()
-                .map(String::toUpperCase)
-                .collect(Collectors.toSet());
+    private List<CompiledPromotion> findApplicableProductPromotions(
+            PromotionRuleIndex.Snapshot index, UUID productId, UUID categoryId,
+            PromotionEligibilityContext context) {
 
-        return promotions.stream()
-                .filter(p -> {
-                    if (Boolean.TRUE.equals(p.getRequiresCode())) {
-                        // Chỉ apply nếu code được nhập
-                        if (!manualCodesUpper.contains(p.getCode())) {
-                            return false;
-                        }
-                    }
-                    // Check min order value (skip for product promotions)
-                    // Check tier restriction
-                    if (customerId == null && p.getApplicableCustomerTiers() != null) {
-                        return false; // Guest cannot use tier-restricted promotions
-                    }
-                    // Check if quota available
-                    if (!p.hasQuota()) {
-                        return false;
-                    }
-                    // Check usage per customer
-                    if (customerId != null && p.getUsagePerCustomer() != null) {
-                        long usage = usageHistoryRepository.countByPromotionIdAndCustomerId(
-                                p.getId(), customerId);
-                        return usage < p.getUsagePerCustomer();
-                    }
-                    return true;
-                })
+        return index.forProduct(productId, categoryId).stream()
+                .filter(p -> p.isLiveAt(context.now))
+                .filter(p -> isEligible(p, context))
                 .collect(Collectors.toList());
     }
 
-    private List<Promotion> findApplicableOrderPromotions(
-            BigDecimal orderAmount, UUID customerId, List<String> manualCodes) {
-
-        LocalDateTime now = LocalDateTime.now();
-        List<Promotion> promotions = promotionRepository.findApplicableOrderPromotions(now);
-
-        Set<String> manualCodesUpper = manualCodes.stream()
-                .map(String::toUpperCase)
-                .collect(Collectors.toSet());
+    /**
+     * ORDER promotions hợp lệ cho customer (minOrderValue được optimizer check theo base thực tế)
+     */
+    private List<CompiledPromotion> findApplicableOrderPromotions(
+            PromotionRuleIndex.Snapshot index, PromotionEligibilityContext context) {
 
-        return promotions.stream()
-                .filter(p -> {
-                    if (Boolean.TRUE.equals(p.getRequiresCode())) {
-                        // Chỉ apply nếu code được nhập
-                        if (!manualCodesUpper.contains(p.getCode())) {
-                            return false;
-                        }
-                    }
-                    // Check min order value
-                    if (p.getMinOrderValue() != null &&
-                            orderAmount.compareTo(p.getMinOrderValue()) < 0) {
-                        return false;
-                    }
-                    // Check tier restriction
-                    if (customerId == null && p.getApplicableCustomerTiers() != null) {
-                        return false;
-                    }
-                    // Check quota
-                    if (!p.hasQuota()) {
-                        return false;
-                    }
-                    // Check usage per customer
-                    if (customerId != null && p.getUsagePerCustomer() != null) {
-                        long usage = usageHistoryRepository.countByPromotionIdAndCustomerId(
-                                p.getId(), customerId);
-                        return usage < p.getUsagePerCustomer();
-                    }
-                    return true;
-                })
+        // byScope(ORDER) đã được sort theo priority DESC
+        return index.byScope(PromotionScope.ORDER).stream()
+                .filter(p -> p.isLiveAt(context.now))
+                .filter(p -> isEligible(p, context))
                 .collect(Collectors.toList());
     }
 
-    private List<Promotion> resolveConflictsAndSelectPromotions(
-            List<Promotion> promotions, List<String> manualCodes) {
-
-        if (promotions.isEmpty()) {
-            return Collections.emptyList();
+    /**
+     * Các điều kiện chung cho PRODUCT và ORDER promotions:
+     * requires code, tier restriction (tra cứu O(1) theo tier id), quota, usage per customer
+     */
+    private boolean isEligible(CompiledPromotion compiled, PromotionEligibilityContext context) {
+        Promotion p = compiled.getPromotion();
+        if (compiled.requiresCode()) {
+            // Chỉ apply nếu code được nhập
+            if (!context.manualCodes.contains(p.getCode())) {
+                return false;
+            }
         }
-
-        // Build conflict map
-        Map<UUID, Set<UUID>> conflictMap = new HashMap<>();
-        for (Promotion p : promotions) {
-            List<UUID> conflicts = promotionConflictRepository.findConflictingPromotionIds(p.getId());
-            conflictMap.put(p.getId(), new HashSet<>(conflicts));
+        // Check tier restriction (guest / sai tier -> không được dùng)
+        if (!compiled.isTierEligible(context.customerTierId)) {
+            return false;
         }
+        // Check if quota available (đọc trực tiếp từ quota shards khi bắt đầu tính giỏ)
+        if (!context.quotaAvailability.getOrDefault(p.getId(), p.hasQuota())) {
+            return false;
+        }
+        // Check usage per customer (đã load sẵn cho cả giỏ)
+        if (context.customerId != null && p.getUsagePerCustomer() != null) {
+            long usage = context.customerUsage.getOrDefault(p.getId(), 0L);
+            return usage < p.getUsagePerCustomer();
+        }
+        return true;
+    }
 
-        // Select promotions without conflicts
-        List<Promotion> selected = new ArrayList<>();
-        Set<UUID> selectedIds = new HashSet<>();
-
-        // Sort by priority (higher first)
-        List<Promotion> sorted = promotions.stream()
-                .sorted(Comparator.comparing(Promotion::getPriority).reversed())
-                .collect(Collectors.toList());
+    /**
+     * Context dùng chung khi lọc promotions cho 1 lần tính giỏ hàng
+     */
+    private static final class PromotionEligibilityContext {
+        private final UUID customerId;
+        private final UUID customerTierId;
+        private final Set<String> manualCodes;
+        private final LocalDateTime now;
+        private final Map<UUID, Long> customerUsage;
+        private final Map<UUID, Boolean> quotaAvailability;
+
+        private PromotionEligibilityContext(UUID customerId, UUID customerTierId,
+                                            List<String> manualCodes, LocalDateTime now,
+                                            Map<UUID, Long> customerUsage, Map<UUID, Boolean> quotaAvailability) {
+            this.customerId = customerId;
+            this.customerTierId = customerTierId;
+            this.manualCodes = manualCodes.stream()
+                    .map(String::toUpperCase)
+                    .collect(Collectors.toSet());
+            this.now = now;
+            this.customerUsage = customerUsage;
+            this.quotaAvailability = quotaAvailability;
+        }
+    }
 
-        for (Promotion p : sorted) {
-            // Check if this promotion conflicts with any selected promotion
-            boolean hasConflict = selectedIds.stream()
-                    .anyMatch(selectedId -> {
-                        Set<UUID> conflicts = conflictMap.get(p.getId());
-                        return conflicts != null && conflicts.contains(selectedId);
-                    });
-
-            if (!hasConflict) {
-                selected.add(p);
-                selectedIds.add(p.getId());
-            }
+    /**
+     * Usage per customer cho tất cả live promotions có giới hạn usagePerCustomer (1 round trip)
+     */
+    private Map<UUID, Long> loadCustomerUsage(PromotionRuleIndex.Snapshot index, UUID customerId, LocalDateTime now) {
+        if (customerId == null) {
+            return Collections.emptyMap();
         }
+        Set<UUID> limitedPromotionIds = index.all().stream()
+                .filter(p -> p.isLiveAt(now))
+                .filter(p -> p.getPromotion().getUsagePerCustomer() != null)
+                .map(CompiledPromotion::getId)
+                .collect(Collectors.toSet());
+        return usageCache.getUsageCounts(customerId, limitedPromotionIds);
+    }
 
-        return selected;
+    /**
+     * Quota của các live promotions có usageLimit (1 query trên quota shards, không cache)
+     */
+    private Map<UUID, Boolean> loadQuotaAvailability(PromotionRuleIndex.Snapshot index, LocalDateTime now) {
+        return quotaService.findShardAvailability(index.all().stream()
+                .filter(p -> p.isLiveAt(now))
+                .filter(CompiledPromotion::isQuotaLimited)
+                .map(CompiledPromotion::getId)
+                .collect(Collectors.toSet()));
     }
 
     private ApplyPromotionCodeRequest buildCartRequestFromOrder(Order order) {
@@ -1105,18 +1111,12 @@ public class PromotionServiceImpl implements PromotionService {
                     .orElse(null);
             if (promotion == null) continue;
 
+            // Chỉ các line optimizer đã chọn cho promotion (line khác có thể dùng promotion xung đột)
+            Set<UUID> variantIds = promoResponse.getProductVariantIds() != null
+                    ? new HashSet<>(promoResponse.getProductVariantIds())
+                    : Collections.emptySet();
             for (OrderItem item : order.getItems()) {
-                // Check if promotion applies to this item
-                UUID productId = item.getProduct().getId();
-                UUID categoryId = item.getProduct().getCategory() != null ?
-                        item.getProduct().getCategory().getId() : null;
-
-                boolean applies = promotion.getPromotionProducts().stream()
-                        .anyMatch(pp -> pp.getProduct().getId().equals(productId))
-                        || (categoryId != null && promotion.getPromotionCategories().stream()
-                        .anyMatch(pc -> pc.getCategory().getId().equals(categoryId)));
-
-                if (applies) {
+                if (variantIds.contains(item.getProductVariant().getId())) {
                     BigDecimal baseAmount = item.getUnitPrice()
                             .multiply(BigDecimal.valueOf(item.getQuantity()));
                     BigDecimal discount = promotion.calculateDiscount(baseAmount);
@@ -1154,6 +1154,37 @@ public class PromotionServiceImpl implements PromotionService {
         // This method can be used if needed
     }
 
+    /**
+     * Giữ 1 lượt quota cho mỗi promotion trong kết quả tính discount
+     */
+    private void reservePromotionQuota(CartDiscountCalculationResponse calculation) {
+        Set<UUID> promotionIds = new LinkedHashSet<>();
+        calculation.getProductPromotions().forEach(p -> promotionIds.add(p.getPromotionId()));
+        if (calculation.getOrderPromotion() != null) {
+            promotionIds.add(calculation.getOrderPromotion().getPromotionId());
+        }
+
+        for (UUID promotionId : promotionIds) {
+            Promotion promotion = promotionRepository.findById(promotionId)
+                    .orElseThrow(() -> new PromotionNotFoundException("id", promotionId));
+            if (!quotaService.tryReserve(promotion)) {
+                // Hết quota -> index rebuild ngay (transaction này sẽ rollback nên không dùng event)
+                promotionRuleIndex.invalidate();
+                throw new PromotionQuotaExceededException(promotion.getCode());
+            }
+        }
+    }
+
+    /**
+     * Usage history của customer thay đổi -> evict usage cache sau commit
+     */
+    private void publishUsageChanged(Order order, Set<UUID> promotionIds) {
+        if (order.getCustomer() != null && !promotionIds.isEmpty()) {
+            eventPublisher.publishEvent(new PromotionUsageChangedEvent(
+                    this, order.getCustomer().getId(), new HashSet<>(promotionIds)));
+        }
+    }
+
     private void createUsageHistory(Promotion promotion, Order order, BigDecimal discountAmount, UUID actorId) {
         PromotionUsageHistory history = PromotionUsageHistory.builder()
                 .promotion(promotion)
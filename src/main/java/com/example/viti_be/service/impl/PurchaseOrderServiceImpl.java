@@ -18,6 +18,7 @@ import com.example.viti_be.service.AuditLogService;
 import com.example.viti_be.service.InventoryService;
 import com.example.viti_be.service.PurchaseOrderService;
 import com.example.viti_be.service.SystemConfigService;
+import com.example.viti_be.service.inventory.StockSnapshotRecorder;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
@@ -71,6 +72,9 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
     @Autowired
     private InventoryService inventoryService;
 
+    @Autowired
+    private StockSnapshotRecorder stockSnapshotRecorder;
+
     @Autowired
     private AuditLogService auditLogService;
 
@@ -617,6 +621,7 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
         inventoryRepository.save(inventory);
 
         saveStockTransaction(inventory, quantity, quantityBefore, poNumber, actorId);
+        stockSnapshotRecorder.record(StockItemType.PRODUCT, quantity, variant.getSellingPrice());
         updateProductMovingAveragePrice(variant, quantityBefore, quantity, unitPrice);
     }
 
@@ -630,6 +635,7 @@ public class PurchaseOrderServiceImpl implements PurchaseOrderService {
         inventoryRepository.save(inventory);
 
         saveStockTransaction(inventory, quantity, quantityBefore, poNumber, actorId);
+        stockSnapshotRecorder.record(StockItemType.COMPONENT, quantity, part.getSellingPrice());
         updatePartMovingAveragePrice(part, quantityBefore, quantity, unitPrice);
     }
 
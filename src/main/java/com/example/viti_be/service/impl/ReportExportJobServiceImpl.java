@@ -0,0 +1,308 @@
+package com.example.viti_be.service.impl;
+
+import com.example.viti_be.dto.request.InventoryReportRequest;
+import com.example.viti_be.dto.request.ReportFilterRequest;
+import com.example.viti_be.dto.response.ExportJobResponse;
+import com.example.viti_be.dto.response.ExportReportResponse;
+import com.example.viti_be.exception.BadRequestException;
+import com.example.viti_be.exception.ResourceNotFoundException;
+import com.example.viti_be.model.Report;
+import com.example.viti_be.model.model_enum.ExportFormat;
+import com.example.viti_be.model.model_enum.ExportJobStatus;
+import com.example.viti_be.model.model_enum.ReportType;
+import com.example.viti_be.repository.ReportRepository;
+import com.example.viti_be.repository.UserRepository;
+import com.example.viti_be.service.ExportService;
+import com.example.viti_be.service.ReportExportJobService;
+import com.example.viti_be.service.ReportService;
+import com.example.viti_be.service.SseEmitterService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Export job chạy trên thread pool riêng (bounded), không giữ Tomcat worker trong lúc generate + upload.
+ *
+ * - Queue đầy: submit ném TaskRejectedException (503)
+ * - Trạng thái job giữ trong memory (TTL 1 giờ), mỗi lần đổi trạng thái push SSE event REPORT_EXPORT
+ * - Export giống hệt (cùng filter hash) đang chạy: trả về job đó thay vì chạy thêm
+ * - File đã upload lưu vào bảng reports; export giống hệt trong reuseMinutes dùng lại file, không generate lại
+ */
+@Service
+@Slf4j
+public class ReportExportJobServiceImpl implements ReportExportJobService {
+
+    static final String EVENT_NAME = "REPORT_EXPORT";
+
+    private static final Duration JOB_TTL = Duration.ofHours(1);
+    private static final long MAX_JOBS = 1_000;
+
+    private final ReportService reportService;
+    private final ExportService exportService;
+    private final ReportRepository reportRepository;
+    private final UserRepository userRepository;
+    private final SseEmitterService sseEmitterService;
+    private final ObjectMapper objectMapper;
+    private final Duration reuseWindow;
+
+    private final ThreadPoolTaskExecutor executor;
+    private final Cache<UUID, ExportJobResponse> jobs;
+
+    // filter hash -> job QUEUED/RUNNING
+    private final Map<String, UUID> inFlight = new ConcurrentHashMap<>();
+
+    public ReportExportJobServiceImpl(ReportService reportService,
+                                      ExportService exportService,
+                                      ReportRepository reportRepository,
+                                      UserRepository userRepository,
+                                      SseEmitterService sseEmitterService,
+                                      ObjectMapper objectMapper,
+                                      @Value("${viti.report.export.poolSize:2}") int poolSize,
+                                      @Value("${viti.report.export.queueCapacity:20}") int queueCapacity,
+                                      @Value("${viti.report.export.reuseMinutes:10}") long reuseMinutes) {
+        this.reportService = reportService;
+        this.exportService = exportService;
+        this.reportRepository = reportRepository;
+        this.userRepository = userRepository;
+        this.sseEmitterService = sseEmitterService;
+        this.objectMapper = objectMapper;
+        this.reuseWindow = Duration.ofMinutes(reuseMinutes);
+
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-export-");
+        executor.initialize();
+
+        this.jobs = Caffeine.newBuilder()
+                .expireAfterWrite(JOB_TTL)
+                .maximumSize(MAX_JOBS)
+                .build();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    @Override
+    public ExportJobResponse submitExport(ReportFilterRequest filter, String reportType, ExportFormat format,
+                                          UUID userId) {
+        ReportType type = parseReportType(reportType);
+        if (type == ReportType.INVENTORY) {
+            throw new BadRequestException("Use the inventory export endpoint for INVENTORY reports");
+        }
+
+        ExportRequest request = ExportRequest.of(type, format, toJson(filter),
+                filter.getStartDate(), filter.getEndDate(), userId);
+        return submit(request, out -> reportService.streamReport(filter, type.name(), format, out));
+    }
+
+    @Override
+    public ExportJobResponse submitInventoryExport(InventoryReportRequest filter, ExportFormat format,
+                                                   Pageable pageable, UUID userId) {
+        Map<String, Object> filters = new LinkedHashMap<>();
+        filters.put("filter", filter);
+        filters.put("page", pageable.getPageNumber());
+        filters.put("size", pageable.getPageSize());
+        filters.put("sort", pageable.getSort().toString());
+
+        ExportRequest request = ExportRequest.of(ReportType.INVENTORY, format, toJson(filters),
+                filter.getStartDate(), filter.getEndDate(), userId);
+        return submit(request, out -> exportService.writeReport(
+                reportService.getInventoryReport(filter, pageable), ReportType.INVENTORY.name(), format, out));
+    }
+
+    @Override
+    public ExportJobResponse getJob(UUID jobId) {
+        ExportJobResponse job = jobs.getIfPresent(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export job not found: " + jobId);
+        }
+        return job;
+    }
+
+    private ExportJobResponse submit(ExportRequest request, ExportService.ReportWriter writer) {
+        String filterHash = request.filterHash();
+
+        // File của export giống hệt còn trong reuse window
+        Optional<Report> stored = reportRepository.findFirstByFilterHashAndIsDeletedFalseAndCreatedAtAfterOrderByCreatedAtDesc(
+                filterHash, LocalDateTime.now().minus(reuseWindow));
+        if (stored.isPresent()) {
+            Report report = stored.get();
+            ExportJobResponse job = newJob(request).toBuilder()
+                    .status(ExportJobStatus.COMPLETED)
+                    .progress(100)
+                    .message("Reused report exported at " + report.getCreatedAt())
+                    .fileUrl(report.getFileUrl())
+                    .fileName(fileNameOf(report.getFileUrl()))
+                    .reused(true)
+                    .finishedAt(LocalDateTime.now())
+                    .build();
+            jobs.put(job.getJobId(), job);
+            return job;
+        }
+
+        ExportJobResponse job = newJob(request);
+        jobs.put(job.getJobId(), job);
+
+        // Export giống hệt đang chạy -> dùng chung job đó
+        UUID running = inFlight.putIfAbsent(filterHash, job.getJobId());
+        if (running != null) {
+            ExportJobResponse current = jobs.getIfPresent(running);
+            if (current != null) {
+                jobs.invalidate(job.getJobId());
+                return current;
+            }
+            inFlight.put(filterHash, job.getJobId());
+        }
+
+        publish(job);
+        try {
+            executor.execute(() -> run(job, request, writer));
+        } catch (TaskRejectedException e) {
+            inFlight.remove(filterHash, job.getJobId());
+            log.warn("Report export queue is full, rejected {} {} export", request.type(), request.format());
+            complete(job.getJobId(), current -> current.toBuilder()
+                    .status(ExportJobStatus.FAILED)
+                    .message("Export queue is full"));
+            throw e;
+        }
+        return job;
+    }
+
+    private void run(ExportJobResponse job, ExportRequest request, ExportService.ReportWriter writer) {
+        update(job.getJobId(), ExportJobStatus.RUNNING, 10, "Generating report");
+        try {
+            ExportReportResponse result = exportService.exportReport(request.type().name(), request.format(), out -> {
+                writer.write(out);
+                // File đã ghi xong ra temp file, còn lại là upload
+                update(job.getJobId(), ExportJobStatus.RUNNING, 70, "Uploading report");
+            });
+
+            reportRepository.save(Report.builder()
+                    .reportType(request.type())
+                    .generatedBy(request.userId() != null ? userRepository.getReferenceById(request.userId()) : null)
+                    .startDate(request.startDate())
+                    .endDate(request.endDate())
+                    .filters(request.filters())
+                    .exportFormat(request.format())
+                    .fileUrl(result.getFileUrl())
+                    .filterHash(request.filterHash())
+                    .build());
+
+            complete(job.getJobId(), current -> current.toBuilder()
+                    .status(ExportJobStatus.COMPLETED)
+                    .progress(100)
+                    .message(result.getMessage())
+                    .fileUrl(result.getFileUrl())
+                    .fileName(result.getFileName()));
+        } catch (Exception e) {
+            log.error("Report export job {} failed: {}", job.getJobId(), e.getMessage(), e);
+            complete(job.getJobId(), current -> current.toBuilder()
+                    .status(ExportJobStatus.FAILED)
+                    .message(e.getMessage()));
+        } finally {
+            inFlight.remove(request.filterHash(), job.getJobId());
+        }
+    }
+
+    private void update(UUID jobId, ExportJobStatus status, int progress, String message) {
+        ExportJobResponse updated = jobs.asMap().computeIfPresent(jobId, (id, current) -> current.toBuilder()
+                .status(status)
+                .progress(progress)
+                .message(message)
+                .build());
+        if (updated != null) {
+            publish(updated);
+        }
+    }
+
+    private void complete(UUID jobId, Function<ExportJobResponse, ExportJobResponse.ExportJobResponseBuilder> change) {
+        ExportJobResponse updated = jobs.asMap().computeIfPresent(jobId, (id, current) -> change.apply(current)
+                .finishedAt(LocalDateTime.now())
+                .build());
+        if (updated != null) {
+            publish(updated);
+        }
+    }
+
+    private void publish(ExportJobResponse job) {
+        sseEmitterService.sendEventToAll(EVENT_NAME, job);
+    }
+
+    private ExportJobResponse newJob(ExportRequest request) {
+        return ExportJobResponse.builder()
+                .jobId(UUID.randomUUID())
+                .reportType(request.type())
+                .format(request.format())
+                .status(ExportJobStatus.QUEUED)
+                .progress(0)
+                .message("Export queued")
+                .reused(false)
+                .submittedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private ReportType parseReportType(String reportType) {
+        try {
+            return ReportType.valueOf(reportType.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("Invalid report type: " + reportType);
+        }
+    }
+
+    private String toJson(Object filters) {
+        try {
+            return objectMapper.writeValueAsString(filters);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Cannot serialize report filters", e);
+        }
+    }
+
+    private static String fileNameOf(String fileUrl) {
+        return fileUrl != null ? fileUrl.substring(fileUrl.lastIndexOf('/') + 1) : null;
+    }
+
+    /**
+     * Tham số của 1 export; filters là JSON (lưu vào reports.filters, cũng là input của filter hash)
+     */
+    private record ExportRequest(ReportType type, ExportFormat format, String filters, String filterHash,
+                                 LocalDate startDate, LocalDate endDate, UUID userId) {
+
+        static ExportRequest of(ReportType type, ExportFormat format, String filters,
+                                LocalDate startDate, LocalDate endDate, UUID userId) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest((type + "|" + format + "|" + filters).getBytes(StandardCharsets.UTF_8));
+                return new ExportRequest(type, format, filters, HexFormat.of().formatHex(digest),
+                        startDate, endDate, userId);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -5,28 +5,34 @@ import com.example.viti_be.dto.request.ReportFilterRequest;
 import com.example.viti_be.dto.response.*;
 import com.example.viti_be.mapper.ReportMapper;
 import com.example.viti_be.model.model_enum.*;
+import com.example.viti_be.repository.DailySalesRollupRepository;
 import com.example.viti_be.repository.InventoryRepository;
 import com.example.viti_be.repository.OrderRepository;
 import com.example.viti_be.repository.projection.*;
 import com.example.viti_be.service.ExportService;
 import com.example.viti_be.service.ReportService;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @RequiredArgsConstructor
@@ -35,6 +41,7 @@ import java.util.stream.Collectors;
 public class ReportServiceImpl implements ReportService {
 
     private final OrderRepository orderRepository;
+    private final DailySalesRollupRepository rollupRepository;
     private final InventoryRepository inventoryRepository;
     private final ReportMapper reportMapper;
     private final ExportService exportService;
@@ -48,143 +55,55 @@ public class ReportServiceImpl implements ReportService {
     public RevenueReportResponse getRevenueReport(ReportFilterRequest filter) {
         log.info("Generating revenue report for period: {} to {}", filter.getStartDate(), filter.getEndDate());
 
-        LocalDateTime startDateTime = filter.getStartDate().atStartOfDay();
-        LocalDateTime endDateTime = filter.getEndDate().atTime(LocalTime.MAX);
-
-        // Get breakdown by period
-        List<RevenueReportResponse.RevenueByPeriod> breakdown = getRevenueBreakdown(
-                startDateTime,
-                endDateTime,
-                filter
-        );
-
-        // Calculate total revenue
-        BigDecimal totalRevenue = breakdown.stream()
-                .map(RevenueReportResponse.RevenueByPeriod::getRevenue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        Long totalOrders = breakdown.stream()
-                .map(RevenueReportResponse.RevenueByPeriod::getOrderCount)
-                .reduce(0L, Long::sum);
-
-        // Get breakdown by order type
-        List<RevenueByTypeProjection> byTypeProjections = orderRepository.getRevenueByOrderType(
-                startDateTime,
-                endDateTime,
-                filter.getOrderStatus(),
-                filter.getCustomerTierId() != null ?
-                        UUID.fromString(filter.getCustomerTierId().toString()) : null
-        );
+        GroupBy groupBy = filter.getGroupBy() != null ? filter.getGroupBy() : GroupBy.DAY;
 
-        List<RevenueReportResponse.RevenueByType> byOrderType = byTypeProjections.stream()
-                .map(reportMapper::toRevenueByType)
-                .collect(Collectors.toList());
+        // Kỳ trước có cùng số ngày, kết thúc ngay trước startDate
+        long daysBetween = ChronoUnit.DAYS.between(filter.getStartDate(), filter.getEndDate()) + 1;
+        LocalDate previousStartDate = filter.getStartDate().minusDays(daysBetween);
+        ReportRange range = ReportRange.of(previousStartDate, filter.getEndDate(), rollupRepository.findClosedThrough());
 
-        // Calculate comparison with previous period
-        RevenueReportResponse.ComparisonData comparison = calculateComparison(
+        // Breakdown, theo loại đơn và kỳ trước trong 1 statement
+        List<RevenueSummaryProjection> rows = rollupRepository.getRevenueSummary(
                 filter.getStartDate(),
-                filter.getEndDate(),
-                totalRevenue,
-                filter
+                groupBy.name().toLowerCase(),
+                range.closedStart(),
+                range.closedEnd(),
+                range.liveStart(),
+                range.liveEnd(),
+                nameOf(filter.getOrderStatus()),
+                nameOf(filter.getOrderType()),
+                nameOf(filter.getPaymentMethod()),
+                filter.getEmployeeId() != null ? filter.getEmployeeId().toString() : null,
+                filter.getCustomerTierId() != null ? filter.getCustomerTierId().toString() : null
         );
 
+        List<RevenueReportResponse.RevenueByPeriod> breakdown = new ArrayList<>();
+        List<RevenueReportResponse.RevenueByType> byOrderType = new ArrayList<>();
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        Long totalOrders = 0L;
+        BigDecimal previousRevenue = BigDecimal.ZERO;
+
+        for (RevenueSummaryProjection row : rows) {
+            switch (row.getRowType()) {
+                case "PERIOD" -> breakdown.add(reportMapper.toRevenueByPeriod(row));
+                case "ORDER_TYPE" -> byOrderType.add(reportMapper.toRevenueByType(row));
+                default -> {
+                    totalRevenue = row.getTotalRevenue();
+                    totalOrders = row.getOrderCount();
+                    previousRevenue = row.getPreviousRevenue();
+                }
+            }
+        }
+
         return RevenueReportResponse.builder()
                 .totalRevenue(totalRevenue)
                 .totalOrders(totalOrders)
                 .breakdown(breakdown)
                 .byOrderType(byOrderType)
-                .comparison(comparison)
+                .comparison(reportMapper.buildComparison(totalRevenue, previousRevenue))
                 .build();
     }
 
-    private List<RevenueReportResponse.RevenueByPeriod> getRevenueBreakdown(
-            LocalDateTime startDateTime,
-            LocalDateTime endDateTime,
-            ReportFilterRequest filter) {
-
-        GroupBy groupBy = filter.getGroupBy() != null ? filter.getGroupBy() : GroupBy.DAY;
-
-        return switch (groupBy) {
-            case DAY -> {
-                List<RevenueProjection> dayProjections = orderRepository.getRevenueByDay(
-                        startDateTime,
-                        endDateTime,
-                        filter.getOrderStatus(),
-                        filter.getOrderType(),
-                        filter.getPaymentMethod(),
-                        filter.getEmployeeId(),
-                        filter.getCustomerTierId() != null ?
-                                UUID.fromString(filter.getCustomerTierId().toString()) : null
-                );
-                yield dayProjections.stream()
-                        .map(reportMapper::toRevenueByPeriod)
-                        .collect(Collectors.toList());
-            }
-            case WEEK -> {
-                List<Object[]> weekRows = orderRepository.getRevenueByWeekNative(
-                        startDateTime,
-                        endDateTime,
-                        filter.getOrderStatus() != null ? filter.getOrderStatus().name() : null,
-                        filter.getOrderType() != null ? filter.getOrderType().name() : null,
-                        filter.getPaymentMethod() != null ? filter.getPaymentMethod().name() : null,
-                        filter.getEmployeeId() != null ? filter.getEmployeeId().toString() : null,
-                        filter.getCustomerTierId() != null ? filter.getCustomerTierId().toString() : null
-                );
-                yield weekRows.stream()
-                        .map(reportMapper::toRevenueByPeriodFromNative)
-                        .collect(Collectors.toList());
-            }
-            case MONTH -> {
-                List<Object[]> monthRows = orderRepository.getRevenueByMonthNative(
-                        startDateTime,
-                        endDateTime,
-                        filter.getOrderStatus() != null ? filter.getOrderStatus().name() : null,
-                        filter.getOrderType() != null ? filter.getOrderType().name() : null,
-                        filter.getPaymentMethod() != null ? filter.getPaymentMethod().name() : null,
-                        filter.getEmployeeId() != null ? filter.getEmployeeId().toString() : null,
-                        filter.getCustomerTierId() != null ? filter.getCustomerTierId().toString() : null
-                );
-                yield monthRows.stream()
-                        .map(reportMapper::toRevenueByPeriodFromNative)
-                        .collect(Collectors.toList());
-            }
-            default -> throw new IllegalArgumentException("Invalid groupBy value: " + groupBy);
-        };
-    }
-
-    private RevenueReportResponse.ComparisonData calculateComparison(
-            LocalDate startDate,
-            LocalDate endDate,
-            BigDecimal currentRevenue,
-            ReportFilterRequest filter) {
-
-        // Calculate previous period
-        long daysBetween = ChronoUnit.DAYS.between(startDate, endDate) + 1;
-        LocalDate previousStartDate = startDate.minusDays(daysBetween);
-        LocalDate previousEndDate = startDate.minusDays(1);
-
-        LocalDateTime previousStartDateTime = previousStartDate.atStartOfDay();
-        LocalDateTime previousEndDateTime = previousEndDate.atTime(LocalTime.MAX);
-
-        // Get previous period revenue
-        List<RevenueProjection> previousProjections = orderRepository.getRevenueByDay(
-                previousStartDateTime,
-                previousEndDateTime,
-                filter.getOrderStatus(),
-                filter.getOrderType(),
-                filter.getPaymentMethod(),
-                filter.getEmployeeId(),
-                filter.getCustomerTierId() != null ?
-                        UUID.fromString(filter.getCustomerTierId().toString()) : null
-        );
-
-        BigDecimal previousRevenue = previousProjections.stream()
-                .map(RevenueProjection::getTotalRevenue)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        return reportMapper.buildComparison(currentRevenue, previousRevenue);
-    }
-
     // ============================================
     // PROFIT REPORT
     // ============================================
@@ -194,20 +113,10 @@ public class ReportServiceImpl implements ReportService {
     public ProfitReportResponse getProfitReport(ReportFilterRequest filter) {
         log.info("Generating profit report for period: {} to {}", filter.getStartDate(), filter.getEndDate());
 
-        LocalDateTime startDateTime = filter.getStartDate().atStartOfDay();
-        LocalDateTime endDateTime = filter.getEndDate().atTime(LocalTime.MAX);
-
-        List<ProfitProjection> projections = orderRepository.getProfitByProduct(
-                startDateTime,
-                endDateTime,
-                filter.getOrderStatus(),
-                filter.getCategoryId(),
-                filter.getSupplierId()
-        );
-
-        List<ProfitReportResponse.ProfitByProduct> details = projections.stream()
-                .map(reportMapper::toProfitByProduct)
-                .collect(Collectors.toList());
+        List<ProfitReportResponse.ProfitByProduct> details;
+        try (Stream<ProfitProjection> rows = streamProfitByProduct(filter)) {
+            details = rows.map(reportMapper::toProfitByProduct).collect(Collectors.toList());
+        }
 
         // Calculate totals
         BigDecimal totalRevenue = details.stream()
@@ -218,6 +127,27 @@ public class ReportServiceImpl implements ReportService {
                 .map(ProfitReportResponse.ProfitByProduct::getCost)
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
 
+        return profitReport(totalRevenue, totalCost, details);
+    }
+
+    /**
+     * Lợi nhuận theo variant (rollup ngày đã chốt + live các ngày chưa chốt trong 1 statement), đọc theo cursor
+     */
+    private Stream<ProfitProjection> streamProfitByProduct(ReportFilterRequest filter) {
+        ReportRange range = ReportRange.of(filter.getStartDate(), filter.getEndDate(), rollupRepository.findClosedThrough());
+        return rollupRepository.streamProfitByProduct(
+                range.closedStart(),
+                range.closedEnd(),
+                range.liveStart(),
+                range.liveEnd(),
+                nameOf(filter.getOrderStatus()),
+                filter.getCategoryId() != null ? filter.getCategoryId().toString() : null,
+                filter.getSupplierId() != null ? filter.getSupplierId().toString() : null
+        );
+    }
+
+    private ProfitReportResponse profitReport(BigDecimal totalRevenue, BigDecimal totalCost,
+                                              List<ProfitReportResponse.ProfitByProduct> details) {
         BigDecimal grossProfit = totalRevenue.subtract(totalCost);
 
         double profitMargin = 0.0;
@@ -247,34 +177,37 @@ public class ReportServiceImpl implements ReportService {
         log.info("Generating top products report for period: {} to {}",
                 filter.getStartDate(), filter.getEndDate());
 
-        LocalDateTime startDateTime = filter.getStartDate().atStartOfDay();
-        LocalDateTime endDateTime = filter.getEndDate().atTime(LocalTime.MAX);
-
-        SortBy sortBy = filter.getSortBy() != null ? filter.getSortBy() : SortBy.REVENUE;
-
-        List<TopProductProjection> projections;
-
-        if (sortBy == SortBy.QUANTITY) {
-            projections = orderRepository.getTopProductsByQuantity(
-                    startDateTime,
-                    endDateTime,
-                    filter.getOrderStatus(),
+        ReportRange range = ReportRange.of(filter.getStartDate(), filter.getEndDate(), rollupRepository.findClosedThrough());
+        Map<UUID, ProductTotals> totals = new LinkedHashMap<>();
+        if (range.hasClosedDays()) {
+            rollupRepository.getTopProducts(
+                    range.closedStart(),
+                    range.closedEnd(),
+                    nameOf(filter.getOrderStatus()),
                     filter.getCategoryId()
-            );
-        } else {
-            projections = orderRepository.getTopProductsByRevenue(
-                    startDateTime,
-                    endDateTime,
+            ).forEach(row -> ProductTotals.merge(totals, row));
+        }
+        if (range.hasLiveDays()) {
+            // Live rows của các ngày chưa chốt, thứ tự không quan trọng (sắp xếp lại sau khi gộp)
+            orderRepository.getTopProductsByRevenue(
+                    range.liveStart(),
+                    range.liveEnd(),
                     filter.getOrderStatus(),
                     filter.getCategoryId()
-            );
+            ).forEach(row -> ProductTotals.merge(totals, row));
         }
 
+        SortBy sortBy = filter.getSortBy() != null ? filter.getSortBy() : SortBy.REVENUE;
+        Comparator<ProductTotals> order = sortBy == SortBy.QUANTITY
+                ? Comparator.comparing(ProductTotals::getQuantitySold, Comparator.reverseOrder())
+                : Comparator.comparing(ProductTotals::getTotalRevenue, Comparator.nullsLast(Comparator.reverseOrder()));
+
         // Apply limit
         int limit = filter.getLimit() != null ? filter.getLimit() : 10;
 
         AtomicInteger rank = new AtomicInteger(1);
-        List<TopProductsReportResponse.TopProduct> topProducts = projections.stream()
+        List<TopProductsReportResponse.TopProduct> topProducts = totals.values().stream()
+                .sorted(order)
                 .limit(limit)
                 .map(p -> reportMapper.toTopProduct(p, rank.getAndIncrement()))
                 .collect(Collectors.toList());
@@ -359,13 +292,121 @@ public class ReportServiceImpl implements ReportService {
 
         log.info("Exporting {} report in {} format", reportType, format);
 
-        Object reportData = switch (reportType.toUpperCase()) {
-            case "REVENUE" -> getRevenueReport(filter);
-            case "PROFIT" -> getProfitReport(filter);
-            case "TOP_PRODUCTS" -> getTopProductsReport(filter);
-            default -> throw new IllegalArgumentException("Invalid report type: " + reportType);
-        };
+        return exportService.exportReport(reportType, format, out -> streamReport(filter, reportType, format, out));
+    }
+
+    @Override
+    public void streamReport(ReportFilterRequest filter, String reportType, ExportFormat format, OutputStream out)
+            throws IOException {
+        if (!"PROFIT".equalsIgnoreCase(reportType)) {
+            Object reportData = switch (reportType.toUpperCase()) {
+                case "REVENUE" -> getRevenueReport(filter);
+                case "TOP_PRODUCTS" -> getTopProductsReport(filter);
+                default -> throw new IllegalArgumentException("Invalid report type: " + reportType);
+            };
+            exportService.writeReport(reportData, reportType, format, out);
+            return;
+        }
+
+        try (Stream<ProfitProjection> rows = streamProfitByProduct(filter)) {
+            // Tổng toàn báo cáo có sẵn trên mọi dòng, lấy từ dòng đầu để ghi header trước khi stream chi tiết
+            Iterator<ProfitProjection> iterator = rows.iterator();
+            ProfitProjection first = iterator.hasNext() ? iterator.next() : null;
+            ProfitReportResponse summary = first != null
+                    ? profitReport(first.getReportRevenue(), first.getReportCost(), List.of())
+                    : profitReport(BigDecimal.ZERO, BigDecimal.ZERO, List.of());
+
+            if (format == ExportFormat.CSV) {
+                Stream<ProfitProjection> rest = StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+                exportService.writeProfitCSV(summary,
+                        Stream.concat(Stream.ofNullable(first), rest).map(reportMapper::toProfitByProduct).iterator(),
+                        out);
+            } else {
+                exportService.writeReport(summary, reportType, format, out);
+            }
+        }
+    }
+
+    @Override
+    public void streamInventoryReport(InventoryReportRequest filter, ExportFormat format, Sort sort, OutputStream out)
+            throws IOException {
+        log.info("Streaming inventory report in {} format", format);
 
-        return exportService.exportReport(reportData, reportType, format);
+        Boolean lowStockOnly = filter.getLowStockOnly() != null ? filter.getLowStockOnly() : false;
+
+        InventoryReportResponse summary = InventoryReportResponse.builder()
+                .totalProducts((int) inventoryRepository.countInventoryReport(filter.getCategoryId(), lowStockOnly))
+                .lowStockProducts(inventoryRepository.countLowStockProducts().intValue())
+                .outOfStockProducts(inventoryRepository.countOutOfStockProducts().intValue())
+                .items(List.of())
+                .build();
+
+        if (format != ExportFormat.CSV) {
+            exportService.writeReport(summary, "INVENTORY", format, out);
+            return;
+        }
+
+        try (Stream<InventoryProjection> rows = inventoryRepository.streamInventoryReport(
+                filter.getCategoryId(), lowStockOnly, sort)) {
+            exportService.writeInventoryCSV(summary, rows.map(reportMapper::toInventoryItem).iterator(), out);
+        }
+    }
+
+    private static String nameOf(Enum<?> value) {
+        return value != null ? value.name() : null;
+    }
+
+    /**
+     * Range báo cáo [startDate, endDate] tách làm 2 phần:
+     * các ngày tới closedThrough (đã chốt, đọc daily_sales_rollup) và các ngày sau đó (đọc live orders)
+     */
+    private record ReportRange(LocalDate closedStart, LocalDate closedEnd,
+                               LocalDateTime liveStart, LocalDateTime liveEnd) {
+
+        static ReportRange of(LocalDate startDate, LocalDate endDate, LocalDate closedThrough) {
+            LocalDate closedEnd = endDate.isAfter(closedThrough) ? closedThrough : endDate;
+            LocalDate liveStart = startDate.isAfter(closedThrough) ? startDate : closedThrough.plusDays(1);
+            return new ReportRange(startDate, closedEnd, liveStart.atStartOfDay(), endDate.atTime(LocalTime.MAX));
+        }
+
+        boolean hasClosedDays() {
+            return !closedStart.isAfter(closedEnd);
+        }
+
+        boolean hasLiveDays() {
+            return !liveStart.isAfter(liveEnd);
+        }
+    }
+
+    /**
+     * Tổng theo variant sau khi gộp phần rollup + phần live
+     */
+    @Getter
+    private static class ProductTotals implements TopProductProjection {
+        private final UUID productVariantId;
+        private final String productName;
+        private final String variantName;
+        private final String sku;
+        private Integer quantitySold = 0;
+        private BigDecimal totalRevenue;
+
+        private ProductTotals(UUID productVariantId, String productName, String variantName, String sku) {
+            this.productVariantId = productVariantId;
+            this.productName = productName;
+            this.variantName = variantName;
+            this.sku = sku;
+        }
+
+        static void merge(Map<UUID, ProductTotals> totals, TopProductProjection row) {
+            ProductTotals merged = totals.computeIfAbsent(row.getProductVariantId(), id ->
+                    new ProductTotals(id, row.getProductName(), row.getVariantName(), row.getSku()));
+            merged.quantitySold += row.getQuantitySold() != null ? row.getQuantitySold() : 0;
+            if (row.getTotalRevenue() != null) {
+                merged.totalRevenue = merged.totalRevenue != null
+                        ? merged.totalRevenue.add(row.getTotalRevenue())
+                        : row.getTotalRevenue();
+            }
+        }
     }
-}
\ No newline at end of file
+}
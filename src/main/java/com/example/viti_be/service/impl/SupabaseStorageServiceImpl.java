@@ -5,9 +5,13 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 @Service
 @RequiredArgsConstructor
 @Slf4j
@@ -54,6 +58,41 @@ public class SupabaseStorageServiceImpl implements SupabaseStorageService {
         }
     }
 
+    @Override
+    public String uploadFile(String bucketName, String fileName, Path file, String contentType) {
+        try {
+            String uploadUrl = String.format("%s/storage/v1/object/%s/%s",
+                    supabaseUrl, bucketName, fileName);
+            long contentLength = Files.size(file);
+
+            // Có Content-Length -> request body được ghi thẳng ra socket (fixed-length streaming)
+            HttpStatusCode status = restTemplate.execute(
+                    uploadUrl,
+                    HttpMethod.POST,
+                    request -> {
+                        HttpHeaders headers = request.getHeaders();
+                        headers.set("Authorization", "Bearer " + supabaseKey);
+                        headers.setContentType(MediaType.parseMediaType(contentType));
+                        headers.setContentLength(contentLength);
+                        Files.copy(file, request.getBody());
+                    },
+                    ClientHttpResponse::getStatusCode
+            );
+
+            if (status == HttpStatus.OK) {
+                // Return public URL
+                return String.format("%s/storage/v1/object/public/%s/%s",
+                        supabaseUrl, bucketName, fileName);
+            } else {
+                throw new RuntimeException("Failed to upload file to Supabase Storage");
+            }
+
+        } catch (Exception e) {
+            log.error("Error uploading file to Supabase: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to upload file", e);
+        }
+    }
+
     @Override
     public void deleteFile(String bucketName, String fileName) {
         try {
@@ -2,13 +2,16 @@ package com.example.viti_be.service.impl;
 
 import com.example.viti_be.dto.request.SystemConfigRequest;
 import com.example.viti_be.dto.response.SystemConfigResponse;
+import com.example.viti_be.event.SystemConfigChangedEvent;
 import com.example.viti_be.exception.BadRequestException;
 import com.example.viti_be.exception.ResourceNotFoundException;
 import com.example.viti_be.model.SystemConfig;
 import com.example.viti_be.repository.SystemConfigRepository;
 import com.example.viti_be.service.SystemConfigService;
+import com.example.viti_be.service.config.SystemConfigCache;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,6 +27,12 @@ public class SystemConfigServiceImpl implements SystemConfigService {
     @Autowired
     private SystemConfigRepository systemConfigRepository;
 
+    @Autowired
+    private SystemConfigCache systemConfigCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     @Transactional
     public SystemConfigResponse createConfig(SystemConfigRequest request) {
@@ -39,6 +48,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         config.setIsEncrypted(request.getIsEncrypted());
 
         SystemConfig savedConfig = systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(this, savedConfig.getConfigKey()));
         return mapToResponse(savedConfig);
     }
 
@@ -59,6 +69,7 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         config.setIsEncrypted(request.getIsEncrypted());
 
         SystemConfig updatedConfig = systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(this, updatedConfig.getConfigKey()));
         return mapToResponse(updatedConfig);
     }
 
@@ -95,20 +106,21 @@ public class SystemConfigServiceImpl implements SystemConfigService {
                 .orElseThrow(() -> new ResourceNotFoundException("System config not found"));
         config.setIsDeleted(true);
         systemConfigRepository.save(config);
+        eventPublisher.publishEvent(new SystemConfigChangedEvent(this, config.getConfigKey()));
     }
 
     @Override
     public String getStringValue(String key, String defaultValue) {
         try {
-            SystemConfig config = systemConfigRepository.findByConfigKey(key)
-                    .orElse(null);
+            // Đọc từ SystemConfigCache (chỉ chứa keys chưa bị xoá), không query DB
+            String value = systemConfigCache.get(key);
 
-            if (config == null || Boolean.TRUE.equals(config.getIsDeleted())) {
+            if (value == null) {
                 log.warn("Config key not found, using default: {} = {}", key, defaultValue);
                 return defaultValue;
             }
 
-            return config.getConfigValue();
+            return value;
         } catch (Exception e) {
             log.error("Error getting config {}, using default: {}", key, defaultValue, e);
             return defaultValue;
@@ -206,6 +218,11 @@ public class SystemConfigServiceImpl implements SystemConfigService {
         return getDecimalValue("MIN_ORDER_VALUE", new BigDecimal("100000"));
     }
 
+    @Override
+    public Integer getOrderReservationTtlMinutes() {
+        return getIntegerValue("ORDER_RESERVATION_TTL_MINUTES", 1440);
+    }
+
     private SystemConfigResponse mapToResponse(SystemConfig config) {
         return SystemConfigResponse.builder()
                 .id(config.getId())
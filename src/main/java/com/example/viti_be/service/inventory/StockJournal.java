@@ -0,0 +1,108 @@
+package com.example.viti_be.service.inventory;
+
+import com.example.viti_be.model.StockJournalEntry;
+import com.example.viti_be.model.model_enum.StockMovementType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Ghi stock_journal theo kiểu write-behind trong transaction nghiệp vụ.
+ *
+ * - append() chỉ thêm vào buffer của transaction hiện tại (không round trip DB)
+ * - beforeCommit: ghi cả buffer bằng multi-row INSERT, cùng connection/transaction với nghiệp vụ
+ *   -> commit thì journal có đủ, rollback thì không có dòng nào (giống transactional outbox)
+ * - Không có transaction: ghi ngay
+ * - REQUIRES_NEW có buffer riêng (synchronizations của transaction ngoài bị suspend)
+ */
+@Component
+@RequiredArgsConstructor
+public class StockJournal {
+
+    private static final int MAX_ROWS_PER_INSERT = 500;
+    private static final String INSERT_PREFIX = "INSERT INTO stock_journal "
+            + "(id, movement_type, product_variant_id, part_component_id, quantity, reference, actor_id, created_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void append(StockMovementType type, UUID productVariantId, UUID partComponentId,
+                       int quantity, String reference, UUID actorId) {
+        StockJournalEntry entry = StockJournalEntry.builder()
+                .id(UUID.randomUUID())
+                .movementType(type)
+                .productVariantId(productVariantId)
+                .partComponentId(partComponentId)
+                .quantity(quantity)
+                .reference(reference)
+                .actorId(actorId)
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            write(List.of(entry));
+            return;
+        }
+        currentBuffer().entries.add(entry);
+    }
+
+    private Buffer currentBuffer() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Buffer buffer && buffer.owner() == this) {
+                return buffer;
+            }
+        }
+        Buffer buffer = new Buffer();
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    private void write(List<StockJournalEntry> entries) {
+        for (int from = 0; from < entries.size(); from += MAX_ROWS_PER_INSERT) {
+            List<StockJournalEntry> chunk = entries.subList(from, Math.min(from + MAX_ROWS_PER_INSERT, entries.size()));
+
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+            List<Object> args = new ArrayList<>(chunk.size() * 8);
+            for (int i = 0; i < chunk.size(); i++) {
+                StockJournalEntry entry = chunk.get(i);
+                sql.append(i == 0 ? "" : ", ").append(ROW_PLACEHOLDERS);
+                args.add(entry.getId());
+                args.add(entry.getMovementType().name());
+                args.add(entry.getProductVariantId());
+                args.add(entry.getPartComponentId());
+                args.add(entry.getQuantity());
+                args.add(entry.getReference());
+                args.add(entry.getActorId());
+                args.add(entry.getCreatedAt());
+            }
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    /**
+     * Buffer của 1 transaction
+     */
+    private class Buffer implements TransactionSynchronization {
+
+        private final List<StockJournalEntry> entries = new ArrayList<>();
+
+        StockJournal owner() {
+            return StockJournal.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            if (!entries.isEmpty()) {
+                write(entries);
+                entries.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.viti_be.service.inventory;
+
+import com.example.viti_be.model.model_enum.StockItemType;
+import com.example.viti_be.repository.StockDailySnapshotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Ghi biến động tồn kho vào stock_daily_snapshots, cùng transaction với StockTransaction tương ứng
+ * (rollback thì snapshot cũng rollback).
+ */
+@Component
+@RequiredArgsConstructor
+public class StockSnapshotRecorder {
+
+    private final StockDailySnapshotRepository snapshotRepository;
+
+    /**
+     * @param quantityChange số lượng thay đổi (+ nhập, - xuất)
+     * @param unitPrice giá bán hiện tại của item (null = không tính giá trị)
+     */
+    @Transactional
+    public void record(StockItemType itemType, int quantityChange, BigDecimal unitPrice) {
+        BigDecimal valueChange = unitPrice != null
+                ? unitPrice.multiply(BigDecimal.valueOf(quantityChange))
+                : BigDecimal.ZERO;
+        recordTotal(itemType, quantityChange, valueChange);
+    }
+
+    /**
+     * Biến động gộp của nhiều items cùng loại (vd. xuất kho cả batch đơn), 1 lần ghi
+     * @param valueChange tổng giá trị thay đổi (cùng dấu với quantityChange)
+     */
+    @Transactional
+    public void recordTotal(StockItemType itemType, int quantityChange, BigDecimal valueChange) {
+        if (quantityChange == 0) {
+            return;
+        }
+        snapshotRepository.addMovement(LocalDate.now(), itemType.name(), quantityChange, valueChange);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.viti_be.service.order;
+
+import com.example.viti_be.repository.OrderNumberCounterRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * OrderNumberAllocator dùng counter theo ngày (order_number_counters) + prefetch block.
+ *
+ * - Mỗi lần hết block (hoặc sang ngày mới) lấy blockSize số tiếp theo bằng 1 upsert
+ * - Trong block: cấp phát trong memory, không round trip DB
+ * - Unique giữa các nodes (mỗi node giữ block riêng), tăng dần theo ngày trên từng node
+ * - Số trong block chưa dùng bị bỏ khi restart (đơn hàng có thể có khoảng trống số)
+ *
+ * Suffix 6 chữ số để không trùng với số cũ (5 chữ số random) đã phát trong cùng ngày.
+ */
+@Component
+@Slf4j
+public class BlockOrderNumberAllocator implements OrderNumberAllocator {
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final OrderNumberCounterRepository counterRepository;
+    private final int blockSize;
+    private final Clock clock;
+
+    private LocalDate currentDate;
+    private String prefix;
+    private long next;
+    private long blockEnd;
+
+    @Autowired
+    public BlockOrderNumberAllocator(OrderNumberCounterRepository counterRepository,
+                                     @Value("${viti.order.number.blockSize:500}") int blockSize) {
+        this(counterRepository, blockSize, Clock.systemDefaultZone());
+    }
+
+    BlockOrderNumberAllocator(OrderNumberCounterRepository counterRepository, int blockSize, Clock clock) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Order number block size must be > 0");
+        }
+        this.counterRepository = counterRepository;
+        this.blockSize = blockSize;
+        this.clock = clock;
+    }
+
+    @Override
+    public synchronized String nextOrderNumber() {
+        LocalDate today = LocalDate.now(clock);
+        if (!today.equals(currentDate) || next > blockEnd) {
+            fetchBlock(today);
+        }
+        return prefix + String.format("%06d", next++);
+    }
+
+    private void fetchBlock(LocalDate date) {
+        long last = counterRepository.reserveBlock(date, blockSize);
+        currentDate = date;
+        prefix = "ORD-" + date.format(DATE_FORMAT) + "-";
+        next = last - blockSize + 1;
+        blockEnd = last;
+        log.debug("Reserved order numbers {}..{} for {}", next, blockEnd, date);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.viti_be.service.order;
+
+import com.example.viti_be.model.model_enum.OrderStatus;
+import com.example.viti_be.repository.DailySalesRollupRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Ghi daily_sales_rollup.
+ *
+ * - Rollup của 1 ngày được dựng 1 lần khi ngày đã chốt (closeNextDay, DailySalesRollupScheduler)
+ * - Đơn của các ngày chưa chốt (luồng checkout bình thường) không ghi gì vào rollup, report đọc thẳng orders
+ * - Chỉ thay đổi của đơn thuộc ngày đã chốt mới được cộng/trừ vào rollup, cùng transaction với thay đổi của đơn
+ */
+@Component
+@RequiredArgsConstructor
+public class DailySalesRollupRecorder {
+
+    private final DailySalesRollupRepository rollupRepository;
+
+    /**
+     * Đơn vừa tạo (gọi sau khi đơn + items đã được save)
+     */
+    @Transactional
+    public void recordCreated(Collection<UUID> orderIds) {
+        applyToClosedDays(orderIds, closedBefore -> rollupRepository.applyOrders(orderIds, 1, closedBefore));
+    }
+
+    /**
+     * Các đơn vừa chuyển từ previousStatus sang status hiện tại trong orders:
+     * trừ đóng góp ở trạng thái cũ, cộng lại ở trạng thái mới
+     */
+    @Transactional
+    public void recordStatusChange(Collection<UUID> orderIds, OrderStatus previousStatus) {
+        applyToClosedDays(orderIds, closedBefore ->
+                rollupRepository.applyStatusChange(orderIds, previousStatus.name(), closedBefore));
+    }
+
+    /**
+     * Đơn sắp bị xoá (gọi trước khi xoá)
+     */
+    @Transactional
+    public void recordDeleted(Collection<UUID> orderIds) {
+        applyToClosedDays(orderIds, closedBefore -> rollupRepository.applyOrders(orderIds, -1, closedBefore));
+    }
+
+    /**
+     * Chốt ngày kế tiếp sau closed_through nếu ngày đó không sau closableThrough:
+     * dựng rollup của ngày từ orders và dời closed_through trong cùng transaction.
+     * @return ngày vừa chốt, null nếu chưa tới lúc chốt hoặc node khác vừa chốt ngày đó
+     */
+    @Transactional
+    public LocalDate closeNextDay(LocalDate closableThrough) {
+        LocalDate day = rollupRepository.findClosedThrough().plusDays(1);
+        if (day.isAfter(closableThrough) || rollupRepository.advanceClosedThrough(day) == 0) {
+            return null;
+        }
+        // Chạy sau khi đã giữ lock closed_through: các thay đổi commit trước đó đều được đọc,
+        // các thay đổi commit sau sẽ tự cộng/trừ vào rollup (applyToClosedDays)
+        rollupRepository.buildDays(day, day);
+        return day;
+    }
+
+    /**
+     * Đơn tạo hôm nay chắc chắn chưa chốt -> không đụng tới rollup, không lock.
+     * Còn lại: giữ FOR SHARE closed_through rồi chỉ áp dụng cho đơn thuộc ngày đã chốt
+     */
+    private void applyToClosedDays(Collection<UUID> orderIds, Consumer<LocalDateTime> apply) {
+        if (orderIds.isEmpty()
+                || !rollupRepository.existsOrderCreatedBefore(orderIds, LocalDate.now().atStartOfDay())) {
+            return;
+        }
+        apply.accept(rollupRepository.lockClosedThrough().plusDays(1).atStartOfDay());
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.viti_be.service.order;
+
+/**
+ * Cấp phát số đơn hàng (unique, format ORD-yyyyMMdd-NNNNNN)
+ */
+public interface OrderNumberAllocator {
+
+    String nextOrderNumber();
+}
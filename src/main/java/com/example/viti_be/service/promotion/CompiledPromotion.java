@@ -0,0 +1,110 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Bản "compiled" (immutable) của 1 ACTIVE promotion, được giữ trong PromotionRuleIndex.
+ *
+ * - promotion: bản copy detached của entity (không gắn với Hibernate session nào),
+ *   chỉ dùng các field đơn giản (calculateDiscount, mapper.toAppliedResponse)
+ * - allowedTierIds: id các customer tier được áp dụng (từ promotion_customer_tiers)
+ * - conflictIds: các promotion xung đột (đối xứng 2 chiều)
+ * Quota không được giữ ở đây (PromotionQuotaService.findExhausted check trực tiếp lúc tính giỏ).
+ */
+@Getter
+public final class CompiledPromotion {
+
+    private final Promotion promotion;
+    private final Set<UUID> allowedTierIds;
+    private final boolean tierRestricted;
+    private final Set<UUID> conflictIds;
+
+    CompiledPromotion(Promotion source, Set<UUID> allowedTierIds, Set<UUID> conflictIds) {
+        this.promotion = detachedCopy(source);
+        this.allowedTierIds = Collections.unmodifiableSet(allowedTierIds);
+        // Legacy JSON chưa migrate được -> vẫn giới hạn tier (không tier nào match)
+        this.tierRestricted = !allowedTierIds.isEmpty() || source.getApplicableCustomerTiers() != null;
+        this.conflictIds = Collections.unmodifiableSet(conflictIds);
+    }
+
+    public UUID getId() {
+        return promotion.getId();
+    }
+
+    public String getCode() {
+        return promotion.getCode();
+    }
+
+    public PromotionScope getScope() {
+        return promotion.getScope();
+    }
+
+    public int getPriority() {
+        return promotion.getPriority() != null ? promotion.getPriority() : 0;
+    }
+
+    /**
+     * Promotion có giới hạn tổng lượt dùng (usageLimit) không
+     */
+    public boolean isQuotaLimited() {
+        return promotion.getUsageLimit() != null;
+    }
+
+    public boolean requiresCode() {
+        return Boolean.TRUE.equals(promotion.getRequiresCode());
+    }
+
+    /**
+     * Kiểm tra promotion còn trong thời gian hiệu lực tại thời điểm now
+     * (cùng điều kiện với các query: startDate <= now < endDate)
+     */
+    public boolean isLiveAt(LocalDateTime now) {
+        return !promotion.getStartDate().isAfter(now) && promotion.getEndDate().isAfter(now);
+    }
+
+    /**
+     * Kiểm tra tier của customer (tierId null = guest hoặc chưa có tier)
+     */
+    public boolean isTierEligible(UUID tierId) {
+        if (!tierRestricted) {
+            return true;
+        }
+        return tierId != null && allowedTierIds.contains(tierId);
+    }
+
+    public boolean conflictsWith(UUID otherPromotionId) {
+        return conflictIds.contains(otherPromotionId);
+    }
+
+    private static Promotion detachedCopy(Promotion source) {
+        Promotion copy = Promotion.builder()
+                .code(source.getCode())
+                .name(source.getName())
+                .type(source.getType())
+                .scope(source.getScope())
+                .value(source.getValue())
+                .minOrderValue(source.getMinOrderValue())
+                .maxDiscountAmount(source.getMaxDiscountAmount())
+                .applicableCustomerTiers(source.getApplicableCustomerTiers())
+                .startDate(source.getStartDate())
+                .endDate(source.getEndDate())
+                .status(source.getStatus())
+                .usageLimit(source.getUsageLimit())
+                .usageCount(source.getUsageCount())
+                .usagePerCustomer(source.getUsagePerCustomer())
+                .priority(source.getPriority())
+                .requiresCode(source.getRequiresCode())
+                .description(source.getDescription())
+                .build();
+        copy.setId(source.getId());
+        copy.setIsDeleted(source.getIsDeleted());
+        return copy;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.event.PromotionUsageChangedEvent;
+import com.example.viti_be.repository.PromotionUsageHistoryRepository;
+import com.example.viti_be.repository.projection.PromotionUsageCountProjection;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Cache ngắn hạn số lần customer đã dùng từng promotion.
+ *
+ * - Cache miss: load tất cả promotions còn thiếu bằng 1 query GROUP BY
+ * - Entries bị evict SAU KHI commit các thay đổi PromotionUsageHistory
+ *   (validateAndConfirmPromotions / restorePromotionUsage) qua PromotionUsageChangedEvent
+ * - TTL ngắn để giới hạn độ lệch khi có nhiều node
+ */
+@Component
+@Slf4j
+public class CustomerPromotionUsageCache {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final long MAX_ENTRIES = 100_000;
+
+    private final PromotionUsageHistoryRepository usageHistoryRepository;
+    private final Cache<UsageKey, Long> cache;
+
+    public CustomerPromotionUsageCache(PromotionUsageHistoryRepository usageHistoryRepository) {
+        this.usageHistoryRepository = usageHistoryRepository;
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(TTL)
+                .maximumSize(MAX_ENTRIES)
+                .build();
+    }
+
+    /**
+     * Số lần customer đã dùng mỗi promotion (promotion chưa dùng -> 0)
+     */
+    public Map<UUID, Long> getUsageCounts(UUID customerId, Collection<UUID> promotionIds) {
+        if (customerId == null || promotionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Set<UsageKey> keys = promotionIds.stream()
+                .map(promotionId -> new UsageKey(customerId, promotionId))
+                .collect(Collectors.toSet());
+
+        Map<UsageKey, Long> cached = cache.getAll(keys, this::loadUsageCounts);
+
+        Map<UUID, Long> result = new HashMap<>();
+        cached.forEach((key, count) -> result.put(key.promotionId(), count));
+        return result;
+    }
+
+    public long getUsageCount(UUID customerId, UUID promotionId) {
+        return getUsageCounts(customerId, List.of(promotionId)).getOrDefault(promotionId, 0L);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUsageChanged(PromotionUsageChangedEvent event) {
+        if (event.getCustomerId() == null) {
+            return; // Guest checkout không có per-customer usage
+        }
+        cache.invalidateAll(event.getPromotionIds().stream()
+                .map(promotionId -> new UsageKey(event.getCustomerId(), promotionId))
+                .toList());
+    }
+
+    private Map<UsageKey, Long> loadUsageCounts(Set<? extends UsageKey> missingKeys) {
+        // Tất cả keys trong 1 lần getAll thuộc cùng 1 customer
+        UUID customerId = missingKeys.iterator().next().customerId();
+        Set<UUID> promotionIds = missingKeys.stream()
+                .map(UsageKey::promotionId)
+                .collect(Collectors.toSet());
+
+        Map<UsageKey, Long> loaded = new HashMap<>();
+        promotionIds.forEach(promotionId -> loaded.put(new UsageKey(customerId, promotionId), 0L));
+
+        for (PromotionUsageCountProjection row
+                : usageHistoryRepository.countByCustomerIdGroupByPromotion(customerId, promotionIds)) {
+            loaded.put(new UsageKey(customerId, row.getPromotionId()), row.getUsageCount());
+        }
+
+        log.debug("Loaded promotion usage of customer {} for {} promotions", customerId, promotionIds.size());
+        return loaded;
+    }
+
+    private record UsageKey(UUID customerId, UUID promotionId) {
+    }
+}
@@ -0,0 +1,470 @@
+package com.example.viti_be.service.promotion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Chọn tổ hợp promotions cho cả giỏ hàng sao cho tổng discount lớn nhất,
+ * với ràng buộc xung đột theo PromotionConflict graph.
+ *
+ * - Xung đột PRODUCT - PRODUCT xét theo từng line (như resolver cũ): 2 promotions xung đột
+ *   không cùng áp dụng trên 1 line, nhưng vẫn có thể áp dụng trên 2 line khác nhau.
+ *   Mỗi item của search là 1 cặp (line, PRODUCT promotion), giá trị = discount trên line đó
+ * - Tối đa 1 ORDER promotion, tính trên phần còn lại sau product discounts.
+ *   ORDER promotion áp dụng cho cả giỏ nên loại trừ PRODUCT promotion xung đột với nó trên mọi line.
+ *   Với 1 ORDER promotion cố định, tổng discount không giảm khi product discount tăng
+ *   => chỉ cần tìm tập items không xung đột có tổng giá trị lớn nhất
+ * - Tập đó được tìm riêng trên từng thành phần liên thông của conflict graph (nằm trong 1 line,
+ *   branch-and-bound), memoize theo các items bị ORDER promotion loại trừ
+ * - Hết time budget -> trả về kết quả tốt nhất đã tìm được. Lời giải greedy theo priority trên từng line
+ *   (cách chọn cũ) được tính trước nên kết quả không bao giờ tệ hơn greedy
+ */
+@Component
+@Slf4j
+public class PromotionCombinationOptimizer {
+
+    private static final int DEADLINE_CHECK_INTERVAL = 1024;
+
+    private final long timeBudgetNanos;
+
+    public PromotionCombinationOptimizer(
+            @Value("${viti.promotion.optimizer.timeBudgetMs:50}") long timeBudgetMs) {
+        this.timeBudgetNanos = timeBudgetMs * 1_000_000L;
+    }
+
+    /**
+     * 1 line của giỏ hàng: variant, base amount (unitPrice * quantity) và các PRODUCT promotions hợp lệ cho line
+     */
+    public record CartLine(UUID variantId, BigDecimal baseAmount, List<CompiledPromotion> candidates) {
+    }
+
+    /**
+     * Kết quả tối ưu
+     * @param productPromotions PRODUCT promotions được chọn trên ít nhất 1 line (theo giá trị DESC)
+     * @param productDiscounts  tổng discount của từng PRODUCT promotion trên các line được chọn
+     * @param productLines      variant của các line được chọn cho từng PRODUCT promotion
+     * @param orderPromotion    ORDER promotion được chọn (null nếu không có)
+     * @param optimal           false nếu search bị dừng do hết time budget
+     */
+    public record Result(List<CompiledPromotion> productPromotions,
+                         Map<UUID, BigDecimal> productDiscounts,
+                         Map<UUID, List<UUID>> productLines,
+                         BigDecimal productDiscount,
+                         CompiledPromotion orderPromotion,
+                         BigDecimal orderDiscount,
+                         boolean optimal) {
+
+        public BigDecimal totalDiscount() {
+            return productDiscount.add(orderDiscount);
+        }
+    }
+
+    /**
+     * @param lines           các line của giỏ hàng
+     * @param orderCandidates ORDER promotions hợp lệ (minOrderValue được check theo base thực tế)
+     * @param orderBase       base cho ORDER promotion trước khi trừ product discounts (subtotal - tier discount)
+     */
+    public Result optimize(List<CartLine> lines, List<CompiledPromotion> orderCandidates, BigDecimal orderBase) {
+        return new Search(lines, orderCandidates, orderBase, System.nanoTime() + timeBudgetNanos).run();
+    }
+
+    /**
+     * Tập items (line, PRODUCT promotion) được chọn và tổng giá trị
+     */
+    private record Selection(BitSet members, BigDecimal value) {
+    }
+
+    private record MemoKey(int component, BitSet excluded) {
+    }
+
+    /**
+     * Trạng thái của 1 lần search (không thread-safe, tạo mới cho mỗi lần optimize)
+     */
+    private static final class Search {
+
+        // Items (line, PRODUCT promotion) xếp theo line, trong mỗi line theo giá trị DESC
+        private final CompiledPromotion[] products;
+        private final BigDecimal[] values;
+        private final UUID[] itemVariants;
+        // Index các items xung đột (cùng line), tăng dần
+        private final int[][] productConflicts;
+        private final List<int[]> components;
+
+        private final CompiledPromotion[] orders;
+        private final BitSet[] orderConflicts;
+
+        private final BigDecimal orderBase;
+        private final long deadline;
+
+        private final Map<MemoKey, Selection> memo = new HashMap<>();
+        private final int[] blocked;
+        private final BitSet chosen = new BitSet();
+        private final BitSet paired = new BitSet();
+
+        private BitSet bestChosen = new BitSet();
+        private int bestOrder = -1;
+        private BigDecimal bestProductDiscount = BigDecimal.ZERO;
+        private BigDecimal bestOrderDiscount = BigDecimal.ZERO;
+        private BigDecimal bestTotal = BigDecimal.ZERO;
+
+        // Trạng thái của lần maximize hiện tại
+        private int[] members;
+        private BigDecimal cap;
+        private BitSet bestMembers;
+        private BigDecimal bestValue;
+
+        private long nodes;
+        private boolean timedOut;
+
+        Search(List<CartLine> lines, List<CompiledPromotion> orderCandidates, BigDecimal orderBase, long deadline) {
+            this.orderBase = orderBase;
+            this.deadline = deadline;
+
+            List<CompiledPromotion> items = new ArrayList<>();
+            List<BigDecimal> itemValues = new ArrayList<>();
+            List<UUID> variants = new ArrayList<>();
+            List<int[]> conflicts = new ArrayList<>();
+            for (CartLine line : lines) {
+                Map<UUID, CompiledPromotion> distinct = new LinkedHashMap<>();
+                line.candidates().forEach(p -> distinct.putIfAbsent(p.getId(), p));
+
+                Map<UUID, BigDecimal> discounts = new HashMap<>();
+                distinct.values().forEach(p ->
+                        discounts.put(p.getId(), p.getPromotion().calculateDiscount(line.baseAmount())));
+                List<CompiledPromotion> sorted = new ArrayList<>(distinct.values());
+                sorted.sort(Comparator.comparing((CompiledPromotion p) -> discounts.get(p.getId())).reversed()
+                        .thenComparing(Comparator.comparingInt(CompiledPromotion::getPriority).reversed()));
+
+                // Xung đột chỉ xét giữa các items của cùng line
+                int first = items.size();
+                for (CompiledPromotion p : sorted) {
+                    int i = items.size();
+                    List<Integer> adjacent = new ArrayList<>();
+                    for (int k = first; k < i; k++) {
+                        if (p.conflictsWith(items.get(k).getId())) {
+                            adjacent.add(k);
+                            conflicts.set(k, append(conflicts.get(k), i));
+                        }
+                    }
+                    items.add(p);
+                    itemValues.add(discounts.get(p.getId()));
+                    variants.add(line.variantId());
+                    conflicts.add(adjacent.stream().mapToInt(Integer::intValue).toArray());
+                }
+            }
+
+            int n = items.size();
+            this.products = items.toArray(new CompiledPromotion[0]);
+            this.values = itemValues.toArray(new BigDecimal[0]);
+            this.itemVariants = variants.toArray(new UUID[0]);
+            this.productConflicts = conflicts.toArray(new int[0][]);
+            this.blocked = new int[n];
+            this.components = connectedComponents();
+
+            this.orders = orderCandidates.toArray(new CompiledPromotion[0]);
+            this.orderConflicts = new BitSet[orders.length];
+            for (int j = 0; j < orders.length; j++) {
+                orderConflicts[j] = conflictsOf(orders[j]);
+            }
+        }
+
+        Result run() {
+            seedGreedy();
+
+            // Không có ORDER promotion: tập PRODUCT lớn nhất
+            Selection unrestricted = maximizeByComponent(new BitSet());
+            consider(unrestricted, -1);
+
+            for (int j = 0; j < orders.length && !timedOut; j++) {
+                // Cận trên: PRODUCT lớn nhất + ORDER discount tại base chưa trừ product discount
+                BigDecimal bound = unrestricted.value().add(orderDiscount(j, orderBase));
+                if (bound.compareTo(bestTotal) <= 0) {
+                    continue;
+                }
+
+                Selection selection = orderConflicts[j].isEmpty()
+                        ? unrestricted
+                        : maximizeByComponent(orderConflicts[j]);
+                BigDecimal minOrderValue = orders[j].getPromotion().getMinOrderValue();
+                if (minOrderValue != null && orderBase.subtract(selection.value()).compareTo(minOrderValue) < 0) {
+                    // Product discount làm base < minOrderValue -> giới hạn tổng product discount
+                    selection = maximize(allProducts(), orderConflicts[j], orderBase.subtract(minOrderValue));
+                }
+                consider(selection, j);
+            }
+
+            if (timedOut) {
+                log.warn("Promotion optimizer hit time budget after {} nodes ({} product candidates), using best found",
+                        nodes, products.length);
+            }
+
+            // Gộp các items được chọn theo promotion
+            Map<UUID, CompiledPromotion> promotions = new HashMap<>();
+            Map<UUID, BigDecimal> totals = new HashMap<>();
+            Map<UUID, List<UUID>> productLines = new HashMap<>();
+            for (int i = bestChosen.nextSetBit(0); i >= 0; i = bestChosen.nextSetBit(i + 1)) {
+                promotions.putIfAbsent(products[i].getId(), products[i]);
+                totals.merge(products[i].getId(), values[i], BigDecimal::add);
+                productLines.computeIfAbsent(products[i].getId(), id -> new ArrayList<>()).add(itemVariants[i]);
+            }
+            List<CompiledPromotion> selected = new ArrayList<>(promotions.values());
+            selected.sort(Comparator.comparing((CompiledPromotion p) -> totals.get(p.getId())).reversed());
+            Map<UUID, BigDecimal> discounts = new LinkedHashMap<>();
+            selected.forEach(p -> discounts.put(p.getId(), totals.get(p.getId())));
+
+            return new Result(selected, discounts, productLines, bestProductDiscount,
+                    bestOrder >= 0 ? orders[bestOrder] : null, bestOrderDiscount, !timedOut);
+        }
+
+        /**
+         * Lời giải ban đầu: greedy theo priority trên từng line (giống cách chọn cũ)
+         * + ORDER promotion tốt nhất tương thích
+         */
+        private void seedGreedy() {
+            Integer[] byPriority = new Integer[products.length];
+            for (int i = 0; i < byPriority.length; i++) byPriority[i] = i;
+            Arrays.sort(byPriority, Comparator.comparingInt((Integer i) -> products[i].getPriority()).reversed());
+
+            BitSet greedy = new BitSet();
+            BigDecimal value = BigDecimal.ZERO;
+            for (int i : byPriority) {
+                if (Arrays.stream(productConflicts[i]).noneMatch(greedy::get)) {
+                    greedy.set(i);
+                    value = value.add(values[i]);
+                }
+            }
+
+            Selection selection = new Selection(greedy, value);
+            consider(selection, -1);
+            for (int j = 0; j < orders.length; j++) {
+                if (!orderConflicts[j].intersects(greedy)) {
+                    consider(selection, j);
+                }
+            }
+        }
+
+        /**
+         * Ghi nhận tổ hợp (PRODUCT selection + ORDER promotion j, -1 = không có) nếu tốt hơn
+         */
+        private void consider(Selection selection, int order) {
+            BigDecimal orderDiscount = BigDecimal.ZERO;
+            if (order >= 0) {
+                BigDecimal base = orderBase.subtract(selection.value());
+                BigDecimal minOrderValue = orders[order].getPromotion().getMinOrderValue();
+                if (minOrderValue != null && base.compareTo(minOrderValue) < 0) {
+                    return;
+                }
+                orderDiscount = orderDiscount(order, base);
+            }
+
+            BigDecimal total = selection.value().add(orderDiscount);
+            if (total.compareTo(bestTotal) > 0) {
+                bestTotal = total;
+                bestChosen = selection.members();
+                bestOrder = order;
+                bestProductDiscount = selection.value();
+                bestOrderDiscount = orderDiscount;
+            }
+        }
+
+        private BigDecimal orderDiscount(int order, BigDecimal base) {
+            return base.signum() > 0 ? orders[order].getPromotion().calculateDiscount(base) : BigDecimal.ZERO;
+        }
+
+        /**
+         * Tập không xung đột lớn nhất = hợp các tập lớn nhất của từng thành phần liên thông
+         */
+        private Selection maximizeByComponent(BitSet excluded) {
+            BitSet selected = new BitSet();
+            BigDecimal value = BigDecimal.ZERO;
+
+            for (int c = 0; c < components.size(); c++) {
+                int[] component = components.get(c);
+                BitSet componentExcluded = new BitSet();
+                for (int m : component) {
+                    if (excluded.get(m)) componentExcluded.set(m);
+                }
+
+                MemoKey key = new MemoKey(c, componentExcluded);
+                Selection best = memo.get(key);
+                if (best == null) {
+                    best = maximize(component, componentExcluded, null);
+                    if (!timedOut) {
+                        memo.put(key, best);
+                    }
+                }
+                selected.or(best.members());
+                value = value.add(best.value());
+            }
+            return new Selection(selected, value);
+        }
+
+        /**
+         * Branch-and-bound tìm tập không xung đột có tổng giá trị lớn nhất (<= cap nếu cap != null)
+         * trong members (theo line, trong mỗi line theo giá trị DESC), bỏ qua các items bị excluded
+         */
+        private Selection maximize(int[] members, BitSet excluded, BigDecimal cap) {
+            this.members = members;
+            this.cap = cap;
+            this.bestMembers = new BitSet();
+            this.bestValue = BigDecimal.ZERO;
+
+            BigDecimal available = BigDecimal.ZERO;
+            for (int m : members) {
+                if (excluded.get(m)) {
+                    blocked[m]++;
+                } else {
+                    available = available.add(values[m]);
+                }
+            }
+
+            branch(0, BigDecimal.ZERO, available);
+
+            for (int m : members) {
+                if (excluded.get(m)) blocked[m]--;
+            }
+            return new Selection(bestMembers, bestValue);
+        }
+
+        /**
+         * @param available tổng giá trị các members từ pos trở đi chưa bị chặn
+         */
+        private void branch(int pos, BigDecimal value, BigDecimal available) {
+            while (pos < members.length && blocked[members[pos]] > 0) {
+                pos++; // Xung đột với promotion đã chọn hoặc bị ORDER promotion loại trừ
+            }
+            if (timedOut || pos == members.length) {
+                return;
+            }
+            if (++nodes % DEADLINE_CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                return;
+            }
+
+            if (value.add(available).compareTo(bestValue) <= 0) {
+                return;
+            }
+            // Cận chặt hơn: mỗi cặp xung đột chỉ lấy được 1 promotion
+            if (value.add(pairedBound(pos)).compareTo(bestValue) <= 0) {
+                return;
+            }
+
+            int i = members[pos];
+            BigDecimal withI = value.add(values[i]);
+
+            // Nhánh 1: chọn promotion i, chặn các candidates xung đột phía sau
+            boolean hasOpenConflict = false;
+            if (cap == null || withI.compareTo(cap) <= 0) {
+                BigDecimal lost = BigDecimal.ZERO;
+                int[] conflicts = productConflicts[i];
+                for (int k : conflicts) {
+                    if (k > i && blocked[k]++ == 0) {
+                        lost = lost.add(values[k]);
+                        hasOpenConflict = true;
+                    }
+                }
+                chosen.set(i);
+                if (withI.compareTo(bestValue) > 0) {
+                    bestValue = withI;
+                    bestMembers = (BitSet) chosen.clone();
+                }
+                branch(pos + 1, withI, available.subtract(values[i]).subtract(lost));
+                chosen.clear(i);
+                for (int k : conflicts) {
+                    if (k > i) blocked[k]--;
+                }
+
+                // Không chặn candidate nào phía sau -> bỏ qua i không bao giờ tốt hơn (khi không có cap)
+                if (cap == null && !hasOpenConflict) {
+                    return;
+                }
+            }
+
+            // Nhánh 2: bỏ qua promotion i
+            branch(pos + 1, value, available.subtract(values[i]));
+        }
+
+        /**
+         * Cận trên cho các members từ pos trở đi: ghép cặp greedy các members xung đột nhau,
+         * mỗi cặp chỉ tính member giá trị lớn hơn (items xung đột cùng line, đã sort theo giá trị DESC)
+         */
+        private BigDecimal pairedBound(int pos) {
+            paired.clear();
+            BigDecimal bound = BigDecimal.ZERO;
+            for (int p = pos; p < members.length; p++) {
+                int k = members[p];
+                if (blocked[k] > 0 || paired.get(k)) continue;
+
+                bound = bound.add(values[k]);
+                for (int j : productConflicts[k]) {
+                    if (j > k && blocked[j] == 0 && !paired.get(j)) {
+                        paired.set(j);
+                        break;
+                    }
+                }
+            }
+            return bound;
+        }
+
+        /**
+         * Thành phần liên thông của conflict graph giữa các items (luôn nằm trong 1 line,
+         * members trong mỗi thành phần giữ thứ tự giá trị DESC)
+         */
+        private List<int[]> connectedComponents() {
+            int n = products.length;
+            int[] component = new int[n];
+            Arrays.fill(component, -1);
+            List<int[]> result = new ArrayList<>();
+
+            for (int start = 0; start < n; start++) {
+                if (component[start] >= 0) continue;
+
+                BitSet group = new BitSet(n);
+                Deque<Integer> stack = new ArrayDeque<>();
+                stack.push(start);
+                component[start] = result.size();
+                while (!stack.isEmpty()) {
+                    int k = stack.pop();
+                    group.set(k);
+                    for (int j : productConflicts[k]) {
+                        if (component[j] < 0) {
+                            component[j] = result.size();
+                            stack.push(j);
+                        }
+                    }
+                }
+                result.add(group.stream().toArray());
+            }
+            return result;
+        }
+
+        private int[] allProducts() {
+            int[] all = new int[products.length];
+            for (int i = 0; i < all.length; i++) all[i] = i;
+            return all;
+        }
+
+        /**
+         * Index các items có PRODUCT promotion xung đột với (ORDER) promotion, trên mọi line
+         */
+        private BitSet conflictsOf(CompiledPromotion promotion) {
+            BitSet conflicts = new BitSet(products.length);
+            for (int k = 0; k < products.length; k++) {
+                if (promotion.conflictsWith(products[k].getId())) {
+                    conflicts.set(k);
+                }
+            }
+            return conflicts;
+        }
+
+        private static int[] append(int[] array, int value) {
+            int[] result = Arrays.copyOf(array, array.length + 1);
+            result[array.length] = value;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.event.PromotionChangedEvent;
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import com.example.viti_be.model.model_enum.PromotionStatus;
+import com.example.viti_be.repository.PromotionCategoryRepository;
+import com.example.viti_be.repository.PromotionConflictRepository;
+import com.example.viti_be.repository.PromotionProductRepository;
+import com.example.viti_be.repository.PromotionRepository;
+import com.example.viti_be.repository.projection.PromotionLinkProjection;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * In-memory index của các ACTIVE promotions, dùng cho tính discount giỏ hàng.
+ *
+ * Index được build bằng 5 query (promotions, product links, category links, tier links, conflicts)
+ * và giữ dưới dạng snapshot immutable:
+ * - byProduct / byCategory: promotions scope PRODUCT theo productId / categoryId
+ * - byScope: tất cả promotions theo scope (ORDER đã sort theo priority DESC)
+ * - byId: lookup nhanh + conflict graph
+ *
+ * Invalidate khi có PromotionChangedEvent (sau commit) và được reload
+ * bởi PromotionScheduler mỗi tick activate/expire.
+ * Thời gian hiệu lực (startDate/endDate) vẫn được check lúc lookup;
+ * quota không nằm trong index (thay đổi theo từng đơn), được check trực tiếp từ quota shards.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PromotionRuleIndex {
+
+    private final PromotionRepository promotionRepository;
+    private final PromotionProductRepository promotionProductRepository;
+    private final PromotionCategoryRepository promotionCategoryRepository;
+    private final PromotionConflictRepository promotionConflictRepository;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean stale = true;
+
+    // ========================================
+    // LOOKUP
+    // ========================================
+
+    /**
+     * Snapshot hiện tại (rebuild nếu đã bị invalidate)
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (stale || current == null) {
+            current = rebuild();
+        }
+        return current;
+    }
+
+    // ========================================
+    // INVALIDATION
+    // ========================================
+
+    /**
+     * Đánh dấu index cần rebuild ở lần lookup tiếp theo
+     */
+    public void invalidate() {
+        stale = true;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        log.debug("Promotion {} changed, invalidating promotion index", event.getPromotionId());
+        invalidate();
+    }
+
+    /**
+     * Build lại toàn bộ index từ DB bất kể stale
+     * (PromotionScheduler: nhận cả thay đổi được ghi từ node khác)
+     */
+    public Snapshot reload() {
+        invalidate();
+        return rebuild();
+    }
+
+    /**
+     * Build lại toàn bộ index từ DB nếu đang stale.
+     * Các thread cùng thấy stale chờ lock rồi dùng luôn snapshot vừa build, không build lại lần nữa
+     */
+    public synchronized Snapshot rebuild() {
+        Snapshot current = snapshot;
+        if (!stale && current != null) {
+            return current;
+        }
+        // Reset cờ trước khi đọc DB: invalidate() xảy ra trong lúc build sẽ kích hoạt lần build sau
+        stale = false;
+
+        List<Promotion> promotions = promotionRepository.findByStatusAndIsDeletedFalse(PromotionStatus.ACTIVE);
+
+        Map<UUID, Set<UUID>> conflicts = new HashMap<>();
+        for (PromotionLinkProjection link : promotionConflictRepository.findActiveConflictLinks()) {
+            // Conflict là quan hệ 2 chiều
+            conflicts.computeIfAbsent(link.getPromotionId(), k -> new HashSet<>()).add(link.getTargetId());
+            conflicts.computeIfAbsent(link.getTargetId(), k -> new HashSet<>()).add(link.getPromotionId());
+        }
+
+        Map<UUID, Set<UUID>> tiers = new HashMap<>();
+        for (PromotionLinkProjection link : promotionRepository.findActiveCustomerTierLinks()) {
+            tiers.computeIfAbsent(link.getPromotionId(), k -> new HashSet<>()).add(link.getTargetId());
+        }
+
+        Map<UUID, CompiledPromotion> byId = new HashMap<>();
+        for (Promotion p : promotions) {
+            byId.put(p.getId(), new CompiledPromotion(
+                    p,
+                    tiers.getOrDefault(p.getId(), Collections.emptySet()),
+                    conflicts.getOrDefault(p.getId(), Collections.emptySet())));
+        }
+
+        Map<UUID, List<CompiledPromotion>> byProduct = groupLinks(
+                promotionProductRepository.findActivePromotionProductLinks(), byId);
+        Map<UUID, List<CompiledPromotion>> byCategory = groupLinks(
+                promotionCategoryRepository.findActivePromotionCategoryLinks(), byId);
+
+        Map<PromotionScope, List<CompiledPromotion>> byScope = new EnumMap<>(PromotionScope.class);
+        for (CompiledPromotion cp : byId.values()) {
+            byScope.computeIfAbsent(cp.getScope(), k -> new ArrayList<>()).add(cp);
+        }
+        byScope.values().forEach(list -> list.sort(
+                Comparator.comparingInt(CompiledPromotion::getPriority).reversed()));
+
+        Snapshot built = new Snapshot(byId, byProduct, byCategory, byScope);
+        snapshot = built;
+
+        log.info("Rebuilt promotion index: {} active promotions, {} products, {} categories",
+                byId.size(), byProduct.size(), byCategory.size());
+        return built;
+    }
+
+    // ========================================
+    // HELPERS
+    // ========================================
+
+    private Map<UUID, List<CompiledPromotion>> groupLinks(
+            List<PromotionLinkProjection> links, Map<UUID, CompiledPromotion> byId) {
+        Map<UUID, List<CompiledPromotion>> grouped = new HashMap<>();
+        for (PromotionLinkProjection link : links) {
+            CompiledPromotion cp = byId.get(link.getPromotionId());
+            if (cp != null && cp.getScope() == PromotionScope.PRODUCT) {
+                grouped.computeIfAbsent(link.getTargetId(), k -> new ArrayList<>()).add(cp);
+            }
+        }
+        return grouped;
+    }
+
+    /**
+     * Snapshot immutable của index, an toàn khi đọc từ nhiều thread
+     */
+    public static final class Snapshot {
+
+        private final Map<UUID, CompiledPromotion> byId;
+        private final Map<UUID, List<CompiledPromotion>> byProduct;
+        private final Map<UUID, List<CompiledPromotion>> byCategory;
+        private final Map<PromotionScope, List<CompiledPromotion>> byScope;
+
+        private Snapshot(Map<UUID, CompiledPromotion> byId,
+                         Map<UUID, List<CompiledPromotion>> byProduct,
+                         Map<UUID, List<CompiledPromotion>> byCategory,
+                         Map<PromotionScope, List<CompiledPromotion>> byScope) {
+            this.byId = byId;
+            this.byProduct = byProduct;
+            this.byCategory = byCategory;
+            this.byScope = byScope;
+        }
+
+        public Optional<CompiledPromotion> get(UUID promotionId) {
+            return Optional.ofNullable(byId.get(promotionId));
+        }
+
+        public Collection<CompiledPromotion> all() {
+            return Collections.unmodifiableCollection(byId.values());
+        }
+
+        public List<CompiledPromotion> byScope(PromotionScope scope) {
+            return byScope.getOrDefault(scope, Collections.emptyList());
+        }
+
+        /**
+         * PRODUCT promotions áp dụng cho product (match trực tiếp hoặc qua category), không trùng lặp
+         */
+        public List<CompiledPromotion> forProduct(UUID productId, UUID categoryId) {
+            List<CompiledPromotion> direct = byProduct.getOrDefault(productId, Collections.emptyList());
+            List<CompiledPromotion> viaCategory = categoryId != null
+                    ? byCategory.getOrDefault(categoryId, Collections.emptyList())
+                    : Collections.emptyList();
+
+            if (viaCategory.isEmpty()) return direct;
+            if (direct.isEmpty()) return viaCategory;
+
+            Map<UUID, CompiledPromotion> merged = new LinkedHashMap<>();
+            direct.forEach(cp -> merged.put(cp.getId(), cp));
+            viaCategory.forEach(cp -> merged.putIfAbsent(cp.getId(), cp));
+            return new ArrayList<>(merged.values());
+        }
+
+        public int size() {
+            return byId.size();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.dto.response.PromotionResponse;
+import com.example.viti_be.model.CustomerTier;
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * 1 ACTIVE public promotion trong PublicPromotionCache (immutable, không giữ entity).
+ *
+ * - response: PromotionResponse đã map sẵn lúc load (relationships đã fetch eager)
+ * - productIds / categoryIds / allowedTierIds: dùng để lọc theo giỏ hàng + tier
+ * - Các điều kiện phụ thuộc request (minOrderValue, quota, usagePerCustomer) được check lúc lookup
+ */
+@Getter
+public final class PublicPromotion {
+
+    private final UUID id;
+    private final PromotionScope scope;
+    private final LocalDateTime startDate;
+    private final LocalDateTime endDate;
+    private final BigDecimal minOrderValue;
+    private final Integer usagePerCustomer;
+    private final boolean hasQuota;
+    private final boolean tierRestricted;
+    private final Set<UUID> allowedTierIds;
+    private final Set<UUID> productIds;
+    private final Set<UUID> categoryIds;
+    private final PromotionResponse response;
+
+    PublicPromotion(Promotion promotion, PromotionResponse response) {
+        this.id = promotion.getId();
+        this.scope = promotion.getScope();
+        this.startDate = promotion.getStartDate();
+        this.endDate = promotion.getEndDate();
+        this.minOrderValue = promotion.getMinOrderValue();
+        this.usagePerCustomer = promotion.getUsagePerCustomer();
+        this.hasQuota = promotion.hasQuota();
+        this.tierRestricted = promotion.isTierRestricted();
+        this.allowedTierIds = promotion.getCustomerTiers().stream()
+                .map(CustomerTier::getId)
+                .collect(Collectors.toUnmodifiableSet());
+        this.productIds = promotion.getPromotionProducts().stream()
+                .map(pp -> pp.getProduct().getId())
+                .collect(Collectors.toUnmodifiableSet());
+        this.categoryIds = promotion.getPromotionCategories().stream()
+                .map(pc -> pc.getCategory().getId())
+                .collect(Collectors.toUnmodifiableSet());
+        this.response = response;
+    }
+
+    public boolean hasQuota() {
+        return hasQuota;
+    }
+
+    /**
+     * Cùng điều kiện với findActivePublicPromotions: startDate <= now < endDate
+     */
+    public boolean isLiveAt(LocalDateTime now) {
+        return !startDate.isAfter(now) && endDate.isAfter(now);
+    }
+
+    /**
+     * Kiểm tra tier của customer (tierId null = guest hoặc chưa có tier)
+     */
+    public boolean isTierEligible(UUID tierId) {
+        if (!tierRestricted) {
+            return true;
+        }
+        return tierId != null && allowedTierIds.contains(tierId);
+    }
+
+    /**
+     * ORDER promotion luôn match, PRODUCT promotion cần ít nhất 1 product trong giỏ match
+     * (trực tiếp hoặc qua category)
+     */
+    public boolean matchesCart(Set<UUID> cartProductIds, Map<UUID, UUID> productCategories) {
+        if (scope == PromotionScope.ORDER) {
+            return true;
+        }
+        for (UUID productId : cartProductIds) {
+            if (productIds.contains(productId)) {
+                return true;
+            }
+            UUID categoryId = productCategories.get(productId);
+            if (categoryId != null && categoryIds.contains(categoryId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.event.PromotionChangedEvent;
+import com.example.viti_be.mapper.PromotionMapper;
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.repository.PromotionRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Cache cho danh sách "applicable promotions" của storefront (getApplicablePromotionsForCart).
+ *
+ * - activePublic: tất cả ACTIVE public promotions (1 entry), relationships fetch eager
+ *   (4 queries, mỗi collection 1 query) và PromotionResponse map sẵn
+ * - byCart: candidates đã lọc theo (customer tier, tập productIds của giỏ);
+ *   category của products chỉ được load khi cache miss
+ *
+ * Cả 2 cache bị xoá SAU KHI commit PromotionChangedEvent (create/update/toggle/đổi status).
+ * TTL ngắn để giới hạn độ lệch của usageCount/remainingQuota trong response và khi có nhiều node.
+ */
+@Component
+@Slf4j
+public class PublicPromotionCache {
+
+    private static final Duration TTL = Duration.ofMinutes(1);
+    private static final long MAX_CART_ENTRIES = 10_000;
+    private static final String ACTIVE_PUBLIC = "ACTIVE_PUBLIC";
+
+    private final PromotionRepository promotionRepository;
+    private final PromotionMapper mapper;
+    private final Cache<String, List<PublicPromotion>> activePublic;
+    private final Cache<CartKey, List<PublicPromotion>> byCart;
+
+    public PublicPromotionCache(PromotionRepository promotionRepository, PromotionMapper mapper) {
+        this.promotionRepository = promotionRepository;
+        this.mapper = mapper;
+        this.activePublic = Caffeine.newBuilder()
+                .expireAfterWrite(TTL)
+                .build();
+        this.byCart = Caffeine.newBuilder()
+                .expireAfterWrite(TTL)
+                .maximumSize(MAX_CART_ENTRIES)
+                .build();
+    }
+
+    /**
+     * Public promotions match giỏ hàng (theo product/category) và tier của customer, còn hiệu lực tại now.
+     *
+     * @param productCategories loader productId -> categoryId, chỉ được gọi khi cache miss
+     */
+    public List<PublicPromotion> candidatesForCart(UUID tierId, Set<UUID> productIds, LocalDateTime now,
+                                                   Function<Set<UUID>, Map<UUID, UUID>> productCategories) {
+        CartKey key = new CartKey(tierId, Set.copyOf(productIds));
+        List<PublicPromotion> candidates = byCart.get(key, k -> {
+            Map<UUID, UUID> categories = productCategories.apply(k.productIds());
+            return activePublicPromotions().stream()
+                    .filter(p -> p.isTierEligible(k.tierId()))
+                    .filter(p -> p.matchesCart(k.productIds(), categories))
+                    .collect(Collectors.toUnmodifiableList());
+        });
+
+        return candidates.stream()
+                .filter(p -> p.isLiveAt(now))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tất cả ACTIVE public promotions (chưa lọc thời gian hiệu lực)
+     */
+    public List<PublicPromotion> activePublicPromotions() {
+        return activePublic.get(ACTIVE_PUBLIC, k -> loadActivePublicPromotions());
+    }
+
+    public void invalidate() {
+        activePublic.invalidateAll();
+        byCart.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onPromotionChanged(PromotionChangedEvent event) {
+        log.debug("Promotion {} changed, invalidating public promotion cache", event.getPromotionId());
+        invalidate();
+    }
+
+    /**
+     * Load + map trong transaction của caller (cần session cho các entity đã fetch)
+     */
+    private List<PublicPromotion> loadActivePublicPromotions() {
+        List<Promotion> promotions = promotionRepository.findActivePublicPromotionsWithProducts();
+        if (promotions.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Cùng persistence context -> các collections được gắn vào cùng entity instances
+        Set<UUID> ids = promotions.stream().map(Promotion::getId).collect(Collectors.toSet());
+        promotionRepository.fetchCategories(ids);
+        promotionRepository.fetchConflicts(ids);
+        promotionRepository.fetchCustomerTiers(ids);
+
+        List<PublicPromotion> loaded = promotions.stream()
+                .map(p -> new PublicPromotion(p, mapper.toResponse(p)))
+                .collect(Collectors.toUnmodifiableList());
+
+        log.info("Loaded {} active public promotions into cache", loaded.size());
+        return loaded;
+    }
+
+    private record CartKey(UUID tierId, Set<UUID> productIds) {
+    }
+}
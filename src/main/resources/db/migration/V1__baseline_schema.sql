@@ -0,0 +1,955 @@
+-- Baseline: schema của database đang chạy với spring.jpa.hibernate.ddl-auto=update trước khi chuyển sang Flyway
+-- (sinh từ entity mappings lúc đó). Database đã có sẵn schema được baseline ở version 1 và bỏ qua file này,
+-- nên mọi bảng / cột / index thêm sau đó phải nằm ở các migration sau (từ V2).
+
+create table addresses (
+    is_deleted boolean,
+    is_primary boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    commune_code varchar(10),
+    postal_code varchar(10),
+    province_code varchar(10),
+    created_by uuid,
+    customer_id uuid,
+    id uuid not null,
+    updated_by uuid,
+    type varchar(20),
+    contact_name varchar(255),
+    contact_phone varchar(255),
+    street TEXT,
+    primary key (id)
+);
+
+create table audit_logs (
+    created_at timestamp(6),
+    actor_id uuid,
+    id uuid not null,
+    action varchar(255) not null check (action in ('CREATE','UPDATE','DELETE','LOCK','UNLOCK','EARN_POINTS','REDEEM_POINTS','ADJUST_POINTS','RESET_POINTS','RECEIVE_GOODS','CLOSE_PO')),
+    module varchar(255) not null check (module in ('INVOICE','PRODUCT','INVENTORY','SUPPLIER','STAFF','PROMOTION','CONFIG','WARRANTY','LOYALTY_POINTS','PURCHASE_ORDER','ORDER')),
+    new_value TEXT,
+    old_value TEXT,
+    resource_id varchar(255),
+    resource_type varchar(255),
+    status varchar(255),
+    primary key (id)
+);
+
+create table cart_items (
+    is_deleted boolean,
+    quantity integer not null,
+    unit_price numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    cart_id uuid not null,
+    created_by uuid,
+    id uuid not null,
+    product_variant_id uuid not null,
+    updated_by uuid,
+    primary key (id),
+    unique (cart_id, product_variant_id)
+);
+
+create table carts (
+    is_deleted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    customer_id uuid unique,
+    id uuid not null,
+    updated_by uuid,
+    cart_token varchar(36) unique,
+    primary key (id)
+);
+
+create table categories (
+    is_deleted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    parent_id uuid,
+    updated_by uuid,
+    description varchar(255),
+    image_url varchar(255),
+    name varchar(255) not null,
+    related_category_ids TEXT,
+    primary key (id)
+);
+
+create table category_specs (
+    is_deleted boolean,
+    is_required boolean,
+    is_variant_spec boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    category_id uuid not null,
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    data_type varchar(20),
+    spec_key varchar(50) not null,
+    spec_name varchar(100) not null,
+    options jsonb,
+    primary key (id)
+);
+
+create table communes (
+    code varchar(10) not null,
+    province_code varchar(10) not null,
+    name varchar(100) not null,
+    primary key (code)
+);
+
+create table customer_tiers (
+    discount_rate numeric(5,2),
+    is_deleted boolean,
+    min_point integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    status varchar(20),
+    name varchar(50) not null,
+    description TEXT,
+    primary key (id)
+);
+
+create table customers (
+    is_deleted boolean,
+    total_purchase numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    tier_id uuid,
+    updated_by uuid,
+    user_id uuid unique,
+    phone varchar(20) not null unique,
+    email varchar(100),
+    full_name varchar(100),
+    primary key (id)
+);
+
+create table inventory (
+    is_deleted boolean,
+    min_threshold integer,
+    quantity_available integer,
+    quantity_physical integer,
+    quantity_reserved integer,
+    created_at timestamp(6),
+    last_counted_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    part_component_id uuid,
+    product_variant_id uuid,
+    updated_by uuid,
+    primary key (id)
+);
+
+create table inventory_adjustments (
+    is_deleted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    reference_code uuid unique,
+    updated_by uuid,
+    reason varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDING','APPROVED','REJECTED')),
+    primary key (id)
+);
+
+create table loyalty_point_transactions (
+    is_deleted boolean,
+    points_available_after integer not null,
+    points_change integer not null,
+    points_total_after integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    loyalty_point_id uuid not null,
+    order_id uuid,
+    performed_by uuid,
+    updated_by uuid,
+    transaction_type varchar(50) not null check (transaction_type in ('EARN','REDEEM','MANUAL_ADJUST','RESET')),
+    reason TEXT,
+    primary key (id)
+);
+
+create table loyalty_points (
+    is_deleted boolean,
+    point_rate numeric(10,2),
+    points_available integer,
+    points_used integer,
+    total_points integer,
+    created_at timestamp(6),
+    last_earned_at timestamp(6),
+    last_used_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    customer_id uuid unique,
+    id uuid not null,
+    updated_by uuid,
+    primary key (id)
+);
+
+create table notifications (
+    is_deleted boolean,
+    is_read boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    entity_id uuid,
+    id uuid not null,
+    updated_by uuid,
+    user_id uuid,
+    entity_type varchar(50),
+    type varchar(50) not null check (type in ('ORDER_NEW','ORDER_CONFIRMED','ORDER_CANCELLED','ORDER_COMPLETED')),
+    content TEXT,
+    title varchar(255) not null,
+    primary key (id)
+);
+
+create table order_item_promotions (
+    base_amount numeric(15,2),
+    discount_amount numeric(15,2) not null,
+    id uuid not null,
+    order_item_id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table order_items (
+    cost_price numeric(15,2),
+    discount numeric(15,2),
+    quantity integer not null,
+    subtotal numeric(15,2),
+    unit_price numeric(15,2),
+    warranty_expire_date timestamp(6),
+    id uuid not null,
+    order_id uuid not null,
+    product_id uuid not null,
+    product_serial_id uuid unique,
+    product_variant_id uuid not null,
+    primary key (id)
+);
+
+create table order_promotions (
+    base_amount numeric(15,2),
+    discount_amount numeric(15,2) not null,
+    id uuid not null,
+    order_id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table orders (
+    final_amount numeric(15,2),
+    is_deleted boolean,
+    loyalty_points_used integer,
+    point_discount_amount numeric(15,2),
+    point_rate_snapshot numeric(10,2),
+    subtotal numeric(15,2),
+    tier_discount_amount numeric(15,2),
+    tier_discount_rate numeric(38,2),
+    total_discount numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    customer_id uuid,
+    customer_tier_id uuid,
+    employee_id uuid,
+    id uuid not null,
+    updated_by uuid,
+    order_type varchar(20) check (order_type in ('OFFLINE','ONLINE_COD','ONLINE_TRANSFER')),
+    payment_method varchar(20) check (payment_method in ('CASH','TRANSFER','COD')),
+    status varchar(20) check (status in ('PENDING','CONFIRMED','COMPLETED','CANCELLED')),
+    order_number varchar(50) not null unique,
+    invoice_url varchar(255),
+    shipping_address varchar(255),
+    tier_name_snapshot varchar(255),
+    primary key (id)
+);
+
+create table part_components (
+    is_deleted boolean,
+    min_stock integer,
+    purchase_price_avg numeric(15,2),
+    selling_price numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    supplier_id uuid,
+    updated_by uuid,
+    unit varchar(20),
+    part_type varchar(50),
+    name varchar(100) not null,
+    primary key (id)
+);
+
+create table product_serials (
+    created_at timestamp(6),
+    sold_date timestamp(6),
+    warranty_expire_date timestamp(6),
+    id uuid not null,
+    order_id uuid,
+    product_variant_id uuid not null,
+    purchase_order_id uuid,
+    serial_number varchar(255) not null unique,
+    status varchar(255) not null check (status in ('AVAILABLE','SOLD','DISPLAY','WARRANTY','DEFECTIVE')),
+    primary key (id)
+);
+
+create table product_variants (
+    is_deleted boolean,
+    purchase_price_avg numeric(38,2),
+    selling_price numeric(38,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    product_id uuid,
+    updated_by uuid,
+    barcode varchar(255),
+    sku varchar(255) not null unique,
+    variant_name varchar(255),
+    variant_specs TEXT,
+    primary key (id)
+);
+
+create table products (
+    is_deleted boolean,
+    min_stock_threshold integer,
+    warranty_period integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    category_id uuid,
+    created_by uuid,
+    id uuid not null,
+    supplier_id uuid,
+    updated_by uuid,
+    common_specs TEXT,
+    description TEXT,
+    image_url varchar(255),
+    name varchar(255) not null,
+    status varchar(255),
+    primary key (id)
+);
+
+create table promotion_categories (
+    category_id uuid not null,
+    id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table promotion_conflicts (
+    conflicting_promotion_id uuid not null,
+    id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table promotion_products (
+    id uuid not null,
+    product_id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table promotion_usage_history (
+    discount_amount numeric(15,2),
+    used_at timestamp(6) not null,
+    customer_id uuid,
+    id uuid not null,
+    order_id uuid not null,
+    promotion_id uuid not null,
+    primary key (id)
+);
+
+create table promotions (
+    is_deleted boolean,
+    max_discount_amount numeric(15,2),
+    min_order_value numeric(15,2),
+    priority integer not null,
+    requires_code boolean,
+    usage_count integer,
+    usage_limit integer,
+    usage_per_customer integer,
+    value numeric(15,2) not null,
+    created_at timestamp(6),
+    end_date timestamp(6) not null,
+    start_date timestamp(6) not null,
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    scope varchar(20) not null check (scope in ('PRODUCT','ORDER')),
+    status varchar(20) not null check (status in ('SCHEDULED','ACTIVE','INACTIVE','EXPIRED')),
+    type varchar(20) not null check (type in ('PERCENTAGE','FIXED_AMOUNT')),
+    code varchar(50) unique,
+    name varchar(100) not null,
+    applicable_customer_tiers TEXT,
+    description TEXT,
+    primary key (id)
+);
+
+create table provinces (
+    code varchar(10) not null,
+    name varchar(100) not null,
+    primary key (code)
+);
+
+create table purchase_order_items (
+    is_deleted boolean,
+    quantity_ordered integer not null,
+    quantity_received integer,
+    subtotal numeric(15,2),
+    unit_price numeric(15,2) not null,
+    warranty_period integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    part_component_id uuid,
+    product_variant_id uuid,
+    purchase_order_id uuid not null,
+    reference_ticket_id uuid,
+    updated_by uuid,
+    primary key (id)
+);
+
+create table purchase_orders (
+    is_deleted boolean,
+    total_amount numeric(15,2),
+    actual_delivery_date timestamp(6),
+    created_at timestamp(6),
+    expected_delivery_date timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    supplier_id uuid not null,
+    updated_by uuid,
+    po_number varchar(255) unique,
+    status varchar(255) not null check (status in ('DRAFT','RECEIVED','CLOSED')),
+    primary key (id)
+);
+
+create table refresh_tokens (
+    expiry_date timestamp(6) with time zone not null,
+    id uuid not null,
+    user_id uuid unique,
+    token varchar(255) not null unique,
+    primary key (id)
+);
+
+create table repair_services (
+    is_active boolean,
+    is_deleted boolean,
+    standard_price numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    estimated_duration varchar(50),
+    category varchar(100),
+    name varchar(100) not null,
+    description TEXT,
+    primary key (id)
+);
+
+create table reports (
+    end_date date,
+    is_deleted boolean,
+    profit numeric(15,2),
+    start_date date,
+    total_revenue numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    generated_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    export_format varchar(255) check (export_format in ('CSV','PDF','EXCEL')),
+    file_url varchar(255),
+    filters TEXT,
+    report_type varchar(255) not null check (report_type in ('REVENUE','PROFIT','TOP_PRODUCTS','INVENTORY')),
+    primary key (id)
+);
+
+create table roles (
+    is_deleted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    description TEXT,
+    name varchar(255) not null unique,
+    primary key (id)
+);
+
+create table stock_transactions (
+    is_deleted boolean,
+    quantity integer not null,
+    quantity_after integer,
+    quantity_before integer,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    inventory_adjustment_id uuid,
+    inventory_id uuid,
+    part_component_id uuid,
+    updated_by uuid,
+    reason varchar(255),
+    reference_id varchar(255),
+    type varchar(255) not null check (type in ('STOCK_IN','STOCK_OUT','ADJUSTMENT','RETURN','TRANSFER')),
+    primary key (id)
+);
+
+create table suppliers (
+    is_deleted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    address varchar(255),
+    contact_name varchar(255),
+    email varchar(255),
+    name varchar(255),
+    phone varchar(255),
+    primary key (id)
+);
+
+create table system_config (
+    is_deleted boolean,
+    is_encrypted boolean,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    data_type varchar(20),
+    config_key varchar(100) not null unique,
+    config_value varchar(500) not null,
+    description TEXT,
+    primary key (id)
+);
+
+create table user_providers (
+    is_primary boolean,
+    created_at timestamp(6),
+    linked_at timestamp(6),
+    id uuid not null,
+    user_id uuid not null,
+    provider varchar(20) not null check (provider in ('EMAIL','GOOGLE')),
+    provider_id varchar(255),
+    primary key (id)
+);
+
+create table user_roles (
+    role_id uuid not null,
+    user_id uuid not null,
+    primary key (role_id, user_id)
+);
+
+create table users (
+    is_active boolean not null,
+    is_deleted boolean,
+    is_first_login boolean,
+    created_at timestamp(6),
+    token_expiry_date timestamp(6) with time zone,
+    updated_at timestamp(6),
+    verification_expiration timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    updated_by uuid,
+    avatar varchar(255),
+    email varchar(255) unique,
+    full_name varchar(255),
+    password_hash varchar(255) not null,
+    phone varchar(255),
+    status varchar(255) check (status in ('PENDING','ACTIVE','SUSPENDED','TERMINATED')),
+    username varchar(255) not null unique,
+    verification_code varchar(255),
+    verification_token varchar(255),
+    primary key (id)
+);
+
+create table warranty_ticket_parts (
+    is_deleted boolean,
+    quantity integer not null,
+    total_cost numeric(15,2),
+    unit_price numeric(15,2),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    used_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    part_component_id uuid not null,
+    ticket_id uuid not null,
+    updated_by uuid,
+    notes TEXT,
+    primary key (id)
+);
+
+create table warranty_ticket_services (
+    additional_cost numeric(15,2),
+    is_deleted boolean,
+    total_cost numeric(15,2),
+    unit_price numeric(15,2),
+    completed_at timestamp(6),
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    created_by uuid,
+    id uuid not null,
+    repair_service_id uuid not null,
+    ticket_id uuid not null,
+    updated_by uuid,
+    notes TEXT,
+    status varchar(255) not null check (status in ('PENDING','IN_PROGRESS','COMPLETED','CANCELLED')),
+    primary key (id)
+);
+
+create table warranty_tickets (
+    is_deleted boolean,
+    is_under_warranty boolean,
+    total_cost numeric(15,2),
+    total_part_cost numeric(15,2),
+    total_service_cost numeric(15,2),
+    actual_return_date timestamp(6),
+    created_at timestamp(6),
+    expected_return_date timestamp(6),
+    received_date timestamp(6) not null,
+    updated_at timestamp(6),
+    warranty_expire_date timestamp(6),
+    created_by uuid,
+    customer_id uuid,
+    id uuid not null,
+    product_serial_id uuid not null,
+    product_variant_id uuid not null,
+    technician_id uuid,
+    updated_by uuid,
+    customer_phone varchar(20),
+    status varchar(30) not null check (status in ('RECEIVED','PROCESSING','WAITING_FOR_PARTS','COMPLETED','RETURNED','CANCELLED')),
+    ticket_number varchar(50) not null unique,
+    customer_name varchar(100),
+    accessories TEXT,
+    cancellation_reason TEXT,
+    notes TEXT,
+    problem_description TEXT,
+    primary key (id)
+);
+
+alter table if exists addresses
+   add constraint FK7pcd7ndcu9ff3salcf4l8bjda
+   foreign key (commune_code)
+   references communes;
+
+alter table if exists addresses
+   add constraint FKhrpf5e8dwasvdc5cticysrt2k
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists addresses
+   add constraint FK2rfuara440y9ks55pj10y3rrw
+   foreign key (province_code)
+   references provinces;
+
+alter table if exists cart_items
+   add constraint FKpcttvuq4mxppo8sxggjtn5i2c
+   foreign key (cart_id)
+   references carts;
+
+alter table if exists cart_items
+   add constraint FKn1s4l7h0vm4o259wpu7ft0y2y
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists carts
+   add constraint FK8ba3sryid5k8a9kidpkvqipyt
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists categories
+   add constraint FKsaok720gsu4u2wrgbk10b5n8d
+   foreign key (parent_id)
+   references categories;
+
+alter table if exists category_specs
+   add constraint FK218fau4c5lfon4rqn9quxacd9
+   foreign key (category_id)
+   references categories;
+
+alter table if exists communes
+   add constraint FKlptipogcxbyvi0hgkjcteeulq
+   foreign key (province_code)
+   references provinces;
+
+alter table if exists customers
+   add constraint FKehum51qlyvkeu1hbo1d8128ik
+   foreign key (tier_id)
+   references customer_tiers;
+
+alter table if exists customers
+   add constraint FKrh1g1a20omjmn6kurd35o3eit
+   foreign key (user_id)
+   references users;
+
+alter table if exists inventory
+   add constraint FKrh3ah6qwgo1pipvxjby2a7208
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists loyalty_point_transactions
+   add constraint FKb5j9estk1ggc1yovy3wn91dhb
+   foreign key (loyalty_point_id)
+   references loyalty_points;
+
+alter table if exists loyalty_point_transactions
+   add constraint FKcub1rgyb5c5jptlpqwb2yj8ik
+   foreign key (order_id)
+   references orders;
+
+alter table if exists loyalty_point_transactions
+   add constraint FKf1is04x0mdf8d425kku5le8gf
+   foreign key (performed_by)
+   references users;
+
+alter table if exists loyalty_points
+   add constraint FK1rldip60jjssmha4ms72lxss
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists notifications
+   add constraint FK9y21adhxn0ayjhfocscqox7bh
+   foreign key (user_id)
+   references users;
+
+alter table if exists order_item_promotions
+   add constraint FK61iuyi1oaethpyubeehstgkua
+   foreign key (order_item_id)
+   references order_items;
+
+alter table if exists order_item_promotions
+   add constraint FK176hlsdw873xrtxh6vsqmb3y5
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists order_items
+   add constraint FKbioxgbv59vetrxe0ejfubep1w
+   foreign key (order_id)
+   references orders;
+
+alter table if exists order_items
+   add constraint FKocimc7dtr037rh4ls4l95nlfi
+   foreign key (product_id)
+   references products;
+
+alter table if exists order_items
+   add constraint FKq3t069ns9s0f89nmao6v43c3s
+   foreign key (product_serial_id)
+   references product_serials;
+
+alter table if exists order_items
+   add constraint FKltmtlue0wixrg1cf0xo7x0l4d
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists order_promotions
+   add constraint FKgrsuq7n4l6dxc8r7hsxv2k6qi
+   foreign key (order_id)
+   references orders;
+
+alter table if exists order_promotions
+   add constraint FK591o4vt2fre516nvqfr53c061
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists orders
+   add constraint FKpxtb8awmi0dk6smoh2vp1litg
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists orders
+   add constraint FK23ma0sg3jcpb8y20w2jy5r34a
+   foreign key (customer_tier_id)
+   references customer_tiers;
+
+alter table if exists orders
+   add constraint FKgd67qo7p9pvyabrt03jamvni5
+   foreign key (employee_id)
+   references users;
+
+alter table if exists part_components
+   add constraint FKqynu29rll8x6o0gactvb4oliy
+   foreign key (supplier_id)
+   references suppliers;
+
+alter table if exists product_serials
+   add constraint FKb3aua317tcxe9s47weecqtn77
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists product_variants
+   add constraint FKosqitn4s405cynmhb87lkvuau
+   foreign key (product_id)
+   references products;
+
+alter table if exists products
+   add constraint FKog2rp4qthbtt2lfyhfo32lsw9
+   foreign key (category_id)
+   references categories;
+
+alter table if exists products
+   add constraint FK6i174ixi9087gcvvut45em7fd
+   foreign key (supplier_id)
+   references suppliers;
+
+alter table if exists promotion_categories
+   add constraint FKaqy93wdhopfuklq4l5o534xtv
+   foreign key (category_id)
+   references categories;
+
+alter table if exists promotion_categories
+   add constraint FKoynbpufptkiqhk4n10x25fp3o
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists promotion_conflicts
+   add constraint FK98lg85492bwpou40hm3bfs5m1
+   foreign key (conflicting_promotion_id)
+   references promotions;
+
+alter table if exists promotion_conflicts
+   add constraint FKid0ma6q7b1g6r51wx2fkdm5v
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists promotion_products
+   add constraint FK9rm5m4rnoamh56kxetmoe1kk9
+   foreign key (product_id)
+   references products;
+
+alter table if exists promotion_products
+   add constraint FKkn7hllhf1o8jjrolro4rqmxt7
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists promotion_usage_history
+   add constraint FKsryq80opuea6onwcgvjvs432e
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists promotion_usage_history
+   add constraint FKoaodfl1y1usnu4230et9uc3bl
+   foreign key (order_id)
+   references orders;
+
+alter table if exists promotion_usage_history
+   add constraint FK7skguogl4w15yg2wj6giee9oq
+   foreign key (promotion_id)
+   references promotions;
+
+alter table if exists purchase_order_items
+   add constraint FK86rmadoa6l515nbaj81nu0gel
+   foreign key (part_component_id)
+   references part_components;
+
+alter table if exists purchase_order_items
+   add constraint FKpv8lwyeahhx6u568gy3qlpfro
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists purchase_order_items
+   add constraint FKo3yj8ocbw2kav38548t22hgh8
+   foreign key (purchase_order_id)
+   references purchase_orders;
+
+alter table if exists purchase_orders
+   add constraint FKrpdasmb8y8xs5tiy4369xpinq
+   foreign key (supplier_id)
+   references suppliers;
+
+alter table if exists refresh_tokens
+   add constraint FK1lih5y2npsf8u5o3vhdb9y0os
+   foreign key (user_id)
+   references users;
+
+alter table if exists reports
+   add constraint FK6oup43skcuxmgopql1obft8lo
+   foreign key (generated_by)
+   references users;
+
+alter table if exists stock_transactions
+   add constraint FKkstfxlkus9ouhwet394hrhksc
+   foreign key (inventory_id)
+   references inventory;
+
+alter table if exists stock_transactions
+   add constraint FK5wdmr67g5os7m0nxtenhw0evw
+   foreign key (inventory_adjustment_id)
+   references inventory_adjustments;
+
+alter table if exists user_providers
+   add constraint FKjn43qct6quty65mmawu66aesk
+   foreign key (user_id)
+   references users;
+
+alter table if exists user_roles
+   add constraint FKh8ciramu9cc9q3qcqiv4ue8a6
+   foreign key (role_id)
+   references roles;
+
+alter table if exists user_roles
+   add constraint FKhfh9dx7w3ubf1co1vdev94g3f
+   foreign key (user_id)
+   references users;
+
+alter table if exists warranty_ticket_parts
+   add constraint FKfluwkao1n1rtoxdo85hc4ht80
+   foreign key (part_component_id)
+   references part_components;
+
+alter table if exists warranty_ticket_parts
+   add constraint FK3j2s02vmlb09da8oysuyeyt4g
+   foreign key (ticket_id)
+   references warranty_tickets;
+
+alter table if exists warranty_ticket_services
+   add constraint FKrlu3vdh5jc49yaev6c3060xwg
+   foreign key (repair_service_id)
+   references repair_services;
+
+alter table if exists warranty_ticket_services
+   add constraint FKsfsphx9nsyxkre7r79b1err5p
+   foreign key (ticket_id)
+   references warranty_tickets;
+
+alter table if exists warranty_tickets
+   add constraint FKruhu5x41vgqui47sjisipkkmu
+   foreign key (customer_id)
+   references customers;
+
+alter table if exists warranty_tickets
+   add constraint FKaber2w6qxnfw1rs4lmj2xp8x3
+   foreign key (product_serial_id)
+   references product_serials;
+
+alter table if exists warranty_tickets
+   add constraint FKeni1kkcigmjc9lcbvkae25twt
+   foreign key (product_variant_id)
+   references product_variants;
+
+alter table if exists warranty_tickets
+   add constraint FKk30onuclk0atdb54i3u0krtd7
+   foreign key (technician_id)
+   references users;
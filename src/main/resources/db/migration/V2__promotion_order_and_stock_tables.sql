@@ -0,0 +1,93 @@
+-- Các bảng thêm sau baseline V1. Database được baseline ở V1 có thể đã có sẵn một phần các bảng này
+-- (ddl-auto=update tạo ra trước khi có Flyway) nên mọi lệnh đều bỏ qua khi đã tồn tại.
+
+-- Promotion áp dụng cho customer tier nào (thay cho JSON promotions.applicable_customer_tiers)
+create table if not exists promotion_customer_tiers (
+    customer_tier_id uuid not null,
+    promotion_id uuid not null,
+    primary key (customer_tier_id, promotion_id)
+);
+
+-- Quota của promotion chia thành nhiều shard để các đơn dùng cùng promotion không tranh 1 dòng
+create table if not exists promotion_quota_shards (
+    remaining integer,
+    shard_no integer not null,
+    used integer not null,
+    id uuid not null,
+    promotion_id uuid not null,
+    primary key (id),
+    unique (promotion_id, shard_no)
+);
+
+-- Bộ đếm số đơn theo ngày, cấp phát theo block
+create table if not exists order_number_counters (
+    counter_date date not null,
+    last_value bigint not null,
+    primary key (counter_date)
+);
+
+-- Doanh số gom theo ngày + các chiều report
+create table if not exists daily_sales_rollup (
+    item_cost numeric(19,2) not null,
+    item_profit numeric(19,2) not null,
+    item_revenue numeric(19,2) not null,
+    order_revenue numeric(19,2) not null,
+    sales_date date not null,
+    order_count bigint not null,
+    quantity bigint not null,
+    customer_tier_id uuid not null,
+    employee_id uuid not null,
+    product_variant_id uuid not null,
+    order_type varchar(20) not null,
+    payment_method varchar(20) not null,
+    status varchar(20) not null,
+    primary key (sales_date, customer_tier_id, employee_id, product_variant_id, order_type, payment_method, status)
+);
+
+-- Biến động tồn kho theo ngày
+create table if not exists stock_daily_snapshots (
+    snapshot_date date not null,
+    value_change numeric(19,2) not null,
+    quantity_change bigint not null,
+    item_type varchar(20) not null check (item_type in ('PRODUCT','COMPONENT')),
+    primary key (snapshot_date, item_type)
+);
+
+-- Nhật ký append-only các thao tác giữ / trả / xuất / điều chỉnh tồn kho
+create table if not exists stock_journal (
+    quantity integer not null,
+    created_at timestamp(6) not null,
+    actor_id uuid,
+    id uuid not null,
+    part_component_id uuid,
+    product_variant_id uuid,
+    movement_type varchar(20) not null check (movement_type in ('RESERVE','UNRESERVE','CONFIRM_OUT','ADJUST')),
+    reference varchar(255),
+    primary key (id)
+);
+
+create index if not exists idx_promotion_usage_promotion_used_at
+   on promotion_usage_history (promotion_id, used_at);
+
+create index if not exists idx_stock_journal_variant_created
+   on stock_journal (product_variant_id, created_at);
+
+create index if not exists idx_stock_journal_created
+   on stock_journal (created_at);
+
+do $$
+begin
+    if not exists (select 1 from pg_constraint where conname = 'fkjgcxuwy9dc96a98hu7mijnwme') then
+        alter table promotion_customer_tiers
+           add constraint FKjgcxuwy9dc96a98hu7mijnwme
+           foreign key (customer_tier_id)
+           references customer_tiers;
+    end if;
+    if not exists (select 1 from pg_constraint where conname = 'fkn39anny6rh3xdul18m827vae1') then
+        alter table promotion_customer_tiers
+           add constraint FKn39anny6rh3xdul18m827vae1
+           foreign key (promotion_id)
+           references promotions;
+    end if;
+end
+$$;
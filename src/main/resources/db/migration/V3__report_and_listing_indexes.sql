@@ -0,0 +1,127 @@
+-- Composite / partial indexes theo các query thực tế trong repositories.
+-- Danh sách query được kiểm tra bằng EXPLAIN trong QueryPlanRegressionTest.
+
+-- ============================================
+-- ORDERS
+-- ============================================
+
+-- Báo cáo doanh thu (OrderRepository.getRevenueByDay / getRevenueByOrderType, phần "hôm nay"):
+-- range created_at + các filter optional, INCLUDE để index-only scan không cần đọc heap
+create index idx_orders_created_at_report
+    on orders (created_at)
+    include (status, order_type, payment_method, employee_id, customer_tier_id, final_amount);
+
+-- findByStatusAndDateRange
+create index idx_orders_status_created_at
+    on orders (status, created_at);
+
+-- Danh sách đơn của customer / nhân viên (findByCustomer_Id, findByEmployee_Id)
+create index idx_orders_customer_created_at
+    on orders (customer_id, created_at);
+
+create index idx_orders_employee_created_at
+    on orders (employee_id, created_at);
+
+-- countCompletedOrdersByCustomer
+create index idx_orders_customer_completed
+    on orders (customer_id)
+    where status = 'COMPLETED';
+
+-- Sweeper đơn online PENDING quá hạn (cancelStalePendingOnlineOrders)
+create index idx_orders_stale_pending_online
+    on orders (created_at)
+    where status = 'PENDING'
+      and order_type in ('ONLINE_COD', 'ONLINE_TRANSFER')
+      and is_deleted = false;
+
+-- ============================================
+-- ORDER ITEMS
+-- ============================================
+
+-- Join order -> items (reports, reserve/confirm theo orderIds, warranty)
+create index idx_order_items_order_id
+    on order_items (order_id);
+
+create index idx_order_items_product_variant_id
+    on order_items (product_variant_id);
+
+-- ============================================
+-- INVENTORY / SERIALS
+-- ============================================
+
+-- findByProductVariantId + conditional UPDATE reserve/unreserve/confirm
+create index idx_inventory_product_variant_id
+    on inventory (product_variant_id)
+    where is_deleted = false;
+
+create index idx_inventory_part_component_id
+    on inventory (part_component_id)
+    where is_deleted = false;
+
+-- Cấp phát serial FIFO (SKIP LOCKED) chỉ đọc serial AVAILABLE
+create index idx_product_serials_available_fifo
+    on product_serials (product_variant_id, created_at)
+    where status = 'AVAILABLE';
+
+-- Trả serial khi huỷ đơn (ProductSerialRepository.releaseForOrders)
+create index idx_product_serials_order_id
+    on product_serials (order_id)
+    where order_id is not null;
+
+-- ============================================
+-- STOCK TRANSACTIONS
+-- ============================================
+
+-- findByDateRange / findProductTransactionsByDateRange / findComponentTransactionsByDateRange
+create index idx_stock_transactions_created_at
+    on stock_transactions (created_at)
+    where is_deleted = false;
+
+-- findByInventoryIdAndDateRange / findAllByInventoryIdAndIsDeletedFalse
+create index idx_stock_transactions_inventory_created_at
+    on stock_transactions (inventory_id, created_at)
+    where is_deleted = false;
+
+-- findAllByReferenceIdAndIsDeletedFalse
+create index idx_stock_transactions_reference_id
+    on stock_transactions (reference_id)
+    where is_deleted = false;
+
+-- ============================================
+-- PROMOTION USAGE HISTORY
+-- ============================================
+
+-- countByPromotionIdAndCustomerId / countByCustomerIdGroupByPromotion
+create index idx_promotion_usage_customer_promotion
+    on promotion_usage_history (customer_id, promotion_id);
+
+-- deleteByOrderIdIn (restore usage khi huỷ đơn)
+create index idx_promotion_usage_order_id
+    on promotion_usage_history (order_id);
+
+-- OrderPromotionRepository.findPromotionUsagesOfOrders (promotion cấp đơn + cấp sản phẩm)
+create index idx_order_promotions_order_id
+    on order_promotions (order_id);
+
+create index idx_order_item_promotions_order_item_id
+    on order_item_promotions (order_item_id);
+
+-- ============================================
+-- AUDIT LOGS
+-- ============================================
+
+-- findByModuleAndDateRange
+create index idx_audit_logs_module_created_at
+    on audit_logs (module, created_at);
+
+-- findAllByActorId / findAllWithFilters theo actor
+create index idx_audit_logs_actor_created_at
+    on audit_logs (actor_id, created_at);
+
+-- findAllByResourceIdAndResourceType
+create index idx_audit_logs_resource
+    on audit_logs (resource_id, resource_type);
+
+-- findAllOrderByCreatedAtDesc / findAllWithFilters theo khoảng thời gian
+create index idx_audit_logs_created_at
+    on audit_logs (created_at);
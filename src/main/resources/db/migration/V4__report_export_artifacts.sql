@@ -0,0 +1,9 @@
+-- File export đã upload được dùng lại cho các export giống hệt nhau (ReportExportJobServiceImpl):
+-- filter_hash = SHA-256 của report type + format + filters
+alter table reports
+    add column filter_hash varchar(64);
+
+-- ReportRepository.findFirstByFilterHashAndIsDeletedFalseAndCreatedAtAfterOrderByCreatedAtDesc
+create index idx_reports_filter_hash_created_at
+    on reports (filter_hash, created_at)
+    where is_deleted = false;
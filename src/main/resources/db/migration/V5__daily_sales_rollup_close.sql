@@ -0,0 +1,49 @@
+-- daily_sales_rollup chỉ chứa các ngày đã chốt (DailySalesRollupScheduler), checkout không ghi rollup.
+-- closed_through: ngày cuối cùng đã dựng rollup; report đọc rollup tới ngày này, các ngày sau đọc orders
+create table daily_sales_rollup_watermark (
+    id integer primary key check (id = 1),
+    closed_through date not null
+);
+
+-- Dựng rollup cho mọi ngày trước hôm nay từ orders / order_items (cùng công thức với
+-- DailySalesRollupRepository.BUILD_DAYS), thay cho việc backfill lúc app khởi động
+delete from daily_sales_rollup;
+
+insert into daily_sales_rollup (sales_date, product_variant_id, order_type, payment_method,
+                                employee_id, customer_tier_id, status, order_count, order_revenue,
+                                quantity, item_revenue, item_cost, item_profit)
+with src as (
+    select o.id, o.created_at, o.order_type, o.payment_method, o.employee_id, o.customer_tier_id,
+           o.final_amount, o.status
+    from orders o
+    where o.created_at < current_date
+),
+contributions as (
+    select cast(s.created_at as date) as sales_date,
+           cast('00000000-0000-0000-0000-000000000000' as uuid) as product_variant_id,
+           s.order_type, s.payment_method, s.employee_id, s.customer_tier_id, s.status,
+           1 as order_count, coalesce(s.final_amount, 0) as order_revenue,
+           0 as quantity, cast(0 as numeric) as item_revenue,
+           cast(0 as numeric) as item_cost, cast(0 as numeric) as item_profit
+    from src s
+    union all
+    select cast(s.created_at as date), oi.product_variant_id,
+           s.order_type, s.payment_method, s.employee_id, s.customer_tier_id, s.status,
+           0, 0,
+           oi.quantity, oi.subtotal - coalesce(oi.discount, 0),
+           oi.quantity * oi.cost_price,
+           oi.subtotal - coalesce(oi.discount, 0) - oi.quantity * oi.cost_price
+    from src s join order_items oi on oi.order_id = s.id
+)
+select c.sales_date, c.product_variant_id,
+       coalesce(c.order_type, ''), coalesce(c.payment_method, ''),
+       coalesce(c.employee_id, cast('00000000-0000-0000-0000-000000000000' as uuid)),
+       coalesce(c.customer_tier_id, cast('00000000-0000-0000-0000-000000000000' as uuid)),
+       coalesce(c.status, ''),
+       sum(c.order_count), coalesce(sum(c.order_revenue), 0), sum(c.quantity),
+       coalesce(sum(c.item_revenue), 0), coalesce(sum(c.item_cost), 0), coalesce(sum(c.item_profit), 0)
+from contributions c
+group by 1, 2, 3, 4, 5, 6, 7;
+
+insert into daily_sales_rollup_watermark (id, closed_through)
+values (1, current_date - 1);
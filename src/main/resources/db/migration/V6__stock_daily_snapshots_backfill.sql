@@ -0,0 +1,16 @@
+-- Dựng stock_daily_snapshots từ lịch sử stock_transactions (giá bán hiện tại) cho dữ liệu có trước khi có bảng
+-- snapshot; sau đó snapshots được cộng dồn khi ghi StockTransaction (StockSnapshotRecorder).
+-- Bỏ qua transactions của phiếu điều chỉnh: đó là dự kiến, biến động thật được ghi khi duyệt phiếu.
+-- Ngày đã có snapshot thì giữ nguyên.
+insert into stock_daily_snapshots (snapshot_date, item_type, quantity_change, value_change)
+select cast(st.created_at as date),
+       case when i.product_variant_id is not null then 'PRODUCT' else 'COMPONENT' end,
+       sum(st.quantity),
+       coalesce(sum(st.quantity * coalesce(pv.selling_price, pc.selling_price)), 0)
+from stock_transactions st
+join inventory i on i.id = st.inventory_id
+left join product_variants pv on pv.id = i.product_variant_id
+left join part_components pc on pc.id = i.part_component_id
+where st.is_deleted = false and st.inventory_adjustment_id is null
+group by 1, 2
+on conflict (snapshot_date, item_type) do nothing;
@@ -0,0 +1,36 @@
+-- Chuyển JSON promotions.applicable_customer_tiers (["GOLD", "PLATINUM"]) sang bảng promotion_customer_tiers.
+-- Giữ đúng điều kiện cũ: tên tier được so khớp chính xác với customer_tiers.name (phân biệt hoa thường).
+-- Chuỗi rỗng = không giới hạn tier như trước -> null.
+-- JSON không parse được, mảng rỗng "[]" hay không khớp tier nào: giữ nguyên JSON, promotion vẫn bị giới hạn tier
+-- (không customer nào đủ điều kiện, giống hành vi cũ).
+update promotions set applicable_customer_tiers = null where applicable_customer_tiers = '';
+
+do $$
+declare
+    promo record;
+    tier_names jsonb;
+begin
+    for promo in select id, applicable_customer_tiers from promotions where applicable_customer_tiers is not null loop
+        begin
+            tier_names := cast(promo.applicable_customer_tiers as jsonb);
+        exception when others then
+            continue;
+        end;
+        if jsonb_typeof(tier_names) <> 'array' then
+            continue;
+        end if;
+
+        insert into promotion_customer_tiers (customer_tier_id, promotion_id)
+        select distinct t.id, promo.id
+        from jsonb_array_elements(tier_names) as e(tier_name)
+        join customer_tiers t on t.name = e.tier_name #>> '{}'
+        where jsonb_typeof(e.tier_name) = 'string'
+        on conflict do nothing;
+
+        -- Tên không khớp tier nào vốn không cho ai đủ điều kiện -> bỏ được khi đã khớp ít nhất 1 tier
+        if found then
+            update promotions set applicable_customer_tiers = null where id = promo.id;
+        end if;
+    end loop;
+end
+$$;
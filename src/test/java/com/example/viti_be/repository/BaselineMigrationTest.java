@@ -0,0 +1,109 @@
+package com.example.viti_be.repository;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Database đang chạy trước khi có Flyway (schema = V1__baseline_schema, do ddl-auto=update tạo):
+ * được baseline ở V1, các migration sau phải đưa schema tới đúng entity mappings (context chỉ start
+ * được khi ddl-auto=validate pass) và dựng dữ liệu cho các bảng mới.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestPropertySource(properties = "spring.jpa.hibernate.ddl-auto=validate")
+class BaselineMigrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Chạy trước khi Spring context (và Flyway) start: dựng schema cũ + vài đơn
+     */
+    @BeforeAll
+    static void createPreFlywaySchema() throws Exception {
+        String baseline = new ClassPathResource("db/migration/V1__baseline_schema.sql")
+                .getContentAsString(StandardCharsets.UTF_8);
+        try (Connection connection = DriverManager.getConnection(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+             Statement statement = connection.createStatement()) {
+            statement.execute(baseline);
+            statement.execute("""
+                    INSERT INTO orders (id, order_number, created_at, status, order_type, final_amount, is_deleted)
+                    VALUES (gen_random_uuid(), 'OLD-1', CURRENT_DATE - 1 + INTERVAL '10 hours', 'COMPLETED', 'OFFLINE', 100000, false),
+                           (gen_random_uuid(), 'OLD-2', CURRENT_DATE - 1 + INTERVAL '11 hours', 'COMPLETED', 'OFFLINE', 50000, false),
+                           (gen_random_uuid(), 'TODAY-1', CURRENT_DATE + INTERVAL '1 second', 'PENDING', 'OFFLINE', 70000, false)
+                    """);
+            statement.execute("""
+                    INSERT INTO customer_tiers (id, name, is_deleted) VALUES (gen_random_uuid(), 'Gold', false);
+                    INSERT INTO promotions (id, code, name, type, scope, status, value, priority, start_date, end_date,
+                                            applicable_customer_tiers)
+                    SELECT gen_random_uuid(), v.code, v.code, 'PERCENTAGE', 'ORDER', 'ACTIVE', 10, 0,
+                           CURRENT_DATE, CURRENT_DATE + 30, v.tiers
+                    FROM (VALUES ('EXACT', '["Gold", "Silver"]'), ('CASE', '["GOLD"]'), ('EMPTY', '[]'),
+                                 ('BROKEN', 'Gold'), ('BLANK', '')) AS v(code, tiers)
+                    """);
+        }
+    }
+
+    @Test
+    void baselinesAtV1AndAppliesLaterMigrations() {
+        List<String> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM flyway_schema_history WHERE success ORDER BY installed_rank", String.class);
+        String baselineType = jdbcTemplate.queryForObject(
+                "SELECT type FROM flyway_schema_history WHERE version = '1'", String.class);
+
+        assertThat(versions).startsWith("1", "2").hasSizeGreaterThan(2);
+        assertThat(baselineType).isEqualTo("BASELINE");
+    }
+
+    @Test
+    void buildsRollupForClosedDaysOnly() {
+        // So với CURRENT_DATE của database (timezone của container có thể khác JVM)
+        Integer closedDaysAgo = jdbcTemplate.queryForObject(
+                "SELECT CURRENT_DATE - closed_through FROM daily_sales_rollup_watermark", Integer.class);
+        List<Integer> rollupDaysAgo = jdbcTemplate.queryForList(
+                "SELECT DISTINCT CURRENT_DATE - sales_date FROM daily_sales_rollup", Integer.class);
+        Long yesterdayOrders = jdbcTemplate.queryForObject(
+                "SELECT SUM(order_count) FROM daily_sales_rollup WHERE sales_date = CURRENT_DATE - 1", Long.class);
+
+        assertThat(closedDaysAgo).isEqualTo(1);
+        assertThat(rollupDaysAgo).containsExactly(1);
+        assertThat(yesterdayOrders).isEqualTo(2L);
+    }
+
+    @Test
+    void migratesLegacyCustomerTiersWithExactNames() {
+        List<String> linkedCodes = jdbcTemplate.queryForList("""
+                SELECT p.code FROM promotion_customer_tiers pct JOIN promotions p ON p.id = pct.promotion_id
+                """, String.class);
+        List<String> legacyCodes = jdbcTemplate.queryForList(
+                "SELECT code FROM promotions WHERE applicable_customer_tiers IS NOT NULL", String.class);
+
+        assertThat(linkedCodes).containsExactly("EXACT");
+        // Không khớp tier nào / "[]" / JSON hỏng: vẫn giới hạn tier như trước
+        assertThat(legacyCodes).containsExactlyInAnyOrder("CASE", "EMPTY", "BROKEN");
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.viti_be.repository;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Các hot query phải dùng được index của Flyway migrations (V3__report_and_listing_indexes, V4__report_export_artifacts).
+ *
+ * Bảng test gần như rỗng nên planner luôn thích Seq Scan; với enable_seqscan = off,
+ * Seq Scan chỉ còn xuất hiện trong plan khi không có index nào dùng được cho query.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class QueryPlanRegressionTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final String ID = "'00000000-0000-0000-0000-000000000001'";
+    private static final String LAST_MONTH = "now() - interval '30 days' AND now()";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static Stream<HotQuery> hotQueries() {
+        return Stream.of(
+                new HotQuery("orders", "DailySalesRollupRepository.getRevenueSummary (orders)", """
+                        SELECT CAST(o.created_at AS date), SUM(o.final_amount), COUNT(o.id)
+                        FROM orders o
+                        WHERE o.created_at BETWEEN %s AND o.status = 'COMPLETED' AND o.order_type = 'OFFLINE'
+                        GROUP BY 1
+                        """.formatted(LAST_MONTH)),
+                new HotQuery("orders", "OrderRepository.findByStatusAndDateRange", """
+                        SELECT * FROM orders WHERE status = 'COMPLETED' AND created_at BETWEEN %s
+                        """.formatted(LAST_MONTH)),
+                new HotQuery("orders", "OrderRepository.lockStalePendingOnlineOrders", """
+                        SELECT id FROM orders
+                        WHERE status = 'PENDING' AND order_type IN ('ONLINE_COD', 'ONLINE_TRANSFER')
+                          AND created_at < now() - interval '30 minutes' AND is_deleted = false
+                        ORDER BY created_at ASC LIMIT 200
+                        """),
+                new HotQuery("orders", "OrderRepository.findByCustomer_Id", """
+                        SELECT * FROM orders WHERE customer_id = %s ORDER BY created_at DESC LIMIT 20
+                        """.formatted(ID)),
+                new HotQuery("orders", "OrderRepository.countCompletedOrdersByCustomer", """
+                        SELECT COUNT(*) FROM orders WHERE customer_id = %s AND status = 'COMPLETED'
+                        """.formatted(ID)),
+                new HotQuery("order_items", "InventoryRepository.confirmReservedOutForOrders", """
+                        SELECT product_variant_id, SUM(quantity) FROM order_items
+                        WHERE order_id IN (%s) GROUP BY product_variant_id
+                        """.formatted(ID)),
+                new HotQuery("inventory", "InventoryRepository.findByProductVariantId", """
+                        SELECT * FROM inventory WHERE product_variant_id = %s AND is_deleted = false
+                        """.formatted(ID)),
+                new HotQuery("product_serials", "ProductSerialRepository.claimAvailableSerials", """
+                        SELECT id FROM product_serials
+                        WHERE product_variant_id = %s AND status = 'AVAILABLE'
+                        ORDER BY created_at ASC LIMIT 5 FOR UPDATE SKIP LOCKED
+                        """.formatted(ID)),
+                new HotQuery("stock_transactions", "StockTransactionRepository.findByDateRange", """
+                        SELECT * FROM stock_transactions
+                        WHERE created_at BETWEEN %s AND is_deleted = false ORDER BY created_at ASC
+                        """.formatted(LAST_MONTH)),
+                new HotQuery("promotion_usage_history", "PromotionUsageHistoryRepository.countByPromotionIdAndCustomerId", """
+                        SELECT COUNT(*) FROM promotion_usage_history WHERE promotion_id = %s AND customer_id = %s
+                        """.formatted(ID, ID)),
+                new HotQuery("audit_logs", "AuditLogRepository.findByModuleAndDateRange", """
+                        SELECT * FROM audit_logs
+                        WHERE module = 'ORDER' AND created_at BETWEEN %s ORDER BY created_at DESC
+                        """.formatted(LAST_MONTH)),
+                new HotQuery("reports", "ReportRepository.findFirstByFilterHash...CreatedAtAfter", """
+                        SELECT * FROM reports
+                        WHERE filter_hash = 'abc' AND is_deleted = false AND created_at > now() - interval '10 minutes'
+                        ORDER BY created_at DESC LIMIT 1
+                        """),
+                new HotQuery("daily_sales_rollup", "DailySalesRollupRepository.getRevenueSummary (rollup)", """
+                        SELECT sales_date, SUM(order_revenue), SUM(order_count) FROM daily_sales_rollup
+                        WHERE sales_date BETWEEN CURRENT_DATE - 30 AND CURRENT_DATE - 1
+                        GROUP BY sales_date
+                        """)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("hotQueries")
+    void hotQueryDoesNotFallBackToSequentialScan(HotQuery query) {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + query.sql(), String.class);
+
+        assertThat(plan)
+                .as("Plan của %s:%n%s", query.name(), String.join("\n", plan))
+                .noneMatch(line -> line.contains("Seq Scan on " + query.table()));
+    }
+
+    record HotQuery(String table, String name, String sql) {
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
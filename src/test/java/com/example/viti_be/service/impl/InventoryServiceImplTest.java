@@ -0,0 +1,280 @@
+package com.example.viti_be.service.impl;
+
+import com.example.viti_be.exception.BadRequestException;
+import com.example.viti_be.model.Inventory;
+import com.example.viti_be.model.Product;
+import com.example.viti_be.model.ProductSerial;
+import com.example.viti_be.model.ProductVariant;
+import com.example.viti_be.model.model_enum.ProductSerialStatus;
+import com.example.viti_be.repository.InventoryRepository;
+import com.example.viti_be.repository.ProductRepository;
+import com.example.viti_be.repository.ProductSerialRepository;
+import com.example.viti_be.repository.ProductVariantRepository;
+import com.example.viti_be.service.SystemConfigService;
+import com.example.viti_be.service.inventory.StockJournal;
+import com.example.viti_be.service.inventory.StockSnapshotRecorder;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Load test cho reserve stock (conditional UPDATE) + cấp phát serial (SKIP LOCKED):
+ * checkout song song trên hot SKU không được oversell, không trùng serial
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({InventoryServiceImpl.class, StockSnapshotRecorder.class, StockJournal.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=20")
+class InventoryServiceImplTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private InventoryServiceImpl inventoryService;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductSerialRepository productSerialRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private SystemConfigService systemConfigService;
+
+    @Test
+    void parallelReservationsOnHotSkuNeverOversell() throws Exception {
+        UUID variantId = variantWithStock(50);
+
+        int successes = runInParallel(500, () ->
+                inventoryService.reserveStock(variantId, 1, "ORD-HOT", null));
+
+        Inventory inventory = inventory(variantId);
+        assertThat(successes).isEqualTo(50);
+        assertThat(inventory.getQuantityAvailable()).isZero();
+        assertThat(inventory.getQuantityReserved()).isEqualTo(50);
+    }
+
+    @Test
+    void parallelMultiLineOrdersNeverOversellOrDeadlock() throws Exception {
+        List<UUID> variantIds = List.of(variantWithStock(30), variantWithStock(30), variantWithStock(30));
+
+        // Mỗi đơn giữ cả 3 variants, thứ tự dòng ngẫu nhiên (DB lock theo thứ tự variant id)
+        int successes = runInParallel(200, () -> {
+            List<UUID> shuffled = new ArrayList<>(variantIds);
+            Collections.shuffle(shuffled);
+            Map<UUID, Integer> lines = new LinkedHashMap<>();
+            shuffled.forEach(id -> lines.put(id, 1));
+            inventoryService.reserveStock(lines, "ORD-MULTI", null);
+        });
+
+        assertThat(successes).isEqualTo(30);
+        for (UUID variantId : variantIds) {
+            Inventory inventory = inventory(variantId);
+            assertThat(inventory.getQuantityAvailable()).isZero();
+            assertThat(inventory.getQuantityReserved()).isEqualTo(30);
+        }
+    }
+
+    @Test
+    void failedLineRollsBackWholeOrder() {
+        UUID inStock = variantWithStock(10);
+        UUID outOfStock = variantWithStock(0);
+
+        assertThatThrownBy(() -> inventoryService.reserveStock(
+                Map.of(inStock, 2, outOfStock, 1), "ORD-PARTIAL", null))
+                .isInstanceOf(BadRequestException.class);
+
+        assertThat(inventory(inStock).getQuantityAvailable()).isEqualTo(10);
+        assertThat(inventory(inStock).getQuantityReserved()).isZero();
+    }
+
+    @Test
+    void batchReservationRefreshesInventoryLoadedInSameTransaction() {
+        UUID variantId = variantWithStock(10);
+
+        Inventory reloaded = new TransactionTemplate(transactionManager).execute(status -> {
+            // Inventory đã managed trong persistence context trước khi UPDATE theo lô
+            inventoryRepository.findByProductVariantId(variantId).orElseThrow();
+            inventoryService.reserveStock(Map.of(variantId, 3), "ORD-MANAGED", null);
+            return inventoryRepository.findByProductVariantId(variantId).orElseThrow();
+        });
+
+        assertThat(reloaded.getQuantityAvailable()).isEqualTo(7);
+        assertThat(reloaded.getQuantityReserved()).isEqualTo(3);
+    }
+
+    @Test
+    void unreserveAndConfirmMoveReservedStock() {
+        UUID variantId = variantWithStock(10);
+        inventoryService.reserveStock(variantId, 4, "ORD-1", null);
+
+        inventoryService.unreserveStock(variantId, 1, "ORD-1", null);
+        inventoryService.confirmStockOut(variantId, 3, "ORD-1", null);
+
+        Inventory inventory = inventory(variantId);
+        assertThat(inventory.getQuantityAvailable()).isEqualTo(7);
+        assertThat(inventory.getQuantityReserved()).isZero();
+        assertThat(inventory.getQuantityPhysical()).isEqualTo(7);
+        assertThatThrownBy(() -> inventoryService.confirmStockOut(variantId, 1, "ORD-1", null))
+                .isInstanceOf(BadRequestException.class);
+    }
+
+    @Test
+    void confirmStockOutRecordsNegativeSnapshotChange() {
+        UUID variantId = variantWithStock(10);
+        inventoryService.reserveStock(variantId, 3, "ORD-SNAPSHOT", null);
+        long before = todayProductQuantityChange();
+
+        inventoryService.confirmStockOut(variantId, 3, "ORD-SNAPSHOT", null);
+
+        assertThat(todayProductQuantityChange()).isEqualTo(before - 3);
+    }
+
+    @Test
+    void journalIsWrittenOnCommitAndDiscardedOnRollback() {
+        UUID inStock = variantWithStock(10);
+        UUID outOfStock = variantWithStock(0);
+
+        inventoryService.reserveStock(Map.of(inStock, 2), "ORD-JOURNAL", null);
+        inventoryService.unreserveStock(inStock, 1, "ORD-JOURNAL", null);
+        assertThatThrownBy(() -> inventoryService.reserveStock(
+                Map.of(inStock, 1, outOfStock, 1), "ORD-ROLLBACK", null))
+                .isInstanceOf(BadRequestException.class);
+
+        List<String> movements = jdbcTemplate.queryForList(
+                "SELECT movement_type FROM stock_journal WHERE product_variant_id = ?",
+                String.class, inStock);
+        assertThat(movements).containsExactlyInAnyOrder("RESERVE", "UNRESERVE");
+    }
+
+    @Test
+    void parallelSerialAllocationsReturnDisjointSerials() throws Exception {
+        UUID variantId = variantWithStock(20);
+        ProductVariant variant = productVariantRepository.findById(variantId).orElseThrow();
+        for (int i = 0; i < 20; i++) {
+            productSerialRepository.save(ProductSerial.builder()
+                    .productVariant(variant)
+                    .serialNumber("SN-" + UUID.randomUUID())
+                    .status(ProductSerialStatus.AVAILABLE)
+                    .createdAt(LocalDateTime.now().plusSeconds(i))
+                    .build());
+        }
+
+        Set<UUID> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger duplicates = new AtomicInteger();
+        int successes = runInParallel(40, () -> inventoryService
+                .allocateSerials(variantId, null, 1, LocalDateTime.now().plusMonths(12))
+                .forEach(serial -> {
+                    if (!claimed.add(serial.getId())) {
+                        duplicates.incrementAndGet();
+                    }
+                }));
+
+        assertThat(successes).isEqualTo(20);
+        assertThat(duplicates.get()).isZero();
+        assertThat(productSerialRepository.countByProductVariantIdAndStatus(variantId, ProductSerialStatus.SOLD))
+                .isEqualTo(20);
+    }
+
+    /**
+     * Chạy attempts lần action song song, đếm số lần thành công.
+     * Chỉ chấp nhận BadRequestException (hết hàng), lỗi khác (deadlock, ...) làm test fail.
+     */
+    private int runInParallel(int attempts, Runnable action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    action.run();
+                    successes.incrementAndGet();
+                } catch (BadRequestException e) {
+                    // Hết hàng
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return successes.get();
+    }
+
+    private UUID variantWithStock(int quantity) {
+        Product product = new Product();
+        product.setName("Load test product");
+        product.setStatus("ACTIVE");
+        product = productRepository.save(product);
+
+        ProductVariant variant = new ProductVariant();
+        variant.setProduct(product);
+        variant.setSku("SKU-" + UUID.randomUUID());
+        variant = productVariantRepository.save(variant);
+
+        inventoryRepository.save(Inventory.builder()
+                .productVariant(variant)
+                .quantityPhysical(quantity)
+                .quantityReserved(0)
+                .quantityAvailable(quantity)
+                .build());
+        return variant.getId();
+    }
+
+    private long todayProductQuantityChange() {
+        return jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(quantity_change), 0) FROM stock_daily_snapshots
+                WHERE snapshot_date = ? AND item_type = 'PRODUCT'
+                """, Long.class, LocalDate.now());
+    }
+
+    private Inventory inventory(UUID variantId) {
+        return inventoryRepository.findByProductVariantId(variantId).orElseThrow();
+    }
+}
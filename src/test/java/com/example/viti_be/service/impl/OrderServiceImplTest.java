@@ -0,0 +1,247 @@
+package com.example.viti_be.service.impl;
+
+import com.example.viti_be.dto.request.BulkOrderStatusRequest;
+import com.example.viti_be.dto.request.CreateOrderRequest;
+import com.example.viti_be.dto.request.OrderItemRequest;
+import com.example.viti_be.dto.response.BulkOrderStatusResponse;
+import com.example.viti_be.dto.response.OrderResponse;
+import com.example.viti_be.exception.BadRequestException;
+import com.example.viti_be.model.*;
+import com.example.viti_be.model.model_enum.OrderStatus;
+import com.example.viti_be.model.model_enum.OrderType;
+import com.example.viti_be.model.model_enum.PaymentMethod;
+import com.example.viti_be.model.model_enum.ProductSerialStatus;
+import com.example.viti_be.repository.*;
+import com.example.viti_be.service.*;
+import com.example.viti_be.service.inventory.StockJournal;
+import com.example.viti_be.service.inventory.StockSnapshotRecorder;
+import com.example.viti_be.service.order.BlockOrderNumberAllocator;
+import com.example.viti_be.service.order.DailySalesRollupRecorder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+/**
+ * Số statements khi tạo đơn không được tăng theo số dòng
+ * (variants load 1 query, reserve/claim serial 1 statement, OrderItems insert theo JDBC batch)
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import({OrderServiceImpl.class, InventoryServiceImpl.class, StockSnapshotRecorder.class, StockJournal.class,
+        BlockOrderNumberAllocator.class, DailySalesRollupRecorder.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class OrderServiceImplTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final int SERIALS_PER_VARIANT = 3;
+
+    @Autowired
+    private OrderServiceImpl orderService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private InventoryRepository inventoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository productVariantRepository;
+
+    @Autowired
+    private ProductSerialRepository productSerialRepository;
+
+    @MockitoBean private AuditLogService auditLogService;
+    @MockitoBean private LoyaltyPointService loyaltyPointService;
+    @MockitoBean private CustomerService customerService;
+    @MockitoBean private NotificationService notificationService;
+    @MockitoBean private SystemConfigService systemConfigService;
+    @MockitoBean private PromotionService promotionService;
+    @MockitoBean private PromotionQuotaService promotionQuotaService;
+
+    private UUID employeeId;
+    private UUID customerId;
+
+    @BeforeEach
+    void setUp() {
+        when(systemConfigService.getWarrantyPeriodMonths()).thenReturn(12);
+
+        User employee = new User();
+        employee.setUsername("staff-" + UUID.randomUUID());
+        employee.setPassword("secret");
+        employeeId = userRepository.save(employee).getId();
+
+        Customer customer = new Customer();
+        customer.setFullName("Batch test customer");
+        customer.setPhone(UUID.randomUUID().toString().substring(0, 20));
+        customerId = customerRepository.save(customer).getId();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithOrderLines() {
+        long singleLine = statementsForOrder(1);
+        long manyLines = statementsForOrder(20);
+
+        assertThat(manyLines).isEqualTo(singleLine);
+    }
+
+    @Test
+    void bulkCancelReleasesStockAndReportsPerOrderOutcomes() {
+        ProductVariant variant = variantWithSerials();
+        OrderResponse first = orderService.createOrder(orderOf(line(variant.getId(), null, 1)), employeeId);
+        OrderResponse second = orderService.createOrder(orderOf(line(variant.getId(), null, 2)), employeeId);
+        UUID missingId = UUID.randomUUID();
+
+        BulkOrderStatusResponse result = orderService.bulkUpdateOrderStatus(BulkOrderStatusRequest.builder()
+                .orderIds(List.of(first.getId(), missingId, second.getId(), first.getId()))
+                .status(OrderStatus.CANCELLED)
+                .reason("Bulk cancel test")
+                .build(), employeeId);
+
+        assertThat(result.getSucceeded()).isEqualTo(2);
+        assertThat(result.getFailed()).isEqualTo(1);
+        assertThat(result.getResults()).extracting(BulkOrderStatusResponse.OrderOutcome::getOrderId)
+                .containsExactly(first.getId(), missingId, second.getId());
+        assertThat(result.getResults().get(1).getSuccess()).isFalse();
+
+        Inventory inventory = inventoryRepository.findByProductVariantId(variant.getId()).orElseThrow();
+        assertThat(inventory.getQuantityReserved()).isZero();
+        assertThat(inventory.getQuantityAvailable()).isEqualTo(SERIALS_PER_VARIANT);
+        assertThat(productSerialRepository.countByProductVariantIdAndStatus(variant.getId(), ProductSerialStatus.AVAILABLE))
+                .isEqualTo(SERIALS_PER_VARIANT);
+    }
+
+    @Test
+    void rejectsInvalidSerialLinesBeforeReservingStock() {
+        ProductVariant variant = variantWithSerials();
+        UUID serialId = productSerialRepository
+                .findByProductVariantIdAndStatus(variant.getId(), ProductSerialStatus.AVAILABLE)
+                .get(0).getId();
+
+        assertThatThrownBy(() -> orderService.createOrder(
+                orderOf(line(variant.getId(), serialId, 2)), employeeId))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Quantity must be 1");
+        assertThatThrownBy(() -> orderService.createOrder(
+                orderOf(line(variant.getId(), serialId, 1), line(variant.getId(), serialId, 1)), employeeId))
+                .isInstanceOf(BadRequestException.class)
+                .hasMessageContaining("Serial requested more than once");
+
+        Inventory inventory = inventoryRepository.findByProductVariantId(variant.getId()).orElseThrow();
+        assertThat(inventory.getQuantityReserved()).isZero();
+    }
+
+    private CreateOrderRequest orderOf(OrderItemRequest... items) {
+        return CreateOrderRequest.builder()
+                .customerId(customerId)
+                .orderType(OrderType.OFFLINE)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(List.of(items))
+                .build();
+    }
+
+    /**
+     * Tạo 1 đơn OFFLINE gồm lines dòng FIFO (mỗi dòng 2 serials) + 1 dòng chọn serial chỉ định,
+     * trả về số statements đã prepare
+     */
+    private long statementsForOrder(int lines) {
+        List<OrderItemRequest> items = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            items.add(line(variantWithSerials().getId(), null, 2));
+        }
+        ProductVariant scanned = variantWithSerials();
+        UUID scannedSerialId = productSerialRepository
+                .findByProductVariantIdAndStatus(scanned.getId(), ProductSerialStatus.AVAILABLE)
+                .get(0).getId();
+        items.add(line(scanned.getId(), scannedSerialId, 1));
+
+        CreateOrderRequest request = CreateOrderRequest.builder()
+                .customerId(customerId)
+                .orderType(OrderType.OFFLINE)
+                .paymentMethod(PaymentMethod.CASH)
+                .items(items)
+                .build();
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        OrderResponse response = orderService.createOrder(request, employeeId);
+        long statements = statistics.getPrepareStatementCount();
+
+        assertThat(response.getItems()).hasSize(lines * 2 + 1);
+        return statements;
+    }
+
+    private OrderItemRequest line(UUID variantId, UUID serialId, int quantity) {
+        OrderItemRequest item = new OrderItemRequest();
+        item.setProductVariantId(variantId);
+        item.setProductSerialId(serialId);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private ProductVariant variantWithSerials() {
+        Product product = new Product();
+        product.setName("Batch test product");
+        product.setStatus("ACTIVE");
+        product = productRepository.save(product);
+
+        ProductVariant variant = new ProductVariant();
+        variant.setProduct(product);
+        variant.setSku("SKU-" + UUID.randomUUID());
+        variant.setSellingPrice(new BigDecimal("100000"));
+        variant = productVariantRepository.save(variant);
+
+        inventoryRepository.save(Inventory.builder()
+                .productVariant(variant)
+                .quantityPhysical(SERIALS_PER_VARIANT)
+                .quantityReserved(0)
+                .quantityAvailable(SERIALS_PER_VARIANT)
+                .build());
+        for (int i = 0; i < SERIALS_PER_VARIANT; i++) {
+            productSerialRepository.save(ProductSerial.builder()
+                    .productVariant(variant)
+                    .serialNumber("SN-" + UUID.randomUUID())
+                    .status(ProductSerialStatus.AVAILABLE)
+                    .createdAt(LocalDateTime.now().plusSeconds(i))
+                    .build());
+        }
+        return variant;
+    }
+}
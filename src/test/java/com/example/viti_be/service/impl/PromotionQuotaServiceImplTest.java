@@ -0,0 +1,138 @@
+package com.example.viti_be.service.impl;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.repository.PromotionQuotaShardRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Concurrency test cho quota shards: nhiều checkout song song trên 1 promotion không được oversell
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Import(PromotionQuotaServiceImpl.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=20")
+class PromotionQuotaServiceImplTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private PromotionQuotaServiceImpl quotaService;
+
+    @Autowired
+    private PromotionQuotaShardRepository shardRepository;
+
+    @Test
+    void parallelReservationsNeverExceedUsageLimit() throws Exception {
+        Promotion promotion = promotion(100, 0);
+
+        int successes = reserveInParallel(promotion, 300);
+
+        assertThat(successes).isEqualTo(100);
+        assertThat(quotaService.getUsedCount(promotion.getId())).isEqualTo(100);
+        assertThat(quotaService.hasRemaining(promotion)).isFalse();
+    }
+
+    @Test
+    void lazyInitializationCountsExistingUsage() throws Exception {
+        // Promotion cũ chưa có shards, đã dùng 40/50
+        Promotion promotion = promotion(50, 40);
+
+        int successes = reserveInParallel(promotion, 100);
+
+        assertThat(successes).isEqualTo(10);
+        assertThat(quotaService.getUsedCount(promotion.getId())).isEqualTo(50);
+        assertThat(shardRepository.countByPromotionId(promotion.getId()))
+                .isLessThanOrEqualTo(PromotionQuotaServiceImpl.SHARD_COUNT);
+    }
+
+    @Test
+    void releasedQuotaCanBeReservedAgain() throws Exception {
+        Promotion promotion = promotion(20, 0);
+        assertThat(reserveInParallel(promotion, 40)).isEqualTo(20);
+
+        for (int i = 0; i < 5; i++) {
+            quotaService.release(promotion.getId());
+        }
+
+        assertThat(quotaService.getUsedCount(promotion.getId())).isEqualTo(15);
+        assertThat(reserveInParallel(promotion, 40)).isEqualTo(5);
+        assertThat(quotaService.getUsedCount(promotion.getId())).isEqualTo(20);
+    }
+
+    @Test
+    void shardAvailabilityFollowsLastReservationAndRelease() throws Exception {
+        Promotion promotion = promotion(3, 0);
+        Promotion withoutShards = promotion(3, 0);
+
+        assertThat(reserveInParallel(promotion, 3)).isEqualTo(3);
+        assertThat(quotaService.findShardAvailability(List.of(promotion.getId(), withoutShards.getId())))
+                .containsExactly(Map.entry(promotion.getId(), false));
+
+        quotaService.release(promotion.getId());
+        assertThat(quotaService.findShardAvailability(List.of(promotion.getId())))
+                .containsExactly(Map.entry(promotion.getId(), true));
+    }
+
+    private int reserveInParallel(Promotion promotion, int attempts) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int i = 0; i < attempts; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                if (quotaService.tryReserve(promotion)) {
+                    successes.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        return successes.get();
+    }
+
+    /**
+     * Promotion không cần persist: quota shards chỉ lưu promotion_id
+     */
+    private Promotion promotion(int usageLimit, int usageCount) {
+        Promotion promotion = Promotion.builder()
+                .code("QUOTA-" + UUID.randomUUID())
+                .usageLimit(usageLimit)
+                .usageCount(usageCount)
+                .build();
+        promotion.setId(UUID.randomUUID());
+        return promotion;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.viti_be.service.order;
+
+import com.example.viti_be.repository.OrderNumberCounterRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Uniqueness test cho BlockOrderNumberAllocator: nhiều threads (và nhiều nodes) cấp số song song
+ */
+class BlockOrderNumberAllocatorTest {
+
+    private static final int THREADS = 16;
+    private static final int ORDERS_PER_THREAD = 10_000;
+
+    private final Map<LocalDate, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    @Test
+    void parallelAllocationIsUniqueAndMonotonicAt10kOrdersPerSecond() throws Exception {
+        OrderNumberCounterRepository repository = counterRepository();
+        Clock clock = Clock.fixed(Instant.parse("2025-01-09T03:00:00Z"), ZoneOffset.UTC);
+        // 2 nodes dùng chung counter table
+        List<BlockOrderNumberAllocator> nodes = List.of(
+                new BlockOrderNumberAllocator(repository, 500, clock),
+                new BlockOrderNumberAllocator(repository, 500, clock));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            OrderNumberAllocator allocator = nodes.get(t % nodes.size());
+            futures.add(executor.submit(() -> {
+                start.await();
+                List<String> numbers = new ArrayList<>(ORDERS_PER_THREAD);
+                for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+                    numbers.add(allocator.nextOrderNumber());
+                }
+                return numbers;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        Set<String> all = new HashSet<>();
+        int total = 0;
+        for (Future<List<String>> future : futures) {
+            List<String> numbers = future.get(60, TimeUnit.SECONDS);
+            total += numbers.size();
+            all.addAll(numbers);
+            // Trên cùng 1 node, số cấp sau luôn lớn hơn số cấp trước
+            for (int i = 1; i < numbers.size(); i++) {
+                assertThat(numbers.get(i)).isGreaterThan(numbers.get(i - 1));
+            }
+        }
+        double seconds = (System.nanoTime() - startedAt) / 1e9;
+        executor.shutdown();
+
+        assertThat(all).hasSize(total);
+        assertThat(all).allMatch(n -> n.matches("ORD-20250109-\\d{6}"));
+        assertThat(total / seconds).isGreaterThan(10_000);
+    }
+
+    @Test
+    void counterRestartsOnNewDay() {
+        MutableClock clock = new MutableClock(Instant.parse("2025-01-09T23:59:59Z"));
+        BlockOrderNumberAllocator allocator = new BlockOrderNumberAllocator(counterRepository(), 10, clock);
+
+        assertThat(allocator.nextOrderNumber()).isEqualTo("ORD-20250109-000001");
+        assertThat(allocator.nextOrderNumber()).isEqualTo("ORD-20250109-000002");
+
+        clock.instant = Instant.parse("2025-01-10T00:00:01Z");
+        assertThat(allocator.nextOrderNumber()).isEqualTo("ORD-20250110-000001");
+    }
+
+    /**
+     * Fake upsert order_number_counters (giả lập 1ms round trip cho mỗi block)
+     */
+    private OrderNumberCounterRepository counterRepository() {
+        OrderNumberCounterRepository repository = mock(OrderNumberCounterRepository.class);
+        when(repository.reserveBlock(any(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(1);
+            LocalDate date = invocation.getArgument(0);
+            int blockSize = invocation.getArgument(1);
+            return counters.computeIfAbsent(date, d -> new AtomicLong()).addAndGet(blockSize);
+        });
+        return repository;
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.viti_be.service.promotion;
+
+import com.example.viti_be.model.Promotion;
+import com.example.viti_be.model.model_enum.PromotionScope;
+import com.example.viti_be.model.model_enum.PromotionStatus;
+import com.example.viti_be.model.model_enum.PromotionType;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * PromotionCombinationOptimizer so với vét cạn trên các giỏ nhỏ ngẫu nhiên,
+ * cộng các nhánh đặc biệt: minOrderValue giới hạn product discount, hết time budget
+ */
+class PromotionCombinationOptimizerTest {
+
+    private static final int RANDOM_CARTS = 500;
+
+    private final PromotionCombinationOptimizer optimizer = new PromotionCombinationOptimizer(1_000);
+
+    @Test
+    void matchesExhaustiveSearchOnRandomSmallCarts() {
+        for (int seed = 0; seed < RANDOM_CARTS; seed++) {
+            Cart cart = randomCart(new Random(seed));
+
+            PromotionCombinationOptimizer.Result result =
+                    optimizer.optimize(cart.lines(), cart.orderCandidates(), cart.orderBase());
+
+            assertThat(result.optimal()).as("seed %d", seed).isTrue();
+            assertThat(result.totalDiscount()).as("seed %d", seed).isEqualByComparingTo(exhaustiveBest(cart));
+            assertConsistent(result);
+            if (result.orderPromotion() != null) {
+                assertThat(result.productPromotions())
+                        .as("seed %d: ORDER promotion conflicts with a selected PRODUCT promotion", seed)
+                        .noneMatch(p -> result.orderPromotion().conflictsWith(p.getId()));
+            }
+        }
+    }
+
+    @Test
+    void neverWorseThanPerLineGreedyWithoutOrderConflicts() {
+        for (int seed = 0; seed < RANDOM_CARTS; seed++) {
+            Cart cart = randomCart(new Random(seed));
+            if (hasOrderProductConflict(cart)) {
+                continue;
+            }
+
+            PromotionCombinationOptimizer.Result result =
+                    optimizer.optimize(cart.lines(), cart.orderCandidates(), cart.orderBase());
+
+            assertThat(result.totalDiscount()).as("seed %d", seed)
+                    .isGreaterThanOrEqualTo(perLineGreedy(cart));
+        }
+    }
+
+    @Test
+    void conflictingPromotionsOnDifferentLinesAreBothApplied() {
+        Promotion a = promotion(PromotionScope.PRODUCT, PromotionType.FIXED_AMOUNT, 10_000, null, 1);
+        Promotion b = promotion(PromotionScope.PRODUCT, PromotionType.FIXED_AMOUNT, 20_000, null, 1);
+        Map<UUID, CompiledPromotion> compiled = compile(List.of(a, b), Map.of(a.getId(), Set.of(b.getId())));
+
+        PromotionCombinationOptimizer.CartLine lineA = line(100_000, compiled.get(a.getId()));
+        PromotionCombinationOptimizer.CartLine lineB = line(100_000, compiled.get(b.getId()));
+        PromotionCombinationOptimizer.Result result = optimizer.optimize(
+                List.of(lineA, lineB), List.of(), BigDecimal.valueOf(200_000));
+
+        assertThat(result.productPromotions()).extracting(CompiledPromotion::getId)
+                .containsExactly(b.getId(), a.getId());
+        assertThat(result.productDiscount()).isEqualByComparingTo("30000");
+        assertThat(result.productLines()).containsEntry(a.getId(), List.of(lineA.variantId()))
+                .containsEntry(b.getId(), List.of(lineB.variantId()));
+    }
+
+    @Test
+    void capsProductDiscountToKeepOrderPromotionAboveMinOrderValue() {
+        Promotion bigLine = promotion(PromotionScope.PRODUCT, PromotionType.FIXED_AMOUNT, 100_000, null, 1);
+        Promotion smallLine = promotion(PromotionScope.PRODUCT, PromotionType.FIXED_AMOUNT, 50_000, null, 1);
+        Promotion order = promotion(PromotionScope.ORDER, PromotionType.FIXED_AMOUNT, 300_000, 900_000L, 1);
+        Map<UUID, CompiledPromotion> compiled = compile(List.of(bigLine, smallLine, order), Map.of());
+
+        // Cả 2 product discounts -> base 850k < 900k: phải bỏ 1 cái để giữ ORDER promotion
+        PromotionCombinationOptimizer.Result result = optimizer.optimize(List.of(
+                        line(600_000, compiled.get(bigLine.getId())),
+                        line(400_000, compiled.get(smallLine.getId()))),
+                List.of(compiled.get(order.getId())), BigDecimal.valueOf(1_000_000));
+
+        assertThat(result.orderPromotion().getId()).isEqualTo(order.getId());
+        assertThat(result.productPromotions()).extracting(CompiledPromotion::getId).containsExactly(bigLine.getId());
+        assertThat(result.totalDiscount()).isEqualByComparingTo("400000");
+    }
+
+    @Test
+    void returnsFeasibleSelectionWhenTimeBudgetIsExhausted() {
+        Random random = new Random(7);
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Giá trị gần bằng nhau -> bound yếu, search phải duyệt rất nhiều nodes
+            promotions.add(promotion(PromotionScope.PRODUCT, PromotionType.FIXED_AMOUNT,
+                    10_000 + random.nextInt(100), null, random.nextInt(10)));
+        }
+        Map<UUID, CompiledPromotion> compiled = compile(promotions, randomConflicts(promotions, 0.5, random));
+        Cart cart = new Cart(List.of(new PromotionCombinationOptimizer.CartLine(
+                UUID.randomUUID(), BigDecimal.valueOf(10_000_000), new ArrayList<>(compiled.values()))), List.of(),
+                BigDecimal.valueOf(10_000_000));
+
+        PromotionCombinationOptimizer.Result result = new PromotionCombinationOptimizer(0)
+                .optimize(cart.lines(), cart.orderCandidates(), cart.orderBase());
+
+        assertThat(result.optimal()).isFalse();
+        assertConsistent(result);
+        // 1 line: các PRODUCT promotions được chọn đôi một không xung đột
+        for (CompiledPromotion p : result.productPromotions()) {
+            assertThat(result.productPromotions()).noneMatch(q -> p.conflictsWith(q.getId()));
+        }
+        assertThat(result.totalDiscount()).isGreaterThanOrEqualTo(perLineGreedy(cart));
+    }
+
+    // ============================================
+    // REFERENCE IMPLEMENTATIONS
+    // ============================================
+
+    /**
+     * Vét cạn mọi tập (line, PRODUCT promotion) không xung đột trong từng line x mọi lựa chọn ORDER promotion
+     */
+    private static BigDecimal exhaustiveBest(Cart cart) {
+        List<int[]> items = new ArrayList<>();   // {line, candidate}
+        for (int l = 0; l < cart.lines().size(); l++) {
+            for (int c = 0; c < cart.lines().get(l).candidates().size(); c++) {
+                items.add(new int[]{l, c});
+            }
+        }
+
+        BigDecimal best = BigDecimal.ZERO;
+        for (int mask = 0; mask < (1 << items.size()); mask++) {
+            BigDecimal productDiscount = BigDecimal.ZERO;
+            List<CompiledPromotion> chosen = new ArrayList<>();
+            boolean feasible = true;
+            for (int a = 0; a < items.size() && feasible; a++) {
+                if ((mask & (1 << a)) == 0) continue;
+                CompiledPromotion p = candidate(cart, items.get(a));
+                for (int b = 0; b < a; b++) {
+                    if ((mask & (1 << b)) != 0 && items.get(b)[0] == items.get(a)[0]
+                            && p.conflictsWith(candidate(cart, items.get(b)).getId())) {
+                        feasible = false;
+                        break;
+                    }
+                }
+                productDiscount = productDiscount.add(p.getPromotion()
+                        .calculateDiscount(cart.lines().get(items.get(a)[0]).baseAmount()));
+                chosen.add(p);
+            }
+            if (!feasible) continue;
+
+            best = best.max(productDiscount);
+            BigDecimal base = cart.orderBase().subtract(productDiscount);
+            for (CompiledPromotion order : cart.orderCandidates()) {
+                if (chosen.stream().anyMatch(p -> order.conflictsWith(p.getId()))) continue;
+                BigDecimal minOrderValue = order.getPromotion().getMinOrderValue();
+                if (minOrderValue != null && base.compareTo(minOrderValue) < 0) continue;
+                if (base.signum() <= 0) continue;
+                best = best.max(productDiscount.add(order.getPromotion().calculateDiscount(base)));
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Cách chọn cũ: mỗi line greedy theo priority giữa các candidates của line,
+     * sau đó ORDER promotion có discount lớn nhất trên phần base còn lại (không xét xung đột ORDER)
+     */
+    private static BigDecimal perLineGreedy(Cart cart) {
+        BigDecimal productDiscount = BigDecimal.ZERO;
+        for (PromotionCombinationOptimizer.CartLine line : cart.lines()) {
+            List<CompiledPromotion> sorted = new ArrayList<>(line.candidates());
+            sorted.sort(Comparator.comparingInt(CompiledPromotion::getPriority).reversed());
+            List<CompiledPromotion> selected = new ArrayList<>();
+            for (CompiledPromotion p : sorted) {
+                if (selected.stream().noneMatch(q -> p.conflictsWith(q.getId()))) {
+                    selected.add(p);
+                    productDiscount = productDiscount.add(p.getPromotion().calculateDiscount(line.baseAmount()));
+                }
+            }
+        }
+
+        BigDecimal base = cart.orderBase().subtract(productDiscount);
+        BigDecimal orderDiscount = BigDecimal.ZERO;
+        if (base.signum() > 0) {
+            for (CompiledPromotion order : cart.orderCandidates()) {
+                BigDecimal minOrderValue = order.getPromotion().getMinOrderValue();
+                if (minOrderValue == null || base.compareTo(minOrderValue) >= 0) {
+                    orderDiscount = orderDiscount.max(order.getPromotion().calculateDiscount(base));
+                }
+            }
+        }
+        return productDiscount.add(orderDiscount);
+    }
+
+    private static void assertConsistent(PromotionCombinationOptimizer.Result result) {
+        BigDecimal perPromotion = result.productDiscounts().values().stream()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(perPromotion).isEqualByComparingTo(result.productDiscount());
+        assertThat(result.productDiscounts().keySet())
+                .containsExactlyElementsOf(result.productPromotions().stream().map(CompiledPromotion::getId).toList());
+        assertThat(result.productLines().keySet()).isEqualTo(result.productDiscounts().keySet());
+    }
+
+    // ============================================
+    // FIXTURES
+    // ============================================
+
+    private record Cart(List<PromotionCombinationOptimizer.CartLine> lines,
+                        List<CompiledPromotion> orderCandidates,
+                        BigDecimal orderBase) {
+    }
+
+    /**
+     * 1-4 lines, tối đa 12 items (line, PRODUCT promotion) để vét cạn được, 0-3 ORDER promotions
+     */
+    private static Cart randomCart(Random random) {
+        List<Promotion> promotions = new ArrayList<>();
+        int productCount = 2 + random.nextInt(5);
+        int orderCount = random.nextInt(4);
+        for (int i = 0; i < productCount + orderCount; i++) {
+            boolean percentage = random.nextBoolean();
+            PromotionScope scope = i < productCount ? PromotionScope.PRODUCT : PromotionScope.ORDER;
+            promotions.add(promotion(scope,
+                    percentage ? PromotionType.PERCENTAGE : PromotionType.FIXED_AMOUNT,
+                    percentage ? 5 + random.nextInt(40) : 10_000L * (1 + random.nextInt(30)),
+                    scope == PromotionScope.ORDER ? 100_000L * random.nextInt(15) : null,
+                    random.nextInt(5)));
+        }
+        Map<UUID, CompiledPromotion> compiled = compile(promotions, randomConflicts(promotions, 0.3, random));
+
+        List<CompiledPromotion> products = promotions.subList(0, productCount).stream()
+                .map(p -> compiled.get(p.getId())).toList();
+        List<CompiledPromotion> orders = promotions.subList(productCount, promotions.size()).stream()
+                .map(p -> compiled.get(p.getId())).toList();
+
+        List<PromotionCombinationOptimizer.CartLine> lines = new ArrayList<>();
+        BigDecimal orderBase = BigDecimal.ZERO;
+        int items = 0;
+        int lineCount = 1 + random.nextInt(4);
+        for (int l = 0; l < lineCount; l++) {
+            List<CompiledPromotion> candidates = new ArrayList<>(products);
+            Collections.shuffle(candidates, random);
+            candidates = new ArrayList<>(candidates.subList(0, Math.min(Math.min(random.nextInt(4), candidates.size()), 12 - items)));
+            items += candidates.size();
+
+            BigDecimal base = BigDecimal.valueOf(50_000L + random.nextInt(1_000_000));
+            lines.add(new PromotionCombinationOptimizer.CartLine(UUID.randomUUID(), base, candidates));
+            orderBase = orderBase.add(base);
+        }
+        return new Cart(lines, orders, orderBase);
+    }
+
+    private static boolean hasOrderProductConflict(Cart cart) {
+        return cart.orderCandidates().stream().anyMatch(order -> cart.lines().stream()
+                .flatMap(line -> line.candidates().stream())
+                .anyMatch(p -> order.conflictsWith(p.getId())));
+    }
+
+    private static CompiledPromotion candidate(Cart cart, int[] item) {
+        return cart.lines().get(item[0]).candidates().get(item[1]);
+    }
+
+    private static PromotionCombinationOptimizer.CartLine line(long baseAmount, CompiledPromotion... candidates) {
+        return new PromotionCombinationOptimizer.CartLine(UUID.randomUUID(), BigDecimal.valueOf(baseAmount), List.of(candidates));
+    }
+
+    private static Map<UUID, Set<UUID>> randomConflicts(List<Promotion> promotions, double rate, Random random) {
+        Map<UUID, Set<UUID>> conflicts = new HashMap<>();
+        for (int i = 0; i < promotions.size(); i++) {
+            for (int j = i + 1; j < promotions.size(); j++) {
+                if (random.nextDouble() < rate) {
+                    conflicts.computeIfAbsent(promotions.get(i).getId(), k -> new HashSet<>())
+                            .add(promotions.get(j).getId());
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    /**
+     * CompiledPromotion với conflict đối xứng 2 chiều (như PromotionRuleIndex)
+     */
+    private static Map<UUID, CompiledPromotion> compile(List<Promotion> promotions, Map<UUID, Set<UUID>> conflicts) {
+        Map<UUID, Set<UUID>> symmetric = new HashMap<>();
+        conflicts.forEach((a, others) -> others.forEach(b -> {
+            symmetric.computeIfAbsent(a, k -> new HashSet<>()).add(b);
+            symmetric.computeIfAbsent(b, k -> new HashSet<>()).add(a);
+        }));
+
+        Map<UUID, CompiledPromotion> compiled = new LinkedHashMap<>();
+        for (Promotion p : promotions) {
+            compiled.put(p.getId(), new CompiledPromotion(p, Collections.emptySet(),
+                    symmetric.getOrDefault(p.getId(), Collections.emptySet())));
+        }
+        return compiled;
+    }
+
+    private static Promotion promotion(PromotionScope scope, PromotionType type, long value,
+                                       Long minOrderValue, int priority) {
+        Promotion promotion = Promotion.builder()
+                .code("P-" + UUID.randomUUID())
+                .name("Test promotion")
+                .type(type)
+                .scope(scope)
+                .value(BigDecimal.valueOf(value))
+                .minOrderValue(minOrderValue != null ? BigDecimal.valueOf(minOrderValue) : null)
+                .startDate(LocalDateTime.now().minusDays(1))
+                .endDate(LocalDateTime.now().plusDays(30))
+                .status(PromotionStatus.ACTIVE)
+                .priority(priority)
+                .requiresCode(false)
+                .build();
+        promotion.setId(UUID.randomUUID());
+        return promotion;
+    }
+}